@@ -0,0 +1,48 @@
+package com.techlab.ecommerce.benchmark;
+
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.model.LineaPedido;
+import com.techlab.ecommerce.model.Pedido;
+import com.techlab.ecommerce.model.Producto;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cálculos de {@link Pedido} sobre lineas en memoria.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DominioBenchmark {
+
+    @Param({"3", "50"})
+    private int lineas;
+
+    private Pedido pedido;
+
+    @Setup
+    public void armarPedido() {
+        pedido = new Pedido();
+        pedido.setFecha(LocalDateTime.now());
+        pedido.setEstado(EstadoPedido.PENDIENTE);
+        for (int i = 0; i < lineas; i++) {
+            Producto producto = new Producto(i, "Producto " + i, null, 10.0 + i, "categoria", null, 100, true);
+            pedido.agregarLinea(new LineaPedido(producto, 1 + i % 4));
+        }
+    }
+
+    @Benchmark
+    public double calcularTotal() {
+        return pedido.calcularTotal();
+    }
+
+    @Benchmark
+    public int contarProductos() {
+        return pedido.contarProductos();
+    }
+}
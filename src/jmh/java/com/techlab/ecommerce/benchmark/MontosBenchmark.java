@@ -0,0 +1,73 @@
+package com.techlab.ecommerce.benchmark;
+
+import com.techlab.ecommerce.model.Montos;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Subtotales, total con descuento y suma de ventas sobre lineas en arreglos: el camino
+ * anterior en {@code double} contra {@link Montos} en centavos. Cada benchmark devuelve
+ * el total para que JMH no lo descarte; el de centavos es exacto, el de double no.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MontosBenchmark {
+
+    private static final double DESCUENTO = 12.5;
+
+    @Param({"50", "1000000"})
+    private int lineas;
+
+    private double[] preciosDouble;
+    private long[] preciosCentavos;
+    private int[] cantidades;
+
+    @Setup
+    public void armarLineas() {
+        preciosDouble = new double[lineas];
+        preciosCentavos = new long[lineas];
+        cantidades = new int[lineas];
+        for (int i = 0; i < lineas; i++) {
+            long centavos = 99 + (i * 37L) % 100_000;
+            preciosCentavos[i] = centavos;
+            preciosDouble[i] = Montos.aDouble(centavos);
+            cantidades[i] = 1 + i % 4;
+        }
+    }
+
+    @Benchmark
+    public double totalDouble() {
+        double total = 0.0;
+        for (int i = 0; i < lineas; i++) {
+            total = total + preciosDouble[i] * cantidades[i];
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long totalCentavos() {
+        long total = 0;
+        for (int i = 0; i < lineas; i++) {
+            total = Montos.sumar(total, Montos.subtotal(preciosCentavos[i], cantidades[i]));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double totalConDescuentoDouble() {
+        double total = totalDouble();
+        return total - total * (DESCUENTO / 100.0);
+    }
+
+    @Benchmark
+    public long totalConDescuentoCentavos() {
+        long total = totalCentavos();
+        return total - Montos.porcentaje(total, DESCUENTO, RoundingMode.HALF_EVEN);
+    }
+}
@@ -0,0 +1,97 @@
+package com.techlab.ecommerce.benchmark;
+
+import com.techlab.ecommerce.dto.Cotizacion;
+import com.techlab.ecommerce.dto.Promocion;
+import com.techlab.ecommerce.model.LineaPedido;
+import com.techlab.ecommerce.model.Montos;
+import com.techlab.ecommerce.model.Pedido;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.service.MotorPromociones;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cotizar un pedido de 50 lineas con {@link MotorPromociones} contra recorrer todas las
+ * promociones por cada linea. El motor no depende de cuántas promociones haya cargadas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromocionesBenchmark {
+
+    private static final int LINEAS = 50;
+    private static final int CATEGORIAS = 100;
+
+    @Param({"100", "10000"})
+    private int promociones;
+
+    private List<Promocion> reglas;
+    private MotorPromociones motor;
+    private Pedido pedido;
+
+    @Setup
+    public void armar() {
+        reglas = new ArrayList<>(promociones);
+        for (int i = 0; i < promociones; i++) {
+            switch (i % 4) {
+                case 0 -> reglas.add(new Promocion("p" + i, Promocion.Tipo.PRODUCTO, i, null, null, null, 1 + i % 30, null));
+                case 1 -> reglas.add(new Promocion("c" + i, Promocion.Tipo.CATEGORIA, null, "c" + i % CATEGORIAS, null, null, 1 + i % 20, null));
+                case 2 -> reglas.add(new Promocion("q" + i, Promocion.Tipo.CANTIDAD, i, null, 1 + i % 5, null, 1 + i % 40, null));
+                default -> reglas.add(new Promocion("k" + i, Promocion.Tipo.CARRITO, null, null, null, (double) (i % 1000), 1 + i % 10, null));
+            }
+        }
+        motor = new MotorPromociones();
+        motor.reemplazar(reglas);
+
+        pedido = new Pedido();
+        for (int i = 0; i < LINEAS; i++) {
+            Producto producto = new Producto(i * 7, "Producto " + i, null, 10.0 + i, "c" + i % CATEGORIAS, null, 100, true);
+            pedido.agregarLinea(new LineaPedido(producto, 1 + i % 4));
+        }
+    }
+
+    @Benchmark
+    public Cotizacion motorCompilado() {
+        return motor.calcular(pedido);
+    }
+
+    @Benchmark
+    public long recorridoLineal() {
+        long subtotal = 0;
+        long descuento = 0;
+        for (LineaPedido linea : pedido.getLineas()) {
+            long importe = linea.calcularSubtotalCentavos();
+            subtotal += importe;
+            Producto producto = linea.getProducto();
+            double mejor = 0;
+            for (Promocion regla : reglas) {
+                boolean aplica = switch (regla.tipo()) {
+                    case PRODUCTO -> producto.getId().equals(regla.productoId());
+                    case CATEGORIA -> producto.getCategoria().equals(regla.categoria());
+                    case CANTIDAD -> linea.getCantidad() >= regla.cantidadMinima()
+                            && (regla.productoId() != null ? producto.getId().equals(regla.productoId())
+                            : producto.getCategoria().equals(regla.categoria()));
+                    case CARRITO -> false;
+                };
+                if (aplica && regla.porcentaje() > mejor) {
+                    mejor = regla.porcentaje();
+                }
+            }
+            descuento += Montos.porcentaje(importe, mejor, Montos.REDONDEO);
+        }
+        double carrito = 0;
+        for (Promocion regla : reglas) {
+            if (regla.tipo() == Promocion.Tipo.CARRITO && Montos.desdeExacto(regla.montoMinimo()) <= subtotal - descuento
+                    && regla.porcentaje() > carrito) {
+                carrito = regla.porcentaje();
+            }
+        }
+        return subtotal - descuento - Montos.porcentaje(subtotal - descuento, carrito, Montos.REDONDEO);
+    }
+}
@@ -0,0 +1,82 @@
+package com.techlab.ecommerce.benchmark;
+
+import com.techlab.ecommerce.dto.PedidoRespuesta;
+import com.techlab.ecommerce.dto.ProductoRespuesta;
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.model.LineaPedido;
+import com.techlab.ecommerce.model.Pedido;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.service.MotorPromociones;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización JSON de pedidos y productos: las entidades, como se serializaban antes,
+ * y los DTOs que devuelve hoy la API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializacionBenchmark {
+
+    private static final int PRODUCTOS = 100;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    private Pedido pedido;
+    private PedidoRespuesta pedidoRespuesta;
+    private List<Producto> productos;
+    private List<ProductoRespuesta> productosRespuesta;
+
+    @Setup
+    public void armarDatos() {
+        productos = new ArrayList<>();
+        productosRespuesta = new ArrayList<>();
+        for (int i = 0; i < PRODUCTOS; i++) {
+            Producto producto = new Producto(i, "Producto " + i, "Descripción del producto " + i, 10.0 + i,
+                    "categoria-" + i % 10, "https://cdn.example.com/img/" + i + ".png", 100, true);
+            producto.setVersion(1L);
+            productos.add(producto);
+            productosRespuesta.add(ProductoRespuesta.de(producto, producto.getStock()));
+        }
+
+        pedido = new Pedido();
+        pedido.setId(1);
+        pedido.setFecha(LocalDateTime.now());
+        pedido.setEstado(EstadoPedido.PENDIENTE);
+        pedido.setClienteNombre("Cliente benchmark");
+        for (int i = 0; i < 5; i++) {
+            pedido.agregarLinea(new LineaPedido(productos.get(i), 1 + i));
+        }
+        pedidoRespuesta = PedidoRespuesta.de(pedido, new MotorPromociones().calcular(pedido));
+    }
+
+    @Benchmark
+    public byte[] pedidoEntidad() {
+        return objectMapper.writeValueAsBytes(pedido);
+    }
+
+    @Benchmark
+    public byte[] pedidoDto() {
+        return objectMapper.writeValueAsBytes(pedidoRespuesta);
+    }
+
+    @Benchmark
+    public byte[] productosEntidad() {
+        return objectMapper.writeValueAsBytes(productos);
+    }
+
+    @Benchmark
+    public byte[] productosDto() {
+        return objectMapper.writeValueAsBytes(productosRespuesta);
+    }
+}
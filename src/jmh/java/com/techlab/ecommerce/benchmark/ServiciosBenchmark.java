@@ -0,0 +1,82 @@
+package com.techlab.ecommerce.benchmark;
+
+import com.techlab.ecommerce.EcommerceApplication;
+import com.techlab.ecommerce.dto.SolicitudPedido;
+import com.techlab.ecommerce.model.Pedido;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.service.PedidoService;
+import com.techlab.ecommerce.service.ProductoService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operaciones de servicio contra la aplicación completa sobre H2 en modo PostgreSQL,
+ * con la configuración de {@code src/test/resources}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiciosBenchmark {
+
+    private static final int PRODUCTOS = 1000;
+    private static final int PEDIDOS = 200;
+
+    private ConfigurableApplicationContext contexto;
+    private ProductoService productoService;
+    private PedidoService pedidoService;
+
+    private int pedidoId;
+    private List<SolicitudPedido.Linea> lineas;
+
+    @Setup
+    public void iniciar() {
+        contexto = new SpringApplicationBuilder(EcommerceApplication.class)
+                .properties("server.port=0",
+                        "spring.jpa.properties.hibernate.generate_statistics=false",
+                        "logging.level.root=WARN")
+                .run();
+        productoService = contexto.getBean(ProductoService.class);
+        pedidoService = contexto.getBean(PedidoService.class);
+
+        for (int i = 0; i < PRODUCTOS; i++) {
+            productoService.agregarProducto(new Producto(null, "Producto " + i, null, 10.0 + i % 100,
+                    "categoria-" + i % 25, null, 1_000_000_000, true));
+        }
+        List<Integer> ids = productoService.listarTodos().stream().map(Producto::getId).toList();
+        lineas = List.of(new SolicitudPedido.Linea(ids.get(0), 1),
+                new SolicitudPedido.Linea(ids.get(1), 2),
+                new SolicitudPedido.Linea(ids.get(2), 1));
+        for (int i = 0; i < PEDIDOS; i++) {
+            pedidoId = pedidoService.crearPedido(new SolicitudPedido("Cliente " + i, lineas)).getId();
+        }
+    }
+
+    @TearDown
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Map<String, Integer> contarPorCategoria() {
+        return productoService.contarPorCategoria();
+    }
+
+    @Benchmark
+    public String obtenerResumenPedido() {
+        return pedidoService.obtenerResumenPedido(pedidoId);
+    }
+
+    @Benchmark
+    public Pedido crearYConfirmarPedido() {
+        Pedido pedido = pedidoService.crearPedido(new SolicitudPedido("Cliente benchmark", lineas));
+        return pedidoService.confirmarPedido(pedido.getId());
+    }
+}
@@ -0,0 +1,52 @@
+package com.techlab.ecommerce.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Caches de Caffeine. Las llenan e invalidan a mano {@code CatalogoCache} y
+ * {@code MotorPromociones}; no se usan anotaciones de cache.
+ */
+@Configuration
+public class CacheConfig {
+
+    public static final String PRODUCTOS = "productos";
+    public static final String PRODUCTOS_DISPONIBLES = "productosDisponibles";
+    public static final String PRODUCTOS_POR_CATEGORIA = "productosPorCategoria";
+    public static final String PRODUCTOS_POR_PRECIO = "productosPorPrecio";
+    public static final String PRODUCTOS_BUSQUEDA = "productosBusqueda";
+    public static final String COTIZACIONES = "cotizaciones";
+
+    public static final List<String> CONSULTAS = List.of(
+            PRODUCTOS_DISPONIBLES,
+            PRODUCTOS_POR_CATEGORIA,
+            PRODUCTOS_POR_PRECIO,
+            PRODUCTOS_BUSQUEDA
+    );
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${ecommerce.cache.enabled:true}") boolean habilitado,
+            @Value("${ecommerce.cache.productos.spec:maximumSize=10000,expireAfterWrite=10m}") String specProductos,
+            @Value("${ecommerce.cache.consultas.spec:maximumSize=500,expireAfterWrite=60s}") String specConsultas,
+            @Value("${ecommerce.cache.cotizaciones.spec:maximumSize=10000,expireAfterAccess=10m}") String specCotizaciones) {
+        if (!habilitado) {
+            return new NoOpCacheManager();
+        }
+
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(PRODUCTOS, Caffeine.from(specProductos).recordStats().build());
+        for (String consulta : CONSULTAS) {
+            cacheManager.registerCustomCache(consulta, Caffeine.from(specConsultas).recordStats().build());
+        }
+        cacheManager.registerCustomCache(COTIZACIONES, Caffeine.from(specCotizaciones).recordStats().build());
+        return cacheManager;
+    }
+}
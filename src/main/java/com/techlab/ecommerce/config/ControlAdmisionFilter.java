@@ -0,0 +1,211 @@
+package com.techlab.ecommerce.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tools.jackson.databind.ObjectMapper;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limita las requests de /api en curso a la cantidad de conexiones del pool.
+ *
+ * Con hilos virtuales Tomcat ya no pone un tope a la concurrencia y miles de requests
+ * terminarían esperando una conexión de Hikari hasta su timeout. Acá esperan a lo sumo
+ * {@code espera-ms} por un permiso y, si no lo consiguen, se rechazan con 503 y
+ * Retry-After para que el cliente reintente en lugar de acumularse. Por defecto solo se
+ * activa con {@code spring.threads.virtual.enabled}: con el pool de Tomcat ya hay un tope.
+ *
+ * Las exportaciones ({@code /stream}) retienen su permiso hasta terminar de escribir, que
+ * puede llevar minutos: usan un cupo propio de {@code permisos-streams}, descontado del
+ * pool, para no dejar sin permisos a las requests cortas. Las que declara algún
+ * {@link ExencionAdmision} (lecturas condicionales que terminan en 304, instantáneas,
+ * índices en memoria) no piden permiso.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ControlAdmisionFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ControlAdmisionFilter.class);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private List<ExencionAdmision> exenciones = List.of();
+
+    @Value("${ecommerce.admision.enabled:${spring.threads.virtual.enabled:false}}")
+    private boolean habilitado;
+
+    /** 0 = tamaño del pool de Hikari menos los permisos de streams */
+    @Value("${ecommerce.admision.permisos:0}")
+    private int permisosConfigurados;
+
+    @Value("${ecommerce.admision.permisos-streams:2}")
+    private int permisosStreams;
+
+    @Value("${ecommerce.admision.espera-ms:200}")
+    private long esperaMs;
+
+    @Value("${ecommerce.admision.retry-after-s:1}")
+    private int retryAfterSegundos;
+
+    private Semaphore permisos;
+    private Semaphore streams;
+    private int capacidad;
+    private final AtomicLong rechazadas = new AtomicLong();
+
+    @Override
+    protected void initFilterBean() {
+        if (permisos != null) {
+            return;
+        }
+        capacidad = permisosConfigurados > 0 ? permisosConfigurados : Math.max(1, tamanioDelPool() - permisosStreams);
+        permisos = new Semaphore(capacidad, true);
+        streams = new Semaphore(permisosStreams, true);
+        log.info("Control de admisión: {} requests concurrentes y {} exportaciones", capacidad, permisosStreams);
+    }
+
+    public int capacidad() {
+        return capacidad;
+    }
+
+    public int enCurso() {
+        return capacidad - permisos.availablePermits();
+    }
+
+    public long rechazadas() {
+        return rechazadas.get();
+    }
+
+    public int exportacionesEnCurso() {
+        return permisosStreams - streams.availablePermits();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!habilitado || !request.getRequestURI().startsWith("/api/")) {
+            return true;
+        }
+        for (ExencionAdmision exencion : exenciones) {
+            if (exencion.exenta(request)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Semaphore cupo = request.getRequestURI().endsWith("/stream") ? streams : permisos;
+        if (!adquirir(cupo)) {
+            rechazar(response, cupo == streams ? permisosStreams : capacidad);
+            return;
+        }
+
+        AtomicBoolean liberado = new AtomicBoolean(false);
+        Runnable liberar = () -> {
+            if (liberado.compareAndSet(false, true)) {
+                cupo.release();
+            }
+        };
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // las respuestas en streaming siguen usando la conexión hasta terminar
+                request.getAsyncContext().addListener(new LiberarAlTerminar(liberar));
+            } else {
+                liberar.run();
+            }
+        }
+    }
+
+    private boolean adquirir(Semaphore cupo) {
+        try {
+            return cupo.tryAcquire(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void rechazar(HttpServletResponse response, int limite) throws IOException {
+        rechazadas.incrementAndGet();
+
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        cuerpo.put("timestamp", LocalDateTime.now());
+        cuerpo.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        cuerpo.put("error", "Servicio saturado");
+        cuerpo.put("mensaje", "Demasiadas solicitudes en curso, reintente en " + retryAfterSegundos + " s");
+        cuerpo.put("detalles", Map.of("capacidad", limite));
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSegundos));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getOutputStream().write(objectMapper.writeValueAsBytes(cuerpo));
+    }
+
+    private int tamanioDelPool() {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            log.warn("No se pudo leer el tamaño del pool de conexiones", e);
+        }
+        return 10;
+    }
+
+    private record LiberarAlTerminar(Runnable liberar) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            liberar.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            liberar.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            liberar.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.techlab.ecommerce.config;
+
+import com.techlab.ecommerce.service.PerfilSql;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Envuelve las conexiones del pool para medir cada ejecución de sentencia y
+ * registrarla en {@link PerfilSql}. Sólo se interceptan los {@code execute*}; el resto
+ * de las llamadas JDBC pasan directo a la conexión o sentencia real.
+ *
+ * Al extender {@link DelegatingDataSource}, {@code unwrap} y los binders de métricas
+ * de Spring Boot siguen llegando al HikariDataSource de abajo.
+ */
+public class DataSourcePerfilado extends DelegatingDataSource {
+
+    private final ObjectProvider<PerfilSql> proveedor;
+    private volatile PerfilSql perfilSql;
+
+    public DataSourcePerfilado(DataSource dataSource, ObjectProvider<PerfilSql> proveedor) {
+        super(dataSource);
+        this.proveedor = proveedor;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return envolver(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return envolver(super.getConnection(username, password));
+    }
+
+    private Connection envolver(Connection conexion) {
+        PerfilSql perfil = perfilSql;
+        if (perfil == null) {
+            perfil = proveedor.getObject();
+            perfilSql = perfil;
+        }
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConexionPerfilada(conexion, perfil));
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private record ConexionPerfilada(Connection conexion, PerfilSql perfil) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            Object resultado = invocar(conexion, metodo, args);
+            String nombre = metodo.getName();
+            if (resultado instanceof Statement sentencia
+                    && (nombre.equals("prepareStatement") || nombre.equals("prepareCall") || nombre.equals("createStatement"))) {
+                String sql = nombre.equals("createStatement") ? null : (String) args[0];
+                return Proxy.newProxyInstance(DataSourcePerfilado.class.getClassLoader(),
+                        new Class<?>[]{metodo.getReturnType()}, new SentenciaPerfilada(sentencia, sql, perfil));
+            }
+            return resultado;
+        }
+    }
+
+    private record SentenciaPerfilada(Statement sentencia, String sql, PerfilSql perfil) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            if (!metodo.getName().startsWith("execute")) {
+                return invocar(sentencia, metodo, args);
+            }
+            long inicio = System.nanoTime();
+            try {
+                return invocar(sentencia, metodo, args);
+            } finally {
+                perfil.registrarSentencia(sqlEjecutada(args), System.nanoTime() - inicio);
+            }
+        }
+
+        private String sqlEjecutada(Object[] args) {
+            if (sql != null) {
+                return sql;
+            }
+            return args != null && args.length > 0 && args[0] instanceof String texto ? texto : "batch";
+        }
+    }
+}
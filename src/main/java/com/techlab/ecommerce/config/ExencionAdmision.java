@@ -0,0 +1,12 @@
+package com.techlab.ecommerce.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Requests de /api que se contestan sin pedir una conexión a la base: {@link ControlAdmisionFilter}
+ * las deja pasar sin permiso.
+ */
+public interface ExencionAdmision {
+
+    boolean exenta(HttpServletRequest request);
+}
@@ -0,0 +1,147 @@
+package com.techlab.ecommerce.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Toma el tiempo de cada método público de los {@code @Service}, los {@code @Repository}
+ * y los repositorios de Spring Data de la aplicación.
+ *
+ * Los timers se registran al crear el bean, uno por método y resultado, y quedan en un
+ * mapa que no vuelve a cambiar: medir una llamada es una búsqueda en ese mapa y un
+ * {@link Timer#record}, sin crear ids ni tags en el camino caliente. Si el bean ya es
+ * un proxy (transacciones, traducción de excepciones, Spring Data) se le agrega el
+ * interceptor al principio de la cadena para que el tiempo incluya toda la llamada.
+ */
+public class MetodosMedidos implements BeanPostProcessor {
+
+    static final String SERVICIO = "ecommerce.servicio.metodo";
+    static final String REPOSITORIO = "ecommerce.repositorio.metodo";
+
+    private static final String PAQUETE_BASE = "com.techlab.ecommerce.";
+
+    private final ObjectProvider<MeterRegistry> registry;
+    private final boolean histogramas;
+
+    public MetodosMedidos(ObjectProvider<MeterRegistry> registry, boolean histogramas) {
+        this.registry = registry;
+        this.histogramas = histogramas;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> tipo = AopUtils.getTargetClass(bean);
+        Class<?> repositorio = repositorioDeDatos(bean);
+        Map<Method, Cronometro> cronometros;
+        if (repositorio != null) {
+            cronometros = registrar(REPOSITORIO, repositorio, repositorio.getMethods());
+        } else if (esDeLaAplicacion(tipo) && AnnotatedElementUtils.hasAnnotation(tipo, Service.class)) {
+            cronometros = registrar(SERVICIO, tipo, ReflectionUtils.getUniqueDeclaredMethods(tipo, MetodosMedidos::esMedible));
+        } else if (esDeLaAplicacion(tipo) && AnnotatedElementUtils.hasAnnotation(tipo, org.springframework.stereotype.Repository.class)) {
+            cronometros = registrar(REPOSITORIO, tipo, ReflectionUtils.getUniqueDeclaredMethods(tipo, MetodosMedidos::esMedible));
+        } else {
+            return bean;
+        }
+        if (cronometros.isEmpty()) {
+            return bean;
+        }
+
+        Interceptor interceptor = new Interceptor(cronometros);
+        if (bean instanceof Advised advised && !advised.isFrozen()) {
+            advised.addAdvice(0, interceptor);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy(ClassUtils.getDefaultClassLoader());
+    }
+
+    private Map<Method, Cronometro> registrar(String metrica, Class<?> tipo, Method[] metodos) {
+        MeterRegistry meterRegistry = registry.getIfAvailable();
+        Map<Method, Cronometro> cronometros = new HashMap<>();
+        if (meterRegistry == null) {
+            return cronometros;
+        }
+        String clase = tipo.getSimpleName();
+        for (Method metodo : metodos) {
+            if (!esMedible(metodo)) {
+                continue;
+            }
+            cronometros.put(metodo, new Cronometro(
+                    timer(meterRegistry, metrica, clase, metodo.getName(), "ok"),
+                    timer(meterRegistry, metrica, clase, metodo.getName(), "error")));
+        }
+        return cronometros;
+    }
+
+    private Timer timer(MeterRegistry meterRegistry, String metrica, String clase, String metodo, String resultado) {
+        return Timer.builder(metrica)
+                .tag("clase", clase)
+                .tag("metodo", metodo)
+                .tag("resultado", resultado)
+                .publishPercentileHistogram(histogramas)
+                .register(meterRegistry);
+    }
+
+    private static Class<?> repositorioDeDatos(Object bean) {
+        for (Class<?> interfaz : ClassUtils.getAllInterfaces(bean)) {
+            if (esDeLaAplicacion(interfaz) && Repository.class.isAssignableFrom(interfaz)) {
+                return interfaz;
+            }
+        }
+        return null;
+    }
+
+    private static boolean esDeLaAplicacion(Class<?> tipo) {
+        return tipo.getName().startsWith(PAQUETE_BASE);
+    }
+
+    private static boolean esMedible(Method metodo) {
+        int modificadores = metodo.getModifiers();
+        return Modifier.isPublic(modificadores) && !Modifier.isStatic(modificadores)
+                && !metodo.isBridge() && !metodo.isSynthetic()
+                && metodo.getDeclaringClass() != Object.class;
+    }
+
+    private record Cronometro(Timer ok, Timer error) {
+    }
+
+    private record Interceptor(Map<Method, Cronometro> cronometros) implements MethodInterceptor {
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Cronometro cronometro = cronometros.get(invocation.getMethod());
+            if (cronometro == null) {
+                return invocation.proceed();
+            }
+            long inicio = System.nanoTime();
+            try {
+                Object resultado = invocation.proceed();
+                cronometro.ok().record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                return resultado;
+            } catch (Throwable e) {
+                cronometro.error().record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+        }
+    }
+}
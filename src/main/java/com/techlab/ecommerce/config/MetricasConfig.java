@@ -0,0 +1,43 @@
+package com.techlab.ecommerce.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Métricas propias de la aplicación, expuestas junto con las de Hikari, las caches
+ * de Caffeine y la JVM en /actuator/prometheus.
+ */
+@Configuration
+public class MetricasConfig {
+
+    @Bean
+    public static MetodosMedidos metodosMedidos(
+            ObjectProvider<MeterRegistry> registry,
+            @Value("${ecommerce.metricas.histogramas:true}") boolean histogramas) {
+        return new MetodosMedidos(registry, histogramas);
+    }
+
+    @Bean
+    public MeterBinder metricasAdmision(ControlAdmisionFilter controlAdmision) {
+        return registry -> {
+            Gauge.builder("ecommerce.admision.en.curso", controlAdmision, ControlAdmisionFilter::enCurso)
+                    .description("Requests /api con permiso de admisión tomado")
+                    .register(registry);
+            Gauge.builder("ecommerce.admision.capacidad", controlAdmision, ControlAdmisionFilter::capacidad)
+                    .register(registry);
+            Gauge.builder("ecommerce.admision.exportaciones.en.curso", controlAdmision,
+                            ControlAdmisionFilter::exportacionesEnCurso)
+                    .description("Exportaciones /stream con permiso de su cupo tomado")
+                    .register(registry);
+            FunctionCounter.builder("ecommerce.admision.rechazadas", controlAdmision, ControlAdmisionFilter::rechazadas)
+                    .description("Requests rechazadas con 503 por falta de permisos")
+                    .register(registry);
+        };
+    }
+}
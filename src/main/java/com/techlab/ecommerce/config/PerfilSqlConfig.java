@@ -0,0 +1,38 @@
+package com.techlab.ecommerce.config;
+
+import com.techlab.ecommerce.service.PerfilSql;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class PerfilSqlConfig {
+
+    @Bean
+    public static BeanPostProcessor dataSourcePerfilado(
+            ObjectProvider<PerfilSql> perfilSql,
+            @Value("${ecommerce.perfil-sql.enabled:true}") boolean habilitado) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (habilitado && bean instanceof DataSource dataSource && !(bean instanceof DataSourcePerfilado)) {
+                    return new DataSourcePerfilado(dataSource, perfilSql);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Lo aplica el executor de Spring Boot, que también corre las respuestas asíncronas de MVC.
+     */
+    @Bean
+    public TaskDecorator propagacionPerfilSql(ObjectProvider<PerfilSql> perfilSql) {
+        return tarea -> perfilSql.getObject().propagar(tarea);
+    }
+}
@@ -0,0 +1,96 @@
+package com.techlab.ecommerce.config;
+
+import com.techlab.ecommerce.service.PerfilSql;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Abre la cuenta de sentencias SQL de cada request /api y la cierra con el patrón del
+ * handler que la atendió, para agrupar {@code /api/productos/7} y {@code /api/productos/8}.
+ * Si la request sigue en forma asíncrona (listados NDJSON), la cuenta se cierra cuando
+ * termina esa parte, así incluye las sentencias del hilo que escribe el cuerpo.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class PerfilSqlFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private PerfilSql perfilSql;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !perfilSql.habilitado() || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        PerfilSql.Cuenta cuenta = perfilSql.iniciarRequest();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                perfilSql.liberarHilo();
+                request.getAsyncContext().addListener(new CierreAsincrono(cuenta, endpoint(request)));
+            } else {
+                perfilSql.terminarRequest(endpoint(request));
+            }
+        }
+    }
+
+    private static String endpoint(HttpServletRequest request) {
+        Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (patron != null ? patron : "sin handler");
+    }
+
+    private final class CierreAsincrono implements AsyncListener {
+
+        private final PerfilSql.Cuenta cuenta;
+        private final String endpoint;
+        private final AtomicBoolean cerrada = new AtomicBoolean();
+
+        private CierreAsincrono(PerfilSql.Cuenta cuenta, String endpoint) {
+            this.cuenta = cuenta;
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent evento) {
+            cerrar();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent evento) {
+            cerrar();
+        }
+
+        @Override
+        public void onError(AsyncEvent evento) {
+            cerrar();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent evento) {
+            evento.getAsyncContext().addListener(this);
+        }
+
+        private void cerrar() {
+            if (cerrada.compareAndSet(false, true)) {
+                perfilSql.terminarRequest(cuenta, endpoint);
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.techlab.ecommerce.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.mapping.ModelPart;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Revisa al arrancar que cada consulta derivada de los repositorios (findBy..., countBy...)
+ * tenga un índice que la sostenga: alguna rama del criterio tiene que filtrar por una
+ * columna que encabece un índice de la tabla, o que aparezca en un índice por expresión
+ * como los trigram sobre {@code upper(columna)}. Las que no, se avisan en el log.
+ *
+ * Las consultas con {@link Query} no se revisan: su SQL no sale del nombre del método.
+ */
+@Component
+public class VerificacionIndices implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(VerificacionIndices.class);
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${ecommerce.indices.verificar:true}")
+    private boolean habilitado;
+
+    private volatile List<String> sinIndice = List.of();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            sinIndice = verificar();
+        } catch (SQLException | RuntimeException e) {
+            log.warn("No se pudieron verificar los índices de las consultas derivadas", e);
+        }
+    }
+
+    /**
+     * Consultas derivadas sin índice encontradas en la última verificación, como
+     * {@code Repositorio.metodo}.
+     */
+    public List<String> obtenerSinIndice() {
+        return sinIndice;
+    }
+
+    List<String> verificar() throws SQLException {
+        Repositories repositorios = new Repositories(applicationContext);
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Map<String, Set<String>> indicesPorTabla = new HashMap<>();
+        List<String> encontradas = new ArrayList<>();
+
+        try (Connection conexion = dataSource.getConnection()) {
+            DatabaseMetaData metadata = conexion.getMetaData();
+            for (Class<?> dominio : repositorios) {
+                RepositoryInformation informacion = repositorios.getRequiredRepositoryInformation(dominio);
+                EntityPersister persister = sessionFactory.getMappingMetamodel().getEntityDescriptor(dominio);
+                String tabla = persister.getIdentifierTableDetails().getTableName();
+                Set<String> indices = indicesPorTabla.computeIfAbsent(tabla, t -> leerIndices(metadata, t));
+
+                for (Method metodo : informacion.getQueryMethods()) {
+                    if (metodo.isAnnotationPresent(Query.class)) {
+                        continue;
+                    }
+                    PartTree arbol;
+                    try {
+                        arbol = new PartTree(metodo.getName(), dominio);
+                    } catch (RuntimeException e) {
+                        continue;
+                    }
+                    List<String> columnas = new ArrayList<>();
+                    if (!tieneIndice(arbol, persister, indices, columnas)) {
+                        String consulta = informacion.getRepositoryInterface().getSimpleName() + "." + metodo.getName();
+                        encontradas.add(consulta);
+                        log.warn("{} filtra por {}.{} y ningún índice la sostiene", consulta, tabla, columnas);
+                    }
+                }
+            }
+        }
+        return List.copyOf(encontradas);
+    }
+
+    private boolean tieneIndice(PartTree arbol, EntityPersister persister, Set<String> indices, List<String> columnas) {
+        for (PartTree.OrPart rama : arbol) {
+            boolean ramaConIndice = false;
+            for (Part parte : rama) {
+                String columna = columna(persister, parte.getProperty().getSegment());
+                if (columna == null) {
+                    // una propiedad que no se puede resolver a una columna no se juzga
+                    ramaConIndice = true;
+                    continue;
+                }
+                columnas.add(columna);
+                ramaConIndice |= cubierta(columna, indices);
+            }
+            if (!ramaConIndice) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean cubierta(String columna, Set<String> indices) {
+        if (indices.contains(columna)) {
+            return true;
+        }
+        for (String indice : indices) {
+            if (indice.contains("(") && indice.contains(columna)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String columna(EntityPersister persister, String propiedad) {
+        ModelPart parte = persister.findSubPart(propiedad);
+        if (parte == null) {
+            return null;
+        }
+        List<String> columnas = new ArrayList<>();
+        parte.forEachSelectable((indice, seleccion) -> {
+            if (!seleccion.isFormula()) {
+                columnas.add(seleccion.getSelectionExpression().toLowerCase(Locale.ROOT));
+            }
+        });
+        return columnas.size() == 1 ? columnas.get(0) : null;
+    }
+
+    /**
+     * Primera columna (o expresión) de cada índice de la tabla, en minúsculas.
+     */
+    private static Set<String> leerIndices(DatabaseMetaData metadata, String tabla) {
+        Set<String> primeras = new HashSet<>();
+        try {
+            String nombre = metadata.storesUpperCaseIdentifiers() ? tabla.toUpperCase(Locale.ROOT) : tabla;
+            try (ResultSet filas = metadata.getIndexInfo(null, null, nombre, false, true)) {
+                while (filas.next()) {
+                    String columna = filas.getString("COLUMN_NAME");
+                    if (filas.getShort("ORDINAL_POSITION") == 1 && columna != null) {
+                        primeras.add(columna.toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("No se pudieron leer los índices de {}", tabla, e);
+        }
+        return primeras;
+    }
+}
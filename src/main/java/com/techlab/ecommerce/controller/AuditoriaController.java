@@ -0,0 +1,42 @@
+package com.techlab.ecommerce.controller;
+
+import com.techlab.ecommerce.dto.EventoAuditoria;
+import com.techlab.ecommerce.service.RegistroAuditoria;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/auditoria")
+@CrossOrigin(origins = "*")
+public class AuditoriaController {
+
+    @Autowired
+    private RegistroAuditoria registroAuditoria;
+
+    @Autowired
+    private NdjsonEscritor ndjsonEscritor;
+
+    /**
+     * GET /api/auditoria/eventos?despuesDe=0&pedidoId=7&limite=10000 (application/x-ndjson)
+     */
+    @GetMapping(value = "/eventos", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> reproducir(
+            @RequestParam(defaultValue = "0") long despuesDe,
+            @RequestParam(required = false) Integer pedidoId,
+            @RequestParam(defaultValue = "10000") int limite) {
+        return ndjsonEscritor.<EventoAuditoria>responder(
+                destino -> registroAuditoria.reproducir(despuesDe, pedidoId, limite, destino));
+    }
+
+    /**
+     * GET /api/auditoria/estadisticas
+     */
+    @GetMapping("/estadisticas")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticas() {
+        return ResponseEntity.ok(registroAuditoria.obtenerEstadisticas());
+    }
+}
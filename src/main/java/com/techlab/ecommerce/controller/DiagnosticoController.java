@@ -0,0 +1,58 @@
+package com.techlab.ecommerce.controller;
+
+import com.techlab.ecommerce.service.PerfilSql;
+import com.techlab.ecommerce.service.Reintentos;
+import com.techlab.ecommerce.service.ReservasStock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/diagnostico")
+@CrossOrigin(origins = "*")
+public class DiagnosticoController {
+
+    @Autowired
+    private Reintentos reintentos;
+
+    @Autowired
+    private PerfilSql perfilSql;
+
+    @Autowired
+    private ReservasStock reservasStock;
+
+    /**
+     * GET /api/diagnostico/concurrencia
+     */
+    @GetMapping("/concurrencia")
+    public ResponseEntity<Map<String, Map<String, Long>>> obtenerConflictos() {
+        return ResponseEntity.ok(reintentos.obtenerEstadisticas());
+    }
+
+    /**
+     * GET /api/diagnostico/sql
+     */
+    @GetMapping("/sql")
+    public ResponseEntity<Map<String, Object>> obtenerPerfilSql() {
+        return ResponseEntity.ok(perfilSql.obtenerReporte());
+    }
+
+    /**
+     * DELETE /api/diagnostico/sql
+     */
+    @DeleteMapping("/sql")
+    public ResponseEntity<Void> reiniciarPerfilSql() {
+        perfilSql.reiniciar();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * GET /api/diagnostico/reservas
+     */
+    @GetMapping("/reservas")
+    public ResponseEntity<Map<String, Object>> obtenerReservas() {
+        return ResponseEntity.ok(reservasStock.obtenerEstadisticas());
+    }
+}
@@ -0,0 +1,26 @@
+package com.techlab.ecommerce.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Encabezado {@code Link: <...>; rel="next"} de los listados que devuelven una sola página:
+ * la misma URL de la request con el parámetro {@code cursor} de la página siguiente.
+ */
+final class EnlaceSiguiente {
+
+    private EnlaceSiguiente() {
+    }
+
+    static void agregar(HttpServletResponse response, String cursor) {
+        if (cursor == null) {
+            return;
+        }
+        String url = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", cursor)
+                .build()
+                .toUriString();
+        response.setHeader(HttpHeaders.LINK, "<" + url + ">; rel=\"next\"");
+    }
+}
@@ -0,0 +1,103 @@
+package com.techlab.ecommerce.controller;
+
+import com.techlab.ecommerce.config.ExencionAdmision;
+import com.techlab.ecommerce.service.IndiceSugerencias;
+import com.techlab.ecommerce.service.InstantaneasCatalogo;
+import com.techlab.ecommerce.service.RevisionCatalogo;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lecturas del catálogo que se contestan desde memoria: GETs condicionales cuyo ETag o
+ * fecha siguen vigentes (terminan en 304), listados con instantánea al día y sugerencias
+ * con el índice cargado.
+ *
+ * Es una predicción: si el catálogo cambia entre el filtro y el controlador, esa lectura
+ * va a la base sin permiso de admisión. Pasa solo con las lecturas en vuelo en cada cambio.
+ */
+@Component
+public class LecturasSinBase implements ExencionAdmision {
+
+    private static final String PRODUCTOS = "/api/productos";
+    private static final String CATEGORIA = PRODUCTOS + "/categoria/";
+
+    @Autowired
+    private RevisionCatalogo revisionCatalogo;
+
+    @Autowired
+    private InstantaneasCatalogo instantaneasCatalogo;
+
+    @Autowired
+    private IndiceSugerencias indiceSugerencias;
+
+    @Override
+    public boolean exenta(HttpServletRequest request) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return false;
+        }
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        if (ruta.equals(PRODUCTOS + "/sugerir")) {
+            return indiceSugerencias.listo();
+        }
+
+        String listado = listado(ruta, request);
+        if (listado != null) {
+            return instantaneasCatalogo.vigente(listado) || noModificada(request, revisionCatalogo.delCatalogo());
+        }
+        Integer productoId = productoId(ruta);
+        return productoId != null && noModificada(request, revisionCatalogo.delProducto(productoId));
+    }
+
+    /**
+     * Clave de la instantánea del listado pedido, o {@code null} si la ruta no es un listado del catálogo.
+     */
+    private static String listado(String ruta, HttpServletRequest request) {
+        if (ruta.equals(PRODUCTOS)) {
+            return request.getParameter("cursor") == null ? InstantaneasCatalogo.TODOS : null;
+        }
+        if (ruta.equals(PRODUCTOS + "/disponibles")) {
+            return InstantaneasCatalogo.DISPONIBLES;
+        }
+        if (ruta.startsWith(CATEGORIA) && ruta.indexOf('/', CATEGORIA.length()) < 0) {
+            return InstantaneasCatalogo.deCategoria(
+                    UriUtils.decode(ruta.substring(CATEGORIA.length()), StandardCharsets.UTF_8));
+        }
+        return null;
+    }
+
+    private static Integer productoId(String ruta) {
+        if (!ruta.startsWith(PRODUCTOS + "/")) {
+            return null;
+        }
+        String id = ruta.substring(PRODUCTOS.length() + 1);
+        if (id.isEmpty() || id.length() > 9 || !id.chars().allMatch(Character::isDigit)) {
+            return null;
+        }
+        return Integer.valueOf(id);
+    }
+
+    /**
+     * Misma decisión que {@code checkNotModified}: If-None-Match manda sobre If-Modified-Since,
+     * con comparación débil y fechas al segundo.
+     */
+    private static boolean noModificada(HttpServletRequest request, RevisionCatalogo.Revision revision) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // sin instantánea solo se compara el ETag del cuerpo sin comprimir
+            return ifNoneMatch.contains(revision.etag());
+        }
+        long desde;
+        try {
+            desde = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return desde >= 0 && revision.ultimaModificacion() / 1000 * 1000 <= desde;
+    }
+}
@@ -0,0 +1,46 @@
+package com.techlab.ecommerce.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Escribe listados como NDJSON (un objeto JSON por línea) a medida que se leen,
+ * sin armar la lista completa en memoria.
+ */
+@Component
+public class NdjsonEscritor {
+
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final int FILAS_POR_FLUSH = 100;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public <T> ResponseEntity<StreamingResponseBody> responder(Consumer<Consumer<T>> origen) {
+        StreamingResponseBody cuerpo = salida -> {
+            int[] filas = {0};
+            origen.accept(elemento -> {
+                try {
+                    salida.write(objectMapper.writeValueAsBytes(elemento));
+                    salida.write('\n');
+                    if (++filas[0] % FILAS_POR_FLUSH == 0) {
+                        salida.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            salida.flush();
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(cuerpo);
+    }
+}
@@ -1,17 +1,26 @@
 package com.techlab.ecommerce.controller;
 
-import com.techlab.ecommerce.model.LineaPedido;
+import com.techlab.ecommerce.dto.Cotizacion;
+import com.techlab.ecommerce.dto.OperacionPedido;
+import com.techlab.ecommerce.dto.Pagina;
+import com.techlab.ecommerce.dto.PedidoRespuesta;
+import com.techlab.ecommerce.dto.ResultadoLote;
+import com.techlab.ecommerce.dto.SolicitudPedido;
+import com.techlab.ecommerce.exception.DatosInvalidosException;
+import com.techlab.ecommerce.model.EstadoPedido;
 import com.techlab.ecommerce.model.Pedido;
-import com.techlab.ecommerce.model.Producto;
 import com.techlab.ecommerce.service.PedidoService;
-import com.techlab.ecommerce.service.ProductoService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 
@@ -24,23 +33,74 @@ public class PedidoController {
     private PedidoService pedidoService;
 
     @Autowired
-    private ProductoService productoService;
+    private NdjsonEscritor ndjsonEscritor;
+
+    @Value("${ecommerce.listados.maximo:1000}")
+    private int maximoListado;
 
     /**
-     * GET /api/pedidos
+     * GET /api/pedidos?cursor=...
+     * Hasta {@code ecommerce.listados.maximo} pedidos por id; si hay más, el encabezado
+     * Link (rel="next") trae la URL con el cursor de los siguientes.
      */
     @GetMapping
-    public ResponseEntity<ArrayList<Pedido>> listarTodos() {
-        ArrayList<Pedido> pedidos = pedidoService.listarTodos();
+    public ResponseEntity<List<PedidoRespuesta>> listarTodos(
+            @RequestParam(required = false) String cursor, HttpServletResponse response) {
+        Pagina<PedidoRespuesta> pagina = pedidoService.listarPaginaPorId(cursor, maximoListado);
+        EnlaceSiguiente.agregar(response, pagina.siguienteCursor());
+        return ResponseEntity.ok(pagina.items());
+    }
+
+    /**
+     * GET /api/pedidos?pagina=0&tamanio=50
+     */
+    @GetMapping(params = "pagina")
+    public ResponseEntity<ArrayList<PedidoRespuesta>> listarPagina(
+            @RequestParam int pagina,
+            @RequestParam(defaultValue = "50") int tamanio) {
+        ArrayList<PedidoRespuesta> pedidos = pedidoService.listarRespuestasPagina(pagina, tamanio);
         return ResponseEntity.ok(pedidos);
     }
 
+    /**
+     * GET /api/pedidos/pagina?limite=50&orden=fecha&cursor=...
+     */
+    @GetMapping("/pagina")
+    public ResponseEntity<Pagina<PedidoRespuesta>> listarPaginaKeyset(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limite,
+            @RequestParam(defaultValue = "id") String orden) {
+        if (orden.equals("fecha")) {
+            return ResponseEntity.ok(pedidoService.listarPaginaPorFecha(cursor, limite));
+        }
+        if (!orden.equals("id")) {
+            throw new IllegalArgumentException("Orden inválido: use 'id' o 'fecha'");
+        }
+        return ResponseEntity.ok(pedidoService.listarPaginaPorId(cursor, limite));
+    }
+
+    /**
+     * GET /api/pedidos/stream (application/x-ndjson)
+     */
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportar() {
+        return ndjsonEscritor.responder(pedidoService::exportarTodos);
+    }
+
+    /**
+     * GET /api/pedidos/estadisticas
+     */
+    @GetMapping("/estadisticas")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticas() {
+        return ResponseEntity.ok(pedidoService.obtenerEstadisticas());
+    }
+
     /**
      * GET /api/pedidos/{id}
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Pedido> obtenerPorId(@PathVariable int id) {
-        Pedido pedido = pedidoService.obtenerPorId(id);
+    public ResponseEntity<PedidoRespuesta> obtenerPorId(@PathVariable int id) {
+        PedidoRespuesta pedido = pedidoService.obtenerRespuesta(id);
 
         if (pedido == null) {
             return ResponseEntity.notFound().build();
@@ -50,12 +110,21 @@ public class PedidoController {
     }
 
     /**
-     * GET /api/pedidos/estado/{estado}
+     * GET /api/pedidos/estado/{estado}?cursor=...
+     * Paginado como {@code GET /api/pedidos}.
      */
     @GetMapping("/estado/{estado}")
-    public ResponseEntity<ArrayList<Pedido>> listarPorEstado(@PathVariable String estado) {
-        ArrayList<Pedido> pedidos = pedidoService.listarPorEstado(estado);
-        return ResponseEntity.ok(pedidos);
+    public ResponseEntity<List<PedidoRespuesta>> listarPorEstado(
+            @PathVariable String estado,
+            @RequestParam(required = false) String cursor,
+            HttpServletResponse response) {
+        EstadoPedido buscado = EstadoPedido.desdeNombre(estado);
+        if (buscado == null) {
+            throw new DatosInvalidosException("estado", "no existe el estado '" + estado + "'");
+        }
+        Pagina<PedidoRespuesta> pagina = pedidoService.listarPaginaPorEstado(buscado, cursor, maximoListado);
+        EnlaceSiguiente.agregar(response, pagina.siguienteCursor());
+        return ResponseEntity.ok(pagina.items());
     }
 
     /**
@@ -63,8 +132,8 @@ public class PedidoController {
      * Body: { "clienteNombre": "Juan Pérez" }
      */
     @PostMapping("/crear")
-    public ResponseEntity<?> crearPedidoVacio(@RequestBody Map<String, String> body) {
-        String clienteNombre = body.get("clienteNombre");
+    public ResponseEntity<?> crearPedidoVacio(@RequestBody SolicitudPedido solicitud) {
+        String clienteNombre = solicitud.clienteNombre();
 
         if (clienteNombre == null || clienteNombre.trim().isEmpty()) {
             return ResponseEntity.badRequest()
@@ -72,7 +141,7 @@ public class PedidoController {
         }
 
         Pedido pedido = pedidoService.crearPedidoVacio(clienteNombre);
-        return ResponseEntity.status(HttpStatus.CREATED).body(pedido);
+        return ResponseEntity.status(HttpStatus.CREATED).body(pedidoService.respuesta(pedido));
     }
 
     /**
@@ -82,13 +151,15 @@ public class PedidoController {
     @PostMapping("/{pedidoId}/agregar-producto")
     public ResponseEntity<?> agregarProducto(
             @PathVariable int pedidoId,
-            @RequestBody Map<String, Integer> body) {
+            @RequestBody SolicitudPedido.Linea linea) {
         try {
-            int productoId = body.get("productoId");
-            int cantidad = body.get("cantidad");
+            if (linea.productoId() == null || linea.cantidad() == null) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("error", "productoId y cantidad son obligatorios"));
+            }
 
-            Pedido pedido = pedidoService.agregarProductoAlPedido(pedidoId, productoId, cantidad);
-            return ResponseEntity.ok(pedido);
+            Pedido pedido = pedidoService.agregarProductoAlPedido(pedidoId, linea.productoId(), linea.cantidad());
+            return ResponseEntity.ok(pedidoService.respuesta(pedido));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -105,50 +176,41 @@ public class PedidoController {
      * }
      */
     @PostMapping("/crear-completo")
-    public ResponseEntity<?> crearPedidoCompleto(@RequestBody Map<String, Object> body) {
-        try {
-            String clienteNombre = (String) body.get("clienteNombre");
-
-            if (clienteNombre == null || clienteNombre.trim().isEmpty()) {
-                return ResponseEntity.badRequest()
-                        .body(Map.of("error", "El nombre del cliente es obligatorio"));
-            }
-
-            @SuppressWarnings("unchecked")
-            ArrayList<Map<String, Integer>> productosData =
-                    (ArrayList<Map<String, Integer>>) body.get("productos");
-
-            if (productosData == null || productosData.isEmpty()) {
-                return ResponseEntity.badRequest()
-                        .body(Map.of("error", "El pedido debe tener al menos un producto"));
-            }
-
-            ArrayList<LineaPedido> lineas = new ArrayList<>();
-
-            for (Map<String, Integer> productoData : productosData) {
-                int productoId = productoData.get("productoId");
-                int cantidad = productoData.get("cantidad");
-
-                Producto producto = productoService.obtenerPorId(productoId);
-                if (producto == null) {
-                    return ResponseEntity.badRequest()
-                            .body(Map.of("error", "Producto con ID " + productoId + " no encontrado"));
-                }
-
-                LineaPedido linea = new LineaPedido(producto, cantidad);
-                lineas.add(linea);
-            }
+    public ResponseEntity<PedidoRespuesta> crearPedidoCompleto(@RequestBody SolicitudPedido solicitud) {
+        Pedido pedido = pedidoService.crearPedido(solicitud);
+        return ResponseEntity.status(HttpStatus.CREATED).body(pedidoService.respuesta(pedido));
+    }
 
-            Pedido pedido = pedidoService.crearPedido(clienteNombre, lineas);
+    /**
+     * POST /api/pedidos/lote
+     * Body: [ { "clienteNombre": "Juan Pérez", "productos": [ { "productoId": 1, "cantidad": 2 } ] }, ... ]
+     */
+    @PostMapping("/lote")
+    public ResponseEntity<ResultadoLote> crearLote(@RequestBody List<SolicitudPedido> solicitudes) {
+        return ResponseEntity.ok(pedidoService.crearPedidos(solicitudes));
+    }
 
-            return ResponseEntity.status(HttpStatus.CREATED).body(pedido);
+    /**
+     * POST /api/pedidos/lote/confirmar
+     * Body: [ 1, 2, 3 ]
+     */
+    @PostMapping("/lote/confirmar")
+    public ResponseEntity<ResultadoLote> confirmarLote(@RequestBody List<Integer> ids) {
+        return ResponseEntity.ok(pedidoService.confirmarPedidos(ids));
+    }
 
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest()
-                    .body(Map.of("error", "Error al crear el pedido: " + e.getMessage()));
+    /**
+     * POST /api/pedidos/lote/{operacion}
+     * Operaciones: pagar, enviar, entregar, cancelar
+     * Body: [ 1, 2, 3 ]
+     */
+    @PostMapping("/lote/{operacion}")
+    public ResponseEntity<ResultadoLote> transicionarLote(@PathVariable String operacion, @RequestBody List<Integer> ids) {
+        EstadoPedido destino = EstadoPedido.desdeOperacion(operacion);
+        if (destino == null || destino == EstadoPedido.PENDIENTE) {
+            throw new DatosInvalidosException("operacion", "no existe la operación '" + operacion + "'");
         }
+        return ResponseEntity.ok(pedidoService.transicionarPedidos(ids, destino));
     }
 
     /**
@@ -158,13 +220,7 @@ public class PedidoController {
     public ResponseEntity<?> confirmarPedido(@PathVariable int id) {
         try {
             Pedido pedido = pedidoService.confirmarPedido(id);
-
-            Map<String, Object> respuesta = new HashMap<>();
-            respuesta.put("mensaje", "Pedido confirmado exitosamente");
-            respuesta.put("pedido", pedido);
-            respuesta.put("total", pedido.calcularTotal());
-
-            return ResponseEntity.ok(respuesta);
+            return ResponseEntity.ok(new OperacionPedido("Pedido confirmado exitosamente", pedidoService.respuesta(pedido)));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -176,11 +232,14 @@ public class PedidoController {
     @GetMapping("/{id}/total")
     public ResponseEntity<?> calcularTotal(@PathVariable int id) {
         try {
-            double total = pedidoService.calcularTotal(id);
+            Cotizacion cotizacion = pedidoService.cotizar(id);
 
             Map<String, Object> respuesta = new HashMap<>();
             respuesta.put("pedidoId", id);
-            respuesta.put("total", total);
+            respuesta.put("subtotal", cotizacion.subtotal());
+            respuesta.put("descuento", cotizacion.descuento());
+            respuesta.put("total", cotizacion.total());
+            respuesta.put("promociones", cotizacion.promociones());
 
             return ResponseEntity.ok(respuesta);
         } catch (IllegalArgumentException e) {
@@ -209,15 +268,39 @@ public class PedidoController {
     public ResponseEntity<?> cancelarPedido(@PathVariable int id) {
         try {
             Pedido pedido = pedidoService.cancelarPedido(id);
-            return ResponseEntity.ok(Map.of(
-                    "mensaje", "Pedido cancelado exitosamente",
-                    "pedido", pedido
-            ));
+            return ResponseEntity.ok(new OperacionPedido("Pedido cancelado exitosamente", pedidoService.respuesta(pedido)));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
 
+    /**
+     * POST /api/pedidos/{id}/pagar
+     */
+    @PostMapping("/{id}/pagar")
+    public ResponseEntity<OperacionPedido> pagarPedido(@PathVariable int id) {
+        Pedido pedido = pedidoService.pagarPedido(id);
+        return ResponseEntity.ok(new OperacionPedido("Pedido pagado exitosamente", pedidoService.respuesta(pedido)));
+    }
+
+    /**
+     * POST /api/pedidos/{id}/enviar
+     */
+    @PostMapping("/{id}/enviar")
+    public ResponseEntity<OperacionPedido> enviarPedido(@PathVariable int id) {
+        Pedido pedido = pedidoService.enviarPedido(id);
+        return ResponseEntity.ok(new OperacionPedido("Pedido enviado exitosamente", pedidoService.respuesta(pedido)));
+    }
+
+    /**
+     * POST /api/pedidos/{id}/entregar
+     */
+    @PostMapping("/{id}/entregar")
+    public ResponseEntity<OperacionPedido> entregarPedido(@PathVariable int id) {
+        Pedido pedido = pedidoService.entregarPedido(id);
+        return ResponseEntity.ok(new OperacionPedido("Pedido entregado exitosamente", pedidoService.respuesta(pedido)));
+    }
+
     /**
      * DELETE /api/pedidos/{id}
      */
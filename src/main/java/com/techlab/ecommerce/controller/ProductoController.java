@@ -1,12 +1,31 @@
 package com.techlab.ecommerce.controller;
 
+import com.techlab.ecommerce.dto.CambioPrecio;
+import com.techlab.ecommerce.dto.CambioStock;
+import com.techlab.ecommerce.dto.OperacionProducto;
+import com.techlab.ecommerce.dto.Pagina;
+import com.techlab.ecommerce.dto.ProductoRespuesta;
+import com.techlab.ecommerce.dto.SolicitudProducto;
+import com.techlab.ecommerce.dto.Sugerencia;
+import com.techlab.ecommerce.exception.DatosInvalidosException;
+import com.techlab.ecommerce.model.Montos;
 import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.service.CatalogoCache;
+import com.techlab.ecommerce.service.EstadisticasIncrementales;
+import com.techlab.ecommerce.service.InstantaneasCatalogo;
+import com.techlab.ecommerce.service.PerfilSql;
 import com.techlab.ecommerce.service.ProductoService;
+import com.techlab.ecommerce.service.RevisionCatalogo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -20,49 +39,151 @@ public class ProductoController {
     @Autowired
     private ProductoService productoService;
 
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private NdjsonEscritor ndjsonEscritor;
+
+    @Autowired
+    private EstadisticasIncrementales estadisticasIncrementales;
+
+    @Autowired
+    private RevisionCatalogo revisionCatalogo;
+
+    @Autowired
+    private RespuestaCondicional respuestaCondicional;
+
+    @Autowired
+    private InstantaneasCatalogo instantaneasCatalogo;
+
+    @Autowired
+    private PerfilSql perfilSql;
+
+    @Value("${ecommerce.listados.maximo:1000}")
+    private int maximoListado;
+
+    @Value("${ecommerce.http.cache-control.productos:no-cache}")
+    private String cacheControlListado;
+
+    @Value("${ecommerce.http.cache-control.categoria:no-cache}")
+    private String cacheControlCategoria;
+
+    @Value("${ecommerce.http.cache-control.producto:no-cache}")
+    private String cacheControlProducto;
+
     /**
-     * GET /api/productos
+     * GET /api/productos?cursor=...
+     * Hasta {@code ecommerce.listados.maximo} productos por id; si hay más, el encabezado
+     * Link (rel="next") trae la URL con el cursor de los siguientes. La primera página sale
+     * de la instantánea.
      */
     @GetMapping
-    public ResponseEntity<ArrayList<Producto>> listarTodos() {
-        ArrayList<Producto> productos = productoService.listarTodos();
-        return ResponseEntity.ok(productos);
+    public ResponseEntity<List<ProductoRespuesta>> listarTodos(
+            @RequestParam(required = false) String cursor, ServletWebRequest request) throws IOException {
+        InstantaneasCatalogo.Instantanea instantanea = cursor == null
+                ? instantaneasCatalogo.obtener(InstantaneasCatalogo.TODOS) : null;
+        if (instantanea != null) {
+            EnlaceSiguiente.agregar(request.getResponse(), instantanea.siguienteCursor());
+        }
+        return respuestaCondicional.responder(request, revisionCatalogo.delCatalogo(), cacheControlListado,
+                instantanea, () -> {
+                    Pagina<Producto> pagina = productoService.listarPagina(cursor, maximoListado);
+                    EnlaceSiguiente.agregar(request.getResponse(), pagina.siguienteCursor());
+                    return respuestas(pagina.items());
+                });
     }
 
-    @GetMapping("/{id}")
-    public ResponseEntity<Producto> obtenerPorId(@PathVariable int id) {
-        Producto producto = productoService.obtenerPorId(id);
+    /**
+     * GET /api/productos/disponibles
+     */
+    @GetMapping("/disponibles")
+    public ResponseEntity<List<ProductoRespuesta>> listarDisponibles(ServletWebRequest request) throws IOException {
+        return respuestaCondicional.responder(request, revisionCatalogo.delCatalogo(), cacheControlListado,
+                instantaneasCatalogo.obtener(InstantaneasCatalogo.DISPONIBLES),
+                () -> respuestas(productoService.listarDisponibles()));
+    }
 
-        if (producto == null) {
-            return ResponseEntity.notFound().build();
-        }
+    /**
+     * GET /api/productos/pagina?limite=50&cursor=...
+     */
+    @GetMapping("/pagina")
+    public ResponseEntity<Pagina<ProductoRespuesta>> listarPagina(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limite) {
+        Pagina<Producto> pagina = productoService.listarPagina(cursor, limite);
+        return ResponseEntity.ok(new Pagina<>(respuestas(pagina.items()), pagina.siguienteCursor()));
+    }
 
-        return ResponseEntity.ok(producto);
+    /**
+     * GET /api/productos/stream (application/x-ndjson)
+     */
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportar() {
+        return ndjsonEscritor.<ProductoRespuesta>responder(
+                consumidor -> productoService.exportarTodos(producto -> consumidor.accept(respuesta(producto))));
+    }
+
+    /**
+     * GET /api/productos/{id} (admite If-None-Match / If-Modified-Since)
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ProductoRespuesta> obtenerPorId(@PathVariable int id, WebRequest request) {
+        perfilSql.registrarAccesoProducto(id);
+        return respuestaCondicional.responder(request, revisionCatalogo.delProducto(id), cacheControlProducto, () -> {
+            Producto producto = productoService.obtenerPorId(id);
+            return producto == null ? null : respuesta(producto);
+        });
     }
 
     @GetMapping("/buscar")
-    public ResponseEntity<ArrayList<Producto>> buscarPorNombre(
+    public ResponseEntity<List<ProductoRespuesta>> buscarPorNombre(
             @RequestParam String nombre) {
         ArrayList<Producto> productos = productoService.buscarPorNombre(nombre);
-        return ResponseEntity.ok(productos);
+        return ResponseEntity.ok(respuestas(productos));
     }
 
     @GetMapping("/buscar/{criterio}")
-    public ResponseEntity<Producto> buscarProducto(@PathVariable String criterio) {
+    public ResponseEntity<ProductoRespuesta> buscarProducto(@PathVariable String criterio) {
         Producto producto = productoService.buscarProducto(criterio);
 
         if (producto == null) {
             return ResponseEntity.notFound().build();
         }
 
-        return ResponseEntity.ok(producto);
+        return ResponseEntity.ok(respuesta(producto));
+    }
+
+    /**
+     * GET /api/productos/busqueda?q=...&categoria=...&precioMin=...&precioMax=...&disponibles=true&limite=20
+     */
+    @GetMapping("/busqueda")
+    public ResponseEntity<List<ProductoRespuesta>> buscar(
+            @RequestParam String q,
+            @RequestParam(required = false) String categoria,
+            @RequestParam(required = false) Double precioMin,
+            @RequestParam(required = false) Double precioMax,
+            @RequestParam(defaultValue = "false") boolean disponibles,
+            @RequestParam(defaultValue = "20") int limite) {
+        return ResponseEntity.ok(respuestas(productoService.buscar(q, categoria, precioMin, precioMax, disponibles, limite)));
+    }
+
+    /**
+     * GET /api/productos/sugerir?q=...&limite=10
+     */
+    @GetMapping("/sugerir")
+    public ResponseEntity<List<Sugerencia>> sugerir(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limite) {
+        return ResponseEntity.ok(productoService.sugerir(q, limite));
     }
 
     @GetMapping("/categoria/{categoria}")
-    public ResponseEntity<ArrayList<Producto>> filtrarPorCategoria(
-            @PathVariable String categoria) {
-        ArrayList<Producto> productos = productoService.filtrarPorCategoria(categoria);
-        return ResponseEntity.ok(productos);
+    public ResponseEntity<List<ProductoRespuesta>> filtrarPorCategoria(
+            @PathVariable String categoria, ServletWebRequest request) throws IOException {
+        return respuestaCondicional.responder(request, revisionCatalogo.delCatalogo(), cacheControlCategoria,
+                instantaneasCatalogo.obtener(InstantaneasCatalogo.deCategoria(categoria)),
+                () -> respuestas(productoService.filtrarPorCategoria(categoria)));
     }
 
     @GetMapping("/precio")
@@ -71,7 +192,7 @@ public class ProductoController {
             @RequestParam double max) {
         try {
             ArrayList<Producto> productos = productoService.filtrarPorRangoPrecio(min, max);
-            return ResponseEntity.ok(productos);
+            return ResponseEntity.ok(respuestas(productos));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -81,20 +202,20 @@ public class ProductoController {
      * POST /api/productos
     */
     @PostMapping
-    public ResponseEntity<Producto> agregarProducto(@RequestBody Producto producto) {
-        Producto nuevoProducto = productoService.agregarProducto(producto);
-        return ResponseEntity.status(HttpStatus.CREATED).body(nuevoProducto);
+    public ResponseEntity<ProductoRespuesta> agregarProducto(@RequestBody SolicitudProducto solicitud) {
+        Producto nuevoProducto = productoService.agregarProducto(solicitud.aProducto());
+        return ResponseEntity.status(HttpStatus.CREATED).body(respuesta(nuevoProducto));
     }
 
     /**
      * PUT /api/productos
      */
     @PutMapping("/{id}")
-    public ResponseEntity<Producto> actualizarProducto(
+    public ResponseEntity<ProductoRespuesta> actualizarProducto(
             @PathVariable int id,
-            @RequestBody Producto producto) {
-        Producto productoActualizado = productoService.actualizarProducto(id, producto);
-        return ResponseEntity.ok(productoActualizado);
+            @RequestBody SolicitudProducto solicitud) {
+        Producto productoActualizado = productoService.actualizarProducto(id, solicitud.aProducto());
+        return ResponseEntity.ok(respuesta(productoActualizado));
     }
 
     /**
@@ -102,21 +223,25 @@ public class ProductoController {
      */
 
     @PatchMapping("/{id}/precio")
-    public ResponseEntity<Producto> actualizarPrecio(
+    public ResponseEntity<ProductoRespuesta> actualizarPrecio(
             @PathVariable int id,
-            @RequestBody Map<String, Double> body) {
-        double precio = body.get("precio");
-        Producto producto = productoService.actualizarPrecio(id, precio);
-        return ResponseEntity.ok(producto);
+            @RequestBody CambioPrecio cambio) {
+        if (cambio.precio() == null) {
+            throw new DatosInvalidosException("precio", "es obligatorio");
+        }
+        Producto producto = productoService.actualizarPrecio(id, cambio.precio());
+        return ResponseEntity.ok(respuesta(producto));
     }
 
     @PatchMapping("/{id}/stock")
-    public ResponseEntity<Producto> actualizarStock(
+    public ResponseEntity<ProductoRespuesta> actualizarStock(
             @PathVariable int id,
-            @RequestBody Map<String, Integer> body) {
-        int stock = body.get("stock");
-        Producto producto = productoService.actualizarStock(id, stock);
-        return ResponseEntity.ok(producto);
+            @RequestBody CambioStock cambio) {
+        if (cambio.stock() == null) {
+            throw new DatosInvalidosException("stock", "es obligatorio");
+        }
+        Producto producto = productoService.actualizarStock(id, cambio.stock());
+        return ResponseEntity.ok(respuesta(producto));
     }
 
     /**
@@ -135,12 +260,10 @@ public class ProductoController {
     }
 
     @DeleteMapping("/{id}/confirmar")
-    public ResponseEntity<Map<String, Object>> eliminarConConfirmacion(@PathVariable int id) {
+    public ResponseEntity<OperacionProducto> eliminarConConfirmacion(@PathVariable int id) {
         Producto productoEliminado = productoService.eliminarConConfirmacion(id);
-        Map<String, Object> respuesta = new HashMap<>();
-        respuesta.put("mensaje", "Producto eliminado exitosamente");
-        respuesta.put("producto", productoEliminado);
-        return ResponseEntity.ok(respuesta);
+        return ResponseEntity.ok(new OperacionProducto("Producto eliminado exitosamente",
+                ProductoRespuesta.de(productoEliminado, productoEliminado.getStock())));
     }
 
     /**
@@ -149,25 +272,40 @@ public class ProductoController {
      */
 
     @GetMapping("/stock-bajo")
-    public ResponseEntity<ArrayList<Producto>> obtenerStockBajo(
+    public ResponseEntity<List<ProductoRespuesta>> obtenerStockBajo(
             @RequestParam(defaultValue = "10") int umbral) {
         ArrayList<Producto> productos = productoService.obtenerStockBajo(umbral);
-        return ResponseEntity.ok(productos);
+        return ResponseEntity.ok(respuestas(productos));
     }
 
     @GetMapping("/estadisticas")
     public ResponseEntity<Map<String, Object>> obtenerEstadisticas() {
         Map<String, Object> estadisticas = new HashMap<>();
 
-        estadisticas.put("totalProductos", productoService.listarTodos().size());
-        estadisticas.put("productosDisponibles", productoService.listarDisponibles().size());
+        if (estadisticasIncrementales.disponible()) {
+            EstadisticasIncrementales.Estadisticas actuales = estadisticasIncrementales.obtener();
+            estadisticas.put("totalProductos", actuales.totalProductos());
+            estadisticas.put("productosDisponibles", actuales.productosDisponibles());
+            estadisticas.put("valorInventario", Montos.aDouble(actuales.valorInventarioCentavos()));
+            estadisticas.put("productosPorCategoria", actuales.productosPorCategoria());
+            estadisticas.put("stockBajo", actuales.stockBajo());
+            return ResponseEntity.ok(estadisticas);
+        }
+
+        estadisticas.put("totalProductos", productoService.contarTodos());
+        estadisticas.put("productosDisponibles", productoService.contarDisponibles());
         estadisticas.put("valorInventario", productoService.calcularValorInventario());
         estadisticas.put("productosPorCategoria", productoService.contarPorCategoria());
-        estadisticas.put("stockBajo", productoService.obtenerStockBajo(10).size());
+        estadisticas.put("stockBajo", productoService.contarStockBajo(EstadisticasIncrementales.UMBRAL_STOCK_BAJO));
 
         return ResponseEntity.ok(estadisticas);
     }
 
+    @GetMapping("/cache/estadisticas")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticasCache() {
+        return ResponseEntity.ok(catalogoCache.obtenerEstadisticas());
+    }
+
     @GetMapping("/{id}/verificar-stock")
     public ResponseEntity<Map<String, Object>> verificarStock(
             @PathVariable int id,
@@ -184,11 +322,18 @@ public class ProductoController {
         Map<String, Object> respuesta = new HashMap<>();
         respuesta.put("productoId", id);
         respuesta.put("productoNombre", producto.getNombre());
-        respuesta.put("stockActual", producto.getStock());
+        respuesta.put("stockActual", productoService.stockActual(producto));
         respuesta.put("cantidadSolicitada", cantidad);
         respuesta.put("hayStockSuficiente", hayStock);
 
         return ResponseEntity.ok(respuesta);
     }
 
+    private ProductoRespuesta respuesta(Producto producto) {
+        return productoService.aRespuesta(producto);
+    }
+
+    private List<ProductoRespuesta> respuestas(List<Producto> productos) {
+        return productoService.aRespuestas(productos);
+    }
 }
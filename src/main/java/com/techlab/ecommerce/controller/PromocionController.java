@@ -0,0 +1,38 @@
+package com.techlab.ecommerce.controller;
+
+import com.techlab.ecommerce.dto.Promocion;
+import com.techlab.ecommerce.service.MotorPromociones;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/promociones")
+@CrossOrigin(origins = "*")
+public class PromocionController {
+
+    @Autowired
+    private MotorPromociones motorPromociones;
+
+    /**
+     * GET /api/promociones
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> listar() {
+        return ResponseEntity.ok(Map.of(
+                "version", motorPromociones.version(),
+                "promociones", motorPromociones.listar()));
+    }
+
+    /**
+     * PUT /api/promociones (reemplaza todas las promociones)
+     */
+    @PutMapping
+    public ResponseEntity<Map<String, Object>> reemplazar(@RequestBody List<Promocion> promociones) {
+        long version = motorPromociones.reemplazar(promociones);
+        return ResponseEntity.ok(Map.of("version", version, "promociones", promociones.size()));
+    }
+}
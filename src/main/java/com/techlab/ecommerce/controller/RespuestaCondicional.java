@@ -0,0 +1,98 @@
+package com.techlab.ecommerce.controller;
+
+import com.techlab.ecommerce.service.InstantaneasCatalogo;
+import com.techlab.ecommerce.service.RevisionCatalogo;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+
+/**
+ * Resuelve GETs condicionales antes de armar la respuesta: si el If-None-Match o el
+ * If-Modified-Since coinciden con la revisión, contesta 304 sin consultar la base ni
+ * serializar nada. En los dos casos deja ETag, Last-Modified y el Cache-Control indicado.
+ */
+@Component
+public class RespuestaCondicional {
+
+    /**
+     * @param cacheControl valor del encabezado Cache-Control; vacío para no enviarlo
+     * @param cuerpo       se invoca solo si hay que devolver el recurso; {@code null} responde 404
+     */
+    public <T> ResponseEntity<T> responder(WebRequest request, RevisionCatalogo.Revision revision,
+                                           String cacheControl, Supplier<T> cuerpo) {
+        // checkNotModified ya agrega ETag y Last-Modified a la respuesta
+        if (request.checkNotModified(revision.etag(), revision.ultimaModificacion())) {
+            return conCacheControl(ResponseEntity.status(HttpStatus.NOT_MODIFIED), cacheControl).build();
+        }
+
+        T valor = cuerpo.get();
+        if (valor == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return conCacheControl(ResponseEntity.ok(), cacheControl).body(valor);
+    }
+
+    /**
+     * Como {@link #responder(WebRequest, RevisionCatalogo.Revision, String, Supplier)}, pero si hay
+     * una instantánea vigente escribe sus bytes directamente, en gzip si el cliente lo acepta,
+     * y devuelve {@code null}: la respuesta ya quedó escrita.
+     */
+    public <T> ResponseEntity<T> responder(ServletWebRequest request, RevisionCatalogo.Revision revision,
+                                           String cacheControl, InstantaneasCatalogo.Instantanea instantanea,
+                                           Supplier<T> cuerpo) throws IOException {
+        HttpServletResponse response = request.getResponse();
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (instantanea == null) {
+            return responder(request, revision, cacheControl, cuerpo);
+        }
+
+        boolean gzip = aceptaGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        RevisionCatalogo.Revision variante = gzip ? revision.comprimida() : revision;
+        if (request.checkNotModified(variante.etag(), variante.ultimaModificacion())) {
+            return conCacheControl(ResponseEntity.status(HttpStatus.NOT_MODIFIED), cacheControl).build();
+        }
+
+        ByteBuffer bytes = instantanea.cuerpo(gzip);
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(bytes.remaining());
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        if (cacheControl != null && !cacheControl.isBlank()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        response.getOutputStream().write(bytes);
+        return null;
+    }
+
+    static boolean aceptaGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String opcion : acceptEncoding.split(",")) {
+            String[] partes = opcion.trim().split(";");
+            String codificacion = partes[0].trim();
+            if (codificacion.equalsIgnoreCase("gzip") || codificacion.equals("*")) {
+                return partes.length == 1 || !partes[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private ResponseEntity.BodyBuilder conCacheControl(ResponseEntity.BodyBuilder respuesta, String cacheControl) {
+        if (cacheControl != null && !cacheControl.isBlank()) {
+            respuesta.header(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        return respuesta;
+    }
+}
@@ -0,0 +1,15 @@
+package com.techlab.ecommerce.dto;
+
+import java.util.List;
+
+/**
+ * Total de un pedido con las promociones vigentes aplicadas.
+ *
+ * @param subtotal     suma de las lineas sin promociones
+ * @param descuento    suma de los descuentos de linea y de carrito
+ * @param promociones  nombres de las promociones aplicadas, sin repetir
+ * @param versionPedido versión del pedido con la que se calculó
+ */
+public record Cotizacion(int pedidoId, double subtotal, double descuento, double total,
+                         List<String> promociones, long versionPedido) {
+}
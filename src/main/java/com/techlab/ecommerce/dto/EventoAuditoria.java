@@ -0,0 +1,40 @@
+package com.techlab.ecommerce.dto;
+
+import java.time.Instant;
+
+/**
+ * Un registro del log de auditoría de pedidos y stock.
+ *
+ * @param secuencia  número correlativo que asigna el escritor al persistirlo; 0 mientras está en cola
+ * @param productoId sólo en los descuentos de stock y en las líneas agregadas, como {@code cantidad}
+ * @param total      total del pedido después del evento
+ */
+public record EventoAuditoria(
+        long secuencia,
+        Instant instante,
+        Tipo tipo,
+        Integer pedidoId,
+        Integer productoId,
+        Integer cantidad,
+        String estadoAnterior,
+        String estadoNuevo,
+        Double total) {
+
+    public enum Tipo {
+        PEDIDO_CREADO,
+        LINEA_AGREGADA,
+        PEDIDO_CONFIRMADO,
+        PEDIDO_PAGADO,
+        PEDIDO_ENVIADO,
+        PEDIDO_ENTREGADO,
+        PEDIDO_CANCELADO,
+        PEDIDO_MODIFICADO,
+        PEDIDO_ELIMINADO,
+        STOCK_DESCONTADO
+    }
+
+    public EventoAuditoria conSecuencia(long secuencia) {
+        return new EventoAuditoria(secuencia, instante, tipo, pedidoId, productoId, cantidad,
+                estadoAnterior, estadoNuevo, total);
+    }
+}
@@ -0,0 +1,4 @@
+package com.techlab.ecommerce.dto;
+
+public record OperacionPedido(String mensaje, PedidoRespuesta pedido) {
+}
@@ -0,0 +1,4 @@
+package com.techlab.ecommerce.dto;
+
+public record OperacionProducto(String mensaje, ProductoRespuesta producto) {
+}
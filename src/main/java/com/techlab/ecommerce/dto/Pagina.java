@@ -0,0 +1,11 @@
+package com.techlab.ecommerce.dto;
+
+import java.util.List;
+
+/**
+ * Página de un listado por keyset.
+ *
+ * @param siguienteCursor token opaco para pedir la página siguiente; {@code null} si no hay más
+ */
+public record Pagina<T>(List<T> items, String siguienteCursor) {
+}
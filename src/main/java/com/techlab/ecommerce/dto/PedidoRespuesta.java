@@ -0,0 +1,38 @@
+package com.techlab.ecommerce.dto;
+
+import com.techlab.ecommerce.model.LineaPedido;
+import com.techlab.ecommerce.model.Montos;
+import com.techlab.ecommerce.model.Pedido;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pedido tal como lo expone la API: cada linea lleva solo el id y el nombre del producto.
+ * El total es el de la {@link Cotizacion} del pedido, con las promociones aplicadas: la
+ * vigente mientras está pendiente y la congelada desde que salió de PENDIENTE.
+ */
+public record PedidoRespuesta(Integer id, String clienteNombre, LocalDateTime fecha, String estado,
+                              double total, List<Linea> lineas) {
+
+    public record Linea(Integer productoId, String productoNombre, int cantidad, double precioUnitario) {
+
+        public double subtotal() {
+            return Montos.aDouble(Montos.multiplicar(Montos.desdeExacto(precioUnitario), cantidad));
+        }
+    }
+
+    /**
+     * Convierte un pedido con sus lineas y productos ya cargados, con el total de {@code cotizacion}.
+     */
+    public static PedidoRespuesta de(Pedido pedido, Cotizacion cotizacion) {
+        List<Linea> lineas = new ArrayList<>(pedido.getLineas().size());
+        for (LineaPedido linea : pedido.getLineas()) {
+            lineas.add(new Linea(linea.getProducto().getId(), linea.getProducto().getNombre(),
+                    linea.getCantidad(), linea.getPrecioUnitario()));
+        }
+        return new PedidoRespuesta(pedido.getId(), pedido.getClienteNombre(), pedido.getFecha(),
+                pedido.getEstado().getNombre(), cotizacion.total(), lineas);
+    }
+}
@@ -0,0 +1,17 @@
+package com.techlab.ecommerce.dto;
+
+import com.techlab.ecommerce.model.Producto;
+
+/**
+ * Producto tal como lo expone la API.
+ *
+ * @param stock stock vigente, que para productos del ledger es el de memoria y no el de la entidad
+ */
+public record ProductoRespuesta(Integer id, String nombre, String descripcion, Double precio, String categoria,
+                                String imagen, Integer stock, Boolean disponible) {
+
+    public static ProductoRespuesta de(Producto producto, int stock) {
+        return new ProductoRespuesta(producto.getId(), producto.getNombre(), producto.getDescripcion(),
+                producto.getPrecio(), producto.getCategoria(), producto.getImagen(), stock, producto.getDisponible());
+    }
+}
@@ -0,0 +1,26 @@
+package com.techlab.ecommerce.dto;
+
+/**
+ * Regla de descuento, tal como se carga con {@code PUT /api/promociones}.
+ *
+ * @param productoId     producto de una promoción {@code PRODUCTO}, o de una {@code CANTIDAD} por producto
+ * @param categoria      categoria de una promoción {@code CATEGORIA}, o de una {@code CANTIDAD} por categoria
+ * @param cantidadMinima unidades de la linea desde las que aplica una promoción {@code CANTIDAD}
+ * @param montoMinimo    subtotal del pedido desde el que aplica una promoción {@code CARRITO}
+ * @param porcentaje     descuento, mayor a 0 y hasta 100, con hasta dos decimales
+ * @param activa         {@code null} cuenta como activa
+ */
+public record Promocion(String nombre, Tipo tipo, Integer productoId, String categoria, Integer cantidadMinima,
+                        Double montoMinimo, double porcentaje, Boolean activa) {
+
+    public enum Tipo {
+        PRODUCTO,
+        CATEGORIA,
+        CANTIDAD,
+        CARRITO
+    }
+
+    public boolean estaActiva() {
+        return activa == null || activa;
+    }
+}
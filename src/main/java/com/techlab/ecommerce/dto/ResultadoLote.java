@@ -0,0 +1,16 @@
+package com.techlab.ecommerce.dto;
+
+import java.util.List;
+
+public record ResultadoLote(int exitosos, int fallidos, List<ResultadoPedido> resultados) {
+
+    public static ResultadoLote de(List<ResultadoPedido> resultados) {
+        int exitosos = 0;
+        for (ResultadoPedido resultado : resultados) {
+            if (resultado.exito()) {
+                exitosos++;
+            }
+        }
+        return new ResultadoLote(exitosos, resultados.size() - exitosos, resultados);
+    }
+}
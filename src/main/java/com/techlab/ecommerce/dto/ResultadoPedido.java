@@ -0,0 +1,22 @@
+package com.techlab.ecommerce.dto;
+
+/**
+ * Resultado de un pedido dentro de un lote.
+ *
+ * @param indice posición del pedido en el lote recibido
+ * @param error  motivo del rechazo; {@code null} si el pedido se procesó
+ */
+public record ResultadoPedido(int indice, Integer pedidoId, String estado, Double total, String error) {
+
+    public static ResultadoPedido exitoso(int indice, int pedidoId, String estado, double total) {
+        return new ResultadoPedido(indice, pedidoId, estado, total, null);
+    }
+
+    public static ResultadoPedido fallido(int indice, Integer pedidoId, String error) {
+        return new ResultadoPedido(indice, pedidoId, null, null, error);
+    }
+
+    public boolean exito() {
+        return error == null;
+    }
+}
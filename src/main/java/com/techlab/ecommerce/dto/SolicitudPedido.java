@@ -0,0 +1,12 @@
+package com.techlab.ecommerce.dto;
+
+import java.util.List;
+
+/**
+ * Un pedido dentro de un lote, con el mismo formato que {@code POST /api/pedidos/crear-completo}.
+ */
+public record SolicitudPedido(String clienteNombre, List<Linea> productos) {
+
+    public record Linea(Integer productoId, Integer cantidad) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.techlab.ecommerce.dto;
+
+import com.techlab.ecommerce.model.Producto;
+
+/**
+ * Cuerpo de {@code POST} y {@code PUT /api/productos}. En una actualización los campos
+ * {@code null} conservan el valor actual.
+ */
+public record SolicitudProducto(String nombre, String descripcion, Double precio, String categoria,
+                                String imagen, Integer stock, Boolean disponible) {
+
+    public Producto aProducto() {
+        // sin precio queda en 0 centavos, que el alta rechaza y la actualización ignora
+        return new Producto(null, nombre, descripcion, precio == null ? 0.0 : precio, categoria, imagen, stock,
+                disponible == null ? Boolean.TRUE : disponible);
+    }
+}
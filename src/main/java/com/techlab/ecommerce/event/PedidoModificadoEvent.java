@@ -0,0 +1,33 @@
+package com.techlab.ecommerce.event;
+
+import com.techlab.ecommerce.model.EstadoPedido;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cambio de estado o de total de un pedido.
+ *
+ * @param cambio         qué operación lo produjo
+ * @param estadoAnterior {@code null} si el pedido se acaba de crear
+ * @param estadoNuevo    {@code null} si el pedido se eliminó
+ * @param totalAnterior  en centavos, como {@code totalNuevo}; ver {@link com.techlab.ecommerce.model.Montos}
+ * @param productoId     sólo en {@link Cambio#LINEA_AGREGADA}, como {@code cantidad}
+ */
+public record PedidoModificadoEvent(
+        Cambio cambio,
+        int pedidoId,
+        LocalDateTime fecha,
+        EstadoPedido estadoAnterior,
+        long totalAnterior,
+        EstadoPedido estadoNuevo,
+        long totalNuevo,
+        Integer productoId,
+        Integer cantidad) {
+
+    public enum Cambio {
+        CREADO,
+        LINEA_AGREGADA,
+        TRANSICION,
+        ELIMINADO
+    }
+}
@@ -0,0 +1,16 @@
+package com.techlab.ecommerce.event;
+
+import com.techlab.ecommerce.model.Producto;
+
+/**
+ * Se publica cada vez que se da de alta, modifica o elimina un producto.
+ *
+ * @param categoria categoria del producto, o {@code null} si quien publica no la conoce
+ * @param producto  estado del producto después del cambio; {@code null} si se eliminó
+ */
+public record ProductoModificadoEvent(int productoId, String categoria, Producto producto) {
+
+    public boolean eliminado() {
+        return producto == null;
+    }
+}
@@ -0,0 +1,7 @@
+package com.techlab.ecommerce.event;
+
+/**
+ * Se publica cuando se descuenta stock por una venta, sin recargar el producto.
+ */
+public record StockDescontadoEvent(int productoId, int cantidad) {
+}
@@ -0,0 +1,22 @@
+package com.techlab.ecommerce.exception;
+
+public class ConflictoConcurrenciaException extends ApiException {
+
+    private String operacion;
+    private int intentos;
+
+    public ConflictoConcurrenciaException(String operacion, int intentos, Throwable causa) {
+        super("No se pudo completar '" + operacion + "' por modificaciones concurrentes después de " +
+                intentos + " intentos", causa);
+        this.operacion = operacion;
+        this.intentos = intentos;
+    }
+
+    public String getOperacion() {
+        return operacion;
+    }
+
+    public int getIntentos() {
+        return intentos;
+    }
+}
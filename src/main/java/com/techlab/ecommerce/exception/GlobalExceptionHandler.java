@@ -1,5 +1,9 @@
 package com.techlab.ecommerce.exception;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -7,11 +11,32 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final List<Class<? extends Exception>> MANEJADAS = List.of(
+            ResourceNotFoundException.class,
+            StockInsuficienteException.class,
+            LineasSinStockException.class,
+            ProductoNoDisponibleException.class,
+            ConflictoConcurrenciaException.class,
+            DatosInvalidosException.class,
+            PedidoVacioException.class,
+            EstadoPedidoInvalidoException.class,
+            OperacionNoPermitidaException.class,
+            IllegalArgumentException.class
+    );
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // una vez registrado el tipo, contar es un get del mapa y un incremento sin locks
+    private final Map<Class<?>, Counter> excepciones = new ConcurrentHashMap<>();
+
     private static class ErrorResponse {
         private LocalDateTime timestamp;
         private int status;
@@ -40,6 +65,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<ErrorResponse> manejarResourceNotFound(ResourceNotFoundException ex) {
+        contar(ex);
         ErrorResponse error = new ErrorResponse(
                 HttpStatus.NOT_FOUND.value(),
                 "Recurso no encontrado",
@@ -51,6 +77,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(StockInsuficienteException.class)
     public ResponseEntity<ErrorResponse> manejarStockInsuficiente(StockInsuficienteException ex) {
+        contar(ex);
         ErrorResponse error = new ErrorResponse(
                 HttpStatus.BAD_REQUEST.value(),
                 "Stock insuficiente",
@@ -63,8 +90,50 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(LineasSinStockException.class)
+    public ResponseEntity<ErrorResponse> manejarLineasSinStock(LineasSinStockException ex) {
+        contar(ex);
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.BAD_REQUEST.value(),
+                "Stock insuficiente",
+                ex.getMessage()
+        );
+
+        error.agregarDetalle("productosSinStock", ex.getProductoIds());
+
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(ProductoNoDisponibleException.class)
+    public ResponseEntity<ErrorResponse> manejarProductoNoDisponible(ProductoNoDisponibleException ex) {
+        contar(ex);
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.BAD_REQUEST.value(),
+                "Producto no disponible",
+                ex.getMessage()
+        );
+
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(ConflictoConcurrenciaException.class)
+    public ResponseEntity<ErrorResponse> manejarConflictoConcurrencia(ConflictoConcurrenciaException ex) {
+        contar(ex);
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.CONFLICT.value(),
+                "Conflicto de concurrencia",
+                ex.getMessage()
+        );
+
+        error.agregarDetalle("operacion", ex.getOperacion());
+        error.agregarDetalle("intentos", ex.getIntentos());
+
+        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(DatosInvalidosException.class)
     public ResponseEntity<ErrorResponse> manejarDatosInvalidos(DatosInvalidosException ex) {
+        contar(ex);
         ErrorResponse error = new ErrorResponse(
                 HttpStatus.BAD_REQUEST.value(),
                 "Datos inválidos",
@@ -75,8 +144,22 @@ public class GlobalExceptionHandler {
     }
 
 
+    // reglas de negocio sin un handler propio (pedido vacío, estado inválido, ...)
+    @ExceptionHandler(ApiException.class)
+    public ResponseEntity<ErrorResponse> manejarApiException(ApiException ex) {
+        contar(ex);
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.BAD_REQUEST.value(),
+                "Operación no permitida",
+                ex.getMessage()
+        );
+
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ErrorResponse> manejarIllegalArgument(IllegalArgumentException ex) {
+        contar(ex);
         ErrorResponse error = new ErrorResponse(
                 HttpStatus.BAD_REQUEST.value(),
                 "Argumento inválido",
@@ -88,6 +171,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> manejarExcepcionGeneral(Exception ex) {
+        contar(ex);
         ErrorResponse error = new ErrorResponse(
                 HttpStatus.INTERNAL_SERVER_ERROR.value(),
                 "Error interno del servidor",
@@ -100,4 +184,20 @@ public class GlobalExceptionHandler {
         ex.printStackTrace();
         return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
     }
-}
\ No newline at end of file
+
+    @PostConstruct
+    void registrarContadores() {
+        MANEJADAS.forEach(this::contador);
+    }
+
+    private void contar(Exception ex) {
+        contador(ex.getClass()).increment();
+    }
+
+    private Counter contador(Class<?> tipo) {
+        return excepciones.computeIfAbsent(tipo, clave -> Counter.builder("ecommerce.excepciones")
+                .description("Excepciones que llegaron al manejador global, por tipo")
+                .tag("tipo", clave.getSimpleName())
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,16 @@
+package com.techlab.ecommerce.exception;
+
+import java.util.List;
+
+public class LineasSinStockException extends ApiException {
+    private List<Integer> productoIds;
+
+    public LineasSinStockException(List<String> productos, List<Integer> productoIds) {
+        super("Stock insuficiente para: " + String.join(", ", productos));
+        this.productoIds = productoIds;
+    }
+
+    public List<Integer> getProductoIds() {
+        return productoIds;
+    }
+}
@@ -0,0 +1,117 @@
+package com.techlab.ecommerce.model;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Ciclo de vida de un pedido.
+ *
+ * Se guarda como el {@code codigo} en una columna smallint; los códigos son fijos y no
+ * dependen del orden de declaración. Las transiciones válidas se arman una vez en una
+ * tabla indexada por ordinal, así verificar una es leer una posición.
+ */
+public enum EstadoPedido {
+    PENDIENTE(0, "pendiente", "crear"),
+    CONFIRMADO(1, "confirmado", "confirmar"),
+    PAGADO(2, "pagado", "pagar"),
+    ENVIADO(3, "enviado", "enviar"),
+    ENTREGADO(4, "entregado", "entregar"),
+    CANCELADO(5, "cancelado", "cancelar");
+
+    /**
+     * Estados que cuentan como venta.
+     */
+    public static final Set<EstadoPedido> VENTAS = EnumSet.of(CONFIRMADO, PAGADO, ENVIADO, ENTREGADO);
+
+    private static final EstadoPedido[] POR_CODIGO;
+    private static final boolean[][] TRANSICIONES;
+
+    static {
+        EstadoPedido[] estados = values();
+        POR_CODIGO = new EstadoPedido[estados.length];
+        for (EstadoPedido estado : estados) {
+            POR_CODIGO[estado.codigo] = estado;
+        }
+
+        TRANSICIONES = new boolean[estados.length][estados.length];
+        permitir(PENDIENTE, CONFIRMADO, CANCELADO);
+        permitir(CONFIRMADO, PAGADO);
+        permitir(PAGADO, ENVIADO);
+        permitir(ENVIADO, ENTREGADO);
+    }
+
+    private final short codigo;
+    private final String nombre;
+    private final String operacion;
+
+    EstadoPedido(int codigo, String nombre, String operacion) {
+        this.codigo = (short) codigo;
+        this.nombre = nombre;
+        this.operacion = operacion;
+    }
+
+    private static void permitir(EstadoPedido origen, EstadoPedido... destinos) {
+        for (EstadoPedido destino : destinos) {
+            TRANSICIONES[origen.ordinal()][destino.ordinal()] = true;
+        }
+    }
+
+    public short getCodigo() {
+        return codigo;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Verbo de la operación que lleva un pedido a este estado, por ejemplo "enviar".
+     */
+    public String getOperacion() {
+        return operacion;
+    }
+
+    public boolean puedePasarA(EstadoPedido destino) {
+        return TRANSICIONES[ordinal()][destino.ordinal()];
+    }
+
+    public boolean esVenta() {
+        return VENTAS.contains(this);
+    }
+
+    public static EstadoPedido desdeCodigo(short codigo) {
+        if (codigo < 0 || codigo >= POR_CODIGO.length) {
+            throw new IllegalArgumentException("Código de estado de pedido desconocido: " + codigo);
+        }
+        return POR_CODIGO[codigo];
+    }
+
+    /**
+     * @return {@code null} si el nombre no corresponde a ningún estado
+     */
+    public static EstadoPedido desdeNombre(String nombre) {
+        for (EstadoPedido estado : POR_CODIGO) {
+            if (estado.nombre.equalsIgnoreCase(nombre)) {
+                return estado;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return {@code null} si la operación no lleva a ningún estado
+     */
+    public static EstadoPedido desdeOperacion(String operacion) {
+        for (EstadoPedido estado : POR_CODIGO) {
+            if (estado.operacion.equalsIgnoreCase(operacion)) {
+                return estado;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return nombre;
+    }
+}
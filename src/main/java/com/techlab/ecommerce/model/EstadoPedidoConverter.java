@@ -0,0 +1,18 @@
+package com.techlab.ecommerce.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter(autoApply = true)
+public class EstadoPedidoConverter implements AttributeConverter<EstadoPedido, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(EstadoPedido estado) {
+        return estado == null ? null : estado.getCodigo();
+    }
+
+    @Override
+    public EstadoPedido convertToEntityAttribute(Short codigo) {
+        return codigo == null ? null : EstadoPedido.desdeCodigo(codigo);
+    }
+}
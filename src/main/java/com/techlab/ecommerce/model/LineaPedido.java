@@ -6,12 +6,16 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "lineas_pedido")
+@Table(name = "lineas_pedido", indexes = {
+        @Index(name = "idx_lineas_pedido_pedido", columnList = "pedido_id"),
+        @Index(name = "idx_lineas_pedido_producto", columnList = "producto_id")
+})
 @Data
 @NoArgsConstructor
 public class LineaPedido {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lineas_pedido_seq")
+    @SequenceGenerator(name = "lineas_pedido_seq", sequenceName = "lineas_pedido_seq", allocationSize = 50)
     private Integer id;
 
     @ManyToOne
@@ -26,22 +30,34 @@ public class LineaPedido {
     @Column(nullable = false)
     private int cantidad;
 
-    @Column(nullable = false)
-    private double precioUnitario;
+    /** Precio unitario en centavos al momento de agregar la linea; ver {@link Montos}. */
+    @Column(name = "precio_unitario", nullable = false, precision = 12, scale = 2)
+    @Convert(converter = MontoConverter.class)
+    @JsonIgnore
+    private long precioUnitarioCentavos;
 
 
     public LineaPedido(Producto producto, int cantidad) {
         this.producto = producto;
         this.cantidad = cantidad;
-        this.precioUnitario = producto.getPrecio();
+        this.precioUnitarioCentavos = producto.getPrecioCentavos();
+    }
+
+    /** Precio unitario en unidades, para la API. */
+    public double getPrecioUnitario() {
+        return Montos.aDouble(precioUnitarioCentavos);
+    }
+
+    public long calcularSubtotalCentavos() {
+        return Montos.subtotal(this.precioUnitarioCentavos, this.cantidad);
     }
 
     public double calcularSubtotal() {
-        return this.precioUnitario * this.cantidad;
+        return Montos.aDouble(calcularSubtotalCentavos());
     }
 
     public void aumentarCantidad(int unidades) {
-        if (unidades > 0) {
+        if (unidades > 0 && unidades <= Montos.CANTIDAD_MAXIMA - this.cantidad) {
             this.cantidad = this.cantidad + unidades;
         }
     }
@@ -0,0 +1,25 @@
+package com.techlab.ecommerce.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Centavos en memoria, {@code NUMERIC(12, 2)} en la base. Se aplica a mano con
+ * {@code @Convert}: no todos los {@code long} de las entidades son montos.
+ */
+@Converter
+public class MontoConverter implements AttributeConverter<Long, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Long centavos) {
+        return centavos == null ? null : Montos.aBigDecimal(centavos);
+    }
+
+    @Override
+    public Long convertToEntityAttribute(BigDecimal unidades) {
+        return unidades == null ? null : Montos.desde(unidades, RoundingMode.UNNECESSARY);
+    }
+}
@@ -0,0 +1,149 @@
+package com.techlab.ecommerce.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Aritmética de montos en centavos.
+ *
+ * Precios, subtotales y totales se guardan como {@code long} con dos decimales
+ * implícitos: sumar y multiplicar por cantidades es exacto y no asigna objetos.
+ * Todo monto queda dentro de {@link #MAXIMO} y toda cantidad de linea dentro de
+ * {@link #CANTIDAD_MAXIMA}, así un subtotal nunca desborda.
+ * Las operaciones que no son exactas (convertir desde un {@code double}, aplicar
+ * un porcentaje, dividir) reciben el {@link RoundingMode} explícito. Un desborde
+ * lanza {@link ArithmeticException} en lugar de dar un total equivocado.
+ *
+ * {@code double} y {@link BigDecimal} quedan para los bordes: la API, que expone
+ * montos como números, y la columna {@code NUMERIC(12, 2)} (ver {@link MontoConverter}).
+ */
+public final class Montos {
+
+    public static final int ESCALA = 2;
+
+    public static final long CENTAVOS_POR_UNIDAD = 100;
+
+    /** El mayor monto que entra en un {@code NUMERIC(12, 2)}, en centavos. */
+    public static final long MAXIMO = 999_999_999_999L;
+
+    /** La mayor cantidad de una linea: {@code MAXIMO * CANTIDAD_MAXIMA} entra en un {@code long}. */
+    public static final int CANTIDAD_MAXIMA = 1 << 23;
+
+    /** Redondeo por defecto: al par más cercano, para no sesgar las sumas de redondeos. */
+    public static final RoundingMode REDONDEO = RoundingMode.HALF_EVEN;
+
+    /** 100% expresado en centésimos de punto porcentual. */
+    private static final long PORCENTAJE_COMPLETO = 10_000;
+
+    private Montos() {
+    }
+
+    /**
+     * Convierte un monto en unidades a centavos. Usa la representación decimal más corta
+     * del {@code double}, así {@code 0.1} es 10 centavos y {@code 1.005} se redondea como
+     * 1.005 y no como 1.00499999...
+     */
+    public static long desde(double unidades, RoundingMode modo) {
+        if (!Double.isFinite(unidades)) {
+            throw new ArithmeticException("Monto inválido: " + unidades);
+        }
+        return desde(BigDecimal.valueOf(unidades), modo);
+    }
+
+    public static long desde(BigDecimal unidades, RoundingMode modo) {
+        long centavos = unidades.setScale(ESCALA, modo).unscaledValue().longValueExact();
+        if (Math.abs(centavos) > MAXIMO) {
+            throw new ArithmeticException("Monto fuera de rango: " + unidades);
+        }
+        return centavos;
+    }
+
+    /**
+     * Convierte una suma de montos (un {@code SUM} de la base, un total de ventas o de
+     * inventario) a centavos. Es exacta pero no se limita a {@link #MAXIMO}, que es el
+     * rango de una columna y no de un agregado; solo falla si no entra en un {@code long},
+     * igual que {@link #sumar}.
+     */
+    public static long desdeSuma(BigDecimal unidades) {
+        return unidades.setScale(ESCALA, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Inversa de {@link #aDouble}: recupera sin asignar los centavos de un {@code double}
+     * que ya representa un monto con dos decimales, como los que devuelve la API.
+     */
+    public static long desdeExacto(double unidades) {
+        return Math.round(unidades * CENTAVOS_POR_UNIDAD);
+    }
+
+    public static BigDecimal aBigDecimal(long centavos) {
+        return BigDecimal.valueOf(centavos, ESCALA);
+    }
+
+    /**
+     * El {@code double} más cercano al monto; se imprime con los mismos decimales.
+     */
+    public static double aDouble(long centavos) {
+        return centavos / (double) CENTAVOS_POR_UNIDAD;
+    }
+
+    public static String formatear(long centavos) {
+        return aBigDecimal(centavos).toPlainString();
+    }
+
+    public static long sumar(long centavos, long otros) {
+        return Math.addExact(centavos, otros);
+    }
+
+    public static long multiplicar(long centavos, int cantidad) {
+        return Math.multiplyExact(centavos, cantidad);
+    }
+
+    /**
+     * Precio por cantidad sin verificar desborde, para los recorridos sobre lineas. Con
+     * {@code |centavos| <= MAXIMO} y {@code |cantidad| <= CANTIDAD_MAXIMA} el producto
+     * es menor a 2^63; verificarlo en cada linea cuesta más que el resto del cálculo.
+     * Las sumas siguen yendo por {@link #sumar}.
+     */
+    public static long subtotal(long centavos, int cantidad) {
+        assert Math.abs(centavos) <= MAXIMO && Math.abs((long) cantidad) <= CANTIDAD_MAXIMA
+                : centavos + " x " + cantidad;
+        return centavos * cantidad;
+    }
+
+    /**
+     * El {@code porcentaje} del monto, redondeado a centavos con {@code modo}. El
+     * porcentaje se toma con hasta dos decimales (12.5% o 12.25%).
+     */
+    public static long porcentaje(long centavos, double porcentaje, RoundingMode modo) {
+        long centesimos = Math.round(porcentaje * 100);
+        return dividir(Math.multiplyExact(centavos, centesimos), PORCENTAJE_COMPLETO, modo);
+    }
+
+    /**
+     * División entera redondeada con {@code modo}, con la misma semántica que
+     * {@link BigDecimal#divide(BigDecimal, RoundingMode)} pero sin asignar objetos.
+     */
+    public static long dividir(long dividendo, long divisor, RoundingMode modo) {
+        long cociente = dividendo / divisor;
+        long resto = dividendo % divisor;
+        if (resto == 0) {
+            return cociente;
+        }
+        int signo = (dividendo ^ divisor) < 0 ? -1 : 1;
+        boolean alejar = switch (modo) {
+            case UNNECESSARY -> throw new ArithmeticException("La división no es exacta");
+            case DOWN -> false;
+            case UP -> true;
+            case FLOOR -> signo < 0;
+            case CEILING -> signo > 0;
+            case HALF_UP, HALF_DOWN, HALF_EVEN -> {
+                long restoAbsoluto = Math.abs(resto);
+                int comparacion = Long.compare(restoAbsoluto, Math.abs(divisor) - restoAbsoluto);
+                yield comparacion > 0 || comparacion == 0 && (modo == RoundingMode.HALF_UP
+                        || modo == RoundingMode.HALF_EVEN && (cociente & 1) != 0);
+            }
+        };
+        return alejar ? cociente + signo : cociente;
+    }
+}
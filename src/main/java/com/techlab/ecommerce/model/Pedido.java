@@ -1,43 +1,81 @@
 package com.techlab.ecommerce.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "pedidos")
+@Table(name = "pedidos", indexes = {
+        @Index(name = "idx_pedidos_estado_fecha", columnList = "estado, fecha"),
+        @Index(name = "idx_pedidos_fecha_id", columnList = "fecha, id")
+})
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 public class Pedido {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedidos_seq")
+    @SequenceGenerator(name = "pedidos_seq", sequenceName = "pedidos_seq", allocationSize = 50)
     private Integer id;
 
     @OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL)
+    @BatchSize(size = 100)
     private List<LineaPedido> lineas = new ArrayList<>();
 
     @Column(nullable = false)
     private LocalDateTime fecha;
 
-    @Column(nullable = false, length = 20)
-    private String estado;
+    @Column(nullable = false)
+    private EstadoPedido estado;
 
     @Column(length = 200)
     private String clienteNombre;
 
-    public double calcularTotal() {
-        double total = 0.0;
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
+    /**
+     * Cotización con la que el pedido salió de PENDIENTE, en centavos; {@code null}
+     * mientras sigue pendiente. Ver {@code MotorPromociones#congelar}.
+     */
+    @Column(name = "subtotal_cotizado", precision = 12, scale = 2)
+    @Convert(converter = MontoConverter.class)
+    @JsonIgnore
+    private Long subtotalCotizadoCentavos;
+
+    @Column(name = "descuento_cotizado", precision = 12, scale = 2)
+    @Convert(converter = MontoConverter.class)
+    @JsonIgnore
+    private Long descuentoCotizadoCentavos;
+
+    /** Nombres de las promociones de la cotización congelada, separados por saltos de linea. */
+    @Column(name = "promociones_cotizadas", length = 4000)
+    @JsonIgnore
+    private String promocionesCotizadas;
+
+    public long calcularTotalCentavos() {
+        long total = 0;
         for (LineaPedido linea : lineas) {
-            total = total + linea.calcularSubtotal();
+            total = Montos.sumar(total, linea.calcularSubtotalCentavos());
         }
         return total;
     }
 
+    public double calcularTotal() {
+        return Montos.aDouble(calcularTotalCentavos());
+    }
+
     public void agregarLinea(LineaPedido linea) {
         linea.setPedido(this);
         this.lineas.add(linea);
@@ -65,8 +103,7 @@ public class Pedido {
 
     public boolean puedeSerEnviado() {
         return !estaVacio() &&
-                estado != null &&
-                estado.equals("pagado");
+                estado == EstadoPedido.PAGADO;
     }
 
     public int obtenerCantidadLineas() {
@@ -80,10 +117,17 @@ public class Pedido {
         return null;
     }
 
+    /**
+     * Total menos el {@code porcentajeDescuento}, con el descuento redondeado a centavos
+     * con {@code modo}.
+     */
+    public long calcularTotalConDescuentoCentavos(double porcentajeDescuento, RoundingMode modo) {
+        long total = calcularTotalCentavos();
+        return total - Montos.porcentaje(total, porcentajeDescuento, modo);
+    }
+
     public double calcularTotalConDescuento(double porcentajeDescuento) {
-        double total = calcularTotal();
-        double descuento = total * (porcentajeDescuento / 100.0);
-        return total - descuento;
+        return Montos.aDouble(calcularTotalConDescuentoCentavos(porcentajeDescuento, Montos.REDONDEO));
     }
 
 }
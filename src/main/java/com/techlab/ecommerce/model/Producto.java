@@ -1,14 +1,22 @@
 package com.techlab.ecommerce.model;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 @Entity
-@Table(name = "productos")
+@Table(name = "productos", indexes = {
+        @Index(name = "idx_productos_categoria", columnList = "categoria"),
+        @Index(name = "idx_productos_precio", columnList = "precio"),
+        @Index(name = "idx_productos_stock", columnList = "stock")
+})
+@BatchSize(size = 100)
+@DynamicUpdate
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class Producto {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -20,8 +28,11 @@ public class Producto {
     @Column(length = 500)
     private String descripcion;
 
-    @Column(nullable = false)
-    private Double precio;
+    /** Precio en centavos; ver {@link Montos}. */
+    @Column(name = "precio", nullable = false, precision = 12, scale = 2)
+    @Convert(converter = MontoConverter.class)
+    @JsonIgnore
+    private long precioCentavos;
 
     @Column(nullable = false, length = 50)
     private String categoria;
@@ -35,12 +46,42 @@ public class Producto {
     @Column(nullable = false)
     private Boolean disponible = true;
 
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
+    public Producto(Integer id, String nombre, String descripcion, double precio, String categoria,
+                    String imagen, Integer stock, Boolean disponible) {
+        this.id = id;
+        this.nombre = nombre;
+        this.descripcion = descripcion;
+        setPrecio(precio);
+        this.categoria = categoria;
+        this.imagen = imagen;
+        this.stock = stock;
+        this.disponible = disponible;
+    }
+
     public boolean hayStockDisponible(int cantidad) {
         return this.stock >= cantidad && this.disponible;
     }
 
+    /** Precio en unidades, para la API. */
+    public double getPrecio() {
+        return Montos.aDouble(precioCentavos);
+    }
+
+    /** Fija el precio en unidades, redondeado a centavos con {@link Montos#REDONDEO}. */
+    public void setPrecio(double precio) {
+        this.precioCentavos = Montos.desde(precio, Montos.REDONDEO);
+    }
+
+   public long calcularPrecioTotalCentavos(int cantidad) {
+        return Montos.multiplicar(this.precioCentavos, cantidad);
+   }
+
    public double calcularPrecioTotal(int cantidad) {
-        return this.precio * cantidad;
+        return Montos.aDouble(calcularPrecioTotalCentavos(cantidad));
    }
 
    public boolean reducirStock(int cantidad) {
@@ -58,6 +99,6 @@ public class Producto {
     }
 
     public boolean precioValido() {
-        return this.precio > 0 && this.precio < 1000000;
+        return this.precioCentavos > 0 && this.precioCentavos < 1_000_000 * Montos.CENTAVOS_POR_UNIDAD;
     }
 }
@@ -0,0 +1,44 @@
+package com.techlab.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Una promoción del conjunto vigente, en el orden en que se cargó. Todas las filas
+ * comparten la versión de reglas con la que se guardaron.
+ */
+@Entity
+@Table(name = "promociones")
+@Data
+@NoArgsConstructor
+public class ReglaPromocion {
+    @Id
+    private Integer posicion;
+
+    @Column(nullable = false)
+    private long versionReglas;
+
+    @Column(length = 100)
+    private String nombre;
+
+    @Column(nullable = false, length = 20)
+    private String tipo;
+
+    private Integer productoId;
+
+    @Column(length = 50)
+    private String categoria;
+
+    private Integer cantidadMinima;
+
+    /** Monto mínimo de una promoción de carrito, en centavos; ver {@link Montos}. */
+    @Column(name = "monto_minimo", precision = 12, scale = 2)
+    @Convert(converter = MontoConverter.class)
+    private Long montoMinimoCentavos;
+
+    @Column(nullable = false)
+    private double porcentaje;
+
+    private Boolean activa;
+}
@@ -1,18 +1,111 @@
 package com.techlab.ecommerce.repository;
 
+import com.techlab.ecommerce.model.EstadoPedido;
 import com.techlab.ecommerce.model.Pedido;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface PedidoRepository extends JpaRepository<Pedido, Integer> {
 
-    List<Pedido> findByEstado(String estado);
+    @EntityGraph(attributePaths = {"lineas", "lineas.producto"})
+    Optional<Pedido> findConLineasById(Integer id);
+
+    @EntityGraph(attributePaths = {"lineas", "lineas.producto"})
+    List<Pedido> findByIdIn(Collection<Integer> ids, Sort sort);
+
+    /**
+     * Pagina solo los ids: paginar con fetch join de una colección obligaría a Hibernate
+     * a traer todas las filas y cortar la página en memoria.
+     */
+    @Query("select p.id from Pedido p")
+    Page<Integer> findIds(Pageable pageable);
+
+    @Query("select p.id from Pedido p where p.id > :id order by p.id")
+    List<Integer> findIdsDespuesDe(int id, Limit limite);
+
+    @Query("select p.id from Pedido p order by p.fecha, p.id")
+    List<Integer> findIdsPorFecha(Limit limite);
+
+    @Query("select p.id from Pedido p " +
+            "where p.fecha > :fecha or (p.fecha = :fecha and p.id > :id) " +
+            "order by p.fecha, p.id")
+    List<Integer> findIdsPorFechaDespuesDe(LocalDateTime fecha, int id, Limit limite);
+
+    @Query("select p.id from Pedido p where p.estado = :estado order by p.id")
+    List<Integer> findIdsByEstado(EstadoPedido estado);
+
+    @Query("select p.id from Pedido p where p.estado = :estado and p.id > :id order by p.id")
+    List<Integer> findIdsByEstadoDespuesDe(EstadoPedido estado, int id, Limit limite);
+
+    /**
+     * Cabeceras y lineas de los pedidos como filas planas, sin entidades administradas:
+     * alcanzan para armar las respuestas de la API con dos consultas.
+     */
+    @Query("select p.id, p.clienteNombre, p.fecha, p.estado, p.version, p.subtotalCotizadoCentavos, " +
+            "p.descuentoCotizadoCentavos, p.promocionesCotizadas from Pedido p where p.id in :ids")
+    List<Cabecera> findCabeceras(Collection<Integer> ids);
+
+    @Query("select l.pedido.id, pr.id, pr.nombre, pr.categoria, l.cantidad, l.precioUnitarioCentavos " +
+            "from LineaPedido l left join l.producto pr where l.pedido.id in :ids order by l.id")
+    List<FilaLinea> findFilasLinea(Collection<Integer> ids);
+
+    long countByEstado(EstadoPedido estado);
+
+    /**
+     * Las sumas sobre montos las hace la base en {@code NUMERIC}: vuelven en unidades,
+     * sin pasar por {@link com.techlab.ecommerce.model.MontoConverter}.
+     */
+    @Query("select coalesce(sum(l.precioUnitarioCentavos * l.cantidad), 0) from LineaPedido l " +
+            "where l.pedido.estado in :estados")
+    BigDecimal sumarVentasPorEstados(Collection<EstadoPedido> estados);
+
+    @Query("select p.estado as estado, count(distinct p.id) as cantidad, " +
+            "coalesce(sum(l.precioUnitarioCentavos * l.cantidad), 0) as total " +
+            "from Pedido p left join p.lineas l group by p.estado")
+    List<ResumenEstado> resumirPorEstado();
+
+    @Query("select cast(p.fecha as LocalDate) as dia, sum(l.precioUnitarioCentavos * l.cantidad) as total " +
+            "from LineaPedido l join l.pedido p where p.estado in :estados " +
+            "group by cast(p.fecha as LocalDate)")
+    List<VentasPorDia> sumarVentasPorDia(Collection<EstadoPedido> estados);
 
     List<Pedido> findByClienteNombreContainingIgnoreCase(String nombre);
 
     List<Pedido> findByFechaBetween(LocalDateTime inicio, LocalDateTime fin);
 
+    interface ResumenEstado {
+        EstadoPedido getEstado();
+
+        long getCantidad();
+
+        BigDecimal getTotal();
+    }
+
+    interface VentasPorDia {
+        LocalDate getDia();
+
+        BigDecimal getTotal();
+    }
+
+    record Cabecera(Integer id, String clienteNombre, LocalDateTime fecha, EstadoPedido estado, Long version,
+                    Long subtotalCotizadoCentavos, Long descuentoCotizadoCentavos, String promocionesCotizadas) {
+    }
+
+    record FilaLinea(Integer pedidoId, Integer productoId, String productoNombre, String productoCategoria,
+                     int cantidad, long precioUnitarioCentavos) {
+    }
+
 }
@@ -1,10 +1,17 @@
 package com.techlab.ecommerce.repository;
 
 import com.techlab.ecommerce.model.Producto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductoRepository extends JpaRepository<Producto, Integer> {
@@ -15,6 +22,51 @@ public interface ProductoRepository extends JpaRepository<Producto, Integer> {
 
     List<Producto> findByStockGreaterThan(int stock);
 
-    List<Producto> findByPrecioBetween(double precioMin, double precioMax);
+    List<Producto> findByPrecioCentavosBetween(long precioMinCentavos, long precioMaxCentavos);
 
+    List<Producto> findByStockBetween(int stockMin, int stockMax);
+
+    long countByStockGreaterThan(int stock);
+
+    long countByStockBetween(int stockMin, int stockMax);
+
+    /**
+     * Las sumas sobre montos las hace la base en {@code NUMERIC}: vuelven en unidades,
+     * sin pasar por {@link com.techlab.ecommerce.model.MontoConverter}.
+     */
+    @Query("select coalesce(sum(p.precioCentavos * p.stock), 0) from Producto p")
+    BigDecimal calcularValorInventario();
+
+    @Query("select p.categoria as categoria, count(p) as cantidad from Producto p group by p.categoria")
+    List<ConteoCategoria> contarPorCategoria();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p.id as id, p.precioCentavos as precioCentavos, p.stock as stock, p.categoria as categoria from Producto p")
+    Stream<ResumenProducto> streamResumenes();
+
+    List<Producto> findByIdGreaterThanOrderByIdAsc(int id, Limit limite);
+
+    /**
+     * Recorre la tabla con un cursor JDBC; debe consumirse dentro de una transacción.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select p from Producto p order by p.id")
+    Stream<Producto> streamTodos();
+
+
+    interface ConteoCategoria {
+        String getCategoria();
+
+        long getCantidad();
+    }
+
+    interface ResumenProducto {
+        Integer getId();
+
+        long getPrecioCentavos();
+
+        Integer getStock();
+
+        String getCategoria();
+    }
 }
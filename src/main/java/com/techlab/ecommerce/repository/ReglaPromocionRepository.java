@@ -0,0 +1,13 @@
+package com.techlab.ecommerce.repository;
+
+import com.techlab.ecommerce.model.ReglaPromocion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReglaPromocionRepository extends JpaRepository<ReglaPromocion, Integer> {
+
+    List<ReglaPromocion> findAllByOrderByPosicion();
+}
@@ -0,0 +1,125 @@
+package com.techlab.ecommerce.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Descuento de stock con UPDATE condicional: la base de datos valida y descuenta
+ * en la misma sentencia, sin leer la entidad antes. Cada UPDATE incrementa la versión
+ * para que una entidad leída antes no pise el stock al guardarse.
+ */
+@Repository
+public class StockRepository {
+
+    private static final String DESCONTAR_STOCK =
+            "UPDATE productos SET stock = stock - ?, disponible = (stock - ? > 0), version = version + 1 " +
+            "WHERE id = ? AND stock >= ?";
+
+    private static final String APLICAR_DELTA =
+            "UPDATE productos SET stock = stock + ?, disponible = (stock + ? > 0), version = version + 1 WHERE id = ?";
+
+    private static final String CONSULTAR_STOCK = "SELECT stock FROM productos WHERE id = ?";
+
+    private static final String CONSULTAR_VOLCADO = "SELECT segmento FROM stock_ledger_volcados WHERE id = 1";
+
+    private static final String MARCAR_VOLCADO = "UPDATE stock_ledger_volcados SET segmento = ? WHERE id = 1";
+
+    private static final String INSERTAR_VOLCADO = "INSERT INTO stock_ledger_volcados (id, segmento) VALUES (1, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Descuenta todas las cantidades en un único batch JDBC.
+     * Las filas se actualizan ordenadas por id para evitar deadlocks entre pedidos concurrentes.
+     *
+     * @param cantidades cantidad a descontar por id de producto
+     * @return ids de los productos que no tenían stock suficiente (o no existen)
+     */
+    public List<Integer> descontar(Map<Integer, Integer> cantidades) {
+        List<Map.Entry<Integer, Integer>> entradas = new ArrayList<>(new TreeMap<>(cantidades).entrySet());
+
+        int[] filasActualizadas = jdbcTemplate.batchUpdate(DESCONTAR_STOCK, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<Integer, Integer> entrada = entradas.get(i);
+                ps.setInt(1, entrada.getValue());
+                ps.setInt(2, entrada.getValue());
+                ps.setInt(3, entrada.getKey());
+                ps.setInt(4, entrada.getValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entradas.size();
+            }
+        });
+
+        List<Integer> fallidos = new ArrayList<>();
+        for (int i = 0; i < filasActualizadas.length; i++) {
+            if (filasActualizadas[i] == 0) {
+                fallidos.add(entradas.get(i).getKey());
+            }
+        }
+        return fallidos;
+    }
+
+    /**
+     * Aplica deltas de stock ya validados (por ejemplo, los acumulados por {@code StockLedger}).
+     */
+    public void aplicarDeltas(Map<Integer, Integer> deltas) {
+        List<Map.Entry<Integer, Integer>> entradas = new ArrayList<>(new TreeMap<>(deltas).entrySet());
+
+        jdbcTemplate.batchUpdate(APLICAR_DELTA, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<Integer, Integer> entrada = entradas.get(i);
+                ps.setInt(1, entrada.getValue());
+                ps.setInt(2, entrada.getValue());
+                ps.setInt(3, entrada.getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entradas.size();
+            }
+        });
+    }
+
+    /**
+     * Aplica los deltas de los segmentos del journal hasta {@code segmento} y lo marca como
+     * volcado en la misma transacción (la del llamador, si hay una).
+     */
+    @Transactional
+    public void volcar(Map<Integer, Integer> deltas, long segmento) {
+        if (!deltas.isEmpty()) {
+            aplicarDeltas(deltas);
+        }
+        if (jdbcTemplate.update(MARCAR_VOLCADO, segmento) == 0) {
+            jdbcTemplate.update(INSERTAR_VOLCADO, segmento);
+        }
+    }
+
+    /**
+     * Último segmento del journal de {@code StockLedger} ya aplicado; 0 si nunca se volcó.
+     */
+    public long ultimoSegmentoVolcado() {
+        List<Long> segmento = jdbcTemplate.queryForList(CONSULTAR_VOLCADO, Long.class);
+        return segmento.isEmpty() ? 0 : segmento.get(0);
+    }
+
+    public Integer consultarStock(int productoId) {
+        List<Integer> stock = jdbcTemplate.queryForList(CONSULTAR_STOCK, Integer.class, productoId);
+        return stock.isEmpty() ? null : stock.get(0);
+    }
+}
@@ -0,0 +1,198 @@
+package com.techlab.ecommerce.service;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.techlab.ecommerce.config.CacheConfig;
+import com.techlab.ecommerce.event.ProductoModificadoEvent;
+import com.techlab.ecommerce.event.StockDescontadoEvent;
+import com.techlab.ecommerce.model.Producto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Caches de lectura de {@link ProductoService}: las llena, las invalida cuando cambia un
+ * producto y expone sus métricas.
+ *
+ * Guardan copias inmutables ({@link ProductoCacheado}), nunca la entidad que devolvió la
+ * base. Una carga que empezó antes de un cambio puede terminar después de la invalidación;
+ * por eso solo se guarda si la revisión que se leyó al empezar sigue vigente, comparada en
+ * el mismo paso atómico que la escritura. La revisión se adelanta antes de descartar, así
+ * una carga vieja o llega antes del descarte o ya no encuentra su revisión.
+ *
+ * Solo se descarta lo que puede contener al producto: su entrada por id, la lista de
+ * su categoria y las consultas globales (disponibles, rango de precio y búsquedas).
+ *
+ * Las ventas no cambian el producto más que en su stock y llegan de a muchas: su entrada
+ * y su categoria se descartan enseguida, pero las consultas globales y la revisión de los
+ * listados se actualizan a lo sumo una vez cada {@code intervalo-ms} juntando todas las
+ * ventas del intervalo. Así las instantáneas del catálogo no se regeneran en cada venta;
+ * el stock de los listados puede atrasarse ese intervalo.
+ */
+@Component
+public class CatalogoCache {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private RevisionCatalogo revisionCatalogo;
+
+    private final AtomicBoolean stockPendiente = new AtomicBoolean();
+
+    /** Avanza antes de descartar cualquier lista. */
+    private final AtomicLong generacionConsultas = new AtomicLong();
+
+    /**
+     * Producto por id desde la cache, o {@code cargar} si no está.
+     */
+    Producto producto(int id, Supplier<Producto> cargar) {
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCTOS);
+        ProductoCacheado cacheado = cache == null ? null : cache.get(id, ProductoCacheado.class);
+        if (cacheado != null) {
+            return cacheado.copia();
+        }
+
+        long revision = revisionCatalogo.de(id);
+        Producto producto = cargar.get();
+        if (producto != null) {
+            guardar(cache, id, ProductoCacheado.de(producto), () -> revisionCatalogo.de(id) == revision);
+        }
+        return producto;
+    }
+
+    /**
+     * Lista de productos de una de las caches de consultas, o {@code cargar} si no está.
+     */
+    ArrayList<Producto> consulta(String nombre, Object clave, Supplier<List<Producto>> cargar) {
+        Cache cache = clave == null ? null : cacheManager.getCache(nombre);
+        ProductoCacheado[] cacheados = cache == null ? null : cache.get(clave, ProductoCacheado[].class);
+        if (cacheados == null) {
+            long generacion = generacionConsultas.get();
+            List<Producto> productos = cargar.get();
+            cacheados = new ProductoCacheado[productos.size()];
+            for (int i = 0; i < cacheados.length; i++) {
+                cacheados[i] = ProductoCacheado.de(productos.get(i));
+            }
+            guardar(cache, clave, cacheados, () -> generacionConsultas.get() == generacion);
+        }
+
+        ArrayList<Producto> copia = new ArrayList<>(cacheados.length);
+        for (ProductoCacheado cacheado : cacheados) {
+            copia.add(cacheado.copia());
+        }
+        return copia;
+    }
+
+    private void guardar(Cache cache, Object clave, Object valor, BooleanSupplier vigente) {
+        if (cache instanceof CaffeineCache caffeineCache) {
+            // compute y el descarte de la clave se excluyen: o se descarta lo guardado o la revisión ya cambió
+            caffeineCache.getNativeCache().asMap().compute(clave,
+                    (k, actual) -> vigente.getAsBoolean() ? valor : actual);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void productoModificado(ProductoModificadoEvent evento) {
+        invalidar(evento.productoId(), evento.categoria());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void stockDescontado(StockDescontadoEvent evento) {
+        descartarProducto(evento.productoId(), null);
+        revisionCatalogo.registrarCambioDe(evento.productoId());
+        stockPendiente.set(true);
+    }
+
+    /**
+     * Publica en los listados las ventas juntadas desde la pasada anterior.
+     */
+    @Scheduled(fixedDelayString = "${ecommerce.catalogo.stock.intervalo-ms:1000}")
+    public void publicarStock() {
+        if (!stockPendiente.getAndSet(false)) {
+            return;
+        }
+        limpiarConsultasGlobales();
+        revisionCatalogo.registrarCambioDelCatalogo();
+    }
+
+    private void invalidar(int productoId, String categoria) {
+        descartarProducto(productoId, categoria);
+        limpiarConsultasGlobales();
+
+        // después de invalidar: una lectura con la revisión nueva no puede salir de la cache vieja
+        revisionCatalogo.registrarCambio(productoId);
+    }
+
+    private void descartarProducto(int productoId, String categoria) {
+        revisionCatalogo.registrarCambioDe(productoId);
+        generacionConsultas.incrementAndGet();
+        Cache productos = cacheManager.getCache(CacheConfig.PRODUCTOS);
+
+        if (productos != null) {
+            if (categoria == null) {
+                ProductoCacheado cacheado = productos.get(productoId, ProductoCacheado.class);
+                if (cacheado != null) {
+                    categoria = cacheado.categoria();
+                }
+            }
+            productos.evict(productoId);
+        }
+
+        Cache porCategoria = cacheManager.getCache(CacheConfig.PRODUCTOS_POR_CATEGORIA);
+        if (porCategoria != null) {
+            if (categoria != null) {
+                porCategoria.evict(categoria);
+            } else {
+                porCategoria.clear();
+            }
+        }
+    }
+
+    private void limpiarConsultasGlobales() {
+        generacionConsultas.incrementAndGet();
+        limpiar(CacheConfig.PRODUCTOS_DISPONIBLES);
+        limpiar(CacheConfig.PRODUCTOS_POR_PRECIO);
+        limpiar(CacheConfig.PRODUCTOS_BUSQUEDA);
+    }
+
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+
+        for (String nombre : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(nombre);
+            if (!(cache instanceof CaffeineCache caffeineCache)) {
+                continue;
+            }
+            CacheStats stats = caffeineCache.getNativeCache().stats();
+
+            Map<String, Object> detalle = new LinkedHashMap<>();
+            detalle.put("tamanio", caffeineCache.getNativeCache().estimatedSize());
+            detalle.put("aciertos", stats.hitCount());
+            detalle.put("fallos", stats.missCount());
+            detalle.put("tasaAciertos", stats.hitRate());
+            detalle.put("desalojos", stats.evictionCount());
+            estadisticas.put(nombre, detalle);
+        }
+        return estadisticas;
+    }
+
+    private void limpiar(String nombre) {
+        Cache cache = cacheManager.getCache(nombre);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.techlab.ecommerce.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cola acotada sin locks sobre un arreglo circular (el esquema de D. Vyukov).
+ *
+ * Cada posición tiene un número de secuencia que indica si está libre para la vuelta
+ * actual del productor o si ya tiene un elemento para el consumidor. Encolar es un CAS
+ * sobre la cola más dos escrituras; si la cola está llena, {@link #offer} devuelve
+ * {@code false} enseguida en lugar de bloquear.
+ */
+class ColaAcotada<T> {
+
+    private final AtomicReferenceArray<T> elementos;
+    private final AtomicLongArray secuencias;
+    private final int mascara;
+    private final AtomicLong cabeza = new AtomicLong();
+    private final AtomicLong cola = new AtomicLong();
+
+    ColaAcotada(int capacidadMinima) {
+        int capacidad = Integer.highestOneBit(Math.max(2, capacidadMinima - 1)) << 1;
+        elementos = new AtomicReferenceArray<>(capacidad);
+        secuencias = new AtomicLongArray(capacidad);
+        for (int i = 0; i < capacidad; i++) {
+            secuencias.set(i, i);
+        }
+        mascara = capacidad - 1;
+    }
+
+    boolean offer(T elemento) {
+        long posicion = cola.get();
+        while (true) {
+            int indice = (int) posicion & mascara;
+            long diferencia = secuencias.get(indice) - posicion;
+            if (diferencia == 0) {
+                if (cola.compareAndSet(posicion, posicion + 1)) {
+                    elementos.lazySet(indice, elemento);
+                    // la escritura volátil de la secuencia publica el elemento al consumidor
+                    secuencias.set(indice, posicion + 1);
+                    return true;
+                }
+                posicion = cola.get();
+            } else if (diferencia < 0) {
+                return false;
+            } else {
+                posicion = cola.get();
+            }
+        }
+    }
+
+    T poll() {
+        long posicion = cabeza.get();
+        while (true) {
+            int indice = (int) posicion & mascara;
+            long diferencia = secuencias.get(indice) - (posicion + 1);
+            if (diferencia == 0) {
+                if (cabeza.compareAndSet(posicion, posicion + 1)) {
+                    T elemento = elementos.get(indice);
+                    elementos.lazySet(indice, null);
+                    secuencias.set(indice, posicion + mascara + 1);
+                    return elemento;
+                }
+                posicion = cabeza.get();
+            } else if (diferencia < 0) {
+                return null;
+            } else {
+                posicion = cabeza.get();
+            }
+        }
+    }
+
+    int tamanio() {
+        return (int) Math.max(0, cola.get() - cabeza.get());
+    }
+
+    int capacidad() {
+        return mascara + 1;
+    }
+}
@@ -0,0 +1,45 @@
+package com.techlab.ecommerce.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición de un listado por keyset, codificada como token opaco para el cliente.
+ * Guarda el último id entregado y, cuando se ordena por fecha, también su fecha.
+ */
+public record Cursor(LocalDateTime fecha, int id) {
+
+    public static final Cursor INICIO = new Cursor(null, 0);
+
+    public static Cursor despuesDe(int id) {
+        return new Cursor(null, id);
+    }
+
+    public static Cursor despuesDe(LocalDateTime fecha, int id) {
+        return new Cursor(fecha, id);
+    }
+
+    public String codificar() {
+        String valor = fecha == null ? String.valueOf(id) : fecha + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Cursor decodificar(String token) {
+        if (token == null || token.isBlank()) {
+            return INICIO;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separador = valor.indexOf('|');
+            if (separador < 0) {
+                return despuesDe(Integer.parseInt(valor));
+            }
+            return despuesDe(LocalDateTime.parse(valor.substring(0, separador)),
+                    Integer.parseInt(valor.substring(separador + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+}
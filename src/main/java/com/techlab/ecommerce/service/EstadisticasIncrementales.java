@@ -0,0 +1,309 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.event.PedidoModificadoEvent;
+import com.techlab.ecommerce.event.ProductoModificadoEvent;
+import com.techlab.ecommerce.event.StockDescontadoEvent;
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.model.Montos;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.repository.PedidoRepository;
+import com.techlab.ecommerce.repository.ProductoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Estadísticas de inventario y ventas mantenidas en memoria.
+ *
+ * Se reconstruyen una vez al arrancar y luego se actualizan con los eventos de
+ * {@link ProductoService} y {@link PedidoService}, sin volver a consultar la base.
+ * Los eventos solo marcan el estado como cambiado; la {@link Estadisticas} inmutable se
+ * arma en la primera lectura posterior y copia únicamente los mapas que cambiaron, así
+ * una venta no copia el historial de ventas por día. Sin cambios, leer es solo leer un
+ * campo volatile. Una reconciliación periódica corrige cualquier deriva. Los montos
+ * se acumulan en centavos, así sumar y restar eventos no acumula error de redondeo.
+ */
+@Component
+public class EstadisticasIncrementales implements SmartInitializingSingleton {
+
+    public static final int UMBRAL_STOCK_BAJO = 10;
+
+    private static final Logger log = LoggerFactory.getLogger(EstadisticasIncrementales.class);
+
+    public record Estadisticas(
+            long totalProductos,
+            long productosDisponibles,
+            long valorInventarioCentavos,
+            Map<String, Integer> productosPorCategoria,
+            int stockBajo,
+            Map<String, Long> pedidosPorEstado,
+            Map<String, Long> ventasPorEstadoCentavos,
+            Map<LocalDate, Long> ventasPorDiaCentavos) {
+    }
+
+    private record ResumenProducto(long precioCentavos, int stock, String categoria) {
+    }
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Value("${ecommerce.estadisticas.incrementales:true}")
+    private boolean habilitado;
+
+    // estado de escritura, protegido por el monitor de esta instancia
+    private Map<Integer, ResumenProducto> productos = new HashMap<>();
+    private Map<String, Integer> porCategoria = new HashMap<>();
+    private Set<Integer> stockBajo = new HashSet<>();
+    private long disponibles;
+    private long valorInventario;
+    private Map<String, Long> pedidosPorEstado = new HashMap<>();
+    private Map<String, Long> ventasPorEstado = new HashMap<>();
+    private Map<LocalDate, Long> ventasPorDia = new HashMap<>();
+    private boolean categoriasCambiaron;
+    private boolean estadosCambiaron;
+    private boolean diasCambiaron;
+
+    /** Eventos recibidos desde que empezó la lectura de una reconstrucción en curso. */
+    private List<Runnable> duranteReconstruccion;
+
+    private volatile Estadisticas actual;
+    private volatile boolean sucio;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (habilitado) {
+            reconstruir();
+        }
+    }
+
+    public boolean disponible() {
+        return actual != null;
+    }
+
+    public Estadisticas obtener() {
+        if (sucio) {
+            publicar();
+        }
+        return actual;
+    }
+
+    @Scheduled(fixedDelayString = "${ecommerce.estadisticas.reconciliacion-ms:300000}",
+            initialDelayString = "${ecommerce.estadisticas.reconciliacion-ms:300000}")
+    public void reconciliar() {
+        if (!habilitado) {
+            return;
+        }
+        Estadisticas anterior = obtener();
+        reconstruir();
+        Estadisticas reconciliadas = obtener();
+        if (anterior != null && anterior.valorInventarioCentavos() != reconciliadas.valorInventarioCentavos()) {
+            log.info("Estadísticas reconciliadas: valor de inventario {} -> {}",
+                    Montos.formatear(anterior.valorInventarioCentavos()), Montos.formatear(reconciliadas.valorInventarioCentavos()));
+        }
+    }
+
+    /**
+     * Recalcula todo desde la base. Las tres consultas leen una misma instantánea
+     * (repeatable read); los eventos que llegan desde que empieza la lectura se aplican
+     * al estado anterior y se guardan para volver a aplicarse sobre el reconstruido, así
+     * no se pierden al reemplazarlo. Solo un evento confirmado antes de la instantánea
+     * pero recibido después de empezar puede contarse dos veces; la siguiente
+     * reconciliación lo corrige. Antes de leer se vuelcan los descuentos que el
+     * {@link StockLedger} todavía no escribió en {@code productos.stock}: si no, la
+     * reconstrucción volvería a subir el stock de ventas ya confirmadas.
+     */
+    public void reconstruir() {
+        synchronized (this) {
+            duranteReconstruccion = new ArrayList<>();
+        }
+        // después de empezar a guardar eventos: lo confirmado desde acá se reaplica igual
+        stockLedger.volcar();
+
+        Map<Integer, ResumenProducto> nuevosProductos = new HashMap<>();
+        Map<String, Long> nuevosPorEstado = new HashMap<>();
+        Map<String, Long> nuevasVentasPorEstado = new HashMap<>();
+        Map<LocalDate, Long> nuevasVentasPorDia = new HashMap<>();
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        lectura.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        try {
+            lectura.executeWithoutResult(estado -> {
+                try (Stream<ProductoRepository.ResumenProducto> filas = productoRepository.streamResumenes()) {
+                    filas.forEach(fila -> nuevosProductos.put(fila.getId(),
+                            new ResumenProducto(fila.getPrecioCentavos(), fila.getStock(), fila.getCategoria())));
+                }
+                for (PedidoRepository.ResumenEstado fila : pedidoRepository.resumirPorEstado()) {
+                    nuevosPorEstado.put(fila.getEstado().getNombre(), fila.getCantidad());
+                    nuevasVentasPorEstado.put(fila.getEstado().getNombre(),
+                            Montos.desdeSuma(fila.getTotal()));
+                }
+                for (PedidoRepository.VentasPorDia fila : pedidoRepository.sumarVentasPorDia(EstadoPedido.VENTAS)) {
+                    nuevasVentasPorDia.put(fila.getDia(), Montos.desdeSuma(fila.getTotal()));
+                }
+            });
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                duranteReconstruccion = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            productos = new HashMap<>();
+            porCategoria = new HashMap<>();
+            stockBajo = new HashSet<>();
+            disponibles = 0;
+            valorInventario = 0;
+            for (Map.Entry<Integer, ResumenProducto> entrada : nuevosProductos.entrySet()) {
+                sumarProducto(entrada.getKey(), entrada.getValue());
+            }
+            pedidosPorEstado = nuevosPorEstado;
+            ventasPorEstado = nuevasVentasPorEstado;
+            ventasPorDia = nuevasVentasPorDia;
+
+            List<Runnable> recibidos = duranteReconstruccion;
+            duranteReconstruccion = null;
+            for (Runnable cambio : recibidos) {
+                cambio.run();
+            }
+            categoriasCambiaron = true;
+            estadosCambiaron = true;
+            diasCambiaron = true;
+            publicar();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void productoModificado(ProductoModificadoEvent evento) {
+        aplicar(() -> {
+            restarProducto(evento.productoId());
+            Producto producto = evento.producto();
+            if (producto != null) {
+                sumarProducto(producto.getId(),
+                        new ResumenProducto(producto.getPrecioCentavos(), producto.getStock(), producto.getCategoria()));
+            }
+            categoriasCambiaron = true;
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void stockDescontado(StockDescontadoEvent evento) {
+        // la categoria no cambia: porCategoria queda igual y no hace falta copiarla
+        aplicar(() -> {
+            ResumenProducto resumen = restarProducto(evento.productoId());
+            if (resumen != null) {
+                sumarProducto(evento.productoId(), new ResumenProducto(
+                        resumen.precioCentavos(), resumen.stock() - evento.cantidad(), resumen.categoria()));
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void pedidoModificado(PedidoModificadoEvent evento) {
+        aplicar(() -> {
+            LocalDate dia = evento.fecha().toLocalDate();
+            if (evento.estadoAnterior() != null) {
+                pedidosPorEstado.merge(evento.estadoAnterior().getNombre(), -1L, Long::sum);
+                ventasPorEstado.merge(evento.estadoAnterior().getNombre(), -evento.totalAnterior(), Math::addExact);
+                if (evento.estadoAnterior().esVenta()) {
+                    ventasPorDia.merge(dia, -evento.totalAnterior(), Math::addExact);
+                    diasCambiaron = true;
+                }
+            }
+            if (evento.estadoNuevo() != null) {
+                pedidosPorEstado.merge(evento.estadoNuevo().getNombre(), 1L, Long::sum);
+                ventasPorEstado.merge(evento.estadoNuevo().getNombre(), evento.totalNuevo(), Math::addExact);
+                if (evento.estadoNuevo().esVenta()) {
+                    ventasPorDia.merge(dia, evento.totalNuevo(), Math::addExact);
+                    diasCambiaron = true;
+                }
+            }
+            estadosCambiaron = true;
+        });
+    }
+
+    /**
+     * Aplica el cambio al estado vigente y, si hay una reconstrucción leyendo la base,
+     * lo guarda para aplicarlo también sobre el estado reconstruido.
+     */
+    private void aplicar(Runnable cambio) {
+        if (duranteReconstruccion != null) {
+            duranteReconstruccion.add(cambio);
+        }
+        if (actual != null) {
+            cambio.run();
+            sucio = true;
+        }
+    }
+
+    private void sumarProducto(int id, ResumenProducto resumen) {
+        productos.put(id, resumen);
+        valorInventario = Montos.sumar(valorInventario, Montos.multiplicar(resumen.precioCentavos(), resumen.stock()));
+        porCategoria.merge(resumen.categoria(), 1, Integer::sum);
+        if (resumen.stock() > 0) {
+            disponibles++;
+        }
+        if (resumen.stock() > 0 && resumen.stock() <= UMBRAL_STOCK_BAJO) {
+            stockBajo.add(id);
+        }
+    }
+
+    private ResumenProducto restarProducto(int id) {
+        ResumenProducto resumen = productos.remove(id);
+        if (resumen == null) {
+            return null;
+        }
+        valorInventario = Montos.sumar(valorInventario, -Montos.multiplicar(resumen.precioCentavos(), resumen.stock()));
+        porCategoria.computeIfPresent(resumen.categoria(), (categoria, cantidad) -> cantidad > 1 ? cantidad - 1 : null);
+        if (resumen.stock() > 0) {
+            disponibles--;
+        }
+        stockBajo.remove(id);
+        return resumen;
+    }
+
+    private synchronized void publicar() {
+        Estadisticas anterior = actual;
+        boolean completa = anterior == null;
+        actual = new Estadisticas(
+                productos.size(),
+                disponibles,
+                valorInventario,
+                completa || categoriasCambiaron ? Map.copyOf(porCategoria) : anterior.productosPorCategoria(),
+                stockBajo.size(),
+                completa || estadosCambiaron ? Map.copyOf(pedidosPorEstado) : anterior.pedidosPorEstado(),
+                completa || estadosCambiaron ? Map.copyOf(ventasPorEstado) : anterior.ventasPorEstadoCentavos(),
+                completa || diasCambiaron ? Map.copyOf(ventasPorDia) : anterior.ventasPorDiaCentavos()
+        );
+        categoriasCambiaron = false;
+        estadosCambiaron = false;
+        diasCambiaron = false;
+        sucio = false;
+    }
+}
@@ -0,0 +1,392 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.event.ProductoModificadoEvent;
+import com.techlab.ecommerce.event.StockDescontadoEvent;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.repository.ProductoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Índice invertido en memoria sobre nombre, descripción y categoria de los productos.
+ *
+ * Los términos se normalizan sin acentos ({@link Texto}). Cada término de la consulta
+ * se resuelve por coincidencia exacta, por prefijo y, si no hay ninguna, por distancia
+ * de edición; todos los términos deben coincidir. El ranking suma peso del campo por
+ * idf del término. Los filtros de categoria, precio y disponibilidad se evalúan sobre
+ * el índice, sin ir a la base.
+ *
+ * La búsqueda aproximada solo compara contra los términos con la misma inicial y una
+ * longitud a distancia posible, agrupados aparte. Cada documento guarda su posición en
+ * los postings de sus términos, así quitarlo no recorre listas que pueden tener a todo
+ * el catálogo (la categoria, por ejemplo).
+ */
+@Component
+public class IndiceBusqueda implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceBusqueda.class);
+
+    private static final float PESO_NOMBRE = 3f;
+    private static final float PESO_CATEGORIA = 2f;
+    private static final float PESO_DESCRIPCION = 1f;
+
+    private static final float FACTOR_PREFIJO = 0.7f;
+    private static final float FACTOR_APROXIMADO = 0.4f;
+    private static final int MAXIMO_EXPANSIONES = 64;
+
+    public record Filtro(String categoria, Double precioMin, Double precioMax, boolean soloDisponibles) {
+        public static final Filtro NINGUNO = new Filtro(null, null, null, false);
+    }
+
+    private static final class Documento {
+        private final String categoria;
+        private final double precio;
+        private final String[] terminos;
+        /** Posición de este documento en los postings de cada término. */
+        private final int[] posiciones;
+        private int stock;
+        private boolean disponible;
+
+        private Documento(Producto producto, String[] terminos, int[] posiciones) {
+            this.categoria = Texto.normalizar(producto.getCategoria());
+            this.precio = producto.getPrecio();
+            this.stock = producto.getStock();
+            this.disponible = producto.getDisponible() == null || producto.getDisponible();
+            this.terminos = terminos;
+            this.posiciones = posiciones;
+        }
+
+        private void reubicar(String termino, int posicion) {
+            for (int i = 0; i < terminos.length; i++) {
+                if (terminos[i].equals(termino)) {
+                    posiciones[i] = posicion;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lista de (id de producto, peso) de un término, en arreglos primitivos y sin orden.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private float[] pesos = new float[4];
+        private int tamanio;
+
+        private void agregar(int id, float peso) {
+            if (tamanio == ids.length) {
+                ids = Arrays.copyOf(ids, tamanio * 2);
+                pesos = Arrays.copyOf(pesos, tamanio * 2);
+            }
+            ids[tamanio] = id;
+            pesos[tamanio] = peso;
+            tamanio++;
+        }
+
+        /**
+         * Quita la entrada de la posición dada moviendo la última a su lugar.
+         *
+         * @return el id que cambió de posición, o -1 si no se movió ninguno
+         */
+        private int quitarEn(int posicion) {
+            tamanio--;
+            if (posicion == tamanio) {
+                return -1;
+            }
+            ids[posicion] = ids[tamanio];
+            pesos[posicion] = pesos[tamanio];
+            return ids[posicion];
+        }
+    }
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${ecommerce.busqueda.indice.enabled:true}")
+    private boolean habilitado;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private TreeMap<String, Postings> indice = new TreeMap<>();
+    private Map<Integer, Documento> documentos = new HashMap<>();
+    private Map<Integer, Set<String>> porInicialYLongitud = new HashMap<>();
+    private volatile boolean listo = false;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (habilitado) {
+            reconstruir();
+        }
+    }
+
+    public boolean listo() {
+        return listo;
+    }
+
+    public void reconstruir() {
+        TreeMap<String, Postings> nuevoIndice = new TreeMap<>();
+        Map<Integer, Documento> nuevosDocumentos = new HashMap<>();
+        Map<Integer, Set<String>> nuevosPorInicialYLongitud = new HashMap<>();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            try (Stream<Producto> productos = productoRepository.streamTodos()) {
+                productos.forEach(producto -> {
+                    agregar(nuevoIndice, nuevosDocumentos, nuevosPorInicialYLongitud, producto);
+                    entityManager.detach(producto);
+                });
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            indice = nuevoIndice;
+            documentos = nuevosDocumentos;
+            porInicialYLongitud = nuevosPorInicialYLongitud;
+            listo = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Índice de búsqueda construido: {} productos, {} términos", nuevosDocumentos.size(), nuevoIndice.size());
+    }
+
+    /**
+     * @return ids de producto ordenados por relevancia
+     */
+    public List<Integer> buscar(String consulta, Filtro filtro, int limite) {
+        List<String> terminosConsulta = Texto.tokenizar(consulta);
+        if (terminosConsulta.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String categoria = filtro.categoria() == null ? null : Texto.normalizar(filtro.categoria());
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Float> acumulado = null;
+            for (String termino : terminosConsulta) {
+                Map<Integer, Float> puntajes = new HashMap<>();
+                expandir(termino, puntajes);
+
+                if (acumulado == null) {
+                    acumulado = puntajes;
+                    acumulado.keySet().removeIf(id -> !cumple(documentos.get(id), categoria, filtro));
+                } else {
+                    acumulado.keySet().retainAll(puntajes.keySet());
+                    for (Map.Entry<Integer, Float> entrada : acumulado.entrySet()) {
+                        entrada.setValue(entrada.getValue() + puntajes.get(entrada.getKey()));
+                    }
+                }
+                if (acumulado.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+            return mejores(acumulado, limite);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void productoModificado(ProductoModificadoEvent evento) {
+        if (!listo) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            quitar(evento.productoId());
+            if (!evento.eliminado()) {
+                agregar(indice, documentos, porInicialYLongitud, evento.producto());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void stockDescontado(StockDescontadoEvent evento) {
+        if (!listo) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Documento documento = documentos.get(evento.productoId());
+            if (documento != null) {
+                documento.stock = documento.stock - evento.cantidad();
+                documento.disponible = documento.stock > 0;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void expandir(String termino, Map<Integer, Float> puntajes) {
+        int total = Math.max(documentos.size(), 1);
+        boolean encontrado = false;
+
+        Postings exactos = indice.get(termino);
+        if (exactos != null) {
+            sumar(exactos, 1f, total, puntajes);
+            encontrado = true;
+        }
+
+        int expansiones = 0;
+        for (Map.Entry<String, Postings> entrada : indice.subMap(termino, false, termino + Character.MAX_VALUE, false).entrySet()) {
+            if (++expansiones > MAXIMO_EXPANSIONES) {
+                break;
+            }
+            sumar(entrada.getValue(), FACTOR_PREFIJO, total, puntajes);
+            encontrado = true;
+        }
+
+        if (encontrado || termino.length() < 4) {
+            return;
+        }
+
+        int maximo = termino.length() >= 8 ? 2 : 1;
+        char inicial = termino.charAt(0);
+        for (int longitud = termino.length() - maximo; longitud <= termino.length() + maximo; longitud++) {
+            Set<String> candidatos = porInicialYLongitud.get(clave(inicial, longitud));
+            if (candidatos == null) {
+                continue;
+            }
+            for (String candidato : candidatos) {
+                if (Texto.distancia(termino, candidato, maximo) <= maximo) {
+                    sumar(indice.get(candidato), FACTOR_APROXIMADO, total, puntajes);
+                }
+            }
+        }
+    }
+
+    private void sumar(Postings postings, float factor, int total, Map<Integer, Float> puntajes) {
+        float idf = (float) Math.log(1.0 + (double) total / postings.tamanio);
+        for (int i = 0; i < postings.tamanio; i++) {
+            puntajes.merge(postings.ids[i], postings.pesos[i] * idf * factor, Float::sum);
+        }
+    }
+
+    private boolean cumple(Documento documento, String categoria, Filtro filtro) {
+        if (documento == null) {
+            return false;
+        }
+        if (categoria != null && !categoria.equals(documento.categoria)) {
+            return false;
+        }
+        if (filtro.precioMin() != null && documento.precio < filtro.precioMin()) {
+            return false;
+        }
+        if (filtro.precioMax() != null && documento.precio > filtro.precioMax()) {
+            return false;
+        }
+        return !filtro.soloDisponibles() || (documento.disponible && documento.stock > 0);
+    }
+
+    private List<Integer> mejores(Map<Integer, Float> puntajes, int limite) {
+        PriorityQueue<Map.Entry<Integer, Float>> mejores = new PriorityQueue<>(
+                (a, b) -> a.getValue().equals(b.getValue())
+                        ? Integer.compare(b.getKey(), a.getKey())
+                        : Float.compare(a.getValue(), b.getValue()));
+        for (Map.Entry<Integer, Float> entrada : puntajes.entrySet()) {
+            mejores.offer(entrada);
+            if (mejores.size() > limite) {
+                mejores.poll();
+            }
+        }
+
+        List<Integer> ids = new ArrayList<>(mejores.size());
+        while (!mejores.isEmpty()) {
+            ids.add(mejores.poll().getKey());
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    private void quitar(int productoId) {
+        Documento documento = documentos.remove(productoId);
+        if (documento == null) {
+            return;
+        }
+        for (int i = 0; i < documento.terminos.length; i++) {
+            String termino = documento.terminos[i];
+            Postings postings = indice.get(termino);
+            int movido = postings.quitarEn(documento.posiciones[i]);
+            if (movido >= 0) {
+                documentos.get(movido).reubicar(termino, documento.posiciones[i]);
+            }
+            if (postings.tamanio == 0) {
+                indice.remove(termino);
+                Set<String> grupo = porInicialYLongitud.get(clave(termino));
+                grupo.remove(termino);
+                if (grupo.isEmpty()) {
+                    porInicialYLongitud.remove(clave(termino));
+                }
+            }
+        }
+    }
+
+    private static int clave(String termino) {
+        return clave(termino.charAt(0), termino.length());
+    }
+
+    private static int clave(char inicial, int longitud) {
+        return (inicial << 16) | Math.min(longitud, 0xFFFF);
+    }
+
+    private static void agregar(TreeMap<String, Postings> indice, Map<Integer, Documento> documentos,
+                                Map<Integer, Set<String>> porInicialYLongitud, Producto producto) {
+        Map<String, Float> terminos = new HashMap<>();
+        for (String termino : Texto.tokenizar(producto.getNombre())) {
+            terminos.merge(termino, PESO_NOMBRE, Float::sum);
+        }
+        for (String termino : Texto.tokenizar(producto.getCategoria())) {
+            terminos.merge(termino, PESO_CATEGORIA, Float::sum);
+        }
+        for (String termino : Texto.tokenizar(producto.getDescripcion())) {
+            terminos.merge(termino, PESO_DESCRIPCION, Float::sum);
+        }
+
+        String[] nombres = new String[terminos.size()];
+        int[] posiciones = new int[terminos.size()];
+        int i = 0;
+        for (Map.Entry<String, Float> entrada : terminos.entrySet()) {
+            String termino = entrada.getKey();
+            Postings postings = indice.get(termino);
+            if (postings == null) {
+                postings = new Postings();
+                indice.put(termino, postings);
+                porInicialYLongitud.computeIfAbsent(clave(termino), k -> new HashSet<>()).add(termino);
+            }
+            nombres[i] = termino;
+            posiciones[i] = postings.tamanio;
+            postings.agregar(producto.getId(), entrada.getValue());
+            i++;
+        }
+        documentos.put(producto.getId(), new Documento(producto, nombres, posiciones));
+    }
+}
@@ -0,0 +1,415 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.dto.Sugerencia;
+import com.techlab.ecommerce.event.ProductoModificadoEvent;
+import com.techlab.ecommerce.event.StockDescontadoEvent;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.repository.ProductoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Autocompletado de nombres de producto por prefijo de cualquier palabra.
+ *
+ * Los nombres normalizados se guardan en un único {@code char[]} y cada comienzo de
+ * palabra es una entrada de un arreglo de sufijos ordenado, así un prefijo es un rango
+ * contiguo que se ubica con dos búsquedas binarias. El máximo de peso por bloque de
+ * {@value #BLOQUE} entradas permite sacar los k mejores sin recorrer todo el rango.
+ * El peso es el stock del producto.
+ *
+ * La tabla es inmutable. Los cambios del catálogo se acumulan en {@code pendientes},
+ * que tapan a la tabla en cada consulta, y se compactan en una tabla nueva cuando
+ * superan {@value #MAXIMO_PENDIENTES} o en la compactación periódica.
+ *
+ * Memoria: por producto, el nombre normalizado y el original ({@code 2 * 2 * largo}
+ * bytes), cuatro enteros por producto y dos por palabra. Con nombres de 25
+ * caracteres y 3 palabras son unos 140 bytes: alrededor de 14 MB cada 100k productos.
+ */
+@Component
+public class IndiceSugerencias implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceSugerencias.class);
+
+    private static final int BLOQUE = 32;
+    private static final int MAXIMO_PENDIENTES = 512;
+
+    /**
+     * Estado de un producto modificado después de construir la tabla; {@code nombre == null} si se eliminó.
+     */
+    private record Pendiente(String nombre, String normalizado, int peso) {
+    }
+
+    private record Fuente(int id, String nombre, String normalizado, int peso) {
+    }
+
+    private record Candidato(int id, String nombre, int peso) {
+    }
+
+    private static final Comparator<Candidato> PEOR_PRIMERO = Comparator.comparingInt(Candidato::peso)
+            .thenComparing(Candidato::id, Comparator.reverseOrder());
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${ecommerce.sugerencias.enabled:true}")
+    private boolean habilitado;
+
+    private volatile Tabla tabla;
+    private final Map<Integer, Pendiente> pendientes = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (habilitado) {
+            reconstruir();
+        }
+    }
+
+    public boolean listo() {
+        return tabla != null;
+    }
+
+    public void reconstruir() {
+        List<Fuente> fuentes = new ArrayList<>();
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            try (Stream<Producto> productos = productoRepository.streamTodos()) {
+                productos.forEach(producto -> {
+                    fuentes.add(new Fuente(producto.getId(), producto.getNombre(),
+                            Texto.normalizar(producto.getNombre()), peso(producto.getStock())));
+                    entityManager.detach(producto);
+                });
+            }
+        });
+        tabla = Tabla.construir(fuentes);
+        pendientes.clear();
+        log.info("Índice de sugerencias construido: {} productos, {} entradas",
+                tabla.ids.length, tabla.entradas.length);
+    }
+
+    public List<Sugerencia> sugerir(String prefijo, int limite) {
+        String consulta = Texto.normalizar(prefijo).strip();
+        if (consulta.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        PriorityQueue<Candidato> mejores = new PriorityQueue<>(PEOR_PRIMERO);
+        Set<Integer> vistos = new HashSet<>();
+
+        tabla.mejores(consulta, limite, pendientes.keySet(), mejores, vistos);
+
+        for (Map.Entry<Integer, Pendiente> entrada : pendientes.entrySet()) {
+            Pendiente pendiente = entrada.getValue();
+            if (pendiente.nombre() != null && coincide(pendiente.normalizado(), consulta)
+                    && vistos.add(entrada.getKey())) {
+                agregar(mejores, vistos, limite, new Candidato(entrada.getKey(), pendiente.nombre(), pendiente.peso()));
+            }
+        }
+
+        List<Sugerencia> resultado = new ArrayList<>(mejores.size());
+        while (!mejores.isEmpty()) {
+            Candidato candidato = mejores.poll();
+            resultado.add(new Sugerencia(candidato.id(), candidato.nombre()));
+        }
+        Collections.reverse(resultado);
+        return resultado;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void productoModificado(ProductoModificadoEvent evento) {
+        if (tabla == null) {
+            return;
+        }
+        Producto producto = evento.producto();
+        if (producto == null) {
+            pendientes.put(evento.productoId(), new Pendiente(null, null, 0));
+        } else {
+            pendientes.put(evento.productoId(), new Pendiente(producto.getNombre(),
+                    Texto.normalizar(producto.getNombre()), peso(producto.getStock())));
+        }
+        compactarSiHaceFalta();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void stockDescontado(StockDescontadoEvent evento) {
+        Tabla actual = tabla;
+        if (actual == null) {
+            return;
+        }
+        pendientes.compute(evento.productoId(), (id, pendiente) -> {
+            if (pendiente != null) {
+                return pendiente.nombre() == null ? pendiente
+                        : new Pendiente(pendiente.nombre(), pendiente.normalizado(), Math.max(pendiente.peso() - evento.cantidad(), 0));
+            }
+            int slot = Arrays.binarySearch(actual.ids, id);
+            if (slot < 0) {
+                return null;
+            }
+            return new Pendiente(actual.nombre(slot), actual.normalizado(slot), Math.max(actual.pesos[slot] - evento.cantidad(), 0));
+        });
+        compactarSiHaceFalta();
+    }
+
+    @Scheduled(fixedDelayString = "${ecommerce.sugerencias.compactacion-ms:30000}")
+    public void compactar() {
+        if (tabla == null || pendientes.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            Tabla actual = tabla;
+            Map<Integer, Pendiente> aplicados = Map.copyOf(pendientes);
+
+            List<Fuente> fuentes = new ArrayList<>(actual.ids.length + aplicados.size());
+            for (int slot = 0; slot < actual.ids.length; slot++) {
+                if (!aplicados.containsKey(actual.ids[slot])) {
+                    fuentes.add(new Fuente(actual.ids[slot], actual.nombre(slot), actual.normalizado(slot), actual.pesos[slot]));
+                }
+            }
+            for (Map.Entry<Integer, Pendiente> entrada : aplicados.entrySet()) {
+                Pendiente pendiente = entrada.getValue();
+                if (pendiente.nombre() != null) {
+                    fuentes.add(new Fuente(entrada.getKey(), pendiente.nombre(), pendiente.normalizado(), pendiente.peso()));
+                }
+            }
+
+            tabla = Tabla.construir(fuentes);
+            // solo se descartan los pendientes que no cambiaron mientras se compactaba
+            for (Map.Entry<Integer, Pendiente> entrada : aplicados.entrySet()) {
+                pendientes.remove(entrada.getKey(), entrada.getValue());
+            }
+        }
+    }
+
+    private void compactarSiHaceFalta() {
+        if (pendientes.size() > MAXIMO_PENDIENTES) {
+            compactar();
+        }
+    }
+
+    private static void agregar(PriorityQueue<Candidato> mejores, Set<Integer> vistos, int k, Candidato candidato) {
+        mejores.offer(candidato);
+        if (mejores.size() > k) {
+            vistos.remove(mejores.poll().id());
+        }
+    }
+
+    private static int peso(Integer stock) {
+        return stock == null ? 0 : Math.max(stock, 0);
+    }
+
+    private static boolean coincide(String normalizado, String consulta) {
+        for (int i = 0; i < normalizado.length(); i++) {
+            if (comienzoDePalabra(normalizado, i) && normalizado.startsWith(consulta, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean comienzoDePalabra(CharSequence texto, int posicion) {
+        return Character.isLetterOrDigit(texto.charAt(posicion))
+                && (posicion == 0 || !Character.isLetterOrDigit(texto.charAt(posicion - 1)));
+    }
+
+    /**
+     * Arreglo de sufijos de los comienzos de palabra, con los productos ordenados por id.
+     */
+    private static final class Tabla {
+
+        private final int[] ids;
+        private final int[] pesos;
+        private final char[] texto;
+        private final int[] limitesTexto;
+        private final char[] nombres;
+        private final int[] limitesNombres;
+        private final int[] entradas;
+        private final int[] slots;
+        private final int[] maximoPorBloque;
+
+        private Tabla(int[] ids, int[] pesos, char[] texto, int[] limitesTexto, char[] nombres,
+                      int[] limitesNombres, int[] entradas, int[] slots) {
+            this.ids = ids;
+            this.pesos = pesos;
+            this.texto = texto;
+            this.limitesTexto = limitesTexto;
+            this.nombres = nombres;
+            this.limitesNombres = limitesNombres;
+            this.entradas = entradas;
+            this.slots = slots;
+            this.maximoPorBloque = new int[(entradas.length + BLOQUE - 1) / BLOQUE];
+            Arrays.fill(maximoPorBloque, Integer.MIN_VALUE);
+            for (int e = 0; e < entradas.length; e++) {
+                maximoPorBloque[e / BLOQUE] = Math.max(maximoPorBloque[e / BLOQUE], pesos[slots[e]]);
+            }
+        }
+
+        private static Tabla construir(List<Fuente> fuentes) {
+            fuentes.sort(Comparator.comparingInt(Fuente::id));
+
+            int n = fuentes.size();
+            int[] ids = new int[n];
+            int[] pesos = new int[n];
+            int[] limitesTexto = new int[n + 1];
+            int[] limitesNombres = new int[n + 1];
+            StringBuilder texto = new StringBuilder();
+            StringBuilder nombres = new StringBuilder();
+            int[] posiciones = new int[Math.max(n, 16)];
+            int[] slotPorEntrada = new int[posiciones.length];
+            int cantidadEntradas = 0;
+            for (int slot = 0; slot < n; slot++) {
+                Fuente fuente = fuentes.get(slot);
+                ids[slot] = fuente.id();
+                pesos[slot] = fuente.peso();
+                limitesTexto[slot] = texto.length();
+                for (int i = 0; i < fuente.normalizado().length(); i++) {
+                    if (!comienzoDePalabra(fuente.normalizado(), i)) {
+                        continue;
+                    }
+                    if (cantidadEntradas == posiciones.length) {
+                        posiciones = Arrays.copyOf(posiciones, cantidadEntradas * 2);
+                        slotPorEntrada = Arrays.copyOf(slotPorEntrada, cantidadEntradas * 2);
+                    }
+                    posiciones[cantidadEntradas] = texto.length() + i;
+                    slotPorEntrada[cantidadEntradas] = slot;
+                    cantidadEntradas++;
+                }
+                texto.append(fuente.normalizado());
+                nombres.append(fuente.nombre());
+                limitesTexto[slot + 1] = texto.length();
+                limitesNombres[slot + 1] = nombres.length();
+            }
+
+            char[] caracteres = texto.toString().toCharArray();
+            int[] posicionesFinal = posiciones;
+            int[] slotsFinal = slotPorEntrada;
+            Integer[] orden = new Integer[cantidadEntradas];
+            for (int e = 0; e < cantidadEntradas; e++) {
+                orden[e] = e;
+            }
+            Arrays.sort(orden, (a, b) -> compararSufijos(caracteres,
+                    posicionesFinal[a], limitesTexto[slotsFinal[a] + 1],
+                    posicionesFinal[b], limitesTexto[slotsFinal[b] + 1]));
+
+            int[] entradas = new int[cantidadEntradas];
+            int[] slots = new int[cantidadEntradas];
+            for (int i = 0; i < cantidadEntradas; i++) {
+                entradas[i] = posiciones[orden[i]];
+                slots[i] = slotPorEntrada[orden[i]];
+            }
+            return new Tabla(ids, pesos, caracteres, limitesTexto, nombres.toString().toCharArray(),
+                    limitesNombres, entradas, slots);
+        }
+
+        private String nombre(int slot) {
+            return new String(nombres, limitesNombres[slot], limitesNombres[slot + 1] - limitesNombres[slot]);
+        }
+
+        private String normalizado(int slot) {
+            return new String(texto, limitesTexto[slot], limitesTexto[slot + 1] - limitesTexto[slot]);
+        }
+
+        /**
+         * Agrega a {@code mejores} los k productos de más peso cuyo nombre tiene una palabra
+         * que empieza con {@code consulta}, salteando los que están en {@code excluidos}.
+         */
+        private void mejores(String consulta, int k, Set<Integer> excluidos,
+                             PriorityQueue<Candidato> mejores, Set<Integer> vistos) {
+            int desde = primeraEntrada(consulta, false);
+            int hasta = primeraEntrada(consulta, true);
+            if (desde >= hasta) {
+                return;
+            }
+
+            List<Integer> bloques = new ArrayList<>();
+            for (int b = desde / BLOQUE; b <= (hasta - 1) / BLOQUE; b++) {
+                bloques.add(b);
+            }
+            bloques.sort((a, b) -> Integer.compare(maximoPorBloque[b], maximoPorBloque[a]));
+
+            for (int bloque : bloques) {
+                if (mejores.size() >= k && maximoPorBloque[bloque] < mejores.peek().peso()) {
+                    break;
+                }
+                int fin = Math.min(hasta, (bloque + 1) * BLOQUE);
+                for (int e = Math.max(desde, bloque * BLOQUE); e < fin; e++) {
+                    int slot = slots[e];
+                    if (excluidos.contains(ids[slot]) || !vistos.add(ids[slot])) {
+                        continue;
+                    }
+                    agregar(mejores, vistos, k, new Candidato(ids[slot], nombre(slot), pesos[slot]));
+                }
+            }
+        }
+
+        /**
+         * Primera entrada cuyo sufijo es mayor o igual a {@code consulta} o, si
+         * {@code despues}, la primera que ya no empieza con ella.
+         */
+        private int primeraEntrada(String consulta, boolean despues) {
+            int bajo = 0;
+            int alto = entradas.length;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                int comparacion = compararPrefijo(entradas[medio], limitesTexto[slots[medio] + 1], consulta);
+                if (comparacion < 0 || (despues && comparacion == 0)) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return bajo;
+        }
+
+        /**
+         * Compara el sufijo contra la consulta mirando solo sus primeros caracteres:
+         * 0 si la consulta es prefijo del sufijo.
+         */
+        private int compararPrefijo(int inicio, int fin, String consulta) {
+            int largo = Math.min(fin - inicio, consulta.length());
+            for (int i = 0; i < largo; i++) {
+                int diferencia = texto[inicio + i] - consulta.charAt(i);
+                if (diferencia != 0) {
+                    return diferencia;
+                }
+            }
+            return fin - inicio < consulta.length() ? -1 : 0;
+        }
+
+        private static int compararSufijos(char[] texto, int a, int finA, int b, int finB) {
+            int largo = Math.min(finA - a, finB - b);
+            for (int i = 0; i < largo; i++) {
+                int diferencia = texto[a + i] - texto[b + i];
+                if (diferencia != 0) {
+                    return diferencia;
+                }
+            }
+            return Integer.compare(finA - a, finB - b);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.dto.Pagina;
+import com.techlab.ecommerce.model.Producto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * JSON ya serializado, y también comprimido con gzip, de los listados más pedidos del
+ * catálogo: la primera página de todos los productos, los disponibles y cada categoria
+ * consultada.
+ *
+ * Cada instantánea guarda la revisión de {@link RevisionCatalogo} con la que se armó y
+ * solo se sirve mientras esa siga siendo la vigente; si no, la request usa el camino
+ * normal y la regeneración periódica la rehace fuera del hilo de la request. La revisión
+ * se lee antes que los datos, así una instantánea nunca queda con datos más viejos que
+ * su revisión.
+ *
+ * Los bytes viven en buffers directos y cada request recibe una vista de solo lectura:
+ * servirlos no serializa ni copia al heap. Memoria: dos buffers por listado (el JSON y
+ * su gzip), con un tope de {@code categorias-maximas} categorias.
+ */
+@Component
+public class InstantaneasCatalogo implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(InstantaneasCatalogo.class);
+
+    public static final String TODOS = "todos";
+    public static final String DISPONIBLES = "disponibles";
+    private static final String PREFIJO_CATEGORIA = "categoria:";
+
+    /**
+     * @param siguienteCursor cursor de la página siguiente del listado; {@code null} si entró completo
+     */
+    public record Instantanea(long revision, ByteBuffer json, ByteBuffer gzip, String siguienteCursor) {
+
+        public ByteBuffer cuerpo(boolean comprimido) {
+            return (comprimido ? gzip : json).asReadOnlyBuffer();
+        }
+    }
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private RevisionCatalogo revisionCatalogo;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ecommerce.instantaneas.enabled:true}")
+    private boolean habilitado;
+
+    @Value("${ecommerce.instantaneas.categorias-maximas:100}")
+    private int categoriasMaximas;
+
+    @Value("${ecommerce.listados.maximo:1000}")
+    private int maximoListado;
+
+    /** 1 (rápido) a 9 (más chico); cada instantánea se comprime una vez por cambio del catálogo */
+    @Value("${ecommerce.instantaneas.nivel-gzip:6}")
+    private int nivelGzip;
+
+    private final Map<String, Instantanea> instantaneas = new ConcurrentHashMap<>();
+    private final Set<String> categorias = ConcurrentHashMap.newKeySet();
+
+    public static String deCategoria(String categoria) {
+        return PREFIJO_CATEGORIA + categoria;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        regenerar();
+    }
+
+    /**
+     * @return la instantánea del listado si está al día; {@code null} si hay que armar la respuesta
+     */
+    public Instantanea obtener(String clave) {
+        if (!habilitado) {
+            return null;
+        }
+        Instantanea instantanea = instantaneas.get(clave);
+        if (instantanea == null && clave.startsWith(PREFIJO_CATEGORIA) && categorias.size() < categoriasMaximas) {
+            categorias.add(clave.substring(PREFIJO_CATEGORIA.length()));
+        }
+        if (instantanea == null || instantanea.revision() != revisionCatalogo.actual()) {
+            return null;
+        }
+        return instantanea;
+    }
+
+    /**
+     * Si el listado tiene una instantánea al día, sin anotar la categoria para generarla.
+     */
+    public boolean vigente(String clave) {
+        Instantanea instantanea = instantaneas.get(clave);
+        return habilitado && instantanea != null && instantanea.revision() == revisionCatalogo.actual();
+    }
+
+    @Scheduled(fixedDelayString = "${ecommerce.instantaneas.regeneracion-ms:250}")
+    public synchronized void regenerar() {
+        if (!habilitado) {
+            return;
+        }
+        long revision = revisionCatalogo.actual();
+        generar(TODOS, revision, () -> productoService.listarPagina(null, maximoListado));
+        generar(DISPONIBLES, revision, () -> new Pagina<>(productoService.listarDisponibles(), null));
+        for (String categoria : categorias) {
+            generar(deCategoria(categoria), revision,
+                    () -> new Pagina<>(productoService.filtrarPorCategoria(categoria), null));
+        }
+    }
+
+    private void generar(String clave, long revision, Supplier<Pagina<Producto>> productos) {
+        Instantanea actual = instantaneas.get(clave);
+        if (actual != null && actual.revision() == revision) {
+            return;
+        }
+        try {
+            Pagina<Producto> pagina = productos.get();
+            byte[] json = objectMapper.writeValueAsBytes(productoService.aRespuestas(pagina.items()));
+            instantaneas.put(clave, new Instantanea(revision, directo(json), directo(comprimir(json, nivelGzip)),
+                    pagina.siguienteCursor()));
+        } catch (RuntimeException e) {
+            log.warn("No se pudo generar la instantánea '{}'", clave, e);
+        }
+    }
+
+    private static ByteBuffer directo(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+
+    static byte[] comprimir(byte[] json, int nivel) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida) {
+            {
+                def.setLevel(nivel);
+            }
+        }) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return salida.toByteArray();
+    }
+}
@@ -0,0 +1,83 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.exception.EstadoPedidoInvalidoException;
+import com.techlab.ecommerce.exception.PedidoVacioException;
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.model.Pedido;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Valida los cambios de estado de los pedidos.
+ *
+ * Una transición tiene que estar en la tabla de {@link EstadoPedido} y pasar las
+ * guardas registradas para ese par origen/destino. Las guardas se guardan en una
+ * matriz indexada por ordinal, así verificar no arma claves ni recorre mapas.
+ */
+@Component
+public class MaquinaEstadosPedido {
+
+    /**
+     * Condición extra de una transición; lanza una {@link com.techlab.ecommerce.exception.ApiException}
+     * para impedirla.
+     */
+    @FunctionalInterface
+    public interface Guarda {
+        void verificar(Pedido pedido);
+    }
+
+    private final List<Guarda>[][] guardas;
+
+    @SuppressWarnings("unchecked")
+    public MaquinaEstadosPedido() {
+        int estados = EstadoPedido.values().length;
+        guardas = new List[estados][estados];
+        for (int origen = 0; origen < estados; origen++) {
+            for (int destino = 0; destino < estados; destino++) {
+                guardas[origen][destino] = new CopyOnWriteArrayList<>();
+            }
+        }
+
+        Guarda noVacio = pedido -> {
+            if (pedido.estaVacio()) {
+                throw new PedidoVacioException();
+            }
+        };
+        agregarGuarda(EstadoPedido.PENDIENTE, EstadoPedido.CONFIRMADO, noVacio);
+        agregarGuarda(EstadoPedido.PAGADO, EstadoPedido.ENVIADO, noVacio);
+    }
+
+    public void agregarGuarda(EstadoPedido origen, EstadoPedido destino, Guarda guarda) {
+        if (!origen.puedePasarA(destino)) {
+            throw new IllegalArgumentException("No existe la transición " + origen + " -> " + destino);
+        }
+        guardas[origen.ordinal()][destino.ordinal()].add(guarda);
+    }
+
+    /**
+     * Verifica que el pedido pueda pasar a {@code destino} sin modificarlo.
+     */
+    public void verificar(Pedido pedido, EstadoPedido destino) {
+        EstadoPedido origen = pedido.getEstado();
+        if (!origen.puedePasarA(destino)) {
+            throw new EstadoPedidoInvalidoException(origen.getNombre(), destino.getOperacion());
+        }
+        for (Guarda guarda : guardas[origen.ordinal()][destino.ordinal()]) {
+            guarda.verificar(pedido);
+        }
+    }
+
+    /**
+     * Verifica la transición y la aplica.
+     *
+     * @return el estado anterior del pedido
+     */
+    public EstadoPedido transicionar(Pedido pedido, EstadoPedido destino) {
+        verificar(pedido, destino);
+        EstadoPedido anterior = pedido.getEstado();
+        pedido.setEstado(destino);
+        return anterior;
+    }
+}
@@ -0,0 +1,374 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.config.CacheConfig;
+import com.techlab.ecommerce.dto.Cotizacion;
+import com.techlab.ecommerce.dto.Promocion;
+import com.techlab.ecommerce.exception.DatosInvalidosException;
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.model.LineaPedido;
+import com.techlab.ecommerce.model.Montos;
+import com.techlab.ecommerce.model.Pedido;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.model.ReglaPromocion;
+import com.techlab.ecommerce.repository.ReglaPromocionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Precio de los pedidos con promociones por producto, por categoria, por cantidad y de carrito.
+ *
+ * Las promociones activas se compilan en {@link Reglas}: las de linea quedan indexadas por
+ * producto y por categoria, ordenadas de mayor a menor descuento, y las de carrito ordenadas
+ * por monto mínimo junto con el mejor descuento alcanzable hasta cada mínimo. Cotizar un
+ * pedido es O(lineas + reglas que coinciden) más una búsqueda binaria, sin importar cuántas
+ * promociones haya cargadas.
+ *
+ * Cada linea toma la mejor de sus promociones (no se acumulan) y la mejor de carrito se
+ * aplica sobre el subtotal ya descontado. Los descuentos se redondean a centavos con
+ * {@link Montos#REDONDEO}.
+ *
+ * Las reglas compiladas son inmutables y se reemplazan enteras con una escritura volatile:
+ * una cotización en curso termina con las reglas que leyó al empezar. Las cotizaciones se
+ * cachean por pedido, versión del pedido y versión de las reglas, así que agregar una linea
+ * o cargar promociones nuevas las invalida sin borrar nada. Un cambio de categoria de un
+ * producto no cambia la versión de los pedidos que lo tienen: se ve cuando el pedido o las
+ * reglas cambian, o cuando la entrada vence.
+ *
+ * El conjunto vigente se guarda en la tabla {@code promociones} y se vuelve a compilar al
+ * arrancar. Al salir de PENDIENTE el pedido guarda su cotización ({@link #congelar}) y
+ * desde ahí se cotiza con ella: cambiar las promociones no cambia lo que ya se confirmó.
+ */
+@Component
+public class MotorPromociones implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(MotorPromociones.class);
+
+    private static final Regla[] SIN_REGLAS = new Regla[0];
+
+    private record Regla(String nombre, int cantidadMinima, double porcentaje) {
+    }
+
+    private record ReglaCarrito(long minimo, Regla regla) {
+    }
+
+    private record Clave(int pedidoId, long versionPedido, long versionReglas) {
+    }
+
+    /**
+     * Promociones activas compiladas. {@code mejorCarrito[i]} es la de mayor descuento entre
+     * las que piden como mucho {@code minimosCarrito[i]}.
+     */
+    private record Reglas(long version, List<Promocion> fuente, Map<Integer, Regla[]> porProducto,
+                          Map<String, Regla[]> porCategoria, long[] minimosCarrito, Regla[] mejorCarrito) {
+
+        Regla carrito(long monto) {
+            int desde = 0;
+            int hasta = minimosCarrito.length;
+            while (desde < hasta) {
+                int medio = (desde + hasta) >>> 1;
+                if (minimosCarrito[medio] <= monto) {
+                    desde = medio + 1;
+                } else {
+                    hasta = medio;
+                }
+            }
+            return desde == 0 ? null : mejorCarrito[desde - 1];
+        }
+    }
+
+    @Autowired(required = false)
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ReglaPromocionRepository reglaPromocionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private volatile Reglas reglas = compilar(List.of(), 0);
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<ReglaPromocion> guardadas = reglaPromocionRepository.findAllByOrderByPosicion();
+        List<Promocion> promociones = new ArrayList<>(guardadas.size());
+        long version = 0;
+        for (ReglaPromocion guardada : guardadas) {
+            promociones.add(aPromocion(guardada));
+            version = Math.max(version, guardada.getVersionReglas());
+        }
+        reglas = compilar(promociones, version);
+        log.info("Promociones versión {}: {} cargadas de la base", version, promociones.size());
+    }
+
+    public List<Promocion> listar() {
+        return reglas.fuente();
+    }
+
+    public long version() {
+        return reglas.version();
+    }
+
+    /**
+     * Valida, compila y guarda {@code promociones} y las pone en vigencia todas juntas. Si
+     * alguna es inválida o no se pueden guardar no cambia nada.
+     *
+     * @return la versión de las reglas nuevas
+     */
+    public synchronized long reemplazar(List<Promocion> promociones) {
+        Reglas nuevas = compilar(promociones, reglas.version() + 1);
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> guardar(nuevas));
+        reglas = nuevas;
+        log.info("Promociones versión {}: {} cargadas, {} productos y {} categorias con promociones de linea, {} de carrito",
+                nuevas.version(), promociones.size(), nuevas.porProducto().size(),
+                nuevas.porCategoria().size(), nuevas.minimosCarrito().length);
+        return nuevas.version();
+    }
+
+    /**
+     * Cotiza el pedido, reutilizando la cotización de la misma versión del pedido y de
+     * las reglas si está en cache. El pedido tiene que traer sus lineas y productos.
+     * Un pedido que ya salió de PENDIENTE devuelve su cotización congelada.
+     */
+    public Cotizacion cotizar(Pedido pedido) {
+        if (pedido.getEstado() != null && pedido.getEstado() != EstadoPedido.PENDIENTE) {
+            return congelada(pedido);
+        }
+        Reglas actuales = reglas;
+        Cache cache = cacheManager == null ? null : cacheManager.getCache(CacheConfig.COTIZACIONES);
+        if (cache == null || pedido.getId() == null || pedido.getVersion() == null) {
+            return calcular(pedido, actuales);
+        }
+        return cache.get(new Clave(pedido.getId(), pedido.getVersion(), actuales.version()),
+                () -> calcular(pedido, actuales));
+    }
+
+    /**
+     * Cotiza el pedido pendiente con las reglas vigentes y guarda el resultado en él. Se llama
+     * antes de sacarlo de PENDIENTE, en la misma transacción que el cambio de estado.
+     */
+    public Cotizacion congelar(Pedido pedido) {
+        Cotizacion cotizacion = cotizar(pedido);
+        pedido.setSubtotalCotizadoCentavos(Montos.desdeExacto(cotizacion.subtotal()));
+        pedido.setDescuentoCotizadoCentavos(Montos.desdeExacto(cotizacion.descuento()));
+        pedido.setPromocionesCotizadas(String.join("\n", cotizacion.promociones()));
+        return cotizacion;
+    }
+
+    /**
+     * La cotización guardada al salir de PENDIENTE. Los pedidos que salieron antes de que
+     * se guardaran no tienen: se cotizan sin promociones, como se cobraban entonces.
+     */
+    private static Cotizacion congelada(Pedido pedido) {
+        long version = pedido.getVersion() == null ? 0 : pedido.getVersion();
+        int id = pedido.getId() == null ? 0 : pedido.getId();
+        if (pedido.getSubtotalCotizadoCentavos() == null) {
+            long subtotal = pedido.calcularTotalCentavos();
+            return new Cotizacion(id, Montos.aDouble(subtotal), 0, Montos.aDouble(subtotal), List.of(), version);
+        }
+        long subtotal = pedido.getSubtotalCotizadoCentavos();
+        long descuento = pedido.getDescuentoCotizadoCentavos() == null ? 0 : pedido.getDescuentoCotizadoCentavos();
+        String nombres = pedido.getPromocionesCotizadas();
+        List<String> promociones = nombres == null || nombres.isEmpty() ? List.of() : List.of(nombres.split("\n"));
+        return new Cotizacion(id, Montos.aDouble(subtotal), Montos.aDouble(descuento),
+                Montos.aDouble(subtotal - descuento), promociones, version);
+    }
+
+    /**
+     * Cotiza el pedido con las reglas vigentes, sin cache.
+     */
+    public Cotizacion calcular(Pedido pedido) {
+        return calcular(pedido, reglas);
+    }
+
+    private static Cotizacion calcular(Pedido pedido, Reglas reglas) {
+        long subtotal = 0;
+        long descuento = 0;
+        Set<String> aplicadas = new LinkedHashSet<>();
+
+        for (LineaPedido linea : pedido.getLineas()) {
+            long importe = linea.calcularSubtotalCentavos();
+            subtotal = Montos.sumar(subtotal, importe);
+
+            Producto producto = linea.getProducto();
+            Regla regla = mejor(reglas.porProducto().get(producto.getId()), linea.getCantidad(), null);
+            regla = mejor(reglas.porCategoria().get(producto.getCategoria()), linea.getCantidad(), regla);
+            if (regla != null) {
+                descuento = Montos.sumar(descuento, Montos.porcentaje(importe, regla.porcentaje(), Montos.REDONDEO));
+                aplicadas.add(regla.nombre());
+            }
+        }
+
+        Regla carrito = reglas.carrito(subtotal - descuento);
+        if (carrito != null) {
+            descuento = Montos.sumar(descuento,
+                    Montos.porcentaje(subtotal - descuento, carrito.porcentaje(), Montos.REDONDEO));
+            aplicadas.add(carrito.nombre());
+        }
+
+        long version = pedido.getVersion() == null ? 0 : pedido.getVersion();
+        return new Cotizacion(pedido.getId() == null ? 0 : pedido.getId(), Montos.aDouble(subtotal),
+                Montos.aDouble(descuento), Montos.aDouble(subtotal - descuento), List.copyOf(aplicadas), version);
+    }
+
+    /**
+     * La primera regla que alcanza la cantidad es la de mayor descuento del arreglo; se
+     * queda con ella si supera a {@code actual}.
+     */
+    private static Regla mejor(Regla[] candidatas, int cantidad, Regla actual) {
+        if (candidatas == null) {
+            return actual;
+        }
+        for (Regla regla : candidatas) {
+            if (regla.cantidadMinima() <= cantidad) {
+                return actual == null || regla.porcentaje() > actual.porcentaje() ? regla : actual;
+            }
+        }
+        return actual;
+    }
+
+    private void guardar(Reglas nuevas) {
+        reglaPromocionRepository.deleteAllInBatch();
+        List<Promocion> promociones = nuevas.fuente();
+        List<ReglaPromocion> filas = new ArrayList<>(promociones.size());
+        for (int i = 0; i < promociones.size(); i++) {
+            Promocion promocion = promociones.get(i);
+            ReglaPromocion fila = new ReglaPromocion();
+            fila.setPosicion(i);
+            fila.setVersionReglas(nuevas.version());
+            fila.setNombre(promocion.nombre());
+            fila.setTipo(promocion.tipo().name());
+            fila.setProductoId(promocion.productoId());
+            fila.setCategoria(promocion.categoria());
+            fila.setCantidadMinima(promocion.cantidadMinima());
+            if (promocion.montoMinimo() != null) {
+                fila.setMontoMinimoCentavos(Montos.desde(promocion.montoMinimo(), RoundingMode.CEILING));
+            }
+            fila.setPorcentaje(promocion.porcentaje());
+            fila.setActiva(promocion.activa());
+            filas.add(fila);
+        }
+        reglaPromocionRepository.saveAll(filas);
+    }
+
+    private static Promocion aPromocion(ReglaPromocion fila) {
+        Double montoMinimo = fila.getMontoMinimoCentavos() == null ? null : Montos.aDouble(fila.getMontoMinimoCentavos());
+        return new Promocion(fila.getNombre(), Promocion.Tipo.valueOf(fila.getTipo()), fila.getProductoId(),
+                fila.getCategoria(), fila.getCantidadMinima(), montoMinimo, fila.getPorcentaje(), fila.getActiva());
+    }
+
+    private static Reglas compilar(List<Promocion> promociones, long version) {
+        Map<Integer, List<Regla>> porProducto = new HashMap<>();
+        Map<String, List<Regla>> porCategoria = new HashMap<>();
+        List<ReglaCarrito> carrito = new ArrayList<>();
+
+        for (int i = 0; i < promociones.size(); i++) {
+            Promocion promocion = promociones.get(i);
+            validar(promocion, i);
+            if (!promocion.estaActiva()) {
+                continue;
+            }
+            String nombre = promocion.nombre() == null || promocion.nombre().isBlank()
+                    ? "promocion-" + i : promocion.nombre();
+            int cantidadMinima = promocion.tipo() == Promocion.Tipo.CANTIDAD ? promocion.cantidadMinima() : 0;
+            Regla regla = new Regla(nombre, cantidadMinima, promocion.porcentaje());
+
+            switch (promocion.tipo()) {
+                case PRODUCTO -> porProducto.computeIfAbsent(promocion.productoId(), id -> new ArrayList<>()).add(regla);
+                case CATEGORIA -> porCategoria.computeIfAbsent(promocion.categoria(), c -> new ArrayList<>()).add(regla);
+                case CANTIDAD -> {
+                    if (promocion.productoId() != null) {
+                        porProducto.computeIfAbsent(promocion.productoId(), id -> new ArrayList<>()).add(regla);
+                    } else {
+                        porCategoria.computeIfAbsent(promocion.categoria(), c -> new ArrayList<>()).add(regla);
+                    }
+                }
+                case CARRITO -> carrito.add(
+                        new ReglaCarrito(Montos.desde(promocion.montoMinimo(), RoundingMode.CEILING), regla));
+            }
+        }
+
+        carrito.sort(Comparator.comparingLong(ReglaCarrito::minimo));
+        long[] minimos = new long[carrito.size()];
+        Regla[] mejores = new Regla[carrito.size()];
+        Regla mejor = null;
+        for (int i = 0; i < carrito.size(); i++) {
+            minimos[i] = carrito.get(i).minimo();
+            Regla regla = carrito.get(i).regla();
+            if (mejor == null || regla.porcentaje() > mejor.porcentaje()) {
+                mejor = regla;
+            }
+            mejores[i] = mejor;
+        }
+
+        return new Reglas(version, List.copyOf(promociones), indexar(porProducto), indexar(porCategoria), minimos, mejores);
+    }
+
+    private static <K> Map<K, Regla[]> indexar(Map<K, List<Regla>> reglas) {
+        Comparator<Regla> mayorDescuento = Comparator.comparingDouble(Regla::porcentaje).reversed();
+        Map<K, Regla[]> indice = new HashMap<>(reglas.size() * 2);
+        for (Map.Entry<K, List<Regla>> entrada : reglas.entrySet()) {
+            Regla[] ordenadas = entrada.getValue().toArray(SIN_REGLAS);
+            Arrays.sort(ordenadas, mayorDescuento);
+            indice.put(entrada.getKey(), ordenadas);
+        }
+        return Map.copyOf(indice);
+    }
+
+    private static void validar(Promocion promocion, int indice) {
+        String campo = "promociones[" + indice + "]";
+        if (promocion == null || promocion.tipo() == null) {
+            throw new DatosInvalidosException(campo + ".tipo", "es obligatorio");
+        }
+        if (promocion.nombre() != null && promocion.nombre().length() > 100) {
+            throw new DatosInvalidosException(campo + ".nombre", "admite hasta 100 caracteres");
+        }
+        if (promocion.categoria() != null && promocion.categoria().length() > 50) {
+            throw new DatosInvalidosException(campo + ".categoria", "admite hasta 50 caracteres");
+        }
+        if (!(promocion.porcentaje() > 0 && promocion.porcentaje() <= 100)) {
+            throw new DatosInvalidosException(campo + ".porcentaje", "debe ser mayor a 0 y hasta 100");
+        }
+        switch (promocion.tipo()) {
+            case PRODUCTO -> {
+                if (promocion.productoId() == null) {
+                    throw new DatosInvalidosException(campo + ".productoId", "es obligatorio");
+                }
+            }
+            case CATEGORIA -> {
+                if (promocion.categoria() == null || promocion.categoria().isBlank()) {
+                    throw new DatosInvalidosException(campo + ".categoria", "es obligatoria");
+                }
+            }
+            case CANTIDAD -> {
+                if (promocion.productoId() == null && (promocion.categoria() == null || promocion.categoria().isBlank())) {
+                    throw new DatosInvalidosException(campo, "necesita productoId o categoria");
+                }
+                if (promocion.cantidadMinima() == null || promocion.cantidadMinima() < 1) {
+                    throw new DatosInvalidosException(campo + ".cantidadMinima", "debe ser mayor a 0");
+                }
+            }
+            case CARRITO -> {
+                if (promocion.montoMinimo() == null || !(promocion.montoMinimo() >= 0)) {
+                    throw new DatosInvalidosException(campo + ".montoMinimo", "no puede ser negativo");
+                }
+            }
+        }
+    }
+}
@@ -1,82 +1,291 @@
 package com.techlab.ecommerce.service;
 
 
+import com.techlab.ecommerce.dto.Cotizacion;
+import com.techlab.ecommerce.dto.Pagina;
+import com.techlab.ecommerce.dto.PedidoRespuesta;
+import com.techlab.ecommerce.dto.ResultadoLote;
+import com.techlab.ecommerce.dto.ResultadoPedido;
+import com.techlab.ecommerce.dto.SolicitudPedido;
+import com.techlab.ecommerce.event.PedidoModificadoEvent;
 import com.techlab.ecommerce.exception.*;
+import com.techlab.ecommerce.model.EstadoPedido;
 import com.techlab.ecommerce.model.LineaPedido;
+import com.techlab.ecommerce.model.Montos;
 import com.techlab.ecommerce.model.Pedido;
 import com.techlab.ecommerce.model.Producto;
 import com.techlab.ecommerce.repository.PedidoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
 public class PedidoService {
+    private static final int BLOQUE_EXPORTACION = 500;
+
     @Autowired
     private PedidoRepository pedidoRepository;
 
     @Autowired
     private ProductoService productoService;
 
-    public ArrayList<Pedido> listarTodos() {
-        List<Pedido> pedidos = pedidoRepository.findAll();
-        return new ArrayList<>(pedidos);
+    @Autowired
+    private Reintentos reintentos;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private EstadisticasIncrementales estadisticasIncrementales;
+
+    @Autowired
+    private PerfilSql perfilSql;
+
+    @Autowired
+    private ReservasStock reservasStock;
+
+    @Autowired
+    private MaquinaEstadosPedido maquinaEstados;
+
+    @Autowired
+    private MotorPromociones motorPromociones;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${ecommerce.pedidos.lote.maximo:5000}")
+    private int maximoLote;
+
+    public ArrayList<PedidoRespuesta> listarRespuestasPagina(int pagina, int tamanio) {
+        if (pagina < 0) {
+            throw new IllegalArgumentException("Página inválida");
+        }
+        ProductoService.validarLimite(tamanio);
+        Page<Integer> ids = pedidoRepository.findIds(PageRequest.of(pagina, tamanio, Sort.by("id")));
+        return new ArrayList<>(cargarRespuestas(ids.getContent()));
     }
 
-    public Pedido obtenerPorId(int id) {
-        return pedidoRepository.findById(id).orElse(null);
+    public Pagina<PedidoRespuesta> listarPaginaPorEstado(EstadoPedido estado, String cursor, int limite) {
+        ProductoService.validarLimite(limite);
+        Cursor posicion = Cursor.decodificar(cursor);
+
+        List<Integer> ids = pedidoRepository.findIdsByEstadoDespuesDe(estado, posicion.id(), Limit.of(limite));
+        List<PedidoRespuesta> pedidos = cargarRespuestas(ids);
+
+        String siguiente = null;
+        if (ids.size() == limite) {
+            siguiente = Cursor.despuesDe(ids.get(ids.size() - 1)).codificar();
+        }
+        return new Pagina<>(pedidos, siguiente);
     }
 
-    public ArrayList<Pedido> listarPorEstado(String estado) {
-        List<Pedido> pedidos = pedidoRepository.findByEstado(estado);
-        return new ArrayList<>(pedidos);
+    public PedidoRespuesta obtenerRespuesta(int id) {
+        List<PedidoRespuesta> pedidos = cargarRespuestas(List.of(id));
+        return pedidos.isEmpty() ? null : pedidos.get(0);
     }
 
-    public Pedido crearPedidoVacio(String clienteNombre) {
-        Pedido pedido = new Pedido();
-        pedido.setFecha(LocalDateTime.now());
-        pedido.setEstado("pendiente");
-        pedido.setClienteNombre(clienteNombre);
+    public Pagina<PedidoRespuesta> listarPaginaPorId(String cursor, int limite) {
+        ProductoService.validarLimite(limite);
+        Cursor posicion = Cursor.decodificar(cursor);
 
-        return pedidoRepository.save(pedido);
+        List<Integer> ids = pedidoRepository.findIdsDespuesDe(posicion.id(), Limit.of(limite));
+        List<PedidoRespuesta> pedidos = cargarRespuestas(ids);
+
+        String siguiente = null;
+        if (ids.size() == limite) {
+            siguiente = Cursor.despuesDe(ids.get(ids.size() - 1)).codificar();
+        }
+        return new Pagina<>(pedidos, siguiente);
     }
 
-    @Transactional
-    public Pedido agregarProductoAlPedido(int pedidoId, int productoId, int cantidad){
-        if (cantidad <= 0) {
-            throw new DatosInvalidosException("cantidad", "debe ser mayor a 0");
+    public Pagina<PedidoRespuesta> listarPaginaPorFecha(String cursor, int limite) {
+        ProductoService.validarLimite(limite);
+        Cursor posicion = Cursor.decodificar(cursor);
+
+        List<Integer> ids = posicion.fecha() == null
+                ? pedidoRepository.findIdsPorFecha(Limit.of(limite))
+                : pedidoRepository.findIdsPorFechaDespuesDe(posicion.fecha(), posicion.id(), Limit.of(limite));
+        List<PedidoRespuesta> pedidos = cargarRespuestas(ids);
+
+        String siguiente = null;
+        if (ids.size() == limite) {
+            PedidoRespuesta ultimo = pedidos.get(pedidos.size() - 1);
+            siguiente = Cursor.despuesDe(ultimo.fecha(), ultimo.id()).codificar();
         }
+        return new Pagina<>(pedidos, siguiente);
+    }
 
-        Pedido pedido = obtenerPorId(pedidoId);
-        if (pedido == null) {
-            throw new ResourceNotFoundException("Pedido", pedidoId);
+    /**
+     * Entrega todos los pedidos con sus lineas recorriendo la tabla por keyset en bloques,
+     * con tres consultas por bloque y sin retener los bloques ya entregados.
+     */
+    public void exportarTodos(Consumer<PedidoRespuesta> consumidor) {
+        int ultimoId = 0;
+        while (true) {
+            List<Integer> ids = pedidoRepository.findIdsDespuesDe(ultimoId, Limit.of(BLOQUE_EXPORTACION));
+            if (ids.isEmpty()) {
+                return;
+            }
+            cargarRespuestas(ids).forEach(consumidor);
+            ultimoId = ids.get(ids.size() - 1);
         }
+    }
 
-        Producto producto = productoService.obtenerPorId(productoId);
-        if (producto == null) {
-            throw new ResourceNotFoundException("Producto", productoId);
+    /**
+     * Arma las respuestas de los pedidos en el orden de {@code ids} con una consulta de
+     * cabeceras y otra de lineas que ya trae el nombre de cada producto. No carga entidades,
+     * así que no hay lazy loading ni contexto de persistencia que crezca con el listado.
+     * El total sale de {@link MotorPromociones#cotizar} sobre un pedido armado con esas filas,
+     * igual que el de {@link #respuesta}.
+     */
+    private List<PedidoRespuesta> cargarRespuestas(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        if (!producto.getDisponible()) {
-            throw new ProductoNoDisponibleException(producto.getNombre());
+        Map<Integer, PedidoRepository.Cabecera> cabeceras = new HashMap<>(ids.size() * 2);
+        for (PedidoRepository.Cabecera cabecera : pedidoRepository.findCabeceras(ids)) {
+            cabeceras.put(cabecera.id(), cabecera);
+        }
+        Map<Integer, List<PedidoRepository.FilaLinea>> lineas = new HashMap<>(ids.size() * 2);
+        for (PedidoRepository.FilaLinea fila : pedidoRepository.findFilasLinea(ids)) {
+            lineas.computeIfAbsent(fila.pedidoId(), pedidoId -> new ArrayList<>(4)).add(fila);
         }
 
-        if (producto.getStock() < cantidad) {
-            throw new StockInsuficienteException(
-                    producto.getNombre(),
-                    producto.getStock(),
-                    cantidad
-            );
+        List<PedidoRespuesta> pedidos = new ArrayList<>(cabeceras.size());
+        for (Integer id : ids) {
+            PedidoRepository.Cabecera cabecera = cabeceras.get(id);
+            if (cabecera != null) {
+                pedidos.add(respuesta(cabecera, lineas.getOrDefault(id, List.of())));
+            }
+        }
+        return pedidos;
+    }
+
+    private PedidoRespuesta respuesta(PedidoRepository.Cabecera cabecera, List<PedidoRepository.FilaLinea> filas) {
+        // pedido sin administrar, solo para cotizarlo: lleva lo que lee MotorPromociones
+        Pedido pedido = new Pedido();
+        pedido.setId(cabecera.id());
+        pedido.setEstado(cabecera.estado());
+        pedido.setVersion(cabecera.version());
+        pedido.setSubtotalCotizadoCentavos(cabecera.subtotalCotizadoCentavos());
+        pedido.setDescuentoCotizadoCentavos(cabecera.descuentoCotizadoCentavos());
+        pedido.setPromocionesCotizadas(cabecera.promocionesCotizadas());
+
+        List<PedidoRespuesta.Linea> lineas = new ArrayList<>(filas.size());
+        for (PedidoRepository.FilaLinea fila : filas) {
+            lineas.add(new PedidoRespuesta.Linea(fila.productoId(), fila.productoNombre(), fila.cantidad(),
+                    Montos.aDouble(fila.precioUnitarioCentavos())));
+
+            Producto producto = new Producto();
+            producto.setId(fila.productoId());
+            producto.setCategoria(fila.productoCategoria());
+            LineaPedido linea = new LineaPedido();
+            linea.setProducto(producto);
+            linea.setCantidad(fila.cantidad());
+            linea.setPrecioUnitarioCentavos(fila.precioUnitarioCentavos());
+            pedido.getLineas().add(linea);
+        }
+
+        return new PedidoRespuesta(cabecera.id(), cabecera.clienteNombre(), cabecera.fecha(),
+                cabecera.estado().getNombre(), motorPromociones.cotizar(pedido).total(), lineas);
+    }
+
+    /**
+     * Respuesta de la API para un pedido con sus lineas y productos ya cargados, con el
+     * total cotizado: el que devuelven también los listados y {@code GET /api/pedidos/{id}/total}.
+     */
+    public PedidoRespuesta respuesta(Pedido pedido) {
+        return PedidoRespuesta.de(pedido, motorPromociones.cotizar(pedido));
+    }
+
+    private List<Pedido> cargarConLineas(List<Integer> ids, Sort orden) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
         }
+        return pedidoRepository.findByIdIn(ids, orden);
+    }
+
+    public Pedido obtenerPorId(int id) {
+        return pedidoRepository.findConLineasById(id).orElse(null);
+    }
+
+    public Pedido crearPedidoVacio(String clienteNombre) {
+        Pedido pedido = new Pedido();
+        pedido.setFecha(LocalDateTime.now());
+        pedido.setEstado(EstadoPedido.PENDIENTE);
+        pedido.setClienteNombre(clienteNombre);
+
+        Pedido guardado = pedidoRepository.save(pedido);
+        notificarCambio(PedidoModificadoEvent.Cambio.CREADO, guardado, null, 0);
+        return guardado;
+    }
+
+    public Pedido agregarProductoAlPedido(int pedidoId, int productoId, int cantidad) {
+        return reintentos.enTransaccion("agregarProductoAlPedido", () -> {
+            if (cantidad <= 0) {
+                throw new DatosInvalidosException("cantidad", "debe ser mayor a 0");
+            }
+            if (cantidad > Montos.CANTIDAD_MAXIMA) {
+                throw new DatosInvalidosException("cantidad", "no puede superar " + Montos.CANTIDAD_MAXIMA);
+            }
 
-        LineaPedido linea = new LineaPedido(producto, cantidad);
-        pedido.agregarLinea(linea);
+            Pedido pedido = obtenerPorId(pedidoId);
+            if (pedido == null) {
+                throw new ResourceNotFoundException("Pedido", pedidoId);
+            }
+            // agregar una linea no toca la fila del pedido; las cotizaciones se cachean por versión
+            entityManager.lock(pedido, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+
+            perfilSql.registrarAccesoProducto(productoId);
+            Producto producto = productoService.obtenerPorId(productoId);
+            if (producto == null) {
+                throw new ResourceNotFoundException("Producto", productoId);
+            }
+
+            if (!producto.getDisponible()) {
+                throw new ProductoNoDisponibleException(producto.getNombre());
+            }
+
+            int stock = productoService.stockActual(producto);
+            if (!reservasStock.reservar(pedidoId, productoId, cantidad, stock)) {
+                throw new StockInsuficienteException(
+                        producto.getNombre(),
+                        reservasStock.disponible(productoId, stock),
+                        cantidad
+                );
+            }
+
+            long totalAnterior = pedido.calcularTotalCentavos();
+            LineaPedido linea = new LineaPedido(producto, cantidad);
+            pedido.agregarLinea(linea);
 
-        return pedidoRepository.save(pedido);
+            Pedido guardado = pedidoRepository.save(pedido);
+            eventPublisher.publishEvent(new PedidoModificadoEvent(PedidoModificadoEvent.Cambio.LINEA_AGREGADA,
+                    guardado.getId(), guardado.getFecha(), guardado.getEstado(), totalAnterior,
+                    guardado.getEstado(), guardado.calcularTotalCentavos(), productoId, cantidad));
+            return guardado;
+        });
     }
 
     @Transactional
@@ -87,7 +296,7 @@ public class PedidoService {
 
         Pedido pedido = new Pedido();
         pedido.setFecha(LocalDateTime.now());
-        pedido.setEstado("pendiente");
+        pedido.setEstado(EstadoPedido.PENDIENTE);
         pedido.setClienteNombre(clienteNombre);
 
         for (LineaPedido linea : lineasPedido) {
@@ -98,10 +307,48 @@ public class PedidoService {
             pedido.agregarLinea(linea);
         }
 
-        return pedidoRepository.save(pedido);
+        Pedido guardado = pedidoRepository.save(pedido);
+        reservar(guardado);
+        notificarCambio(PedidoModificadoEvent.Cambio.CREADO, guardado, null, 0);
+        return guardado;
 
     }
 
+    /**
+     * Crea un pedido desde el cuerpo de {@code POST /api/pedidos/crear-completo}, cargando
+     * todos sus productos con una sola consulta.
+     */
+    @Transactional
+    public Pedido crearPedido(SolicitudPedido solicitud) {
+        Map<Integer, Producto> productos = productoService.obtenerPorIds(idsDeProductos(List.of(solicitud)));
+        Pedido guardado = pedidoRepository.save(armarPedido(solicitud, productos, LocalDateTime.now()));
+        reservar(guardado);
+        notificarCambio(PedidoModificadoEvent.Cambio.CREADO, guardado, null, 0);
+        return guardado;
+    }
+
+    /**
+     * Reserva el stock de todas las lineas de un pedido recién guardado, como agregar una
+     * linea. Si la transacción se revierte las reservas se deshacen.
+     *
+     * @throws StockInsuficienteException si algún producto no tiene disponible suficiente;
+     *                                    lo ya reservado queda hasta que termine la transacción
+     */
+    private void reservar(Pedido guardado) {
+        Map<Integer, Producto> productos = new HashMap<>();
+        for (LineaPedido linea : guardado.getLineas()) {
+            productos.putIfAbsent(linea.getProducto().getId(), linea.getProducto());
+        }
+        for (Map.Entry<Integer, Integer> cantidad : cantidadesPorProducto(guardado).entrySet()) {
+            Producto producto = productos.get(cantidad.getKey());
+            int stock = productoService.stockActual(producto);
+            if (!reservasStock.reservar(guardado.getId(), producto.getId(), cantidad.getValue(), stock)) {
+                throw new StockInsuficienteException(producto.getNombre(),
+                        reservasStock.disponible(producto.getId(), stock), cantidad.getValue());
+            }
+        }
+    }
+
     private void validarLineaPedido(LineaPedido linea) {
         if (linea == null) {
             throw new DatosInvalidosException("La línea de pedido no puede ser nula");
@@ -115,68 +362,254 @@ public class PedidoService {
             throw new DatosInvalidosException("cantidad", "debe ser mayor a 0");
         }
 
+        if (linea.getCantidad() > Montos.CANTIDAD_MAXIMA) {
+            throw new DatosInvalidosException("cantidad", "no puede superar " + Montos.CANTIDAD_MAXIMA);
+        }
+
         Producto producto = linea.getProducto();
 
         if (!producto.getDisponible()) {
             throw new ProductoNoDisponibleException(producto.getNombre());
         }
 
-        if (producto.getStock() < linea.getCantidad()) {
+        int stock = productoService.stockActual(producto);
+        if (stock < linea.getCantidad()) {
             throw new StockInsuficienteException(
                     producto.getNombre(),
-                    producto.getStock(),
+                    stock,
                     linea.getCantidad()
             );
         }
     }
 
-    @Transactional
     public Pedido confirmarPedido(int pedidoId) {
-        Pedido pedido = obtenerPorId(pedidoId);
+        return reintentos.enTransaccion("confirmarPedido", () -> {
+            Pedido pedido = obtenerPorId(pedidoId);
 
-        if (pedido == null) {
-            throw new ResourceNotFoundException("Pedido", pedidoId);
+            if (pedido == null) {
+                throw new ResourceNotFoundException("Pedido", pedidoId);
+            }
+
+            return confirmar(pedido);
+
+        });
+    }
+
+    private Pedido confirmar(Pedido pedido) {
+        maquinaEstados.verificar(pedido, EstadoPedido.CONFIRMADO);
+
+        Map<Integer, Integer> cantidades = cantidadesPorProducto(pedido);
+
+        List<Integer> sinStock = reservasStock.asegurar(pedido.getId(), cantidades, stockDeLineas(pedido));
+        if (sinStock.isEmpty()) {
+            sinStock = productoService.descontarStock(cantidades);
+        }
+        if (!sinStock.isEmpty()) {
+            ArrayList<String> nombres = new ArrayList<>();
+            for (LineaPedido linea : pedido.getLineas()) {
+                Producto producto = linea.getProducto();
+                if (sinStock.contains(producto.getId()) && !nombres.contains(producto.getNombre())) {
+                    nombres.add(producto.getNombre());
+                }
+            }
+            throw new LineasSinStockException(nombres, sinStock);
         }
 
-        if (!pedido.getEstado().equals("pendiente")) {
-            throw new EstadoPedidoInvalidoException(pedido.getEstado(), "confirmar");
+        motorPromociones.congelar(pedido);
+        EstadoPedido estadoAnterior = maquinaEstados.transicionar(pedido, EstadoPedido.CONFIRMADO);
+
+        Pedido guardado = pedidoRepository.save(pedido);
+        reservasStock.confirmar(guardado.getId());
+        notificarCambio(PedidoModificadoEvent.Cambio.TRANSICION, guardado, estadoAnterior, guardado.calcularTotalCentavos());
+        return guardado;
+    }
+
+    /**
+     * Crea un lote de pedidos en una transacción. Los productos de todo el lote se cargan
+     * con una consulta y los inserts de pedidos y lineas van en batches JDBC.
+     * Un pedido inválido no frena al resto: queda como fallido en su resultado. Cada pedido
+     * reserva su stock como uno creado solo; el que no alcanza a reservar se descarta y
+     * devuelve enseguida lo que llegó a reservar, así no le quita disponible al resto del lote.
+     */
+    @Transactional
+    public ResultadoLote crearPedidos(List<SolicitudPedido> solicitudes) {
+        validarLote(solicitudes);
+
+        Map<Integer, Producto> productos = productoService.obtenerPorIds(idsDeProductos(solicitudes));
+
+        LocalDateTime ahora = LocalDateTime.now();
+        List<ResultadoPedido> resultados = new ArrayList<>(solicitudes.size());
+        List<Pedido> nuevos = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < solicitudes.size(); i++) {
+            try {
+                nuevos.add(armarPedido(solicitudes.get(i), productos, ahora));
+                indices.add(i);
+                resultados.add(null);
+            } catch (ApiException e) {
+                resultados.add(ResultadoPedido.fallido(i, null, e.getMessage()));
+            }
         }
 
-        if (pedido.estaVacio()) {
-            throw new PedidoVacioException();
+        pedidoRepository.saveAll(nuevos);
+        for (int k = 0; k < nuevos.size(); k++) {
+            Pedido pedido = nuevos.get(k);
+            try {
+                reservar(pedido);
+            } catch (StockInsuficienteException e) {
+                reservasStock.descartar(pedido.getId());
+                entityManager.remove(pedido);
+                resultados.set(indices.get(k), ResultadoPedido.fallido(indices.get(k), null, e.getMessage()));
+                continue;
+            }
+            double total = motorPromociones.cotizar(pedido).total();
+            resultados.set(indices.get(k), ResultadoPedido.exitoso(indices.get(k), pedido.getId(), pedido.getEstado().getNombre(), total));
+            notificarCambio(PedidoModificadoEvent.Cambio.CREADO, pedido, null, 0);
+        }
+        return ResultadoLote.de(resultados);
+    }
+
+    /**
+     * Confirma un lote de pedidos. Se cargan con sus lineas en bloques y cada pedido
+     * descuenta su stock con un único batch; si no alcanza, ese pedido queda pendiente
+     * y el resto sigue.
+     */
+    public ResultadoLote confirmarPedidos(List<Integer> ids) {
+        return reintentos.enTransaccion("confirmarPedidos", () -> procesarLote(ids, this::confirmar));
+    }
+
+    /**
+     * Pasa un lote de pedidos a {@code destino} (pagar, enviar, entregar o cancelar) en una
+     * transacción; los updates van en batches JDBC. Un pedido que no admite la transición
+     * queda como fallido en su resultado y el resto sigue.
+     */
+    public ResultadoLote transicionarPedidos(List<Integer> ids, EstadoPedido destino) {
+        if (destino == EstadoPedido.CONFIRMADO) {
+            return confirmarPedidos(ids);
+        }
+        return reintentos.enTransaccion("transicionarPedidos", () -> procesarLote(ids, pedido -> transicionar(pedido, destino)));
+    }
+
+    private ResultadoLote procesarLote(List<Integer> ids, Function<Pedido, Pedido> operacion) {
+        validarLote(ids);
+
+        Map<Integer, Pedido> pedidos = new HashMap<>();
+        for (int desde = 0; desde < ids.size(); desde += BLOQUE_EXPORTACION) {
+            List<Integer> bloque = ids.subList(desde, Math.min(ids.size(), desde + BLOQUE_EXPORTACION));
+            for (Pedido pedido : cargarConLineas(new ArrayList<>(new HashSet<>(bloque)), Sort.by("id"))) {
+                pedidos.put(pedido.getId(), pedido);
+            }
         }
 
+        List<ResultadoPedido> resultados = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Integer id = ids.get(i);
+            Pedido pedido = id == null ? null : pedidos.get(id);
+            if (pedido == null) {
+                String error = id == null ? "El ID de pedido es obligatorio"
+                        : new ResourceNotFoundException("Pedido", id).getMessage();
+                resultados.add(ResultadoPedido.fallido(i, id, error));
+                continue;
+            }
+            try {
+                Pedido resultado = operacion.apply(pedido);
+                resultados.add(ResultadoPedido.exitoso(i, id, resultado.getEstado().getNombre(),
+                        motorPromociones.cotizar(resultado).total()));
+            } catch (ApiException e) {
+                resultados.add(ResultadoPedido.fallido(i, id, e.getMessage()));
+            }
+        }
+        return ResultadoLote.de(resultados);
+    }
+
+    private Map<Integer, Integer> cantidadesPorProducto(Pedido pedido) {
+        Map<Integer, Integer> cantidades = new HashMap<>();
+        for (LineaPedido linea : pedido.getLineas()) {
+            cantidades.merge(linea.getProducto().getId(), linea.getCantidad(), Integer::sum);
+        }
+        return cantidades;
+    }
+
+    private Map<Integer, Integer> stockDeLineas(Pedido pedido) {
+        Map<Integer, Integer> stock = new HashMap<>();
         for (LineaPedido linea : pedido.getLineas()) {
             Producto producto = linea.getProducto();
-            if (producto.getStock() < linea.getCantidad()) {
-                throw new StockInsuficienteException(
-                        producto.getNombre(),
-                        producto.getStock(),
-                        linea.getCantidad()
-                );
+            stock.computeIfAbsent(producto.getId(), id -> productoService.stockActual(producto));
+        }
+        return stock;
+    }
+
+    private Set<Integer> idsDeProductos(List<SolicitudPedido> solicitudes) {
+        Set<Integer> productoIds = new HashSet<>();
+        for (SolicitudPedido solicitud : solicitudes) {
+            if (solicitud != null && solicitud.productos() != null) {
+                for (SolicitudPedido.Linea linea : solicitud.productos()) {
+                    if (linea != null && linea.productoId() != null) {
+                        productoIds.add(linea.productoId());
+                    }
+                }
             }
         }
+        return productoIds;
+    }
 
-        for (LineaPedido linea : pedido.getLineas()) {
-            productoService.reducirStock(
-                    linea.getProducto().getId(),
-                    linea.getCantidad()
-            );
+    private void validarLote(List<?> lote) {
+        if (lote == null || lote.isEmpty()) {
+            throw new DatosInvalidosException("El lote no puede estar vacío");
+        }
+        if (lote.size() > maximoLote) {
+            throw new DatosInvalidosException("El lote admite hasta " + maximoLote + " pedidos");
+        }
+    }
+
+    private Pedido armarPedido(SolicitudPedido solicitud, Map<Integer, Producto> productos, LocalDateTime fecha) {
+        if (solicitud == null || solicitud.clienteNombre() == null || solicitud.clienteNombre().trim().isEmpty()) {
+            throw new DatosInvalidosException("clienteNombre", "es obligatorio");
+        }
+        if (solicitud.productos() == null || solicitud.productos().isEmpty()) {
+            throw new PedidoVacioException();
         }
 
-        pedido.setEstado("confirmado");
+        Pedido pedido = new Pedido();
+        pedido.setFecha(fecha);
+        pedido.setEstado(EstadoPedido.PENDIENTE);
+        pedido.setClienteNombre(solicitud.clienteNombre());
+
+        Map<Integer, Integer> cantidades = new HashMap<>();
+        for (SolicitudPedido.Linea datos : solicitud.productos()) {
+            if (datos == null || datos.productoId() == null || datos.cantidad() == null) {
+                throw new DatosInvalidosException("Cada línea necesita productoId y cantidad");
+            }
+            perfilSql.registrarAccesoProducto(datos.productoId());
+            Producto producto = productos.get(datos.productoId());
+            if (producto == null) {
+                throw new ResourceNotFoundException("Producto", datos.productoId());
+            }
+            LineaPedido linea = new LineaPedido(producto, datos.cantidad());
+            validarLineaPedido(linea);
 
-        return pedidoRepository.save(pedido);
+            int total = cantidades.merge(producto.getId(), datos.cantidad(), Integer::sum);
+            int stock = productoService.stockActual(producto);
+            if (stock < total) {
+                throw new StockInsuficienteException(producto.getNombre(), stock, total);
+            }
+            pedido.agregarLinea(linea);
+        }
+        return pedido;
     }
 
     public double calcularTotal(int pedidoId) {
+        return cotizar(pedidoId).total();
+    }
+
+    public Cotizacion cotizar(int pedidoId) {
         Pedido pedido = obtenerPorId(pedidoId);
 
         if (pedido == null) {
             throw new ResourceNotFoundException("Pedido", pedidoId);
         }
 
-        return pedido.calcularTotal();
+        return motorPromociones.cotizar(pedido);
     }
 
     public String obtenerResumenPedido(int pedidoId) {
@@ -198,31 +631,61 @@ public class PedidoService {
             resumen.append(numeroLinea).append(". ")
                     .append(linea.getProducto().getNombre())
                     .append(" x ").append(linea.getCantidad())
-                    .append(" = $").append(linea.calcularSubtotal())
+                    .append(" = $").append(Montos.formatear(linea.calcularSubtotalCentavos()))
                     .append("\n");
             numeroLinea = numeroLinea + 1;
         }
 
-        resumen.append("\nTOTAL: $").append(pedido.calcularTotal());
+        Cotizacion cotizacion = motorPromociones.cotizar(pedido);
+        if (cotizacion.descuento() != 0) {
+            resumen.append("\nSUBTOTAL: $").append(Montos.formatear(Montos.desdeExacto(cotizacion.subtotal())));
+            resumen.append("\nDESCUENTO: $").append(Montos.formatear(Montos.desdeExacto(cotizacion.descuento())));
+        }
+        resumen.append("\nTOTAL: $").append(Montos.formatear(Montos.desdeExacto(cotizacion.total())));
 
         return resumen.toString();
     }
 
     public Pedido cancelarPedido(int pedidoId) {
-        Pedido pedido = obtenerPorId(pedidoId);
+        return transicionarPedido(pedidoId, EstadoPedido.CANCELADO);
+    }
 
-        if (pedido == null) {
-            throw new ResourceNotFoundException("Pedido", pedidoId);
-        }
+    public Pedido pagarPedido(int pedidoId) {
+        return transicionarPedido(pedidoId, EstadoPedido.PAGADO);
+    }
 
-        if (pedido.getEstado().equals("confirmado") || pedido.getEstado().equals("enviado")) {
-            throw new OperacionNoPermitidaException(
-                    "No se puede cancelar un pedido en estado '" + pedido.getEstado() + "'"
-            );
-        }
+    public Pedido enviarPedido(int pedidoId) {
+        return transicionarPedido(pedidoId, EstadoPedido.ENVIADO);
+    }
+
+    public Pedido entregarPedido(int pedidoId) {
+        return transicionarPedido(pedidoId, EstadoPedido.ENTREGADO);
+    }
 
-        pedido.setEstado("cancelado");
-        return pedidoRepository.save(pedido);
+    private Pedido transicionarPedido(int pedidoId, EstadoPedido destino) {
+        return reintentos.enTransaccion(destino.getOperacion() + "Pedido", () -> {
+            Pedido pedido = obtenerPorId(pedidoId);
+
+            if (pedido == null) {
+                throw new ResourceNotFoundException("Pedido", pedidoId);
+            }
+
+            return transicionar(pedido, destino);
+        });
+    }
+
+    private Pedido transicionar(Pedido pedido, EstadoPedido destino) {
+        if (pedido.getEstado() == EstadoPedido.PENDIENTE) {
+            maquinaEstados.verificar(pedido, destino);
+            motorPromociones.congelar(pedido);
+        }
+        EstadoPedido estadoAnterior = maquinaEstados.transicionar(pedido, destino);
+        Pedido guardado = pedidoRepository.save(pedido);
+        if (destino == EstadoPedido.CANCELADO) {
+            reservasStock.liberar(guardado.getId());
+        }
+        notificarCambio(PedidoModificadoEvent.Cambio.TRANSICION, guardado, estadoAnterior, guardado.calcularTotalCentavos());
+        return guardado;
     }
 
     public boolean eliminarPedido(int id) {
@@ -233,23 +696,62 @@ public class PedidoService {
         }
 
         pedidoRepository.deleteById(id);
+        reservasStock.liberar(id);
+        long total = pedido.calcularTotalCentavos();
+        eventPublisher.publishEvent(new PedidoModificadoEvent(PedidoModificadoEvent.Cambio.ELIMINADO,
+                pedido.getId(), pedido.getFecha(), pedido.getEstado(), total, null, 0, null, null));
         return true;
     }
 
     public double calcularTotalVentas() {
-        ArrayList<Pedido> pedidosConfirmados = listarPorEstado("confirmado");
-        double totalVentas = 0.0;
+        return Montos.aDouble(calcularTotalVentasCentavos());
+    }
+
+    public long calcularTotalVentasCentavos() {
+        return Montos.desdeSuma(pedidoRepository.sumarVentasPorEstados(EstadoPedido.VENTAS));
+    }
+
+    public int contarPorEstado(EstadoPedido estado) {
+        return (int) pedidoRepository.countByEstado(estado);
+    }
 
-        for (Pedido pedido : pedidosConfirmados) {
-            totalVentas = totalVentas + pedido.calcularTotal();
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> estadisticas = new HashMap<>();
+
+        if (estadisticasIncrementales.disponible()) {
+            EstadisticasIncrementales.Estadisticas actuales = estadisticasIncrementales.obtener();
+            long totalVentas = 0;
+            for (EstadoPedido estado : EstadoPedido.VENTAS) {
+                totalVentas = Montos.sumar(totalVentas, actuales.ventasPorEstadoCentavos().getOrDefault(estado.getNombre(), 0L));
+            }
+            Map<LocalDate, Double> porDia = new HashMap<>();
+            actuales.ventasPorDiaCentavos().forEach((dia, total) -> porDia.put(dia, Montos.aDouble(total)));
+            estadisticas.put("totalVentas", Montos.aDouble(totalVentas));
+            estadisticas.put("pedidosPorEstado", actuales.pedidosPorEstado());
+            estadisticas.put("ventasPorDia", porDia);
+            return estadisticas;
+        }
+
+        Map<String, Long> porEstado = new HashMap<>();
+        for (PedidoRepository.ResumenEstado fila : pedidoRepository.resumirPorEstado()) {
+            porEstado.put(fila.getEstado().getNombre(), fila.getCantidad());
+        }
+        Map<LocalDate, Double> porDia = new HashMap<>();
+        for (PedidoRepository.VentasPorDia fila : pedidoRepository.sumarVentasPorDia(EstadoPedido.VENTAS)) {
+            porDia.put(fila.getDia(), Montos.aDouble(Montos.desdeSuma(fila.getTotal())));
         }
 
-        return totalVentas;
+        estadisticas.put("totalVentas", calcularTotalVentas());
+        estadisticas.put("pedidosPorEstado", porEstado);
+        estadisticas.put("ventasPorDia", porDia);
+        return estadisticas;
     }
 
-    public int contarPorEstado(String estado) {
-        ArrayList<Pedido> pedidos = listarPorEstado(estado);
-        return pedidos.size();
+    private void notificarCambio(PedidoModificadoEvent.Cambio cambio, Pedido pedido,
+                                 EstadoPedido estadoAnterior, long totalAnterior) {
+        eventPublisher.publishEvent(new PedidoModificadoEvent(cambio,
+                pedido.getId(), pedido.getFecha(), estadoAnterior, totalAnterior,
+                pedido.getEstado(), pedido.calcularTotalCentavos(), null, null));
     }
 
 }
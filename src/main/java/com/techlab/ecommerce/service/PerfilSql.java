@@ -0,0 +1,283 @@
+package com.techlab.ecommerce.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Perfil de las sentencias SQL y de los productos más leídos, con memoria acotada.
+ *
+ * Cada sentencia se suma a los totales, a la cuenta de la request en curso y a dos
+ * {@link TopK}: uno por cantidad de ejecuciones y otro por tiempo acumulado. Al
+ * terminar la request se registra por endpoint, y las que superan
+ * {@code umbral-sentencias} quedan marcadas como posible N+1. Reemplaza a
+ * {@code spring.jpa.show-sql}, que escribía cada sentencia en stdout.
+ *
+ * Los {@link TopK} se drenan cada {@code drenado-ms}. La cuenta de la request viaja con
+ * las tareas que la request lanza en otros hilos ({@link #propagar}), como el cuerpo de
+ * los listados NDJSON, y se cierra cuando termina la parte asíncrona.
+ */
+@Component
+public class PerfilSql {
+
+    private static final Logger log = LoggerFactory.getLogger(PerfilSql.class);
+
+    private static final int NORMALIZADAS_MAXIMAS = 2000;
+    private static final Pattern LISTA_PARAMETROS = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+    private static final Pattern LITERAL_TEXTO = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern LITERAL_NUMERO = Pattern.compile("\\b\\d+(\\.\\d+)?\\b");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    /**
+     * Sentencias de una request; puede sumarse desde más de un hilo.
+     */
+    public static final class Cuenta {
+        private final AtomicInteger sentencias = new AtomicInteger();
+        private final AtomicLong nanos = new AtomicLong();
+    }
+
+    private static final class Endpoint {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder sentencias = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder excesos = new LongAdder();
+        private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+    }
+
+    @Value("${ecommerce.perfil-sql.enabled:true}")
+    private boolean habilitado;
+
+    @Value("${ecommerce.perfil-sql.umbral-sentencias:20}")
+    private int umbralSentencias;
+
+    @Value("${ecommerce.perfil-sql.lenta-ms:200}")
+    private long lentaMs;
+
+    @Value("${ecommerce.perfil-sql.top:50}")
+    private int top;
+
+    private final ThreadLocal<Cuenta> requestActual = new ThreadLocal<>();
+    private final Map<String, String> normalizadas = new ConcurrentHashMap<>();
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    private final LongAdder sentencias = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder lentas = new LongAdder();
+    private final LongAdder requestsConExceso = new LongAdder();
+
+    private TopK<String> masFrecuentes;
+    private TopK<String> masCostosas;
+    private TopK<String> excesos;
+    private TopK<Integer> productos;
+
+    @PostConstruct
+    void inicializar() {
+        masFrecuentes = new TopK<>(top);
+        masCostosas = new TopK<>(top);
+        excesos = new TopK<>(top);
+        productos = new TopK<>(top);
+    }
+
+    public boolean habilitado() {
+        return habilitado;
+    }
+
+    public void registrarSentencia(String sql, long duracionNanos) {
+        String normalizada = normalizar(sql);
+        sentencias.increment();
+        nanos.add(duracionNanos);
+        masFrecuentes.registrar(normalizada, 1);
+        masCostosas.registrar(normalizada, duracionNanos);
+
+        Cuenta cuenta = requestActual.get();
+        if (cuenta != null) {
+            cuenta.sentencias.incrementAndGet();
+            cuenta.nanos.addAndGet(duracionNanos);
+        }
+
+        if (duracionNanos >= lentaMs * 1_000_000) {
+            lentas.increment();
+            log.warn("Sentencia lenta ({} ms): {}", duracionNanos / 1_000_000, normalizada);
+        }
+    }
+
+    public Cuenta iniciarRequest() {
+        Cuenta cuenta = new Cuenta();
+        requestActual.set(cuenta);
+        return cuenta;
+    }
+
+    /**
+     * Suelta la cuenta del hilo actual sin cerrarla, cuando la request sigue en otro hilo.
+     */
+    public void liberarHilo() {
+        requestActual.remove();
+    }
+
+    public void terminarRequest(String endpoint) {
+        Cuenta cuenta = requestActual.get();
+        requestActual.remove();
+        if (cuenta != null) {
+            terminarRequest(cuenta, endpoint);
+        }
+    }
+
+    public void terminarRequest(Cuenta cuenta, String endpoint) {
+        int total = cuenta.sentencias.get();
+        Endpoint estadisticas = endpoints.computeIfAbsent(endpoint, clave -> new Endpoint());
+        estadisticas.requests.increment();
+        estadisticas.sentencias.add(total);
+        estadisticas.nanos.add(cuenta.nanos.get());
+        estadisticas.maximo.accumulate(total);
+        if (total > umbralSentencias) {
+            estadisticas.excesos.increment();
+            requestsConExceso.increment();
+            excesos.registrar(endpoint, total);
+            log.debug("{} ejecutó {} sentencias (umbral {})", endpoint, total, umbralSentencias);
+        }
+    }
+
+    /**
+     * Envuelve una tarea para que sus sentencias se sumen a la request que la lanzó.
+     */
+    public Runnable propagar(Runnable tarea) {
+        Cuenta cuenta = requestActual.get();
+        if (cuenta == null) {
+            return tarea;
+        }
+        return () -> {
+            Cuenta anterior = requestActual.get();
+            requestActual.set(cuenta);
+            try {
+                tarea.run();
+            } finally {
+                if (anterior != null) {
+                    requestActual.set(anterior);
+                } else {
+                    requestActual.remove();
+                }
+            }
+        };
+    }
+
+    @Scheduled(fixedDelayString = "${ecommerce.perfil-sql.drenado-ms:1000}")
+    public void drenar() {
+        masFrecuentes.drenar();
+        masCostosas.drenar();
+        excesos.drenar();
+        productos.drenar();
+    }
+
+    public void registrarAccesoProducto(int productoId) {
+        if (habilitado) {
+            productos.registrar(productoId, 1);
+        }
+    }
+
+    public Map<String, Object> obtenerReporte() {
+        Map<String, Object> reporte = new LinkedHashMap<>();
+        reporte.put("sentencias", sentencias.sum());
+        reporte.put("tiempoMs", nanos.sum() / 1_000_000);
+        reporte.put("sentenciasLentas", lentas.sum());
+        reporte.put("umbralSentenciasPorRequest", umbralSentencias);
+        reporte.put("requestsConExceso", requestsConExceso.sum());
+        reporte.put("endpoints", reporteEndpoints());
+        reporte.put("posiblesNMas1", excesos.obtener(top).stream().map(entrada -> {
+            Map<String, Object> fila = new LinkedHashMap<>();
+            fila.put("endpoint", entrada.clave());
+            fila.put("requests", entrada.veces());
+            fila.put("maximoSentencias", entrada.maximo());
+            return fila;
+        }).toList());
+        reporte.put("masFrecuentes", reporteSentencias(masFrecuentes, false));
+        reporte.put("masCostosas", reporteSentencias(masCostosas, true));
+        reporte.put("productosMasLeidos", productos.obtener(top).stream().map(entrada -> {
+            Map<String, Object> fila = new LinkedHashMap<>();
+            fila.put("productoId", entrada.clave());
+            fila.put("lecturas", entrada.peso());
+            fila.put("error", entrada.error());
+            return fila;
+        }).toList());
+        return reporte;
+    }
+
+    public void reiniciar() {
+        sentencias.reset();
+        nanos.reset();
+        lentas.reset();
+        requestsConExceso.reset();
+        endpoints.clear();
+        masFrecuentes.reiniciar();
+        masCostosas.reiniciar();
+        excesos.reiniciar();
+        productos.reiniciar();
+    }
+
+    private List<Map<String, Object>> reporteEndpoints() {
+        List<Map<String, Object>> filas = new ArrayList<>();
+        for (Map.Entry<String, Endpoint> entrada : endpoints.entrySet()) {
+            Endpoint endpoint = entrada.getValue();
+            long requests = endpoint.requests.sum();
+            Map<String, Object> fila = new LinkedHashMap<>();
+            fila.put("endpoint", entrada.getKey());
+            fila.put("requests", requests);
+            fila.put("sentenciasPromedio", requests == 0 ? 0.0 : endpoint.sentencias.sum() / (double) requests);
+            fila.put("sentenciasMaximo", endpoint.maximo.get());
+            fila.put("tiempoSqlPromedioMs", requests == 0 ? 0.0 : endpoint.nanos.sum() / 1e6 / requests);
+            fila.put("excesos", endpoint.excesos.sum());
+            filas.add(fila);
+        }
+        filas.sort(Comparator.comparingDouble((Map<String, Object> fila) -> (double) fila.get("sentenciasPromedio")).reversed());
+        return filas;
+    }
+
+    private List<Map<String, Object>> reporteSentencias(TopK<String> topK, boolean porTiempo) {
+        return topK.obtener(top).stream().map(entrada -> {
+            Map<String, Object> fila = new LinkedHashMap<>();
+            fila.put("sql", entrada.clave());
+            if (porTiempo) {
+                fila.put("tiempoMs", entrada.peso() / 1_000_000);
+                fila.put("maximoMs", entrada.maximo() / 1_000_000.0);
+                fila.put("ejecuciones", entrada.veces());
+            } else {
+                fila.put("ejecuciones", entrada.peso());
+            }
+            fila.put("error", porTiempo ? entrada.error() / 1_000_000 : entrada.error());
+            return fila;
+        }).toList();
+    }
+
+    /**
+     * Agrupa las sentencias que sólo difieren en valores: las listas de parámetros de un
+     * IN se cuentan como una y los literales se reemplazan por {@code ?}.
+     */
+    String normalizar(String sql) {
+        String normalizada = normalizadas.get(sql);
+        if (normalizada != null) {
+            return normalizada;
+        }
+        normalizada = ESPACIOS.matcher(sql.trim()).replaceAll(" ");
+        normalizada = LITERAL_TEXTO.matcher(normalizada).replaceAll("?");
+        normalizada = LITERAL_NUMERO.matcher(normalizada).replaceAll("?");
+        normalizada = LISTA_PARAMETROS.matcher(normalizada).replaceAll("?, ...");
+        if (normalizadas.size() < NORMALIZADAS_MAXIMAS) {
+            normalizadas.put(sql, normalizada);
+        }
+        return normalizada;
+    }
+}
@@ -0,0 +1,31 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.model.Producto;
+
+/**
+ * Copia inmutable de un {@link Producto} para las caches de {@link CatalogoCache}. Cada
+ * lectura recibe una entidad nueva: modificarla no cambia lo que ven las demás.
+ */
+record ProductoCacheado(Integer id, String nombre, String descripcion, long precioCentavos, String categoria,
+                        String imagen, Integer stock, Boolean disponible, Long version) {
+
+    static ProductoCacheado de(Producto producto) {
+        return new ProductoCacheado(producto.getId(), producto.getNombre(), producto.getDescripcion(),
+                producto.getPrecioCentavos(), producto.getCategoria(), producto.getImagen(),
+                producto.getStock(), producto.getDisponible(), producto.getVersion());
+    }
+
+    Producto copia() {
+        Producto producto = new Producto();
+        producto.setId(id);
+        producto.setNombre(nombre);
+        producto.setDescripcion(descripcion);
+        producto.setPrecioCentavos(precioCentavos);
+        producto.setCategoria(categoria);
+        producto.setImagen(imagen);
+        producto.setStock(stock);
+        producto.setDisponible(disponible);
+        producto.setVersion(version);
+        return producto;
+    }
+}
@@ -1,17 +1,34 @@
 package com.techlab.ecommerce.service;
 
+import com.techlab.ecommerce.config.CacheConfig;
+import com.techlab.ecommerce.dto.Pagina;
+import com.techlab.ecommerce.dto.ProductoRespuesta;
+import com.techlab.ecommerce.dto.Sugerencia;
+import com.techlab.ecommerce.event.ProductoModificadoEvent;
+import com.techlab.ecommerce.event.StockDescontadoEvent;
 import com.techlab.ecommerce.exception.DatosInvalidosException;
 import com.techlab.ecommerce.exception.ResourceNotFoundException;
 import com.techlab.ecommerce.exception.StockInsuficienteException;
+import com.techlab.ecommerce.model.Montos;
 import com.techlab.ecommerce.model.Producto;
 import com.techlab.ecommerce.repository.ProductoRepository;
+import com.techlab.ecommerce.repository.StockRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class ProductoService {
@@ -19,29 +36,190 @@ public class ProductoService {
     @Autowired
     private ProductoRepository productoRepository;
 
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private IndiceBusqueda indiceBusqueda;
+
+    @Autowired
+    private IndiceSugerencias indiceSugerencias;
+
+    @Autowired
+    private Reintentos reintentos;
+
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     public ArrayList<Producto> listarTodos() {
         List<Producto> productos = productoRepository.findAll();
         return new ArrayList<>(productos);
     }
 
+    public Pagina<Producto> listarPagina(String cursor, int limite) {
+        validarLimite(limite);
+        Cursor posicion = Cursor.decodificar(cursor);
+
+        List<Producto> productos = productoRepository.findByIdGreaterThanOrderByIdAsc(posicion.id(), Limit.of(limite));
+
+        String siguiente = null;
+        if (productos.size() == limite) {
+            siguiente = Cursor.despuesDe(productos.get(productos.size() - 1).getId()).codificar();
+        }
+        return new Pagina<>(productos, siguiente);
+    }
+
+    /**
+     * Entrega todos los productos de a uno leyendo de un cursor JDBC.
+     * Cada producto se desasocia del contexto de persistencia después de consumirlo,
+     * así la memoria no crece con el tamaño de la tabla.
+     */
+    @Transactional(readOnly = true)
+    public void exportarTodos(Consumer<Producto> consumidor) {
+        try (Stream<Producto> productos = productoRepository.streamTodos()) {
+            productos.forEach(producto -> {
+                consumidor.accept(producto);
+                entityManager.detach(producto);
+            });
+        }
+    }
+
     public ArrayList<Producto> listarDisponibles() {
-        List<Producto> productos = productoRepository.findByStockGreaterThan(0);
-        return new ArrayList<>(productos);
+        return catalogoCache.consulta(CacheConfig.PRODUCTOS_DISPONIBLES, "todos",
+                () -> productoRepository.findByStockGreaterThan(0));
     }
 
     public Producto obtenerPorId(int id) {
-        return productoRepository.findById(id).orElse(null);
+        return catalogoCache.producto(id, () -> productoRepository.findById(id).orElse(null));
+    }
+
+    /**
+     * Carga varios productos en una sola consulta; los ids inexistentes no figuran en el mapa.
+     */
+    public Map<Integer, Producto> obtenerPorIds(Collection<Integer> ids) {
+        Map<Integer, Producto> productos = new HashMap<>();
+        if (ids.isEmpty()) {
+            return productos;
+        }
+        for (Producto producto : productoRepository.findAllById(ids)) {
+            productos.put(producto.getId(), producto);
+        }
+        return productos;
     }
 
     public ArrayList<Producto> buscarPorNombre(String nombre){
         if(nombre == null || nombre.trim().isEmpty()){
             return new ArrayList<>();
         }
-        List<Producto> productos = productoRepository.findByNombreContainingIgnoreCase(nombre);
-        return new ArrayList<>(productos);
+        return catalogoCache.consulta(CacheConfig.PRODUCTOS_BUSQUEDA, "nombre:" + nombre.toLowerCase(), () -> {
+            if (indiceBusqueda.listo()) {
+                return cargarEnOrden(indiceBusqueda.buscar(nombre, IndiceBusqueda.Filtro.NINGUNO, 1000));
+            }
+            return productoRepository.findByNombreContainingIgnoreCase(nombre);
+        });
+    }
+
+    /**
+     * Búsqueda por relevancia sobre nombre, categoria y descripción, tolerante a
+     * acentos y errores de tipeo. Sin índice disponible busca por nombre en la base.
+     */
+    public ArrayList<Producto> buscar(String consulta, String categoria, Double precioMin, Double precioMax,
+                                      boolean soloDisponibles, int limite) {
+        validarLimite(limite);
+        if (consulta == null || consulta.trim().isEmpty()) {
+            throw new DatosInvalidosException("q", "no puede estar vacío");
+        }
+        if (precioMin != null && precioMax != null && precioMax < precioMin) {
+            throw new IllegalArgumentException("Rango de precios inválido");
+        }
+
+        IndiceBusqueda.Filtro filtro = new IndiceBusqueda.Filtro(categoria, precioMin, precioMax, soloDisponibles);
+        if (indiceBusqueda.listo()) {
+            return cargarEnOrden(indiceBusqueda.buscar(consulta, filtro, limite));
+        }
+
+        ArrayList<Producto> resultado = new ArrayList<>();
+        for (Producto producto : productoRepository.findByNombreContainingIgnoreCase(consulta)) {
+            if (resultado.size() == limite) {
+                break;
+            }
+            if ((categoria == null || categoria.equalsIgnoreCase(producto.getCategoria()))
+                    && (precioMin == null || producto.getPrecio() >= precioMin)
+                    && (precioMax == null || producto.getPrecio() <= precioMax)
+                    && (!soloDisponibles || stockActual(producto) > 0)) {
+                resultado.add(producto);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Nombres de producto con alguna palabra que empieza con el prefijo, los de más stock primero.
+     */
+    public List<Sugerencia> sugerir(String prefijo, int limite) {
+        if (limite <= 0 || limite > 50) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y 50");
+        }
+        if (prefijo == null || prefijo.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (indiceSugerencias.listo()) {
+            return indiceSugerencias.sugerir(prefijo, limite);
+        }
+
+        List<Sugerencia> sugerencias = new ArrayList<>();
+        for (Producto producto : buscarPorNombre(prefijo)) {
+            if (sugerencias.size() == limite) {
+                break;
+            }
+            sugerencias.add(new Sugerencia(producto.getId(), producto.getNombre()));
+        }
+        return sugerencias;
+    }
+
+    public ProductoRespuesta aRespuesta(Producto producto) {
+        return ProductoRespuesta.de(producto, stockActual(producto));
+    }
+
+    public List<ProductoRespuesta> aRespuestas(List<Producto> productos) {
+        List<ProductoRespuesta> respuestas = new ArrayList<>(productos.size());
+        for (Producto producto : productos) {
+            respuestas.add(aRespuesta(producto));
+        }
+        return respuestas;
+    }
+
+    private ArrayList<Producto> cargarEnOrden(List<Integer> ids) {
+        Map<Integer, Producto> porId = obtenerPorIds(ids);
+        ArrayList<Producto> productos = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Producto producto = porId.get(id);
+            if (producto != null) {
+                productos.add(producto);
+            }
+        }
+        return productos;
     }
 
     public Producto buscarProducto(String criterio) {
+        ArrayList<Producto> encontrado = catalogoCache.consulta(CacheConfig.PRODUCTOS_BUSQUEDA, "criterio:" + criterio,
+                () -> {
+                    Producto producto = buscarProductoSinCache(criterio);
+                    return producto == null ? List.of() : List.of(producto);
+                });
+        return encontrado.isEmpty() ? null : encontrado.get(0);
+    }
+
+    private Producto buscarProductoSinCache(String criterio) {
         try {
             int id = Integer.parseInt(criterio);
             Producto producto = obtenerPorId(id);
@@ -61,16 +239,18 @@ public class ProductoService {
     }
 
     public ArrayList<Producto> filtrarPorCategoria(String categoria) {
-        List<Producto> productos = productoRepository.findByCategoria(categoria);
-        return new ArrayList<>(productos);
+        return catalogoCache.consulta(CacheConfig.PRODUCTOS_POR_CATEGORIA, categoria,
+                () -> productoRepository.findByCategoria(categoria));
     }
 
     public ArrayList<Producto> filtrarPorRangoPrecio(double precioMin, double precioMax){
         if (precioMin < 0 || precioMax < precioMin) {
             throw new IllegalArgumentException("Rango de precios inválido");
         }
-        List<Producto> productos = productoRepository.findByPrecioBetween(precioMin, precioMax);
-        return new ArrayList<>(productos);
+        // el rango es cerrado: los extremos se redondean hacia adentro
+        return catalogoCache.consulta(CacheConfig.PRODUCTOS_POR_PRECIO, precioMin + ":" + precioMax,
+                () -> productoRepository.findByPrecioCentavosBetween(
+                        Montos.desde(precioMin, RoundingMode.CEILING), Montos.desde(precioMax, RoundingMode.FLOOR)));
     }
 
     public Producto agregarProducto(Producto producto) {
@@ -78,11 +258,11 @@ public class ProductoService {
             throw new DatosInvalidosException("nombre", "no puede estar vacío");
         }
 
-        if(producto.getPrecio() <= 0){
+        if(producto.getPrecioCentavos() <= 0){
             throw new DatosInvalidosException("precio", "debe ser mayor a 0");
         }
 
-        if(producto.getStock() < 0){
+        if(producto.getStock() == null || producto.getStock() < 0){
             throw new DatosInvalidosException("stock", "no puede ser negativo");
         }
 
@@ -94,56 +274,61 @@ public class ProductoService {
             producto.setDisponible(true);
         }
 
-        return productoRepository.save(producto);
+        Producto guardado = productoRepository.save(producto);
+        notificarCambio(guardado);
+        return guardado;
     }
 
     public Producto actualizarProducto(int id, Producto productoActualizado){
-        Producto productoExistente = obtenerPorId(id);
+        Producto guardado = reintentos.enTransaccion("actualizarProducto", () -> {
+            Producto productoExistente = cargar(id);
 
-        if (productoExistente == null) {
-            throw new ResourceNotFoundException("Producto", id);
-        }
-
-        if(productoActualizado.getNombre() != null && !productoActualizado.getNombre().trim().isEmpty()){
-            productoExistente.setNombre(productoActualizado.getNombre());
-        }
+            if(productoActualizado.getNombre() != null && !productoActualizado.getNombre().trim().isEmpty()){
+                productoExistente.setNombre(productoActualizado.getNombre());
+            }
 
-        if(productoActualizado.getDescripcion() != null){
-            productoExistente.setDescripcion(productoActualizado.getDescripcion());
-        }
+            if(productoActualizado.getDescripcion() != null){
+                productoExistente.setDescripcion(productoActualizado.getDescripcion());
+            }
 
-        if(productoActualizado.getPrecio() > 0){
-            productoExistente.setPrecio(productoActualizado.getPrecio());
-        }
+            if(productoActualizado.getPrecioCentavos() > 0){
+                productoExistente.setPrecioCentavos(productoActualizado.getPrecioCentavos());
+            }
 
-        if(productoActualizado.getDescripcion() != null && !productoActualizado.getDescripcion().trim().isEmpty()){
-            productoExistente.setDescripcion(productoActualizado.getDescripcion());
-        }
+            if(productoActualizado.getDescripcion() != null && !productoActualizado.getDescripcion().trim().isEmpty()){
+                productoExistente.setDescripcion(productoActualizado.getDescripcion());
+            }
 
-        if (productoActualizado.getImagen() != null) {
-            productoExistente.setImagen(productoActualizado.getImagen());
-        }
+            if (productoActualizado.getImagen() != null) {
+                productoExistente.setImagen(productoActualizado.getImagen());
+            }
 
-        if (productoActualizado.getStock() >= 0) {
-            productoExistente.setStock(productoActualizado.getStock());
-            productoExistente.setDisponible(productoActualizado.getStock() > 0);
-        }
+            if (productoActualizado.getStock() != null && productoActualizado.getStock() >= 0) {
+                productoExistente.setStock(productoActualizado.getStock());
+                productoExistente.setDisponible(productoActualizado.getStock() > 0);
+                return guardarConStock(productoExistente);
+            }
 
-        return productoRepository.save(productoExistente);
+            // el stock leído de la base puede no incluir los deltas del ledger sin volcar
+            return productoRepository.save(productoExistente);
+        });
+        notificarCambio(guardado);
+        return guardado;
     }
 
     public Producto actualizarPrecio(int id, double nuevoPrecio) {
-        if (nuevoPrecio <= 0) {
+        long centavos = Double.isFinite(nuevoPrecio) ? Montos.desde(nuevoPrecio, Montos.REDONDEO) : 0;
+        if (centavos <= 0) {
             throw new DatosInvalidosException("precio", "debe ser mayor a 0");
         }
 
-        Producto producto = obtenerPorId(id);
-        if (producto == null) {
-            throw new ResourceNotFoundException("Producto", id);
-        }
-
-        producto.setPrecio(nuevoPrecio);
-        return productoRepository.save(producto);
+        Producto guardado = reintentos.enTransaccion("actualizarPrecio", () -> {
+            Producto producto = cargar(id);
+            producto.setPrecioCentavos(centavos);
+            return productoRepository.save(producto);
+        });
+        notificarCambio(guardado);
+        return guardado;
     }
 
     public Producto actualizarStock(int id, int nuevoStock) {
@@ -151,13 +336,32 @@ public class ProductoService {
             throw new DatosInvalidosException("stock", "no puede ser negativo");
         }
 
-        Producto producto = obtenerPorId(id);
-        if (producto == null) {
-            throw new ResourceNotFoundException("Producto", id);
-        }
+        Producto guardado = reintentos.enTransaccion("actualizarStock", () -> {
+            Producto producto = cargar(id);
+            producto.setStock(nuevoStock);
+            producto.setDisponible(nuevoStock > 0);
+            return guardarConStock(producto);
+        });
+        notificarCambio(guardado);
+        return guardado;
+    }
 
-        producto.setStock(nuevoStock);
-        producto.setDisponible(nuevoStock > 0);
+    /**
+     * Lee el producto de la base y no de la cache: las escrituras necesitan la versión vigente.
+     */
+    private Producto cargar(int id) {
+        return productoRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Producto", id));
+    }
+
+    /**
+     * Guarda un stock absoluto. Si el ledger gestiona el producto, el flush va dentro de
+     * {@code establecer}: un conflicto de versión aborta antes de tocar el stock en memoria.
+     */
+    private Producto guardarConStock(Producto producto) {
+        if (stockLedger.gestiona(producto.getId())) {
+            return stockLedger.establecer(producto.getId(), producto.getStock(),
+                    () -> productoRepository.saveAndFlush(producto));
+        }
         return productoRepository.save(producto);
     }
 
@@ -166,24 +370,98 @@ public class ProductoService {
             throw new DatosInvalidosException("cantidad", "debe ser mayor a 0");
         }
 
+        List<Integer> fallidos = descontarStock(Map.of(id, cantidad));
+        if (fallidos.isEmpty()) {
+            return true;
+        }
+
         Producto producto = obtenerPorId(id);
         if (producto == null) {
             throw new ResourceNotFoundException("Producto", id);
         }
 
-        if (producto.getStock() < cantidad) {
-            throw new StockInsuficienteException(
-                    producto.getNombre(),
-                    producto.getStock(),
-                    cantidad
-            );
+        throw new StockInsuficienteException(
+                producto.getNombre(),
+                stockActual(producto),
+                cantidad
+        );
+    }
+
+    /**
+     * Descuenta el stock de varios productos de forma atómica respecto de otras escrituras:
+     * cada fila solo se actualiza si todavía tiene stock suficiente.
+     *
+     * @return ids de los productos que no pudieron descontarse
+     */
+    public List<Integer> descontarStock(Map<Integer, Integer> cantidades) {
+        if (cantidades.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, Integer> enMemoria = new HashMap<>();
+        Map<Integer, Integer> enBase = new HashMap<>();
+        for (Map.Entry<Integer, Integer> entrada : cantidades.entrySet()) {
+            if (stockLedger.gestiona(entrada.getKey())) {
+                enMemoria.put(entrada.getKey(), entrada.getValue());
+            } else {
+                enBase.put(entrada.getKey(), entrada.getValue());
+            }
         }
-        int nuevoStock = producto.getStock() - cantidad;
-        producto.setStock(nuevoStock);
-        producto.setDisponible(nuevoStock > 0);
 
-        productoRepository.save(producto);
-        return true;
+        List<Integer> fallidos = descontarEnLedgerYBase(enMemoria, enBase);
+        if (fallidos.isEmpty()) {
+            for (Map.Entry<Integer, Integer> entrada : cantidades.entrySet()) {
+                eventPublisher.publishEvent(new StockDescontadoEvent(entrada.getKey(), entrada.getValue()));
+            }
+        }
+        return fallidos;
+    }
+
+    private List<Integer> descontarEnLedgerYBase(Map<Integer, Integer> enMemoria, Map<Integer, Integer> enBase) {
+        if (enMemoria.isEmpty()) {
+            return descontarEnBase(enBase);
+        }
+
+        List<Integer> fallidos = stockLedger.descontar(enMemoria);
+        if (!fallidos.isEmpty()) {
+            return fallidos;
+        }
+
+        if (!enBase.isEmpty()) {
+            fallidos = descontarEnBase(enBase);
+            if (!fallidos.isEmpty()) {
+                stockLedger.liberar(enMemoria);
+                return fallidos;
+            }
+        }
+
+        stockLedger.confirmarAlTerminar(enMemoria);
+        return fallidos;
+    }
+
+    /**
+     * Descuenta todo o nada: si alguna fila no tenía stock, devuelve lo ya descontado
+     * en las demás, así el resultado no depende de que la transacción se revierta.
+     */
+    private List<Integer> descontarEnBase(Map<Integer, Integer> cantidades) {
+        List<Integer> fallidos = stockRepository.descontar(cantidades);
+        if (!fallidos.isEmpty() && fallidos.size() < cantidades.size()) {
+            Map<Integer, Integer> devolucion = new HashMap<>(cantidades);
+            devolucion.keySet().removeAll(fallidos);
+            stockRepository.aplicarDeltas(devolucion);
+        }
+        return fallidos;
+    }
+
+    /**
+     * Stock vigente del producto: el del ledger en memoria si lo gestiona,
+     * o el leído de la base en caso contrario.
+     */
+    public int stockActual(Producto producto) {
+        if (stockLedger.gestiona(producto.getId())) {
+            return stockLedger.disponible(producto.getId());
+        }
+        return producto.getStock();
     }
 
     public boolean eliminarProducto(int id) {
@@ -194,6 +472,7 @@ public class ProductoService {
         }
 
         productoRepository.deleteById(id);
+        notificarBaja(producto);
         return true;
     }
 
@@ -205,50 +484,55 @@ public class ProductoService {
         }
 
         productoRepository.deleteById(id);
+        notificarBaja(producto);
         return producto;
     }
 
     public ArrayList<Producto> obtenerStockBajo(int umbral) {
-        ArrayList<Producto> todosLosProductos = listarTodos();
-        ArrayList<Producto> stockBajo = new ArrayList<>();
+        List<Producto> productos = productoRepository.findByStockBetween(1, umbral);
+        return new ArrayList<>(productos);
+    }
 
-        for (Producto producto : todosLosProductos) {
-            if (producto.getStock() <= umbral && producto.getStock() > 0) {
-                stockBajo.add(producto);
-            }
-        }
-        return stockBajo;
+    public long contarTodos() {
+        return productoRepository.count();
     }
 
-    public double calcularValorInventario() {
-        ArrayList<Producto> productos = listarTodos();
-        double valorTotal = 0.0;
+    public long contarDisponibles() {
+        return productoRepository.countByStockGreaterThan(0);
+    }
 
-        for (Producto producto : productos) {
-            double valorProducto = producto.getPrecio() * producto.getStock();
-            valorTotal = valorTotal + valorProducto;
-        }
-        return valorTotal;
+    public long contarStockBajo(int umbral) {
+        return productoRepository.countByStockBetween(1, umbral);
+    }
+
+    public double calcularValorInventario() {
+        return Montos.aDouble(Montos.desdeSuma(productoRepository.calcularValorInventario()));
     }
 
     public Map<String, Integer> contarPorCategoria() {
-        ArrayList<Producto> productos = listarTodos();
         Map<String, Integer> conteo = new HashMap<>();
-
-        for (Producto producto : productos) {
-            String categoria = producto.getCategoria();
-            if (conteo.containsKey(categoria)) {
-                int cantidadActual = conteo.get(categoria);
-                conteo.put(categoria, cantidadActual + 1);
-            } else {
-                conteo.put(categoria, 1);
-            }
+        for (ProductoRepository.ConteoCategoria fila : productoRepository.contarPorCategoria()) {
+            conteo.put(fila.getCategoria(), (int) fila.getCantidad());
         }
         return conteo;
     }
 
     public boolean verificarStock(int id, int cantidadRequerida) {
         Producto producto = obtenerPorId(id);
-        return producto != null && producto.getStock() >= cantidadRequerida;
+        return producto != null && stockActual(producto) >= cantidadRequerida;
+    }
+
+    private void notificarCambio(Producto producto) {
+        eventPublisher.publishEvent(new ProductoModificadoEvent(producto.getId(), producto.getCategoria(), producto));
+    }
+
+    private void notificarBaja(Producto producto) {
+        eventPublisher.publishEvent(new ProductoModificadoEvent(producto.getId(), producto.getCategoria(), null));
+    }
+
+    static void validarLimite(int limite) {
+        if (limite <= 0 || limite > 1000) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y 1000");
+        }
     }
 }
@@ -0,0 +1,375 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.dto.EventoAuditoria;
+import com.techlab.ecommerce.event.PedidoModificadoEvent;
+import com.techlab.ecommerce.event.StockDescontadoEvent;
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.model.Montos;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Log append-only de los eventos de pedidos y stock.
+ *
+ * Los eventos de dominio se toman después del commit y se encolan en una
+ * {@link ColaAcotada}: es todo lo que paga el camino del pedido. Una tarea programada
+ * vacía la cola en lotes, les asigna la secuencia y los agrega como NDJSON al segmento
+ * activo, que rota al superar {@code segmento-bytes}. Cada segmento se nombra con la
+ * primera secuencia que contiene, así la reproducción salta los que ya se leyeron.
+ *
+ * Si la cola se llena, el evento espera a lo sumo {@code espera-ms} por lugar y después
+ * se descarta y se cuenta: el log nunca frena las ventas.
+ */
+@Component
+public class RegistroAuditoria implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistroAuditoria.class);
+
+    private static final String PREFIJO = "eventos-";
+    private static final String EXTENSION = ".ndjson";
+    private static final long AVISO_SATURACION_MS = 10_000;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ecommerce.auditoria.enabled:true}")
+    private boolean habilitado;
+
+    @Value("${ecommerce.auditoria.directorio:data/auditoria}")
+    private Path directorio;
+
+    @Value("${ecommerce.auditoria.capacidad:65536}")
+    private int capacidad;
+
+    @Value("${ecommerce.auditoria.lote:1000}")
+    private int lote;
+
+    @Value("${ecommerce.auditoria.espera-ms:0}")
+    private long esperaMs;
+
+    @Value("${ecommerce.auditoria.segmento-bytes:67108864}")
+    private long segmentoBytes;
+
+    @Value("${ecommerce.auditoria.fsync:false}")
+    private boolean fsync;
+
+    private ColaAcotada<EventoAuditoria> cola;
+    private volatile boolean activo = false;
+
+    private final LongAdder encolados = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+    private final AtomicLong ultimoAviso = new AtomicLong();
+
+    // estado del escritor; sólo se toca dentro de volcar()
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+    private FileChannel canal;
+    private long tamanioSegmento;
+    private volatile long ultimaSecuencia;
+    private volatile long escritos;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            Files.createDirectories(directorio);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el directorio de auditoría " + directorio, e);
+        }
+        ultimaSecuencia = recuperarUltimaSecuencia();
+        cola = new ColaAcotada<>(capacidad);
+        abrirSegmento();
+        activo = true;
+        log.info("Auditoría activa en {} desde la secuencia {}", directorio, ultimaSecuencia);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void pedidoModificado(PedidoModificadoEvent evento) {
+        registrar(new EventoAuditoria(0, Instant.now(), tipo(evento), evento.pedidoId(), evento.productoId(),
+                evento.cantidad(), nombre(evento.estadoAnterior()), nombre(evento.estadoNuevo()),
+                Montos.aDouble(evento.totalNuevo())));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void stockDescontado(StockDescontadoEvent evento) {
+        registrar(new EventoAuditoria(0, Instant.now(), EventoAuditoria.Tipo.STOCK_DESCONTADO, null,
+                evento.productoId(), evento.cantidad(), null, null, null));
+    }
+
+    /**
+     * @return {@code false} si el evento se descartó por falta de lugar en la cola
+     */
+    public boolean registrar(EventoAuditoria evento) {
+        if (!activo) {
+            return false;
+        }
+        if (cola.offer(evento) || esperarLugar(evento)) {
+            encolados.increment();
+            return true;
+        }
+        descartados.increment();
+        long ahora = System.currentTimeMillis();
+        long anterior = ultimoAviso.get();
+        if (ahora - anterior >= AVISO_SATURACION_MS && ultimoAviso.compareAndSet(anterior, ahora)) {
+            log.warn("Cola de auditoría llena ({} eventos): se descartan eventos, {} en total",
+                    cola.capacidad(), descartados.sum());
+        }
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${ecommerce.auditoria.volcado-ms:100}")
+    public synchronized void volcar() {
+        if (!activo && canal == null) {
+            return;
+        }
+        List<EventoAuditoria> pendientes = new ArrayList<>(Math.min(lote, cola.tamanio()));
+        EventoAuditoria evento;
+        while (true) {
+            while (pendientes.size() < lote && (evento = cola.poll()) != null) {
+                pendientes.add(evento);
+            }
+            if (pendientes.isEmpty()) {
+                return;
+            }
+            escribir(pendientes);
+            pendientes.clear();
+        }
+    }
+
+    /**
+     * Reproduce los eventos persistidos con secuencia mayor a {@code despuesDe}, en orden.
+     * Antes vuelca lo que esté en cola para que la reproducción llegue hasta el presente.
+     *
+     * @param pedidoId si no es {@code null}, sólo los eventos de ese pedido
+     */
+    public void reproducir(long despuesDe, Integer pedidoId, int limite, Consumer<EventoAuditoria> destino) {
+        if (!habilitado) {
+            return;
+        }
+        volcar();
+        List<Path> segmentos = segmentos();
+        int entregados = 0;
+        for (int i = 0; i < segmentos.size() && entregados < limite; i++) {
+            if (i + 1 < segmentos.size() && primeraSecuencia(segmentos.get(i + 1)) <= despuesDe + 1) {
+                continue;
+            }
+            try (BufferedReader lector = Files.newBufferedReader(segmentos.get(i), StandardCharsets.UTF_8)) {
+                String linea;
+                while (entregados < limite && (linea = lector.readLine()) != null) {
+                    EventoAuditoria evento = leer(linea);
+                    if (evento != null && evento.secuencia() > despuesDe
+                            && (pedidoId == null || pedidoId.equals(evento.pedidoId()))) {
+                        destino.accept(evento);
+                        entregados++;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo leer el segmento de auditoría " + segmentos.get(i), e);
+            }
+        }
+    }
+
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("activo", activo);
+        estadisticas.put("encolados", encolados.sum());
+        estadisticas.put("descartados", descartados.sum());
+        estadisticas.put("enCola", activo ? cola.tamanio() : 0);
+        estadisticas.put("capacidad", activo ? cola.capacidad() : 0);
+        estadisticas.put("escritos", escritos);
+        estadisticas.put("ultimaSecuencia", ultimaSecuencia);
+        estadisticas.put("segmentos", activo ? segmentos().size() : 0);
+        return estadisticas;
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (!activo) {
+            return;
+        }
+        activo = false;
+        synchronized (this) {
+            volcar();
+            cerrarSegmento();
+        }
+    }
+
+    private boolean esperarLugar(EventoAuditoria evento) {
+        if (esperaMs <= 0) {
+            return false;
+        }
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMs);
+        while (System.nanoTime() < limite) {
+            LockSupport.parkNanos(50_000);
+            if (cola.offer(evento)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void escribir(List<EventoAuditoria> eventos) {
+        if (tamanioSegmento >= segmentoBytes) {
+            cerrarSegmento();
+            abrirSegmento();
+        }
+        buffer.reset();
+        long secuencia = ultimaSecuencia;
+        for (EventoAuditoria evento : eventos) {
+            buffer.writeBytes(objectMapper.writeValueAsBytes(evento.conSecuencia(++secuencia)));
+            buffer.write('\n');
+        }
+        try {
+            ByteBuffer datos = ByteBuffer.wrap(buffer.toByteArray());
+            while (datos.hasRemaining()) {
+                canal.write(datos);
+            }
+            if (fsync) {
+                canal.force(false);
+            }
+        } catch (IOException e) {
+            descartados.add(eventos.size());
+            log.error("No se pudieron escribir {} eventos de auditoría", eventos.size(), e);
+            return;
+        }
+        tamanioSegmento += buffer.size();
+        ultimaSecuencia = secuencia;
+        escritos += eventos.size();
+    }
+
+    private void abrirSegmento() {
+        Path segmento = directorio.resolve(String.format("%s%020d%s", PREFIJO, ultimaSecuencia + 1, EXTENSION));
+        try {
+            canal = FileChannel.open(segmento, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            tamanioSegmento = canal.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el segmento de auditoría " + segmento, e);
+        }
+    }
+
+    private void cerrarSegmento() {
+        if (canal == null) {
+            return;
+        }
+        try {
+            canal.force(false);
+            canal.close();
+        } catch (IOException e) {
+            log.warn("No se pudo cerrar el segmento de auditoría", e);
+        }
+        canal = null;
+    }
+
+    private long recuperarUltimaSecuencia() {
+        List<Path> segmentos = segmentos();
+        for (int i = segmentos.size() - 1; i >= 0; i--) {
+            long ultima = 0;
+            try (BufferedReader lector = Files.newBufferedReader(segmentos.get(i), StandardCharsets.UTF_8)) {
+                String linea;
+                while ((linea = lector.readLine()) != null) {
+                    EventoAuditoria evento = leer(linea);
+                    if (evento != null) {
+                        ultima = evento.secuencia();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo leer el segmento de auditoría " + segmentos.get(i), e);
+            }
+            if (ultima > 0) {
+                return ultima;
+            }
+        }
+        return 0;
+    }
+
+    private List<Path> segmentos() {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos
+                    .filter(archivo -> {
+                        String nombre = archivo.getFileName().toString();
+                        return nombre.startsWith(PREFIJO) && nombre.endsWith(EXTENSION);
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo listar el directorio de auditoría " + directorio, e);
+        }
+    }
+
+    private static long primeraSecuencia(Path segmento) {
+        String nombre = segmento.getFileName().toString();
+        return Long.parseLong(nombre.substring(PREFIJO.length(), nombre.length() - EXTENSION.length()));
+    }
+
+    // una línea cortada por una caída a mitad de escritura se ignora
+    private EventoAuditoria leer(String linea) {
+        if (linea.isBlank()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(linea, EventoAuditoria.class);
+        } catch (JacksonException e) {
+            return null;
+        }
+    }
+
+    private static EventoAuditoria.Tipo tipo(PedidoModificadoEvent evento) {
+        return switch (evento.cambio()) {
+            case CREADO -> EventoAuditoria.Tipo.PEDIDO_CREADO;
+            case LINEA_AGREGADA -> EventoAuditoria.Tipo.LINEA_AGREGADA;
+            case ELIMINADO -> EventoAuditoria.Tipo.PEDIDO_ELIMINADO;
+            case TRANSICION -> transicion(evento);
+        };
+    }
+
+    private static EventoAuditoria.Tipo transicion(PedidoModificadoEvent evento) {
+        if (evento.estadoNuevo() == evento.estadoAnterior()) {
+            return EventoAuditoria.Tipo.PEDIDO_MODIFICADO;
+        }
+        return switch (evento.estadoNuevo()) {
+            case CONFIRMADO -> EventoAuditoria.Tipo.PEDIDO_CONFIRMADO;
+            case PAGADO -> EventoAuditoria.Tipo.PEDIDO_PAGADO;
+            case ENVIADO -> EventoAuditoria.Tipo.PEDIDO_ENVIADO;
+            case ENTREGADO -> EventoAuditoria.Tipo.PEDIDO_ENTREGADO;
+            case CANCELADO -> EventoAuditoria.Tipo.PEDIDO_CANCELADO;
+            case PENDIENTE -> EventoAuditoria.Tipo.PEDIDO_MODIFICADO;
+        };
+    }
+
+    private static String nombre(EstadoPedido estado) {
+        return estado == null ? null : estado.getNombre();
+    }
+}
@@ -0,0 +1,100 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.exception.ConflictoConcurrenciaException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta una operación en su propia transacción y la repite si falla por un
+ * conflicto de versión, con espera exponencial y jitter entre intentos.
+ *
+ * Cada intento vuelve a leer las entidades, así que la operación tiene que cargar
+ * lo que modifica dentro del {@link Supplier} y no usar instancias de la cache.
+ * Si ya hay una transacción en curso, la operación se ejecuta en ella sin reintentar:
+ * el conflicto lo maneja quien abrió la transacción.
+ */
+@Component
+public class Reintentos {
+
+    private static final Logger log = LoggerFactory.getLogger(Reintentos.class);
+
+    private static final class Contadores {
+        private final LongAdder conflictos = new LongAdder();
+        private final LongAdder reintentos = new LongAdder();
+        private final LongAdder agotados = new LongAdder();
+    }
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${ecommerce.reintentos.maximo:5}")
+    private int maximo;
+
+    @Value("${ecommerce.reintentos.espera-inicial-ms:5}")
+    private long esperaInicialMs;
+
+    @Value("${ecommerce.reintentos.espera-maxima-ms:200}")
+    private long esperaMaximaMs;
+
+    private final Map<String, Contadores> contadores = new ConcurrentHashMap<>();
+
+    public <T> T enTransaccion(String operacion, Supplier<T> accion) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return accion.get();
+        }
+
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        for (int intento = 1; ; intento++) {
+            try {
+                return transaccion.execute(estado -> accion.get());
+            } catch (OptimisticLockingFailureException e) {
+                Contadores actuales = contadores.computeIfAbsent(operacion, clave -> new Contadores());
+                actuales.conflictos.increment();
+                if (intento >= maximo) {
+                    actuales.agotados.increment();
+                    log.warn("'{}' abandonada tras {} conflictos de versión", operacion, intento);
+                    throw new ConflictoConcurrenciaException(operacion, intento, e);
+                }
+                actuales.reintentos.increment();
+                esperar(intento);
+            }
+        }
+    }
+
+    public Map<String, Map<String, Long>> obtenerEstadisticas() {
+        Map<String, Map<String, Long>> estadisticas = new TreeMap<>();
+        for (Map.Entry<String, Contadores> entrada : contadores.entrySet()) {
+            Map<String, Long> detalle = new HashMap<>();
+            detalle.put("conflictos", entrada.getValue().conflictos.sum());
+            detalle.put("reintentos", entrada.getValue().reintentos.sum());
+            detalle.put("agotados", entrada.getValue().agotados.sum());
+            estadisticas.put(entrada.getKey(), detalle);
+        }
+        return estadisticas;
+    }
+
+    private void esperar(int intento) {
+        long tope = Math.min(esperaMaximaMs, esperaInicialMs << Math.min(intento - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(tope + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando para reintentar", e);
+        }
+    }
+}
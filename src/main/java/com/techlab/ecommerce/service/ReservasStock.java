@@ -0,0 +1,300 @@
+package com.techlab.ecommerce.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reservas de stock con vencimiento para los pedidos pendientes.
+ *
+ * Agregar una línea retiene sus unidades: el disponible de un producto es su stock menos
+ * lo reservado por todos los pedidos, y la reserva es un CAS sobre ese contador. Al
+ * confirmar, la reserva se convierte en el descuento real; cancelar o vencer la libera.
+ * Cada línea agregada renueva el vencimiento de todo el pedido.
+ *
+ * Los vencimientos se programan en una {@link RuedaTemporizadora}, así liberar las
+ * reservas vencidas cuesta lo que vence y no lo que hay reservado. Las reservas viven
+ * en memoria del nodo: al reiniciar se pierden y el pedido vuelve a reservar al
+ * confirmarse.
+ */
+@Component
+public class ReservasStock {
+
+    private static final class Reserva {
+        final int pedidoId;
+        final Map<Integer, Integer> cantidades = new HashMap<>();
+        long vence;
+        boolean activa = true;
+
+        Reserva(int pedidoId) {
+            this.pedidoId = pedidoId;
+        }
+    }
+
+    @Value("${ecommerce.reservas.enabled:true}")
+    private boolean habilitado;
+
+    @Value("${ecommerce.reservas.ttl-ms:900000}")
+    private long ttlMs;
+
+    @Value("${ecommerce.reservas.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${ecommerce.reservas.ranuras:1024}")
+    private int cantidadRanuras;
+
+    private final ConcurrentHashMap<Integer, AtomicInteger> reservado = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Reserva> reservas = new ConcurrentHashMap<>();
+    private RuedaTemporizadora<Reserva> rueda;
+
+    private final LongAdder creadas = new LongAdder();
+    private final LongAdder confirmadas = new LongAdder();
+    private final LongAdder liberadas = new LongAdder();
+    private final LongAdder vencidas = new LongAdder();
+    private final LongAdder rechazadas = new LongAdder();
+
+    @PostConstruct
+    public void iniciar() {
+        rueda = new RuedaTemporizadora<>(cantidadRanuras, tickMs, System.currentTimeMillis());
+    }
+
+    public boolean habilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Unidades del producto que no están reservadas por ningún pedido.
+     */
+    public int disponible(int productoId, int stock) {
+        if (!habilitado) {
+            return stock;
+        }
+        AtomicInteger contador = reservado.get(productoId);
+        return contador == null ? stock : stock - contador.get();
+    }
+
+    /**
+     * Reserva unidades del producto para el pedido si el disponible alcanza. Si la
+     * transacción en curso se revierte, la reserva se deshace.
+     *
+     * @return {@code false} si no hay disponible suficiente
+     */
+    public boolean reservar(int pedidoId, int productoId, int cantidad, int stock) {
+        if (!habilitado) {
+            return stock >= cantidad;
+        }
+        if (!tomar(productoId, cantidad, stock)) {
+            rechazadas.increment();
+            return false;
+        }
+        long vence = System.currentTimeMillis() + ttlMs;
+        while (true) {
+            Reserva reserva = reservas.computeIfAbsent(pedidoId, Reserva::new);
+            synchronized (reserva) {
+                if (!reserva.activa) {
+                    continue;
+                }
+                if (reserva.cantidades.isEmpty()) {
+                    creadas.increment();
+                }
+                reserva.cantidades.merge(productoId, cantidad, Integer::sum);
+                reserva.vence = vence;
+                rueda.programar(reserva, vence);
+            }
+            break;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    if (estado != STATUS_COMMITTED) {
+                        devolver(pedidoId, productoId, cantidad);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Completa la reserva del pedido hasta cubrir las cantidades que va a confirmar, por
+     * ejemplo si la anterior venció o el pedido se creó en un lote.
+     *
+     * @param stock stock actual de cada producto de {@code cantidades}
+     * @return ids de los productos sin disponible suficiente
+     */
+    public List<Integer> asegurar(int pedidoId, Map<Integer, Integer> cantidades, Map<Integer, Integer> stock) {
+        List<Integer> fallidos = new ArrayList<>();
+        if (!habilitado) {
+            return fallidos;
+        }
+        Map<Integer, Integer> faltantes = new HashMap<>(cantidades);
+        Reserva reserva = reservas.get(pedidoId);
+        if (reserva != null) {
+            synchronized (reserva) {
+                if (reserva.activa) {
+                    reserva.cantidades.forEach((productoId, reservada) ->
+                            faltantes.computeIfPresent(productoId, (id, cantidad) -> cantidad - reservada));
+                }
+            }
+        }
+        for (Map.Entry<Integer, Integer> faltante : faltantes.entrySet()) {
+            if (faltante.getValue() > 0
+                    && !reservar(pedidoId, faltante.getKey(), faltante.getValue(), stock.get(faltante.getKey()))) {
+                fallidos.add(faltante.getKey());
+            }
+        }
+        return fallidos;
+    }
+
+    /**
+     * Libera la reserva del pedido después de confirmarlo, cuando el stock ya quedó
+     * descontado. Si la transacción se revierte, la reserva sigue vigente.
+     */
+    public void confirmar(int pedidoId) {
+        soltarAlCommit(pedidoId, confirmadas);
+    }
+
+    /**
+     * Libera la reserva de un pedido cancelado o eliminado.
+     */
+    public void liberar(int pedidoId) {
+        soltarAlCommit(pedidoId, liberadas);
+    }
+
+    /**
+     * Libera enseguida, sin esperar el commit, lo que reservó un pedido que no se va a
+     * guardar. Si después la transacción se revierte no vuelve a devolver nada.
+     */
+    public void descartar(int pedidoId) {
+        if (habilitado && soltar(pedidoId)) {
+            liberadas.increment();
+        }
+    }
+
+    private void soltarAlCommit(int pedidoId, LongAdder contador) {
+        if (!habilitado) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (soltar(pedidoId)) {
+                contador.increment();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int estado) {
+                if (estado == STATUS_COMMITTED && soltar(pedidoId)) {
+                    contador.increment();
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${ecommerce.reservas.tick-ms:1000}")
+    public void vencer() {
+        if (!habilitado) {
+            return;
+        }
+        long ahora = System.currentTimeMillis();
+        rueda.avanzar(ahora, reserva -> {
+            boolean vencida;
+            synchronized (reserva) {
+                // una entrada de la rueda queda vieja si la reserva se renovó o ya se liberó
+                vencida = reserva.activa && reserva.vence <= ahora;
+            }
+            if (vencida && soltar(reserva)) {
+                vencidas.increment();
+            }
+        });
+    }
+
+    private boolean soltar(int pedidoId) {
+        Reserva reserva = reservas.get(pedidoId);
+        return reserva != null && soltar(reserva);
+    }
+
+    private boolean soltar(Reserva reserva) {
+        synchronized (reserva) {
+            if (!reserva.activa) {
+                return false;
+            }
+            reserva.activa = false;
+            reservas.remove(reserva.pedidoId, reserva);
+            reserva.cantidades.forEach(this::restar);
+            return true;
+        }
+    }
+
+    private void devolver(int pedidoId, int productoId, int cantidad) {
+        Reserva reserva = reservas.get(pedidoId);
+        if (reserva == null) {
+            return;
+        }
+        synchronized (reserva) {
+            if (!reserva.activa) {
+                return;
+            }
+            Integer restante = reserva.cantidades.computeIfPresent(productoId, (id, actual) -> actual - cantidad);
+            if (restante == null) {
+                return;
+            }
+            if (restante <= 0) {
+                reserva.cantidades.remove(productoId);
+            }
+            restar(productoId, cantidad);
+            if (reserva.cantidades.isEmpty()) {
+                reserva.activa = false;
+                reservas.remove(pedidoId, reserva);
+            }
+        }
+    }
+
+    private boolean tomar(int productoId, int cantidad, int stock) {
+        AtomicInteger contador = reservado.computeIfAbsent(productoId, id -> new AtomicInteger());
+        while (true) {
+            int actual = contador.get();
+            if (stock - actual < cantidad) {
+                return false;
+            }
+            if (contador.compareAndSet(actual, actual + cantidad)) {
+                return true;
+            }
+        }
+    }
+
+    private void restar(int productoId, int cantidad) {
+        reservado.get(productoId).addAndGet(-cantidad);
+    }
+
+    public Map<String, Object> obtenerEstadisticas() {
+        long unidades = 0;
+        for (AtomicInteger contador : reservado.values()) {
+            unidades += contador.get();
+        }
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("habilitado", habilitado);
+        estadisticas.put("ttlMs", ttlMs);
+        estadisticas.put("activas", reservas.size());
+        estadisticas.put("unidadesReservadas", unidades);
+        estadisticas.put("creadas", creadas.sum());
+        estadisticas.put("confirmadas", confirmadas.sum());
+        estadisticas.put("liberadas", liberadas.sum());
+        estadisticas.put("vencidas", vencidas.sum());
+        estadisticas.put("rechazadas", rechazadas.sum());
+        return estadisticas;
+    }
+}
@@ -0,0 +1,96 @@
+package com.techlab.ecommerce.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Revisiones en memoria del catálogo para responder lecturas condicionales (ETag y
+ * Last-Modified) sin ir a la base: un contador global que avanza con cada cambio de los
+ * listados y, por producto, la revisión y el instante de su último cambio. Las ventas
+ * cambian la revisión del producto enseguida y la de los listados agrupadas (ver
+ * {@link CatalogoCache}).
+ *
+ * Los ETag llevan el instante de arranque, así un reinicio no reutiliza revisiones
+ * que un cliente pueda tener guardadas. {@link CatalogoCache} registra los cambios
+ * después de invalidar las caches: quien vea la revisión nueva ya no lee datos viejos. La
+ * revisión del producto además avanza antes de invalidar, para que una carga en curso no
+ * vuelva a guardar en la cache lo que leyó antes del cambio.
+ */
+@Component
+public class RevisionCatalogo {
+
+    /**
+     * @param etag                ETag fuerte, con comillas
+     * @param ultimaModificacion  epoch en milisegundos
+     */
+    public record Revision(String etag, long ultimaModificacion) {
+
+        /**
+         * La misma revisión para el cuerpo en gzip: un ETag fuerte distingue codificaciones.
+         */
+        public Revision comprimida() {
+            return new Revision(etag.substring(0, etag.length() - 1) + "-gz\"", ultimaModificacion);
+        }
+    }
+
+    private record Marca(long revision, long instante) {
+    }
+
+    private final long arranque = System.currentTimeMillis();
+    private final String epoca = Long.toString(arranque, 36);
+    private final AtomicLong contador = new AtomicLong();
+    private final AtomicLong secuenciaProductos = new AtomicLong();
+    private volatile long ultimoCambio = arranque;
+    private final Map<Integer, Marca> productos = new ConcurrentHashMap<>();
+
+    /**
+     * Un cambio que se ve en el producto y en los listados.
+     */
+    public void registrarCambio(int productoId) {
+        registrarCambioDe(productoId);
+        registrarCambioDelCatalogo();
+    }
+
+    /**
+     * Un cambio que por ahora solo se ve en el producto.
+     */
+    public void registrarCambioDe(int productoId) {
+        productos.put(productoId, new Marca(secuenciaProductos.incrementAndGet(), System.currentTimeMillis()));
+    }
+
+    public void registrarCambioDelCatalogo() {
+        contador.incrementAndGet();
+        ultimoCambio = System.currentTimeMillis();
+    }
+
+    /**
+     * Número de revisión del producto, 0 si no cambió desde el arranque.
+     */
+    public long de(int productoId) {
+        Marca marca = productos.get(productoId);
+        return marca == null ? 0 : marca.revision();
+    }
+
+    public long actual() {
+        return contador.get();
+    }
+
+    /**
+     * Revisión de los listados: cambia con cualquier alta, baja o modificación.
+     */
+    public Revision delCatalogo() {
+        long instante = ultimoCambio;
+        return new Revision("\"c-" + epoca + "-" + contador.get() + "\"", instante);
+    }
+
+    public Revision delProducto(int productoId) {
+        Marca marca = productos.get(productoId);
+        if (marca == null) {
+            return new Revision("\"p" + productoId + "-" + epoca + "-0\"", arranque);
+        }
+        return new Revision("\"p" + productoId + "-" + epoca + "-" + marca.revision() + "\"", marca.instante());
+    }
+}
@@ -0,0 +1,76 @@
+package com.techlab.ecommerce.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Rueda de temporizadores con hash (el esquema de Varghese y Lauck).
+ *
+ * Cada vencimiento cae en la ranura {@code (vence / tick) % ranuras}; programar es
+ * agregarlo a esa cola. Cada avance revisa sólo las ranuras de los ticks transcurridos:
+ * las entradas vencidas se entregan y las de vueltas posteriores se vuelven a encolar.
+ * No hay cancelación: el dueño del elemento decide al recibirlo si el vencimiento
+ * sigue vigente.
+ */
+class RuedaTemporizadora<T> {
+
+    private record Entrada<T>(T elemento, long vence) {
+    }
+
+    private final ConcurrentLinkedQueue<Entrada<T>>[] ranuras;
+    private final int mascara;
+    private final long tickMs;
+    private volatile long ultimoTick;
+
+    @SuppressWarnings("unchecked")
+    RuedaTemporizadora(int ranurasMinimas, long tickMs, long ahora) {
+        int cantidad = Integer.highestOneBit(Math.max(2, ranurasMinimas - 1)) << 1;
+        ranuras = new ConcurrentLinkedQueue[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            ranuras[i] = new ConcurrentLinkedQueue<>();
+        }
+        mascara = cantidad - 1;
+        this.tickMs = Math.max(1, tickMs);
+        ultimoTick = ahora / this.tickMs;
+    }
+
+    void programar(T elemento, long vence) {
+        // un vencimiento en un tick ya revisado va al actual, que se revisa de nuevo en el próximo avance
+        long tick = Math.max(vence / tickMs, ultimoTick);
+        ranuras[(int) tick & mascara].add(new Entrada<>(elemento, vence));
+    }
+
+    /**
+     * Entrega los elementos vencidos hasta {@code ahora}.
+     *
+     * @return cantidad de elementos entregados
+     */
+    synchronized int avanzar(long ahora, Consumer<T> vencido) {
+        long hasta = ahora / tickMs;
+        long desde = Math.max(ultimoTick, hasta - mascara);
+        List<Entrada<T>> pendientes = new ArrayList<>();
+        int entregados = 0;
+        for (long tick = desde; tick <= hasta; tick++) {
+            ConcurrentLinkedQueue<Entrada<T>> ranura = ranuras[(int) tick & mascara];
+            Entrada<T> entrada;
+            while ((entrada = ranura.poll()) != null) {
+                if (entrada.vence() <= ahora) {
+                    vencido.accept(entrada.elemento());
+                    entregados++;
+                } else {
+                    pendientes.add(entrada);
+                }
+            }
+            ranura.addAll(pendientes);
+            pendientes.clear();
+        }
+        ultimoTick = hasta;
+        return entregados;
+    }
+
+    int ranuras() {
+        return mascara + 1;
+    }
+}
@@ -0,0 +1,183 @@
+package com.techlab.ecommerce.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Journal append-only de los movimientos confirmados del {@link StockLedger}, en segmentos
+ * numerados ({@code stock-ledger.journal.1}, {@code .2}, ...). Cada registro ocupa 9 bytes:
+ * tipo, id de producto y valor.
+ *
+ * Antes de cada volcado a la base se cierra el segmento activo y se abre el siguiente. La
+ * base guarda el número del último segmento volcado en la misma transacción que los deltas,
+ * así que al arrancar solo se reproducen los segmentos posteriores: una caída entre el
+ * commit y el borrado de los archivos no aplica dos veces el mismo segmento.
+ */
+class StockJournal {
+
+    static final byte DELTA = 1;
+
+    private static final int TAMANIO_REGISTRO = 9;
+
+    /**
+     * Delta neto por producto de los segmentos sin volcar y el número del último segmento
+     * encontrado (o el del último volcado si no había ninguno posterior).
+     */
+    record Recuperacion(Map<Integer, Integer> deltas, long ultimoSegmento) {
+    }
+
+    private final Path directorio;
+    private final String prefijo;
+    private final boolean fsync;
+    private final ByteBuffer buffer = ByteBuffer.allocate(TAMANIO_REGISTRO);
+    private FileChannel canal;
+    private long segmento;
+
+    StockJournal(Path base, boolean fsync) {
+        this.directorio = base.toAbsolutePath().getParent();
+        this.prefijo = base.getFileName() + ".";
+        this.fsync = fsync;
+    }
+
+    /**
+     * Lee, en orden, los segmentos posteriores a {@code volcado}.
+     */
+    Recuperacion recuperar(long volcado) {
+        Map<Integer, Integer> deltas = new HashMap<>();
+        long ultimo = volcado;
+        for (Map.Entry<Long, Path> entrada : segmentos().entrySet()) {
+            if (entrada.getKey() > volcado) {
+                leer(entrada.getValue(), deltas);
+                ultimo = entrada.getKey();
+            }
+        }
+        return new Recuperacion(deltas, ultimo);
+    }
+
+    /**
+     * Borra los segmentos ya reproducidos y abre el segmento {@code numero} vacío.
+     */
+    synchronized void iniciar(long numero) {
+        try {
+            Files.createDirectories(directorio);
+            for (Path archivo : segmentos().values()) {
+                Files.delete(archivo);
+            }
+            segmento = numero;
+            canal = abrir(numero);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el journal de stock en " + directorio, e);
+        }
+    }
+
+    /**
+     * Agrega un registro por producto con el mismo tipo y, con fsync, los fuerza a disco
+     * juntos: un pedido con varias lineas paga un solo {@code force}.
+     */
+    synchronized void registrar(byte tipo, Map<Integer, Integer> valores) {
+        try {
+            for (Map.Entry<Integer, Integer> entrada : valores.entrySet()) {
+                buffer.clear();
+                buffer.put(tipo).putInt(entrada.getKey()).putInt(entrada.getValue()).flip();
+                while (buffer.hasRemaining()) {
+                    canal.write(buffer);
+                }
+            }
+            if (fsync) {
+                canal.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el journal de stock", e);
+        }
+    }
+
+    /**
+     * Cierra el segmento activo y abre el siguiente. Se llama con el ledger bloqueado
+     * para escritura.
+     *
+     * @return el número del segmento cerrado
+     */
+    synchronized long rotar() {
+        try {
+            canal.force(false);
+            canal.close();
+            canal = abrir(segmento + 1);
+            return segmento++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo rotar el journal de stock", e);
+        }
+    }
+
+    /**
+     * Borra los segmentos hasta {@code numero} inclusive, ya volcados a la base.
+     */
+    synchronized void descartarHasta(long numero) {
+        try {
+            for (Map.Entry<Long, Path> entrada : segmentos().headMap(numero, true).entrySet()) {
+                Files.deleteIfExists(entrada.getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudieron borrar los segmentos de stock hasta " + numero, e);
+        }
+    }
+
+    synchronized void cerrar() {
+        try {
+            if (canal != null) {
+                canal.force(false);
+                canal.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo cerrar el journal de stock", e);
+        }
+    }
+
+    private FileChannel abrir(long numero) throws IOException {
+        return FileChannel.open(directorio.resolve(prefijo + numero), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private TreeMap<Long, Path> segmentos() {
+        TreeMap<Long, Path> segmentos = new TreeMap<>();
+        if (!Files.isDirectory(directorio)) {
+            return segmentos;
+        }
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, prefijo + "*")) {
+            for (Path archivo : archivos) {
+                String sufijo = archivo.getFileName().toString().substring(prefijo.length());
+                if (!sufijo.isEmpty() && sufijo.chars().allMatch(Character::isDigit)) {
+                    segmentos.put(Long.parseLong(sufijo), archivo);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudieron listar los segmentos de stock en " + directorio, e);
+        }
+        return segmentos;
+    }
+
+    private void leer(Path archivo, Map<Integer, Integer> deltas) {
+        try {
+            ByteBuffer contenido = ByteBuffer.wrap(Files.readAllBytes(archivo));
+            // un registro cortado al final (caída a mitad de escritura) se ignora
+            while (contenido.remaining() >= TAMANIO_REGISTRO) {
+                byte tipo = contenido.get();
+                int productoId = contenido.getInt();
+                int valor = contenido.getInt();
+                if (tipo == DELTA) {
+                    deltas.merge(productoId, valor, Integer::sum);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el journal de stock " + archivo, e);
+        }
+    }
+}
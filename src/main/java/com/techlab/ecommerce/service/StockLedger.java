@@ -0,0 +1,400 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.repository.StockRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Stock en memoria para los productos más vendidos.
+ *
+ * Las reservas y descuentos de los productos gestionados se resuelven con contadores
+ * atómicos; cuando la transacción del pedido confirma se anotan en un {@link StockJournal}
+ * y un proceso en segundo plano vuelca los deltas acumulados a la base en un único batch.
+ * Así la confirmación de pedidos no espera el lock de la fila en {@code productos}.
+ *
+ * Cada volcado marca en la base, en la misma transacción, el último segmento del journal
+ * que aplicó; al arrancar se reproducen solo los segmentos posteriores. Un descuento de
+ * una transacción que se revierte nunca llega al journal.
+ *
+ * Los registros de un pedido se escriben y se fuerzan a disco juntos apenas confirma su
+ * transacción ({@code ecommerce.stock-ledger.fsync}, activo por defecto): una caída del
+ * proceso o del sistema después de eso no pierde el descuento. Queda sin cubrir la caída
+ * entre el commit del pedido y esa escritura; escribir antes del commit cerraría esa
+ * ventana pero anotaría descuentos de transacciones que después se revierten, y un stock
+ * absoluto ({@link #establecer}) pisaría los de pedidos todavía en curso. Sin fsync, lo
+ * que el sistema operativo no llegó a bajar a disco también se pierde.
+ *
+ * Se activa con {@code ecommerce.stock-ledger.enabled=true} y la lista de ids en
+ * {@code ecommerce.stock-ledger.productos}. Solo es válido con una única instancia
+ * de la aplicación escribiendo esos productos.
+ */
+@Component
+public class StockLedger implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(StockLedger.class);
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Value("${ecommerce.stock-ledger.enabled:false}")
+    private boolean habilitado;
+
+    @Value("${ecommerce.stock-ledger.productos:}")
+    private Set<Integer> productosGestionados;
+
+    @Value("${ecommerce.stock-ledger.journal:data/stock-ledger.journal}")
+    private Path rutaJournal;
+
+    @Value("${ecommerce.stock-ledger.fsync:true}")
+    private boolean fsync;
+
+    private final Map<Integer, AtomicInteger> disponible = new ConcurrentHashMap<>();
+    // deltas confirmados sin volcar: la suma de los segmentos posteriores al último volcado
+    private final Map<Integer, AtomicInteger> pendiente = new ConcurrentHashMap<>();
+    // descontado de disponible por transacciones que todavía no terminaron
+    private final Map<Integer, AtomicInteger> enCurso = new ConcurrentHashMap<>();
+
+    // los movimientos toman el lock de lectura; rotar el journal y fijar stock absoluto, el de escritura
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // un volcado a la vez; un stock absoluto lo retiene hasta que su transacción termina
+    private final ReentrantLock volcado = new ReentrantLock();
+
+    // deltas de un volcado que falló sin saber si el commit llegó a la base; protegidos por volcado
+    private Map<Integer, Integer> enDuda = Map.of();
+    private long segmentoEnDuda;
+
+    private StockJournal journal;
+    private volatile boolean activo = false;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!habilitado || productosGestionados.isEmpty()) {
+            return;
+        }
+
+        journal = new StockJournal(rutaJournal, fsync);
+        long ultimoVolcado = stockRepository.ultimoSegmentoVolcado();
+        StockJournal.Recuperacion recuperacion = journal.recuperar(ultimoVolcado);
+        Map<Integer, Integer> sinVolcar = recuperacion.deltas();
+        sinVolcar.values().removeIf(delta -> delta == 0);
+        if (!sinVolcar.isEmpty()) {
+            log.info("Reproduciendo {} deltas de stock de los segmentos {} a {} del journal",
+                    sinVolcar.size(), ultimoVolcado + 1, recuperacion.ultimoSegmento());
+            stockRepository.volcar(sinVolcar, recuperacion.ultimoSegmento());
+        }
+        journal.iniciar(recuperacion.ultimoSegmento() + 1);
+
+        for (int productoId : productosGestionados) {
+            Integer stock = stockRepository.consultarStock(productoId);
+            if (stock != null) {
+                disponible.put(productoId, new AtomicInteger(stock));
+                pendiente.put(productoId, new AtomicInteger());
+                enCurso.put(productoId, new AtomicInteger());
+            }
+        }
+        activo = true;
+        log.info("Stock ledger activo para {} productos", disponible.size());
+    }
+
+    public boolean gestiona(int productoId) {
+        return activo && disponible.containsKey(productoId);
+    }
+
+    public int disponible(int productoId) {
+        return disponible.get(productoId).get();
+    }
+
+    /**
+     * Reserva todas las cantidades o ninguna. Lo reservado queda en curso hasta
+     * {@link #confirmarAlTerminar} o {@link #liberar}.
+     *
+     * @return ids sin stock suficiente; vacío si la reserva se aplicó
+     */
+    public List<Integer> descontar(Map<Integer, Integer> cantidades) {
+        List<Integer> fallidos = new ArrayList<>();
+        Map<Integer, Integer> aplicados = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<Integer, Integer> entrada : cantidades.entrySet()) {
+                if (intentarDescontar(entrada.getKey(), entrada.getValue())) {
+                    aplicados.put(entrada.getKey(), entrada.getValue());
+                } else {
+                    fallidos.add(entrada.getKey());
+                }
+            }
+
+            if (!fallidos.isEmpty()) {
+                for (Map.Entry<Integer, Integer> entrada : aplicados.entrySet()) {
+                    disponible.get(entrada.getKey()).addAndGet(entrada.getValue());
+                }
+                return fallidos;
+            }
+
+            for (Map.Entry<Integer, Integer> entrada : aplicados.entrySet()) {
+                enCurso.get(entrada.getKey()).addAndGet(entrada.getValue());
+            }
+            return fallidos;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve una reserva de {@link #descontar} que no va a confirmarse.
+     */
+    public void liberar(Map<Integer, Integer> cantidades) {
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<Integer, Integer> entrada : cantidades.entrySet()) {
+                enCurso.get(entrada.getKey()).addAndGet(-entrada.getValue());
+                disponible.get(entrada.getKey()).addAndGet(entrada.getValue());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Anota la reserva en el journal cuando la transacción en curso confirma, o la libera si
+     * se revierte. Sin transacción se anota en el momento.
+     */
+    public void confirmarAlTerminar(Map<Integer, Integer> cantidades) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            confirmar(cantidades);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int estado) {
+                if (estado == STATUS_COMMITTED) {
+                    confirmar(cantidades);
+                } else {
+                    liberar(cantidades);
+                }
+            }
+        });
+    }
+
+    private void confirmar(Map<Integer, Integer> cantidades) {
+        Map<Integer, Integer> deltas = new HashMap<>();
+        cantidades.forEach((productoId, cantidad) -> deltas.put(productoId, -cantidad));
+        lock.readLock().lock();
+        try {
+            journal.registrar(StockJournal.DELTA, deltas);
+            for (Map.Entry<Integer, Integer> entrada : cantidades.entrySet()) {
+                pendiente.get(entrada.getKey()).addAndGet(-entrada.getValue());
+                enCurso.get(entrada.getKey()).addAndGet(-entrada.getValue());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fija un stock absoluto. {@code escritura} lo guarda en la base dentro de la transacción
+     * en curso, junto con los deltas pendientes de los demás productos y la marca de volcado;
+     * los del producto quedan pisados. El stock en memoria cambia cuando la transacción
+     * confirma, sumando lo vendido mientras tanto; si se revierte no cambia nada.
+     */
+    public <T> T establecer(int productoId, int stock, Supplier<T> escritura) {
+        volcado.lock();
+        boolean retenido = false;
+        try {
+            resolverEnDuda();
+
+            Map<Integer, Integer> tomados;
+            long segmento;
+            lock.writeLock().lock();
+            try {
+                tomados = tomarPendientes();
+                segmento = journal.rotar();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Map<Integer, Integer> otros = new HashMap<>(tomados);
+            otros.remove(productoId);
+            T resultado;
+            try {
+                resultado = escritura.get();
+                stockRepository.volcar(otros, segmento);
+            } catch (RuntimeException e) {
+                devolverPendientes(tomados);
+                throw e;
+            }
+
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                fijar(productoId, stock, segmento);
+                return resultado;
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    try {
+                        if (estado == STATUS_COMMITTED || (estado == STATUS_UNKNOWN && seVolco(segmento))) {
+                            fijar(productoId, stock, segmento);
+                        } else {
+                            devolverPendientes(tomados);
+                        }
+                    } finally {
+                        volcado.unlock();
+                    }
+                }
+            });
+            retenido = true;
+            return resultado;
+        } finally {
+            if (!retenido) {
+                volcado.unlock();
+            }
+        }
+    }
+
+    private void fijar(int productoId, int stock, long segmento) {
+        lock.writeLock().lock();
+        try {
+            disponible.get(productoId).set(stock + pendiente.get(productoId).get() - enCurso.get(productoId).get());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        journal.descartarHasta(segmento);
+    }
+
+    @Scheduled(fixedDelayString = "${ecommerce.stock-ledger.flush-interval-ms:200}")
+    public void volcar() {
+        if (!activo) {
+            return;
+        }
+
+        volcado.lock();
+        try {
+            volcarPendientes();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo volcar el stock pendiente, se reintentará", e);
+        } finally {
+            volcado.unlock();
+        }
+    }
+
+    private void volcarPendientes() {
+        resolverEnDuda();
+
+        Map<Integer, Integer> deltas;
+        long segmento;
+        lock.writeLock().lock();
+        try {
+            deltas = tomarPendientes();
+            if (deltas.isEmpty()) {
+                return;
+            }
+            segmento = journal.rotar();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            stockRepository.volcar(deltas, segmento);
+        } catch (RuntimeException e) {
+            // el commit pudo haber llegado a la base: lo decide la marca en el próximo volcado
+            enDuda = deltas;
+            segmentoEnDuda = segmento;
+            throw e;
+        }
+        journal.descartarHasta(segmento);
+    }
+
+    /**
+     * Si un volcado anterior falló, consulta la marca de la base: si su segmento quedó
+     * volcado se descarta, si no sus deltas vuelven a pendientes. Si la base no responde,
+     * la excepción corta el volcado y se reintenta en el próximo.
+     */
+    private void resolverEnDuda() {
+        if (enDuda.isEmpty()) {
+            return;
+        }
+        if (stockRepository.ultimoSegmentoVolcado() >= segmentoEnDuda) {
+            journal.descartarHasta(segmentoEnDuda);
+        } else {
+            devolverPendientes(enDuda);
+        }
+        enDuda = Map.of();
+    }
+
+    private boolean seVolco(long segmento) {
+        try {
+            return stockRepository.ultimoSegmentoVolcado() >= segmento;
+        } catch (RuntimeException e) {
+            log.warn("No se pudo consultar el último volcado de stock; se toma el segmento {} como no volcado", segmento, e);
+            return false;
+        }
+    }
+
+    /**
+     * Se llama con el ledger bloqueado para escritura: lo tomado es exactamente lo anotado
+     * en los segmentos hasta el que se rota a continuación.
+     */
+    private Map<Integer, Integer> tomarPendientes() {
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (Map.Entry<Integer, AtomicInteger> entrada : pendiente.entrySet()) {
+            int delta = entrada.getValue().getAndSet(0);
+            if (delta != 0) {
+                deltas.put(entrada.getKey(), delta);
+            }
+        }
+        return deltas;
+    }
+
+    /**
+     * Devuelve a pendientes deltas que no llegaron a la base; sus segmentos siguen en disco
+     * y los cubrirá la marca del próximo volcado. Se llama con {@code volcado} tomado.
+     */
+    private void devolverPendientes(Map<Integer, Integer> deltas) {
+        for (Map.Entry<Integer, Integer> entrada : deltas.entrySet()) {
+            pendiente.get(entrada.getKey()).addAndGet(entrada.getValue());
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (!activo) {
+            return;
+        }
+        volcar();
+        activo = false;
+        journal.cerrar();
+    }
+
+    private boolean intentarDescontar(int productoId, int cantidad) {
+        AtomicInteger contador = disponible.get(productoId);
+        while (true) {
+            int actual = contador.get();
+            if (actual < cantidad) {
+                return false;
+            }
+            if (contador.compareAndSet(actual, actual - cantidad)) {
+                return true;
+            }
+        }
+    }
+}
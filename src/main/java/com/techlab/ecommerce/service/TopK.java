@@ -0,0 +1,162 @@
+package com.techlab.ecommerce.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Las k claves de más peso con memoria fija, según el algoritmo Space-Saving.
+ *
+ * Con k contadores ocupados, una clave nueva reemplaza a la de menor peso y hereda
+ * ese peso como error: el peso informado nunca subestima al real y lo sobreestima a
+ * lo sumo en {@code error}. Cualquier clave con más de {@code total / k} de peso está
+ * garantizada en el resultado.
+ *
+ * {@link #registrar} no toca los contadores: suma en una de varias franjas elegida por
+ * hilo, cada una con su propio lock, y {@link #drenar} (periódico, y antes de cada
+ * lectura) pasa lo acumulado a los contadores. Así el desalojo de orden k queda fuera del
+ * camino de quien registra, y los hilos no compiten por un único monitor.
+ */
+public class TopK<K> {
+
+    public record Entrada<K>(K clave, long peso, long error, long veces, long maximo) {
+    }
+
+    private static final class Contador<K> {
+        private K clave;
+        private long peso;
+        private long error;
+        private long veces;
+        private long maximo;
+    }
+
+    private static final class Pendiente {
+        private long peso;
+        private long veces;
+        private long maximo;
+    }
+
+    private static final class Franja<K> {
+        private Map<K, Pendiente> pendientes = new HashMap<>();
+    }
+
+    private static final int FRANJAS = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2);
+
+    /** Una franja con tantas claves se drena enseguida, así su memoria queda acotada. */
+    private static final int PENDIENTES_POR_FRANJA = 1024;
+
+    private final int capacidad;
+    private final Map<K, Contador<K>> contadores;
+    private final Franja<K>[] franjas;
+    private long total;
+
+    public TopK(int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser mayor a 0");
+        }
+        this.capacidad = capacidad;
+        this.contadores = new HashMap<>(capacidad * 2);
+        @SuppressWarnings("unchecked")
+        Franja<K>[] franjas = new Franja[FRANJAS];
+        for (int i = 0; i < franjas.length; i++) {
+            franjas[i] = new Franja<>();
+        }
+        this.franjas = franjas;
+    }
+
+    public void registrar(K clave, long peso) {
+        Franja<K> franja = franjas[(int) Thread.currentThread().getId() & (franjas.length - 1)];
+        boolean llena;
+        synchronized (franja) {
+            Pendiente pendiente = franja.pendientes.computeIfAbsent(clave, k -> new Pendiente());
+            pendiente.peso += peso;
+            pendiente.veces++;
+            pendiente.maximo = Math.max(pendiente.maximo, peso);
+            llena = franja.pendientes.size() >= PENDIENTES_POR_FRANJA;
+        }
+        if (llena) {
+            drenar(franja);
+        }
+    }
+
+    /**
+     * Pasa a los contadores lo registrado desde el drenado anterior.
+     */
+    public void drenar() {
+        for (Franja<K> franja : franjas) {
+            drenar(franja);
+        }
+    }
+
+    /** Las claves ordenadas de mayor a menor peso. */
+    public synchronized List<Entrada<K>> obtener(int limite) {
+        drenar();
+        List<Entrada<K>> entradas = new ArrayList<>(contadores.size());
+        for (Contador<K> contador : contadores.values()) {
+            entradas.add(new Entrada<>(contador.clave, contador.peso, contador.error, contador.veces, contador.maximo));
+        }
+        entradas.sort(Comparator.comparingLong((Entrada<K> entrada) -> entrada.peso()).reversed());
+        return entradas.size() > limite ? new ArrayList<>(entradas.subList(0, limite)) : entradas;
+    }
+
+    public synchronized long total() {
+        drenar();
+        return total;
+    }
+
+    public synchronized void reiniciar() {
+        for (Franja<K> franja : franjas) {
+            synchronized (franja) {
+                franja.pendientes = new HashMap<>();
+            }
+        }
+        contadores.clear();
+        total = 0;
+    }
+
+    private void drenar(Franja<K> franja) {
+        Map<K, Pendiente> pendientes;
+        synchronized (franja) {
+            if (franja.pendientes.isEmpty()) {
+                return;
+            }
+            pendientes = franja.pendientes;
+            franja.pendientes = new HashMap<>();
+        }
+        synchronized (this) {
+            for (Map.Entry<K, Pendiente> entrada : pendientes.entrySet()) {
+                aplicar(entrada.getKey(), entrada.getValue());
+            }
+        }
+    }
+
+    private void aplicar(K clave, Pendiente pendiente) {
+        total += pendiente.peso;
+        Contador<K> contador = contadores.get(clave);
+        if (contador == null) {
+            contador = contadores.size() < capacidad ? new Contador<>() : desalojarMinimo();
+            contador.clave = clave;
+            contadores.put(clave, contador);
+        }
+        contador.peso += pendiente.peso;
+        contador.veces += pendiente.veces;
+        contador.maximo = Math.max(contador.maximo, pendiente.maximo);
+    }
+
+    // con k chico y fuera del camino de registrar, un recorrido lineal alcanza
+    private Contador<K> desalojarMinimo() {
+        Contador<K> minimo = null;
+        for (Contador<K> contador : contadores.values()) {
+            if (minimo == null || contador.peso < minimo.peso) {
+                minimo = contador;
+            }
+        }
+        contadores.remove(minimo.clave);
+        minimo.error = minimo.peso;
+        minimo.veces = 0;
+        minimo.maximo = 0;
+        return minimo;
+    }
+}
@@ -0,0 +1,21 @@
+-- Lo que cambiaron las entidades antes de Flyway: la versión para el bloqueo optimista y
+-- secuencias en lugar de identity para los ids de pedidos y lineas. Una base pudo haber
+-- corrido alguna de esas versiones con ddl-auto=update, así que todo es idempotente.
+
+alter table productos add column if not exists version bigint default 0;
+alter table pedidos add column if not exists version bigint default 0;
+alter table productos alter column version set default 0;
+alter table pedidos alter column version set default 0;
+update productos set version = 0 where version is null;
+update pedidos set version = 0 where version is null;
+
+-- Hibernate reparte los ids en bloques de 50 (allocationSize) con el optimizador pooled:
+-- el valor de la secuencia es el último id del bloque. Arrancar en max(id) + 50 deja el
+-- primer bloque justo después del id más alto que ya existe.
+create sequence if not exists pedidos_seq start with 1 increment by 50;
+create sequence if not exists lineas_pedido_seq start with 1 increment by 50;
+select setval('pedidos_seq', (select coalesce(max(id), 0) + 50 from pedidos), false);
+select setval('lineas_pedido_seq', (select coalesce(max(id), 0) + 50 from lineas_pedido), false);
+
+alter table pedidos alter column id drop identity if exists;
+alter table lineas_pedido alter column id drop identity if exists;
@@ -0,0 +1,38 @@
+-- Esquema tal como lo creaba spring.jpa.hibernate.ddl-auto=update con las entidades de la
+-- versión inicial (ids identity, sin versiones ni secuencias), generado con el dialecto de
+-- PostgreSQL. Las bases que ya existían lo toman como línea base
+-- (spring.flyway.baseline-on-migrate) y siguen desde V1.1.
+
+create table lineas_pedido (
+    id              integer generated by default as identity,
+    cantidad        integer   not null,
+    precio_unitario float(53) not null,
+    pedido_id       integer,
+    producto_id     integer,
+    primary key (id)
+);
+
+create table pedidos (
+    id             integer generated by default as identity,
+    cliente_nombre varchar(200),
+    estado         varchar(20)  not null,
+    fecha          timestamp(6) not null,
+    primary key (id)
+);
+
+create table productos (
+    id          integer generated by default as identity,
+    categoria   varchar(50)  not null,
+    descripcion varchar(500),
+    disponible  boolean      not null,
+    imagen      varchar(500),
+    nombre      varchar(100) not null,
+    precio      float(53)    not null,
+    stock       integer      not null,
+    primary key (id)
+);
+
+alter table if exists lineas_pedido
+    add constraint FKj438esy59j3xndcyvc53w7qf7 foreign key (pedido_id) references pedidos;
+alter table if exists lineas_pedido
+    add constraint FKs293yh6nka5byh793uav2u954 foreign key (producto_id) references productos;
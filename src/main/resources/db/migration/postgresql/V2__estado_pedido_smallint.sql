@@ -0,0 +1,13 @@
+-- El estado del pedido pasa de texto libre al código de EstadoPedido. Un valor que no
+-- corresponda a ningún estado queda en null y hace fallar la migración.
+
+alter table pedidos alter column estado type smallint using case estado
+    when 'pendiente' then 0
+    when 'confirmado' then 1
+    when 'pagado' then 2
+    when 'enviado' then 3
+    when 'entregado' then 4
+    when 'cancelado' then 5
+end;
+
+alter table pedidos add constraint ck_pedidos_estado check (estado between 0 and 5);
@@ -0,0 +1,32 @@
+-- Índices para las consultas de los repositorios. Al arrancar, VerificacionIndices avisa
+-- si alguna consulta derivada filtra por una columna que no encabeza ningún índice.
+
+create extension if not exists pg_trgm;
+
+-- ProductoRepository.findByCategoria y el conteo por categoría
+create index idx_productos_categoria on productos (categoria);
+
+-- findByPrecioBetween
+create index idx_productos_precio on productos (precio);
+
+-- findByStockBetween / countByStockBetween (stock bajo) con cualquier rango
+create index idx_productos_stock on productos (stock);
+
+-- findByStockGreaterThan(0): el catálogo con stock; sólo indexa esas filas
+create index idx_productos_con_stock on productos (id) where stock > 0;
+
+-- findByNombreContainingIgnoreCase genera upper(nombre) like upper('%...%')
+create index idx_productos_nombre_trgm on productos using gin (upper(nombre) gin_trgm_ops);
+
+-- findByEstado, los agregados por estado y las ventas por día
+create index idx_pedidos_estado_fecha on pedidos (estado, fecha);
+
+-- findByFechaBetween y la paginación keyset por (fecha, id)
+create index idx_pedidos_fecha_id on pedidos (fecha, id);
+
+-- findByClienteNombreContainingIgnoreCase
+create index idx_pedidos_cliente_nombre_trgm on pedidos using gin (upper(cliente_nombre) gin_trgm_ops);
+
+-- PostgreSQL no indexa las claves foráneas: los joins y las cargas de lineas por pedido
+create index idx_lineas_pedido_pedido on lineas_pedido (pedido_id);
+create index idx_lineas_pedido_producto on lineas_pedido (producto_id);
@@ -0,0 +1,10 @@
+-- Los montos pasan de double precision a NUMERIC(12, 2): la aplicación los maneja en
+-- centavos (ver Montos) y la base los guarda exactos. Los valores existentes se
+-- redondean al centavo.
+
+alter table productos alter column precio type numeric(12, 2) using round(precio::numeric, 2);
+
+alter table lineas_pedido alter column precio_unitario type numeric(12, 2) using round(precio_unitario::numeric, 2);
+
+-- Con la cantidad acotada un subtotal en centavos siempre entra en un bigint (ver Montos.CANTIDAD_MAXIMA).
+alter table lineas_pedido add constraint ck_lineas_pedido_cantidad check (cantidad between 1 and 8388608);
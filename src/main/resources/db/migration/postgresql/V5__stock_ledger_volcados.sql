@@ -0,0 +1,9 @@
+-- Último segmento del journal de StockLedger aplicado a productos. Se actualiza en la misma
+-- transacción que los deltas: al arrancar solo se reproducen los segmentos posteriores.
+
+create table stock_ledger_volcados (
+    id       smallint primary key,
+    segmento bigint not null
+);
+
+insert into stock_ledger_volcados (id, segmento) values (1, 0);
@@ -0,0 +1,2 @@
+-- findIdsByEstadoDespuesDe: el listado por estado recorre por keyset sobre (estado, id)
+create index idx_pedidos_estado_id on pedidos (estado, id);
@@ -0,0 +1,15 @@
+-- Conjunto de promociones vigente (MotorPromociones), para que sobreviva a un reinicio.
+-- PUT /api/promociones reemplaza todas las filas en una transacción.
+
+create table promociones (
+    posicion        integer primary key,
+    version_reglas  bigint not null,
+    nombre          varchar(100),
+    tipo            varchar(20) not null,
+    producto_id     integer,
+    categoria       varchar(50),
+    cantidad_minima integer,
+    monto_minimo    numeric(12, 2),
+    porcentaje      float(53) not null,
+    activa          boolean
+);
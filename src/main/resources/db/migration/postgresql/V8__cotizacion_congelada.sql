@@ -0,0 +1,6 @@
+-- Cotización con la que el pedido salió de PENDIENTE: desde ese momento las promociones
+-- nuevas ya no cambian su total. Los pedidos anteriores quedan en null.
+
+alter table pedidos add column subtotal_cotizado numeric(12, 2);
+alter table pedidos add column descuento_cotizado numeric(12, 2);
+alter table pedidos add column promociones_cotizadas varchar(4000);
@@ -0,0 +1,155 @@
+package com.techlab.ecommerce.benchmark;
+
+import com.techlab.ecommerce.dto.Pagina;
+import com.techlab.ecommerce.dto.PedidoRespuesta;
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.model.Montos;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.repository.ProductoRepository;
+import com.techlab.ecommerce.service.PedidoService;
+import com.techlab.ecommerce.service.ProductoService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compara los agregados calculados en Java sobre todas las entidades (implementación anterior)
+ * con las consultas de agregación en SQL.
+ *
+ * Por defecto usa un dataset chico y sirve como test de equivalencia; para medir:
+ * {@code mvn test -Dtest=AgregadosBenchmarkTest -Dbenchmark.filas=1000000}
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:benchmark-agregados;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AgregadosBenchmarkTest {
+
+    private static final int FILAS = Integer.getInteger("benchmark.filas", 2000);
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void cargarDataset() {
+        List<Object[]> productos = new ArrayList<>();
+        for (int i = 1; i <= FILAS; i++) {
+            productos.add(new Object[]{i, "Producto " + i, 1.0 + (i % 500), "categoria-" + (i % 40), i % 50, i % 50 > 0});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO productos (id, nombre, precio, categoria, stock, disponible) VALUES (?, ?, ?, ?, ?, ?)",
+                productos);
+
+        int pedidos = Math.max(1, FILAS / 10);
+        List<Object[]> filasPedido = new ArrayList<>();
+        List<Object[]> filasLinea = new ArrayList<>();
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 1; i <= pedidos; i++) {
+            filasPedido.add(new Object[]{i, ahora, i % 3 == 0 ? EstadoPedido.PENDIENTE.getCodigo() : EstadoPedido.CONFIRMADO.getCodigo(), "Cliente " + i});
+            for (int j = 0; j < 3; j++) {
+                filasLinea.add(new Object[]{filasLinea.size() + 1, i, 1 + (i + j) % FILAS, 1 + j, new BigDecimal("10.15").add(BigDecimal.valueOf(j))});
+            }
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO pedidos (id, fecha, estado, cliente_nombre) VALUES (?, ?, ?, ?)", filasPedido);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO lineas_pedido (id, pedido_id, producto_id, cantidad, precio_unitario) VALUES (?, ?, ?, ?, ?)",
+                filasLinea);
+    }
+
+    @Test
+    void valorDeInventario() {
+        double anterior = medir("valorInventario (Java)", () -> {
+            double total = 0.0;
+            for (Producto producto : productoRepository.findAll()) {
+                total = total + producto.getPrecio() * producto.getStock();
+            }
+            return total;
+        });
+        double actual = medir("valorInventario (SQL)", productoService::calcularValorInventario);
+
+        assertEquals(anterior, actual, 0.0001);
+    }
+
+    @Test
+    void conteoPorCategoria() {
+        Map<String, Integer> anterior = medir("contarPorCategoria (Java)", () -> {
+            Map<String, Integer> conteo = new HashMap<>();
+            for (Producto producto : productoRepository.findAll()) {
+                conteo.merge(producto.getCategoria(), 1, Integer::sum);
+            }
+            return conteo;
+        });
+        Map<String, Integer> actual = medir("contarPorCategoria (SQL)", productoService::contarPorCategoria);
+
+        assertEquals(anterior, actual);
+    }
+
+    @Test
+    void stockBajo() {
+        long anterior = medir("stockBajo (Java)", () -> productoRepository.findAll().stream()
+                .filter(producto -> producto.getStock() > 0 && producto.getStock() <= 10)
+                .count());
+        long actual = medir("stockBajo (SQL)", () -> productoService.contarStockBajo(10));
+
+        assertEquals(anterior, actual);
+    }
+
+    @Test
+    void totalDeVentas() {
+        long anterior = medir("totalVentas (listado)", () -> {
+            long total = 0;
+            String cursor = null;
+            do {
+                Pagina<PedidoRespuesta> pagina = pedidoService.listarPaginaPorEstado(EstadoPedido.CONFIRMADO, cursor, 1000);
+                for (PedidoRespuesta pedido : pagina.items()) {
+                    for (PedidoRespuesta.Linea linea : pedido.lineas()) {
+                        total = total + Montos.multiplicar(Montos.desdeExacto(linea.precioUnitario()), linea.cantidad());
+                    }
+                }
+                cursor = pagina.siguienteCursor();
+            } while (cursor != null);
+            return total;
+        });
+        long actual = medir("totalVentas (SQL)", pedidoService::calcularTotalVentasCentavos);
+
+        // en centavos los dos caminos dan exactamente lo mismo
+        assertEquals(anterior, actual);
+    }
+
+    private <T> T medir(String nombre, Supplier<T> operacion) {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long memoriaAntes = runtime.totalMemory() - runtime.freeMemory();
+        long inicio = System.nanoTime();
+
+        T resultado = operacion.get();
+
+        long nanos = System.nanoTime() - inicio;
+        long memoriaDespues = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("%-28s filas=%d tiempo=%d ms heap=%+d KB%n",
+                nombre, FILAS, nanos / 1_000_000, (memoriaDespues - memoriaAntes) / 1024);
+        return resultado;
+    }
+}
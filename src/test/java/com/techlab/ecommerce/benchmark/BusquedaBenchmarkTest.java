@@ -0,0 +1,114 @@
+package com.techlab.ecommerce.benchmark;
+
+import com.techlab.ecommerce.event.ProductoModificadoEvent;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.service.IndiceBusqueda;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mide el índice de búsqueda en memoria: la construcción, las consultas aproximadas (con
+ * un error de tipeo, sin coincidencias exactas ni por prefijo) y las modificaciones de
+ * productos, que quitan al documento de postings como el de la categoria, compartido
+ * por todo el catálogo.
+ *
+ * Por defecto usa un dataset chico y verifica los resultados; para medir:
+ * {@code mvn test -Dtest=BusquedaBenchmarkTest -Dbenchmark.filas=500000}
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:benchmark-busqueda;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BusquedaBenchmarkTest {
+
+    private static final int FILAS = Integer.getInteger("benchmark.filas", 20_000);
+    private static final int REPETICIONES = Integer.getInteger("benchmark.repeticiones", 200);
+
+    private static final String[] SILABAS = {"ba", "ce", "di", "fo", "gu", "la", "me", "ni", "po", "ru",
+            "sa", "te", "vi", "zo", "tra", "cle", "mon", "par", "ser", "lin"};
+    private static final int PALABRAS = SILABAS.length * SILABAS.length * SILABAS.length * SILABAS.length;
+
+    @Autowired
+    private IndiceBusqueda indiceBusqueda;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void cargarDataset() {
+        List<Object[]> productos = new ArrayList<>();
+        for (int i = 1; i <= FILAS; i++) {
+            productos.add(new Object[]{i, nombre(i), "Descripción " + palabra(i * 31), 1.0 + (i % 500),
+                    "categoria-" + (i % 40), i % 50, i % 50 > 0});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO productos (id, nombre, descripcion, precio, categoria, stock, disponible) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)", productos);
+
+        long inicio = System.nanoTime();
+        indiceBusqueda.reconstruir();
+        System.out.printf("%-30s filas=%d tiempo=%.0f ms%n", "construcción del índice", FILAS,
+                (System.nanoTime() - inicio) / 1e6);
+    }
+
+    @Test
+    void consultaAproximada() {
+        int objetivo = FILAS / 2;
+        String palabra = palabra(objetivo);
+        // la x no aparece en ninguna sílaba: no hay coincidencia exacta ni por prefijo
+        String conError = palabra.substring(0, 2) + "x" + palabra.substring(3);
+
+        List<Integer> encontrados = indiceBusqueda.buscar(conError, IndiceBusqueda.Filtro.NINGUNO, 1000);
+        assertTrue(encontrados.contains(objetivo), conError + " no encontró " + palabra);
+
+        medir("consulta aproximada", () -> indiceBusqueda.buscar(conError, IndiceBusqueda.Filtro.NINGUNO, 10).size());
+    }
+
+    @Test
+    void modificaciones() {
+        int[] siguiente = {1};
+        medir("modificación de producto", () -> {
+            // ids repartidos por todo el catálogo, no solo los primeros de cada lista
+            int id = (int) ((siguiente[0]++ * 7919L) % FILAS) + 1;
+            Producto producto = new Producto(id, nombre(id), null, 1.0 + (id % 500), "categoria-" + (id % 40), null, 5, true);
+            indiceBusqueda.productoModificado(new ProductoModificadoEvent(id, producto.getCategoria(), producto));
+            return 1;
+        });
+
+        Producto renombrado = new Producto(7, "Quimerazo", null, 10.0, "categoria-7", null, 5, true);
+        indiceBusqueda.productoModificado(new ProductoModificadoEvent(7, "categoria-7", renombrado));
+        assertEquals(List.of(7), indiceBusqueda.buscar("quimerazo", IndiceBusqueda.Filtro.NINGUNO, 10));
+        assertEquals(FILAS, indiceBusqueda.buscar("categoria", IndiceBusqueda.Filtro.NINGUNO, FILAS).size());
+    }
+
+    private static String nombre(int i) {
+        return palabra(i) + " " + palabra(i / PALABRAS + i * 7);
+    }
+
+    private static String palabra(int n) {
+        int k = Math.floorMod(n, PALABRAS);
+        StringBuilder palabra = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            palabra.append(SILABAS[k % SILABAS.length]);
+            k /= SILABAS.length;
+        }
+        return palabra.toString();
+    }
+
+    private static void medir(String nombre, IntSupplier operacion) {
+        operacion.getAsInt();
+        long inicio = System.nanoTime();
+        for (int i = 0; i < REPETICIONES; i++) {
+            operacion.getAsInt();
+        }
+        long nanos = System.nanoTime() - inicio;
+        System.out.printf("%-30s filas=%d tiempo=%.3f ms/op%n", nombre, FILAS, nanos / 1e6 / REPETICIONES);
+    }
+}
@@ -0,0 +1,148 @@
+package com.techlab.ecommerce.benchmark;
+
+import com.techlab.ecommerce.config.VerificacionIndices;
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.repository.PedidoRepository;
+import com.techlab.ecommerce.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mide las consultas derivadas de los repositorios con y sin los índices del esquema:
+ * cada caso se corre con el índice, se lo borra, se repite y se lo vuelve a crear.
+ *
+ * Por defecto usa un dataset chico y verifica que el plan use el índice y que los
+ * resultados no cambien; para medir:
+ * {@code mvn test -Dtest=IndicesBenchmarkTest -Dbenchmark.filas=1000000}
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:benchmark-indices;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class IndicesBenchmarkTest {
+
+    private static final int FILAS = Integer.getInteger("benchmark.filas", 20_000);
+    private static final int REPETICIONES = Integer.getInteger("benchmark.repeticiones", 50);
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private VerificacionIndices verificacionIndices;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private LocalDateTime inicio;
+
+    @BeforeAll
+    void cargarDataset() {
+        List<Object[]> productos = new ArrayList<>();
+        for (int i = 1; i <= FILAS; i++) {
+            productos.add(new Object[]{i, "Producto " + i, 1.0 + (i % 5000) / 10.0, "categoria-" + (i % 200), i % 50, i % 50 > 0});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO productos (id, nombre, precio, categoria, stock, disponible) VALUES (?, ?, ?, ?, ?, ?)",
+                productos);
+
+        inicio = LocalDateTime.now().minusDays(365);
+        List<Object[]> pedidos = new ArrayList<>();
+        for (int i = 1; i <= FILAS; i++) {
+            EstadoPedido estado = EstadoPedido.values()[i % EstadoPedido.values().length];
+            pedidos.add(new Object[]{i, Timestamp.valueOf(inicio.plusMinutes(i * 525_600L / FILAS)), estado.getCodigo(), "Cliente " + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO pedidos (id, fecha, estado, cliente_nombre) VALUES (?, ?, ?, ?)", pedidos);
+    }
+
+    @Test
+    void porCategoria() {
+        comparar("findByCategoria", "productos", "idx_productos_categoria", "categoria",
+                "select id from productos where categoria = 'categoria-7'",
+                () -> productoRepository.findByCategoria("categoria-7").size());
+    }
+
+    @Test
+    void porRangoDePrecio() {
+        comparar("findByPrecioCentavosBetween", "productos", "idx_productos_precio", "precio",
+                "select id from productos where precio between 100 and 101",
+                () -> productoRepository.findByPrecioCentavosBetween(10_000, 10_100).size());
+    }
+
+    @Test
+    void porEstado() {
+        comparar("findIdsByEstado", "pedidos", "idx_pedidos_estado_fecha", "estado, fecha",
+                "select id from pedidos where estado = " + EstadoPedido.ENTREGADO.getCodigo(),
+                () -> pedidoRepository.findIdsByEstado(EstadoPedido.ENTREGADO).size());
+    }
+
+    @Test
+    void porRangoDeFechas() {
+        LocalDateTime desde = inicio.plusDays(100);
+        LocalDateTime hasta = desde.plusDays(2);
+        comparar("findByFechaBetween", "pedidos", "idx_pedidos_fecha_id", "fecha, id",
+                "select id from pedidos where fecha between '" + Timestamp.valueOf(desde) + "' and '" + Timestamp.valueOf(hasta) + "'",
+                () -> pedidoRepository.findByFechaBetween(desde, hasta).size());
+    }
+
+    @Test
+    void laVerificacionAvisaSoloLasConsultasSinIndice() {
+        List<String> sinIndice = verificacionIndices.obtenerSinIndice();
+
+        // en H2 no hay índices trigram: las búsquedas por texto quedan sin sostén
+        assertTrue(sinIndice.contains("PedidoRepository.findByClienteNombreContainingIgnoreCase"));
+        assertFalse(sinIndice.contains("ProductoRepository.findByCategoria"));
+        assertFalse(sinIndice.contains("ProductoRepository.findByPrecioCentavosBetween"));
+        assertFalse(sinIndice.contains("ProductoRepository.findByStockGreaterThan"));
+        assertFalse(sinIndice.contains("PedidoRepository.findByFechaBetween"));
+    }
+
+    private void comparar(String nombre, String tabla, String indice, String columnas, String sql, Supplier<Integer> consulta) {
+        assertTrue(plan(sql).contains(indice), "el plan no usa " + indice + ": " + plan(sql));
+        int conIndice = consulta.get();
+        medir(nombre + " (con índice)", sql);
+
+        jdbcTemplate.execute("DROP INDEX " + indice);
+        try {
+            assertFalse(plan(sql).contains(indice));
+            assertEquals(conIndice, consulta.get());
+            medir(nombre + " (sin índice)", sql);
+        } finally {
+            jdbcTemplate.execute("CREATE INDEX " + indice + " ON " + tabla + " (" + columnas + ")");
+        }
+    }
+
+    private String plan(String sql) {
+        return String.join(" ", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class)).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Mide el SQL equivalente con JDBC, sin el costo de armar entidades, después de
+     * calentarlo con la misma cantidad de repeticiones.
+     */
+    private void medir(String nombre, String sql) {
+        int filas = 0;
+        for (int i = 0; i < REPETICIONES; i++) {
+            filas = jdbcTemplate.queryForList(sql, Integer.class).size();
+        }
+        long inicio = System.nanoTime();
+        for (int i = 0; i < REPETICIONES; i++) {
+            jdbcTemplate.queryForList(sql, Integer.class);
+        }
+        long micros = (System.nanoTime() - inicio) / 1_000 / REPETICIONES;
+        System.out.printf("%-36s filas=%d resultado=%d tiempo=%d µs/consulta%n", nombre, FILAS, filas, micros);
+    }
+}
@@ -0,0 +1,133 @@
+package com.techlab.ecommerce.benchmark;
+
+import com.techlab.ecommerce.service.InstantaneasCatalogo;
+import com.techlab.ecommerce.service.ProductoService;
+import com.techlab.ecommerce.service.RevisionCatalogo;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara servir el listado completo de productos serializándolo (y comprimiéndolo) en cada
+ * request, como hace el camino normal, contra copiar la instantánea pre-serializada a un
+ * buffer de salida. Mide tiempo, bytes por segundo y bytes asignados por request.
+ *
+ * Por defecto usa un dataset chico y sirve como test de equivalencia; para medir:
+ * {@code mvn test -Dtest=InstantaneasBenchmarkTest -Dbenchmark.filas=50000 -Dbenchmark.repeticiones=200}
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:benchmark-instantaneas;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "ecommerce.instantaneas.regeneracion-ms=3600000"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class InstantaneasBenchmarkTest {
+
+    private static final int FILAS = Integer.getInteger("benchmark.filas", 2000);
+    private static final int REPETICIONES = Integer.getInteger("benchmark.repeticiones", 20);
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private InstantaneasCatalogo instantaneasCatalogo;
+
+    @Autowired
+    private RevisionCatalogo revisionCatalogo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    void cargarDataset() {
+        List<Object[]> productos = new ArrayList<>();
+        for (int i = 1; i <= FILAS; i++) {
+            productos.add(new Object[]{i, "Producto " + i, "Descripción del producto " + i, 1.0 + (i % 500),
+                    "categoria-" + (i % 40), "https://cdn.example.com/img/" + i + ".png", i % 50, i % 50 > 0});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO productos (id, nombre, descripcion, precio, categoria, imagen, stock, disponible) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", productos);
+
+        // los inserts por JDBC no pasan por los eventos del catálogo
+        revisionCatalogo.registrarCambio(0);
+        instantaneasCatalogo.regenerar();
+    }
+
+    @Test
+    void listadoCompleto() {
+        InstantaneasCatalogo.Instantanea instantanea = instantaneasCatalogo.obtener(InstantaneasCatalogo.TODOS);
+        assertNotNull(instantanea);
+        ByteBuffer salida = ByteBuffer.allocateDirect(instantanea.json().capacity());
+
+        long serializado = medir("listado json (serializando)", () -> serializar().length);
+        long copiado = medir("listado json (instantánea)", () -> copiar(instantanea.cuerpo(false), salida));
+        long serializadoGzip = medir("listado gzip (serializando)", () -> comprimir(serializar()).length);
+        long copiadoGzip = medir("listado gzip (instantánea)", () -> copiar(instantanea.cuerpo(true), salida));
+
+        byte[] json = new byte[instantanea.json().capacity()];
+        instantanea.cuerpo(false).get(json);
+        assertArrayEquals(serializar(), json);
+        assertTrue(copiado < serializado, "la instantánea no asignó menos memoria");
+        assertTrue(copiadoGzip < serializadoGzip, "la instantánea gzip no asignó menos memoria");
+    }
+
+    private byte[] serializar() {
+        return objectMapper.writeValueAsBytes(productoService.aRespuestas(productoService.listarPagina(null, 1000).items()));
+    }
+
+    private static int copiar(ByteBuffer cuerpo, ByteBuffer salida) {
+        salida.clear();
+        int bytes = cuerpo.remaining();
+        salida.put(cuerpo);
+        return bytes;
+    }
+
+    private static byte[] comprimir(byte[] json) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return salida.toByteArray();
+    }
+
+    /**
+     * @return bytes asignados por request
+     */
+    private long medir(String nombre, IntSupplier request) {
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long hilo = Thread.currentThread().getId();
+
+        request.getAsInt();
+        long asignadoAntes = hilos.getThreadAllocatedBytes(hilo);
+        long inicio = System.nanoTime();
+        long bytes = 0;
+        for (int i = 0; i < REPETICIONES; i++) {
+            bytes += request.getAsInt();
+        }
+        long nanos = Math.max(1, System.nanoTime() - inicio);
+        long asignado = (hilos.getThreadAllocatedBytes(hilo) - asignadoAntes) / REPETICIONES;
+
+        System.out.printf("%-30s filas=%d tiempo=%.3f ms/req salida=%.1f MB/s asignado=%d KB/req%n",
+                nombre, FILAS, nanos / 1e6 / REPETICIONES, bytes / (nanos / 1e9) / (1024 * 1024), asignado / 1024);
+        return asignado;
+    }
+}
@@ -0,0 +1,132 @@
+package com.techlab.ecommerce.benchmark;
+
+import com.techlab.ecommerce.dto.Pagina;
+import com.techlab.ecommerce.dto.PedidoRespuesta;
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.model.Pedido;
+import com.techlab.ecommerce.repository.PedidoRepository;
+import com.techlab.ecommerce.service.PedidoService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara una página de pedidos serializando las entidades con su grafo completo
+ * (implementación anterior) contra las respuestas armadas desde proyecciones.
+ * Mide tiempo, bytes asignados por el hilo y tamaño del JSON.
+ *
+ * Por defecto usa un dataset chico y sirve como test de equivalencia; para medir:
+ * {@code mvn test -Dtest=RespuestasBenchmarkTest -Dbenchmark.pedidos=20000 -Dbenchmark.repeticiones=50}
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:benchmark-respuestas;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RespuestasBenchmarkTest {
+
+    private static final int PEDIDOS = Integer.getInteger("benchmark.pedidos", 1000);
+    private static final int REPETICIONES = Integer.getInteger("benchmark.repeticiones", 5);
+    private static final int PAGINA = 500;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    void cargarDataset() {
+        int productos = Math.max(1, PEDIDOS / 5);
+        List<Object[]> filasProducto = new ArrayList<>();
+        for (int i = 1; i <= productos; i++) {
+            filasProducto.add(new Object[]{i, "Producto " + i, "Descripción larga del producto " + i,
+                    1.0 + (i % 500), "categoria-" + (i % 40), "https://cdn.example.com/img/" + i + ".png", 100, true});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO productos (id, nombre, descripcion, precio, categoria, imagen, stock, disponible) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", filasProducto);
+
+        List<Object[]> filasPedido = new ArrayList<>();
+        List<Object[]> filasLinea = new ArrayList<>();
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 1; i <= PEDIDOS; i++) {
+            filasPedido.add(new Object[]{i, ahora, EstadoPedido.PENDIENTE.getCodigo(), "Cliente " + i});
+            for (int j = 0; j < 3; j++) {
+                filasLinea.add(new Object[]{filasLinea.size() + 1, i, 1 + (i + j) % productos, 1 + j, 10.5 + j});
+            }
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO pedidos (id, fecha, estado, cliente_nombre) VALUES (?, ?, ?, ?)", filasPedido);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO lineas_pedido (id, pedido_id, producto_id, cantidad, precio_unitario) VALUES (?, ?, ?, ?, ?)",
+                filasLinea);
+    }
+
+    @Test
+    void paginaDePedidos() {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        int limite = Math.min(PAGINA, PEDIDOS);
+
+        byte[] anterior = medir("pagina pedidos (entidades)", () -> transaccion.execute(estado -> {
+            List<Integer> ids = pedidoRepository.findIdsDespuesDe(0, Limit.of(limite));
+            List<Pedido> pedidos = pedidoRepository.findByIdIn(ids, Sort.by("id"));
+            return objectMapper.writeValueAsBytes(pedidos);
+        }));
+        byte[] actual = medir("pagina pedidos (proyecciones)", () -> {
+            Pagina<PedidoRespuesta> pagina = pedidoService.listarPaginaPorId(null, limite);
+            return objectMapper.writeValueAsBytes(pagina.items());
+        });
+
+        List<PedidoRespuesta> respuestas = pedidoService.listarPaginaPorId(null, limite).items();
+        List<Pedido> entidades = transaccion.execute(estado -> pedidoRepository.findByIdIn(
+                pedidoRepository.findIdsDespuesDe(0, Limit.of(limite)), Sort.by("id")));
+        assertEquals(entidades.size(), respuestas.size());
+        for (int i = 0; i < entidades.size(); i++) {
+            assertEquals(entidades.get(i).getId(), respuestas.get(i).id());
+            assertEquals(entidades.get(i).calcularTotal(), respuestas.get(i).total(), 0.0001);
+            assertEquals(entidades.get(i).getLineas().size(), respuestas.get(i).lineas().size());
+        }
+        assertTrue(actual.length < anterior.length, "la respuesta no se achicó");
+    }
+
+    private byte[] medir(String nombre, Supplier<byte[]> operacion) {
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long hilo = Thread.currentThread().getId();
+
+        byte[] resultado = operacion.get();
+        long asignadoAntes = hilos.getThreadAllocatedBytes(hilo);
+        long inicio = System.nanoTime();
+        for (int i = 0; i < REPETICIONES; i++) {
+            resultado = operacion.get();
+        }
+        long nanos = (System.nanoTime() - inicio) / REPETICIONES;
+        long asignado = (hilos.getThreadAllocatedBytes(hilo) - asignadoAntes) / REPETICIONES;
+
+        System.out.printf("%-32s pedidos=%d tiempo=%d ms asignado=%d KB json=%d KB%n",
+                nombre, Math.min(PAGINA, PEDIDOS), nanos / 1_000_000, asignado / 1024, resultado.length / 1024);
+        return resultado;
+    }
+}
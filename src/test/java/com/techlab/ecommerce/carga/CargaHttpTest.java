@@ -0,0 +1,134 @@
+package com.techlab.ecommerce.carga;
+
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.repository.ProductoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Carga HTTP contra el servidor embebido: mide throughput, p50/p99 y rechazos 503
+ * del control de admisión con un mix de altas de pedidos y lecturas.
+ *
+ * Para comparar modos (hilos virtuales requiere Java 21):
+ * {@code mvn test -Dtest=CargaHttpTest -Dcarga.requests=20000 -Dcarga.clientes=400}
+ * {@code mvn test -Pjava21 -Dtest=CargaHttpTest -Dcarga.requests=20000 -Dcarga.clientes=400}
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:carga-http;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000")
+class CargaHttpTest {
+
+    private static final int REQUESTS = Integer.getInteger("carga.requests", 400);
+    private static final int CLIENTES = Integer.getInteger("carga.clientes", 32);
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Test
+    void mixDeAltasYLecturas() throws Exception {
+        List<Integer> productos = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            productos.add(productoRepository.save(
+                    new Producto(null, "Carga " + i, null, 10.0, "carga", null, 1_000_000, true)).getId());
+        }
+
+        HttpClient cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        long[] latencias = new long[REQUESTS];
+        AtomicInteger siguiente = new AtomicInteger();
+        AtomicInteger exitosas = new AtomicInteger();
+        AtomicInteger rechazadas = new AtomicInteger();
+        AtomicInteger errores = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTES);
+        long inicio = System.nanoTime();
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int c = 0; c < CLIENTES; c++) {
+                tareas.add(executor.submit(() -> {
+                    int i;
+                    while ((i = siguiente.getAndIncrement()) < REQUESTS) {
+                        HttpRequest request = armarRequest(i, productos);
+                        long antes = System.nanoTime();
+                        int status;
+                        try {
+                            status = cliente.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (Exception e) {
+                            status = -1;
+                        }
+                        latencias[i] = System.nanoTime() - antes;
+                        if (status >= 200 && status < 300) {
+                            exitosas.incrementAndGet();
+                        } else if (status == 503) {
+                            rechazadas.incrementAndGet();
+                        } else {
+                            errores.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get(10, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        long nanos = System.nanoTime() - inicio;
+
+        Arrays.sort(latencias);
+        System.out.printf("carga hilosVirtuales=%s requests=%d clientes=%d throughput=%.0f req/s p50=%.1f ms p99=%.1f ms rechazadas=%d%n",
+                System.getProperty("spring.threads.virtual.enabled", "false"), REQUESTS, CLIENTES,
+                REQUESTS / (nanos / 1e9), percentil(latencias, 0.50), percentil(latencias, 0.99), rechazadas.get());
+
+        assertEquals(0, errores.get());
+        assertEquals(REQUESTS, exitosas.get() + rechazadas.get());
+    }
+
+    private HttpRequest armarRequest(int i, List<Integer> productos) {
+        int producto = productos.get(ThreadLocalRandom.current().nextInt(productos.size()));
+        if (i % 4 == 0) {
+            String cuerpo = "{\"clienteNombre\":\"Cliente " + i + "\",\"productos\":[{\"productoId\":" + producto + ",\"cantidad\":1}]}";
+            return HttpRequest.newBuilder(uri("/api/pedidos/crear-completo"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                    .build();
+        }
+        if (i % 4 == 1) {
+            return HttpRequest.newBuilder(uri("/api/pedidos/pagina?limite=20")).GET().build();
+        }
+        return HttpRequest.newBuilder(uri("/api/productos/" + producto + "/verificar-stock?cantidad=1")).GET().build();
+    }
+
+    private URI uri(String ruta) {
+        return URI.create("http://localhost:" + puerto + ruta);
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        int indice = (int) Math.ceil(p * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, indice)] / 1e6;
+    }
+}
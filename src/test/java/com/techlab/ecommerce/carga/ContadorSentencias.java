@@ -0,0 +1,46 @@
+package com.techlab.ecommerce.carga;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cuenta las sentencias SQL que prepara Hibernate agrupadas por el escenario de
+ * carga que las originó. El escenario lo marca un filtro en el hilo de la request;
+ * lo que corre fuera de una request (tareas programadas, volcados) queda en "otros".
+ */
+public class ContadorSentencias implements StatementInspector {
+
+    static final String OTROS = "otros";
+
+    private static final ThreadLocal<String> escenario = new ThreadLocal<>();
+    private static final Map<String, LongAdder> sentencias = new ConcurrentHashMap<>();
+
+    @Override
+    public String inspect(String sql) {
+        String actual = escenario.get();
+        sentencias.computeIfAbsent(actual != null ? actual : OTROS, clave -> new LongAdder()).increment();
+        return sql;
+    }
+
+    static void marcar(String nombre) {
+        escenario.set(nombre);
+    }
+
+    static void desmarcar() {
+        escenario.remove();
+    }
+
+    static Map<String, Long> obtener() {
+        Map<String, Long> resultado = new TreeMap<>();
+        sentencias.forEach((clave, cantidad) -> resultado.put(clave, cantidad.sum()));
+        return resultado;
+    }
+
+    static void reiniciar() {
+        sentencias.clear();
+    }
+}
@@ -0,0 +1,448 @@
+package com.techlab.ecommerce.carga;
+
+import com.techlab.ecommerce.dto.Pagina;
+import com.techlab.ecommerce.dto.PedidoRespuesta;
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.repository.ProductoRepository;
+import com.techlab.ecommerce.service.PedidoService;
+import com.techlab.ecommerce.service.ProductoService;
+import com.techlab.ecommerce.service.StockLedger;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Carga de punta a punta sobre la API HTTP con flujos completos de compra: navegar
+ * el catálogo, buscar, armar pedidos con /crear y agregar-producto, y confirmarlos o
+ * cancelarlos. La popularidad de los productos sigue una Zipf, así que unos pocos
+ * concentran los pedidos y se quedan sin stock durante la corrida.
+ *
+ * Reporta por escenario throughput, p50/p95/p99 del flujo completo y sentencias SQL
+ * por flujo; al final verifica que no haya sobreventa. Con la misma semilla los flujos
+ * y los productos elegidos se repiten entre corridas, para comparar versiones:
+ * {@code mvn test -Dtest=FlujosPedidoCargaTest -Dcarga.flujos=5000 -Dcarga.clientes=64}
+ * {@code -Dcarga.mix=navegar=40,buscar=25,comprar=25,abandonar=10 -Dcarga.zipf=1.1 -Dcarga.semilla=42}
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:carga-flujos;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000",
+                "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.techlab.ecommerce.carga.ContadorSentencias"
+        })
+class FlujosPedidoCargaTest {
+
+    private static final int FLUJOS = Integer.getInteger("carga.flujos", 240);
+    private static final int CLIENTES = Integer.getInteger("carga.clientes", 16);
+    private static final int PRODUCTOS = Integer.getInteger("carga.productos", 40);
+    private static final int STOCK = Integer.getInteger("carga.stock", 12);
+    private static final double ZIPF = Double.parseDouble(System.getProperty("carga.zipf", "1.1"));
+    private static final long SEMILLA = Long.getLong("carga.semilla", 42L);
+    private static final String MIX = System.getProperty("carga.mix", "navegar=40,buscar=25,comprar=25,abandonar=10");
+
+    private static final String ESCENARIO = "X-Escenario";
+    private static final String[] PALABRAS = {"Mate", "Termo", "Bombilla", "Yerbera", "Taza", "Jarra", "Vaso", "Plato"};
+
+    private enum Resultado { COMPLETO, RECHAZADO, SATURADO, ERROR }
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private HttpClient cliente;
+
+    @Test
+    void mixDeFlujosDeCompraConPopularidadZipf() throws Exception {
+        List<Producto> catalogo = new ArrayList<>();
+        for (int i = 0; i < PRODUCTOS; i++) {
+            Producto producto = new Producto();
+            producto.setNombre(PALABRAS[i % PALABRAS.length] + " flujo " + i);
+            producto.setCategoria("flujos");
+            producto.setPrecio(100.0 + i);
+            producto.setStock(STOCK);
+            catalogo.add(productoService.agregarProducto(producto));
+        }
+
+        Map<String, Integer> mix = leerMix(MIX);
+        String[] escenarios = mix.keySet().toArray(String[]::new);
+        int[] pesosAcumulados = new int[escenarios.length];
+        int total = 0;
+        for (int i = 0; i < escenarios.length; i++) {
+            total += mix.get(escenarios[i]);
+            pesosAcumulados[i] = total;
+        }
+        Zipf popularidad = new Zipf(PRODUCTOS, ZIPF);
+
+        cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        Map<String, Medicion> mediciones = new ConcurrentHashMap<>();
+        for (String escenario : escenarios) {
+            mediciones.put(escenario, new Medicion(FLUJOS));
+        }
+        AtomicInteger siguiente = new AtomicInteger();
+        AtomicLong requests = new AtomicLong();
+        ContadorSentencias.reiniciar();
+
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTES);
+        long inicio = System.nanoTime();
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int c = 0; c < CLIENTES; c++) {
+                int sorteoTotal = total;
+                tareas.add(executor.submit(() -> {
+                    int i;
+                    while ((i = siguiente.getAndIncrement()) < FLUJOS) {
+                        Random aleatorio = new Random(SEMILLA * 31 + i);
+                        String escenario = elegir(escenarios, pesosAcumulados, aleatorio.nextInt(sorteoTotal));
+                        Flujo flujo = new Flujo(escenario, aleatorio, popularidad, catalogo);
+                        long antes = System.nanoTime();
+                        Resultado resultado = flujo.ejecutar();
+                        mediciones.get(escenario).registrar(System.nanoTime() - antes, resultado);
+                        requests.addAndGet(flujo.requests);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get(10, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        Map<String, Long> sentencias = ContadorSentencias.obtener();
+        System.out.printf("flujos=%d clientes=%d productos=%d stock=%d zipf=%.2f semilla=%d throughput=%.0f flujos/s %.0f req/s%n",
+                FLUJOS, CLIENTES, PRODUCTOS, STOCK, ZIPF, SEMILLA, FLUJOS / segundos, requests.get() / segundos);
+        int errores = 0;
+        for (String escenario : escenarios) {
+            Medicion medicion = mediciones.get(escenario);
+            int flujos = medicion.cantidad.get();
+            long[] latencias = Arrays.copyOf(medicion.latencias, flujos);
+            Arrays.sort(latencias);
+            System.out.printf("  %-10s flujos=%d throughput=%.1f/s p50=%.1f ms p95=%.1f ms p99=%.1f ms sentencias/flujo=%.1f completos=%d rechazados=%d saturados=%d errores=%d%n",
+                    escenario, flujos, flujos / segundos,
+                    percentil(latencias, 0.50), percentil(latencias, 0.95), percentil(latencias, 0.99),
+                    flujos == 0 ? 0.0 : sentencias.getOrDefault(escenario, 0L) / (double) flujos,
+                    medicion.contar(Resultado.COMPLETO), medicion.contar(Resultado.RECHAZADO),
+                    medicion.contar(Resultado.SATURADO), medicion.contar(Resultado.ERROR));
+            errores += medicion.contar(Resultado.ERROR);
+        }
+        System.out.printf("  %-10s sentencias=%d%n", ContadorSentencias.OTROS, sentencias.getOrDefault(ContadorSentencias.OTROS, 0L));
+
+        stockLedger.volcar();
+        Sobreventa sobreventa = verificarStock(catalogo);
+        System.out.printf("  sobreventa=%d unidades inconsistencias=%d agotados=%d%n",
+                sobreventa.unidades, sobreventa.inconsistencias, sobreventa.agotados);
+
+        assertEquals(0, errores);
+        assertEquals(0, sobreventa.unidades);
+        assertEquals(0, sobreventa.inconsistencias);
+        assertEquals(FLUJOS, mediciones.values().stream().mapToInt(m -> m.cantidad.get()).sum());
+    }
+
+    private Sobreventa verificarStock(List<Producto> catalogo) {
+        Map<Integer, Integer> vendidas = new HashMap<>();
+        String cursor = null;
+        do {
+            Pagina<PedidoRespuesta> pagina = pedidoService.listarPaginaPorEstado(EstadoPedido.CONFIRMADO, cursor, 1000);
+            for (PedidoRespuesta pedido : pagina.items()) {
+                for (PedidoRespuesta.Linea linea : pedido.lineas()) {
+                    vendidas.merge(linea.productoId(), linea.cantidad(), Integer::sum);
+                }
+            }
+            cursor = pagina.siguienteCursor();
+        } while (cursor != null);
+
+        Sobreventa sobreventa = new Sobreventa();
+        for (Producto producto : catalogo) {
+            int vendido = vendidas.getOrDefault(producto.getId(), 0);
+            Producto actual = productoRepository.findById(producto.getId()).orElseThrow();
+            int stock = productoService.stockActual(actual);
+            sobreventa.unidades += Math.max(0, vendido - STOCK) + Math.max(0, -stock);
+            if (stock != STOCK - vendido || actual.getStock() != stock) {
+                sobreventa.inconsistencias++;
+            }
+            if (stock == 0) {
+                sobreventa.agotados++;
+            }
+        }
+        return sobreventa;
+    }
+
+    /**
+     * Un flujo de un usuario: la secuencia de requests del escenario, todas marcadas
+     * con el escenario para atribuirle las sentencias SQL del lado del servidor.
+     */
+    private final class Flujo {
+
+        private final String escenario;
+        private final Random aleatorio;
+        private final Zipf popularidad;
+        private final List<Producto> catalogo;
+        private int requests;
+
+        private Flujo(String escenario, Random aleatorio, Zipf popularidad, List<Producto> catalogo) {
+            this.escenario = escenario;
+            this.aleatorio = aleatorio;
+            this.popularidad = popularidad;
+            this.catalogo = catalogo;
+        }
+
+        private Resultado ejecutar() {
+            try {
+                return switch (escenario) {
+                    case "navegar" -> navegar();
+                    case "buscar" -> buscar();
+                    case "comprar" -> armarPedido(true);
+                    case "abandonar" -> armarPedido(false);
+                    default -> throw new IllegalArgumentException("Escenario desconocido: " + escenario);
+                };
+            } catch (IOException | RuntimeException e) {
+                return Resultado.ERROR;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Resultado.ERROR;
+            }
+        }
+
+        private Resultado navegar() throws IOException, InterruptedException {
+            HttpResponse<String> listado = enviar(get("/api/productos"));
+            if (listado.statusCode() != 200) {
+                return clasificar(listado.statusCode());
+            }
+            return clasificar(enviar(get("/api/productos/" + elegirProducto().getId())).statusCode());
+        }
+
+        private Resultado buscar() throws IOException, InterruptedException {
+            Producto producto = elegirProducto();
+            String termino = producto.getNombre().split(" ")[0].toLowerCase();
+            HttpResponse<String> busqueda = enviar(get("/api/productos/busqueda?q="
+                    + URLEncoder.encode(termino, StandardCharsets.UTF_8) + "&disponibles=true&limite=10"));
+            if (busqueda.statusCode() != 200) {
+                return clasificar(busqueda.statusCode());
+            }
+            return clasificar(enviar(get("/api/productos/" + producto.getId())).statusCode());
+        }
+
+        private Resultado armarPedido(boolean confirmar) throws IOException, InterruptedException {
+            HttpResponse<String> creado = enviar(post("/api/pedidos/crear",
+                    "{\"clienteNombre\":\"Cliente " + escenario + " " + aleatorio.nextInt(1_000) + "\"}"));
+            if (creado.statusCode() != 201) {
+                return clasificar(creado.statusCode());
+            }
+            int pedidoId = objectMapper.readTree(creado.body()).get("id").asInt();
+
+            int agregadas = 0;
+            int lineas = 1 + aleatorio.nextInt(3);
+            for (int l = 0; l < lineas; l++) {
+                String linea = "{\"productoId\":" + elegirProducto().getId() + ",\"cantidad\":" + (1 + aleatorio.nextInt(2)) + "}";
+                int status = enviar(post("/api/pedidos/" + pedidoId + "/agregar-producto", linea)).statusCode();
+                if (status == 200) {
+                    agregadas++;
+                } else if (status != 400) {
+                    return clasificar(status);
+                }
+            }
+            if (agregadas == 0) {
+                return Resultado.RECHAZADO;
+            }
+
+            String accion = confirmar ? "/confirmar" : "/cancelar";
+            return clasificar(enviar(post("/api/pedidos/" + pedidoId + accion, "")).statusCode());
+        }
+
+        private Producto elegirProducto() {
+            return catalogo.get(popularidad.siguiente(aleatorio));
+        }
+
+        private HttpRequest get(String ruta) {
+            return HttpRequest.newBuilder(uri(ruta)).header(ESCENARIO, escenario).GET().build();
+        }
+
+        private HttpRequest post(String ruta, String cuerpo) {
+            return HttpRequest.newBuilder(uri(ruta))
+                    .header(ESCENARIO, escenario)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                    .build();
+        }
+
+        private HttpResponse<String> enviar(HttpRequest request) throws IOException, InterruptedException {
+            requests++;
+            return cliente.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+    }
+
+    private static Resultado clasificar(int status) {
+        if (status >= 200 && status < 300) {
+            return Resultado.COMPLETO;
+        }
+        if (status == 503) {
+            return Resultado.SATURADO;
+        }
+        // sin stock, pedido vacío o conflictos de versión agotados: rechazos del negocio
+        if (status == 400 || status == 409) {
+            return Resultado.RECHAZADO;
+        }
+        return Resultado.ERROR;
+    }
+
+    private URI uri(String ruta) {
+        return URI.create("http://localhost:" + puerto + ruta);
+    }
+
+    private static Map<String, Integer> leerMix(String mix) {
+        Map<String, Integer> pesos = new LinkedHashMap<>();
+        for (String parte : mix.split(",")) {
+            String[] claveValor = parte.trim().split("=");
+            int peso = Integer.parseInt(claveValor[1].trim());
+            if (peso > 0) {
+                pesos.put(claveValor[0].trim(), peso);
+            }
+        }
+        return pesos;
+    }
+
+    private static String elegir(String[] escenarios, int[] pesosAcumulados, int sorteo) {
+        for (int i = 0; i < escenarios.length; i++) {
+            if (sorteo < pesosAcumulados[i]) {
+                return escenarios[i];
+            }
+        }
+        return escenarios[escenarios.length - 1];
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        int indice = (int) Math.ceil(p * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, indice)] / 1e6;
+    }
+
+    /** Rango k (0..n-1) con probabilidad proporcional a 1 / (k+1)^s. */
+    private static final class Zipf {
+
+        private final double[] acumulada;
+
+        private Zipf(int n, double s) {
+            acumulada = new double[n];
+            double suma = 0;
+            for (int k = 0; k < n; k++) {
+                suma += 1 / Math.pow(k + 1, s);
+                acumulada[k] = suma;
+            }
+            for (int k = 0; k < n; k++) {
+                acumulada[k] /= suma;
+            }
+        }
+
+        private int siguiente(Random aleatorio) {
+            int indice = Arrays.binarySearch(acumulada, aleatorio.nextDouble());
+            return Math.min(indice >= 0 ? indice : -indice - 1, acumulada.length - 1);
+        }
+    }
+
+    private static final class Medicion {
+
+        private final long[] latencias;
+        private final AtomicInteger cantidad = new AtomicInteger();
+        private final Map<Resultado, AtomicInteger> resultados = new ConcurrentHashMap<>();
+
+        private Medicion(int capacidad) {
+            latencias = new long[capacidad];
+        }
+
+        private void registrar(long nanos, Resultado resultado) {
+            latencias[cantidad.getAndIncrement()] = nanos;
+            resultados.computeIfAbsent(resultado, clave -> new AtomicInteger()).incrementAndGet();
+        }
+
+        private int contar(Resultado resultado) {
+            AtomicInteger contador = resultados.get(resultado);
+            return contador == null ? 0 : contador.get();
+        }
+    }
+
+    private static final class Sobreventa {
+        private int unidades;
+        private int inconsistencias;
+        private int agotados;
+    }
+
+    @TestConfiguration
+    static class Configuracion {
+
+        /** Marca el hilo de la request con el escenario que envía el cliente de carga. */
+        @Bean
+        OncePerRequestFilter escenarioDeCarga() {
+            return new OncePerRequestFilter() {
+                @Override
+                protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                        throws ServletException, IOException {
+                    String escenario = request.getHeader(ESCENARIO);
+                    if (escenario == null) {
+                        chain.doFilter(request, response);
+                        return;
+                    }
+                    ContadorSentencias.marcar(escenario);
+                    try {
+                        chain.doFilter(request, response);
+                    } finally {
+                        ContadorSentencias.desmarcar();
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.techlab.ecommerce.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ControlAdmisionFilterTest {
+
+    @Test
+    void rechazaCon503MientrasNoHayPermisosYVuelveAAdmitirAlLiberarse() throws Exception {
+        ControlAdmisionFilter filtro = crearFiltro(1);
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch salir = new CountDownLatch(1);
+
+        CompletableFuture<Void> lenta = CompletableFuture.runAsync(() -> {
+            try {
+                filtro.doFilter(request("/api/pedidos"), new MockHttpServletResponse(), (req, res) -> {
+                    dentro.countDown();
+                    try {
+                        salir.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(dentro.await(10, TimeUnit.SECONDS));
+        assertEquals(1, filtro.enCurso());
+
+        MockHttpServletResponse rechazada = new MockHttpServletResponse();
+        filtro.doFilter(request("/api/productos"), rechazada, (req, res) -> fail("no debía admitirse"));
+        assertEquals(503, rechazada.getStatus());
+        assertEquals("1", rechazada.getHeader("Retry-After"));
+        assertTrue(rechazada.getContentAsString().contains("Servicio saturado"));
+        assertEquals(1, filtro.rechazadas());
+
+        // fuera de /api no se limita
+        MockHttpServletResponse otra = new MockHttpServletResponse();
+        filtro.doFilter(request("/actuator/health"), otra, (req, res) -> ((MockHttpServletResponse) res).setStatus(200));
+        assertEquals(200, otra.getStatus());
+
+        salir.countDown();
+        lenta.get(10, TimeUnit.SECONDS);
+        assertEquals(0, filtro.enCurso());
+
+        MockHttpServletResponse admitida = new MockHttpServletResponse();
+        filtro.doFilter(request("/api/productos"), admitida, (req, res) -> ((MockHttpServletResponse) res).setStatus(200));
+        assertEquals(200, admitida.getStatus());
+    }
+
+    @Test
+    void lasExportacionesUsanSuCupoYLasExentasNoPidenPermiso() throws Exception {
+        ControlAdmisionFilter filtro = crearFiltro(1);
+        ReflectionTestUtils.setField(filtro, "exenciones",
+                List.<ExencionAdmision>of(request -> request.getRequestURI().equals("/api/productos/sugerir")));
+
+        // una exportación asíncrona en curso retiene solo el permiso de streams
+        MockHttpServletRequest exportacion = request("/api/productos/stream");
+        exportacion.setAsyncSupported(true);
+        filtro.doFilter(exportacion, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+        assertEquals(1, filtro.exportacionesEnCurso());
+        assertEquals(0, filtro.enCurso());
+
+        MockHttpServletResponse otraExportacion = new MockHttpServletResponse();
+        filtro.doFilter(request("/api/pedidos/stream"), otraExportacion, (req, res) -> fail("no debía admitirse"));
+        assertEquals(503, otraExportacion.getStatus());
+
+        MockHttpServletResponse corta = new MockHttpServletResponse();
+        filtro.doFilter(request("/api/pedidos"), corta, (req, res) -> {
+            assertEquals(1, filtro.enCurso());
+            ((MockHttpServletResponse) res).setStatus(200);
+        });
+        assertEquals(200, corta.getStatus());
+
+        MockHttpServletResponse exenta = new MockHttpServletResponse();
+        filtro.doFilter(request("/api/productos/sugerir"), exenta, (req, res) -> {
+            assertEquals(0, filtro.enCurso());
+            ((MockHttpServletResponse) res).setStatus(200);
+        });
+        assertEquals(200, exenta.getStatus());
+
+        exportacion.getAsyncContext().complete();
+        assertEquals(0, filtro.exportacionesEnCurso());
+    }
+
+    private ControlAdmisionFilter crearFiltro(int permisos) throws Exception {
+        ControlAdmisionFilter filtro = new ControlAdmisionFilter();
+        ReflectionTestUtils.setField(filtro, "objectMapper", JsonMapper.builder().build());
+        ReflectionTestUtils.setField(filtro, "habilitado", true);
+        ReflectionTestUtils.setField(filtro, "permisosConfigurados", permisos);
+        ReflectionTestUtils.setField(filtro, "permisosStreams", 1);
+        ReflectionTestUtils.setField(filtro, "esperaMs", 0L);
+        ReflectionTestUtils.setField(filtro, "retryAfterSegundos", 1);
+        filtro.afterPropertiesSet();
+        return filtro;
+    }
+
+    private MockHttpServletRequest request(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRequestURI(uri);
+        return request;
+    }
+}
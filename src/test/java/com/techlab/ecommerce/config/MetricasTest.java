@@ -0,0 +1,89 @@
+package com.techlab.ecommerce.config;
+
+import com.techlab.ecommerce.model.Pedido;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.repository.ProductoRepository;
+import com.techlab.ecommerce.service.PedidoService;
+import com.techlab.ecommerce.service.ProductoService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:metricas;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000")
+@AutoConfigureMockMvc
+class MetricasTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Test
+    void losTimersDeServiciosYRepositoriosEstanRegistradosAntesDeLaPrimeraLlamada() {
+        Timer confirmar = timer(MetodosMedidos.SERVICIO, "PedidoService", "confirmarPedido", "ok");
+        Timer derivada = timer(MetodosMedidos.REPOSITORIO, "ProductoRepository", "findByPrecioCentavosBetween", "ok");
+        long confirmados = confirmar.count();
+        long consultas = derivada.count();
+
+        Producto yerba = productoService.agregarProducto(new Producto(null, "Yerba métrica", null, 10.0, "almacen", null, 5, true));
+        Pedido pedido = pedidoService.crearPedidoVacio("Métrica");
+        pedidoService.agregarProductoAlPedido(pedido.getId(), yerba.getId(), 2);
+        pedidoService.confirmarPedido(pedido.getId());
+        productoRepository.findByPrecioCentavosBetween(900, 1_100);
+        assertThrows(RuntimeException.class, () -> pedidoService.confirmarPedido(pedido.getId()));
+
+        assertEquals(confirmados + 1, confirmar.count());
+        assertEquals(consultas + 1, derivada.count());
+        assertTrue(timer(MetodosMedidos.SERVICIO, "PedidoService", "confirmarPedido", "error").count() >= 1);
+        assertNotNull(meterRegistry.find(MetodosMedidos.REPOSITORIO)
+                .tags("clase", "StockRepository", "metodo", "descontar").timer());
+    }
+
+    @Test
+    void cuentaLasExcepcionesPorTipoYLasExponeParaPrometheus() throws Exception {
+        Producto taza = productoService.agregarProducto(new Producto(null, "Taza métrica", null, 10.0, "bazar", null, 1, true));
+        Pedido pedido = pedidoService.crearPedidoVacio("Métrica");
+        double antes = meterRegistry.get("ecommerce.excepciones").tag("tipo", "StockInsuficienteException").counter().count();
+
+        mockMvc.perform(post("/api/pedidos/" + pedido.getId() + "/agregar-producto")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"productoId\":" + taza.getId() + ",\"cantidad\":3}"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(antes + 1, meterRegistry.get("ecommerce.excepciones").tag("tipo", "StockInsuficienteException").counter().count());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("ecommerce_servicio_metodo_seconds_bucket{")))
+                .andExpect(content().string(containsString("ecommerce_excepciones_total{")))
+                .andExpect(content().string(containsString("ecommerce_admision_capacidad")))
+                .andExpect(content().string(containsString("hikaricp_connections_active")))
+                .andExpect(content().string(containsString("cache_gets_total{")));
+    }
+
+    private Timer timer(String metrica, String clase, String metodo, String resultado) {
+        return meterRegistry.get(metrica).tags("clase", clase, "metodo", metodo, "resultado", resultado).timer();
+    }
+}
@@ -0,0 +1,91 @@
+package com.techlab.ecommerce.config;
+
+import com.techlab.ecommerce.EcommerceApplication;
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.model.Pedido;
+import com.techlab.ecommerce.service.PedidoService;
+import com.techlab.ecommerce.service.ProductoService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Actualiza una base creada por la versión inicial de la aplicación (ddl-auto=update) con las
+ * migraciones de Flyway y arranca la aplicación con ddl-auto=validate sobre ella.
+ *
+ * Necesita un PostgreSQL descartable; borra y vuelve a crear el esquema {@code migraciones}:
+ * {@code mvn test -Dtest=MigracionesPostgresTest -Dmigraciones.url=jdbc:postgresql://localhost:5432/prueba
+ * -Dmigraciones.usuario=postgres -Dmigraciones.clave=postgres}
+ */
+@EnabledIfSystemProperty(named = "migraciones.url", matches = ".+")
+class MigracionesPostgresTest {
+
+    private static final String ESQUEMA = "migraciones";
+
+    @Test
+    void unaBaseDeLaVersionInicialMigraYArrancaConValidate() throws Exception {
+        String url = System.getProperty("migraciones.url");
+        String usuario = System.getProperty("migraciones.usuario", "postgres");
+        String clave = System.getProperty("migraciones.clave", "");
+
+        JdbcTemplate admin = new JdbcTemplate(new DriverManagerDataSource(url, usuario, clave));
+        admin.execute("drop schema if exists " + ESQUEMA + " cascade");
+        admin.execute("create schema " + ESQUEMA);
+
+        // public queda en el search_path por pg_trgm
+        String urlEsquema = url + (url.contains("?") ? "&" : "?") + "currentSchema=" + ESQUEMA + ",public";
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(urlEsquema, usuario, clave);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        // V1 es el esquema que dejaba la versión inicial; la base existente tiene datos y un hueco en los ids
+        try (Connection conexion = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(conexion, new ClassPathResource("db/migration/postgresql/V1__esquema_inicial.sql"));
+        }
+        jdbc.update("insert into productos (nombre, precio, categoria, stock, disponible) values ('Mate', 10.5, 'bazar', 20, true)");
+        jdbc.update("insert into pedidos (fecha, estado, cliente_nombre) values (now(), 'pendiente', 'Ana')");
+        jdbc.update("insert into pedidos (id, fecha, estado, cliente_nombre) values (120, now(), 'confirmado', 'Luis')");
+        jdbc.update("insert into lineas_pedido (pedido_id, producto_id, cantidad, precio_unitario) values (1, 1, 2, 10.5)");
+        jdbc.update("insert into lineas_pedido (id, pedido_id, producto_id, cantidad, precio_unitario) values (75, 120, 1, 1, 10.5)");
+
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(EcommerceApplication.class).run(
+                "--spring.datasource.url=" + urlEsquema,
+                "--spring.datasource.username=" + usuario,
+                "--spring.datasource.password=" + clave,
+                "--spring.flyway.enabled=true",
+                "--spring.flyway.locations=classpath:db/migration/{vendor}",
+                "--spring.flyway.baseline-on-migrate=true",
+                "--spring.flyway.baseline-version=1",
+                "--spring.jpa.hibernate.ddl-auto=validate",
+                "--server.port=0")) {
+
+            List<String> versiones = jdbc.queryForList(
+                    "select version from flyway_schema_history order by installed_rank", String.class);
+            assertEquals(List.of("1", "1.1", "2", "3", "4", "5", "6", "7", "8"), versiones);
+
+            PedidoService pedidoService = contexto.getBean(PedidoService.class);
+            ProductoService productoService = contexto.getBean(ProductoService.class);
+
+            Pedido existente = pedidoService.obtenerPorId(120);
+            assertEquals(EstadoPedido.CONFIRMADO, existente.getEstado());
+            assertEquals(0L, existente.getVersion());
+            assertEquals(10.5, productoService.obtenerPorId(1).getPrecio());
+
+            Pedido nuevo = pedidoService.crearPedidoVacio("Nueva");
+            assertTrue(nuevo.getId() > 120, "id " + nuevo.getId());
+            pedidoService.agregarProductoAlPedido(nuevo.getId(), 1, 1);
+            Integer linea = jdbc.queryForObject(
+                    "select id from lineas_pedido where pedido_id = ?", Integer.class, nuevo.getId());
+            assertTrue(linea > 75, "linea " + linea);
+        }
+    }
+}
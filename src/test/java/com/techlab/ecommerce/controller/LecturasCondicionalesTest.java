@@ -0,0 +1,104 @@
+package com.techlab.ecommerce.controller;
+
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.service.InstantaneasCatalogo;
+import com.techlab.ecommerce.service.ProductoService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class LecturasCondicionalesTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private InstantaneasCatalogo instantaneasCatalogo;
+
+    @Autowired
+    private LecturasSinBase lecturasSinBase;
+
+    @Test
+    void elProductoSinCambiosResponde304SinIrALaBase() throws Exception {
+        Producto lampara = productoService.agregarProducto(
+                new Producto(null, "Lámpara condicional", null, 80.0, "condicionales", null, 3, true));
+        String url = "/api/productos/" + lampara.getId();
+
+        String etag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        assertFalse(etag.startsWith("W/"));
+
+        // que la regeneración de instantáneas no consulte la base durante la medición
+        instantaneasCatalogo.regenerar();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        assertEquals(0, statistics.getPrepareStatementCount());
+        // por eso el control de admisión la deja pasar sin permiso
+        assertTrue(lecturasSinBase.exenta(get(url).header(HttpHeaders.IF_NONE_MATCH, etag).buildRequest(null)));
+        assertFalse(lecturasSinBase.exenta(get(url).header(HttpHeaders.IF_NONE_MATCH, "\"otro\"").buildRequest(null)));
+
+        productoService.actualizarPrecio(lampara.getId(), 95.0);
+        String nuevo = mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, nuevo);
+    }
+
+    @Test
+    void losListadosCambianDeEtagConCualquierCambioDelCatalogo() throws Exception {
+        productoService.agregarProducto(new Producto(null, "Velador condicional", null, 40.0, "condicionales", null, 5, true));
+        String url = "/api/productos/categoria/condicionales";
+
+        String etag = mockMvc.perform(get(url)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/productos").header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+
+        Producto otro = productoService.agregarProducto(
+                new Producto(null, "Aplique condicional", null, 60.0, "otras", null, 1, true));
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isOk());
+
+        productoService.reducirStock(otro.getId(), 1);
+        String trasVenta = mockMvc.perform(get("/api/productos")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/productos").header(HttpHeaders.IF_NONE_MATCH, trasVenta))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void respetaLasPreferenciasDeCodificacion() {
+        assertTrue(RespuestaCondicional.aceptaGzip("gzip, deflate"));
+        assertTrue(RespuestaCondicional.aceptaGzip("br;q=1.0, gzip;q=0.8"));
+        assertTrue(RespuestaCondicional.aceptaGzip("*"));
+        assertFalse(RespuestaCondicional.aceptaGzip("gzip;q=0"));
+        assertFalse(RespuestaCondicional.aceptaGzip("identity"));
+        assertFalse(RespuestaCondicional.aceptaGzip(null));
+    }
+}
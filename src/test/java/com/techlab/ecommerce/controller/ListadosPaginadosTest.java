@@ -0,0 +1,162 @@
+package com.techlab.ecommerce.controller;
+
+import com.techlab.ecommerce.dto.Pagina;
+import com.techlab.ecommerce.dto.PedidoRespuesta;
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.model.LineaPedido;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.repository.PedidoRepository;
+import com.techlab.ecommerce.repository.ProductoRepository;
+import com.techlab.ecommerce.service.PedidoService;
+import com.techlab.ecommerce.service.ProductoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:listados;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "ecommerce.listados.maximo=5"})
+@AutoConfigureMockMvc
+class ListadosPaginadosTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void recorrerProductosPorCursorDevuelveCadaUnoUnaVez() {
+        crearProductos(25);
+
+        Set<Integer> vistos = new HashSet<>();
+        String cursor = null;
+        int paginas = 0;
+        do {
+            Pagina<Producto> pagina = productoService.listarPagina(cursor, 7);
+            for (Producto producto : pagina.items()) {
+                assertTrue(vistos.add(producto.getId()));
+            }
+            cursor = pagina.siguienteCursor();
+            paginas++;
+        } while (cursor != null);
+
+        assertEquals(productoRepository.count(), vistos.size());
+        assertTrue(paginas > 1);
+    }
+
+    @Test
+    void recorrerPedidosPorFechaRespetaElOrden() {
+        Producto producto = crearProductos(1).get(0);
+        for (int i = 0; i < 12; i++) {
+            ArrayList<LineaPedido> lineas = new ArrayList<>();
+            lineas.add(new LineaPedido(producto, 1));
+            pedidoService.crearPedido("Cliente " + i, lineas);
+        }
+
+        List<PedidoRespuesta> recorridos = new ArrayList<>();
+        String cursor = null;
+        do {
+            Pagina<PedidoRespuesta> pagina = pedidoService.listarPaginaPorFecha(cursor, 5);
+            recorridos.addAll(pagina.items());
+            cursor = pagina.siguienteCursor();
+        } while (cursor != null);
+
+        for (int i = 1; i < recorridos.size(); i++) {
+            PedidoRespuesta anterior = recorridos.get(i - 1);
+            PedidoRespuesta actual = recorridos.get(i);
+            assertFalse(actual.fecha().isBefore(anterior.fecha()));
+        }
+        assertEquals(pedidoRepository.count(), recorridos.size());
+    }
+
+    @Test
+    void losListadosSinCursorDevuelvenUnaPaginaYEnlazanLaSiguiente() throws Exception {
+        Producto producto = crearProductos(12).get(0);
+        for (int i = 0; i < 7; i++) {
+            ArrayList<LineaPedido> lineas = new ArrayList<>();
+            lineas.add(new LineaPedido(producto, 1));
+            pedidoService.crearPedido("Enlazado " + i, lineas);
+        }
+
+        assertEquals(productoRepository.count(), recorrerEnlaces("/api/productos"));
+        assertEquals(pedidoRepository.count(), recorrerEnlaces("/api/pedidos"));
+        assertEquals(pedidoRepository.countByEstado(EstadoPedido.PENDIENTE), recorrerEnlaces("/api/pedidos/estado/pendiente"));
+    }
+
+    @Test
+    void cursorInvalidoEsUnError() {
+        assertThrows(IllegalArgumentException.class, () -> productoService.listarPagina("%%%", 10));
+    }
+
+    @Test
+    void exportacionNdjsonEscribeUnaLineaPorProducto() throws Exception {
+        crearProductos(30);
+
+        MvcResult resultado = mockMvc.perform(get("/api/productos/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        resultado.getAsyncResult();
+
+        String[] lineas = resultado.getResponse().getContentAsString().split("\n");
+        assertEquals(productoRepository.count(), lineas.length);
+        assertTrue(lineas[0].startsWith("{"));
+    }
+
+    /**
+     * Sigue los encabezados Link desde {@code url} y devuelve cuántos elementos distintos recorrió.
+     */
+    private long recorrerEnlaces(String url) throws Exception {
+        Set<Integer> vistos = new HashSet<>();
+        String siguiente = url;
+        while (siguiente != null) {
+            MvcResult resultado = mockMvc.perform(get(siguiente)).andReturn();
+            List<Map<String, Object>> pagina = objectMapper.readValue(
+                    resultado.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertTrue(pagina.size() <= 5);
+            for (Map<String, Object> elemento : pagina) {
+                assertTrue(vistos.add((Integer) elemento.get("id")));
+            }
+            String link = resultado.getResponse().getHeader(HttpHeaders.LINK);
+            siguiente = link == null ? null : link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+        }
+        return vistos.size();
+    }
+
+    private List<Producto> crearProductos(int cantidad) {
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            productos.add(productoService.agregarProducto(
+                    new Producto(null, "Listado " + i, null, 10.0, "listados", null, 50, true)));
+        }
+        return productos;
+    }
+}
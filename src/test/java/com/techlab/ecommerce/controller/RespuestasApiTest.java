@@ -0,0 +1,63 @@
+package com.techlab.ecommerce.controller;
+
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.service.ProductoService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class RespuestasApiTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Test
+    void elPedidoSeDevuelveConLineasPlanasYSinElGrafoDelProducto() throws Exception {
+        Producto termo = productoService.agregarProducto(
+                new Producto(null, "Termo respuesta", "Acero", 50.0, "bazar", null, 10, true));
+
+        String cuerpo = "{\"clienteNombre\":\"Lía\",\"productos\":[{\"productoId\":" + termo.getId() + ",\"cantidad\":2}]}";
+        mockMvc.perform(post("/api/pedidos/crear-completo").contentType(MediaType.APPLICATION_JSON).content(cuerpo))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.clienteNombre").value("Lía"))
+                .andExpect(jsonPath("$.total").value(closeTo(100.0, 0.001)))
+                .andExpect(jsonPath("$.lineas[0].productoId").value(termo.getId()))
+                .andExpect(jsonPath("$.lineas[0].productoNombre").value("Termo respuesta"))
+                .andExpect(jsonPath("$.lineas[0].producto").doesNotExist())
+                .andExpect(jsonPath("$.version").doesNotExist());
+
+        String inexistente = "{\"clienteNombre\":\"Lía\",\"productos\":[{\"productoId\":-1,\"cantidad\":1}]}";
+        mockMvc.perform(post("/api/pedidos/crear-completo").contentType(MediaType.APPLICATION_JSON).content(inexistente))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void laActualizacionParcialConservaLosCamposAusentes() throws Exception {
+        Producto mate = productoService.agregarProducto(
+                new Producto(null, "Mate respuesta", "Calabaza", 30.0, "bazar", null, 4, true));
+
+        mockMvc.perform(put("/api/productos/" + mate.getId()).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nombre\":\"Mate imperial\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nombre").value("Mate imperial"))
+                .andExpect(jsonPath("$.precio").value(closeTo(30.0, 0.001)))
+                .andExpect(jsonPath("$.stock").value(4));
+
+        mockMvc.perform(patch("/api/productos/" + mate.getId() + "/precio").contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,75 @@
+package com.techlab.ecommerce.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MontosTest {
+
+    @Test
+    void sumarUnMillonDeLineasEsExactoEnCentavos() {
+        Producto chicle = new Producto(1, "Chicle", null, 0.10, "kiosco", null, 1, true);
+        LineaPedido linea = new LineaPedido(chicle, 1);
+
+        long centavos = 0;
+        double unidades = 0.0;
+        for (int i = 0; i < 1_000_000; i++) {
+            centavos = Montos.sumar(centavos, linea.calcularSubtotalCentavos());
+            unidades = unidades + 0.10;
+        }
+
+        assertEquals(10_000_000, centavos);
+        assertEquals("100000.00", Montos.formatear(centavos));
+        // el camino anterior en double ya no da un monto exacto
+        assertNotEquals(100_000.0, unidades);
+    }
+
+    @Test
+    void dividirRedondeaIgualQueBigDecimal() {
+        long[] dividendos = {0, 1, 5, 15, 25, 149, 150, 151, -1, -5, -15, -25, -150, 1_000_005, -1_000_005};
+        long[] divisores = {10, 100, -10, 3, 7};
+        for (RoundingMode modo : RoundingMode.values()) {
+            if (modo == RoundingMode.UNNECESSARY) {
+                continue;
+            }
+            for (long dividendo : dividendos) {
+                for (long divisor : divisores) {
+                    long esperado = BigDecimal.valueOf(dividendo)
+                            .divide(BigDecimal.valueOf(divisor), 0, modo).longValueExact();
+                    assertEquals(esperado, Montos.dividir(dividendo, divisor, modo),
+                            dividendo + " / " + divisor + " " + modo);
+                }
+            }
+        }
+        assertThrows(ArithmeticException.class, () -> Montos.dividir(5, 10, RoundingMode.UNNECESSARY));
+        assertEquals(2, Montos.dividir(20, 10, RoundingMode.UNNECESSARY));
+    }
+
+    @Test
+    void convierteYAplicaDescuentosConElRedondeoPedido() {
+        assertEquals(101, Montos.desde(1.005, RoundingMode.HALF_UP));
+        assertEquals(100, Montos.desde(1.005, RoundingMode.HALF_EVEN));
+        assertEquals(1999, Montos.desde(19.99, RoundingMode.UNNECESSARY));
+        assertThrows(ArithmeticException.class, () -> Montos.desde(Double.NaN, Montos.REDONDEO));
+        assertEquals(1999, Montos.desdeExacto(Montos.aDouble(1999)));
+
+        Pedido pedido = new Pedido();
+        pedido.agregarLinea(new LineaPedido(new Producto(1, "Mate", null, 3.35, "bazar", null, 10, true), 3));
+        assertEquals(1005, pedido.calcularTotalCentavos());
+        // 12.5% de 10.05 = 1.25625
+        assertEquals(1005 - 126, pedido.calcularTotalConDescuentoCentavos(12.5, RoundingMode.HALF_EVEN));
+        assertEquals(1005 - 125, pedido.calcularTotalConDescuentoCentavos(12.5, RoundingMode.DOWN));
+        assertEquals(8.79, pedido.calcularTotalConDescuento(12.5));
+
+        assertThrows(ArithmeticException.class, () -> Montos.multiplicar(Long.MAX_VALUE / 2, 3));
+        // fuera de NUMERIC(12, 2) no hay monto: así un subtotal nunca desborda
+        assertThrows(ArithmeticException.class, () -> Montos.desde(new BigDecimal("10000000000.00"), RoundingMode.UNNECESSARY));
+        assertEquals(Montos.MAXIMO * Montos.CANTIDAD_MAXIMA, Montos.multiplicar(Montos.MAXIMO, Montos.CANTIDAD_MAXIMA));
+        // una suma de montos sí puede pasar el rango de la columna
+        assertEquals(1_000_000_000_000_00L, Montos.desdeSuma(new BigDecimal("1000000000000.00")));
+        assertThrows(ArithmeticException.class, () -> Montos.desdeSuma(new BigDecimal("0.005")));
+    }
+}
@@ -0,0 +1,91 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.exception.ConflictoConcurrenciaException;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.repository.ProductoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// con 8 hilos sobre una sola fila los 5 intentos por defecto pueden no alcanzar
+@SpringBootTest(properties = "ecommerce.reintentos.maximo=" + BloqueoOptimistaTest.INTENTOS)
+class BloqueoOptimistaTest {
+
+    static final int INTENTOS = 30;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private Reintentos reintentos;
+
+    @Test
+    void cambiosDePrecioConcurrentesNoPisanLosDescuentosDeStock() throws Exception {
+        Producto producto = productoService.agregarProducto(
+                new Producto(null, "Cafetera versionada", null, 100.0, "cocina", null, 1000, true));
+        int id = producto.getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int hilo = 0; hilo < 8; hilo++) {
+                boolean cambiaPrecio = hilo % 2 == 0;
+                tareas.add(executor.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        if (cambiaPrecio) {
+                            productoService.actualizarPrecio(id, 100.0 + i);
+                        } else {
+                            productoService.reducirStock(id, 1);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Producto actual = productoRepository.findById(id).orElseThrow();
+        assertEquals(1000 - 4 * 25, actual.getStock());
+        assertTrue(actual.getVersion() > producto.getVersion());
+    }
+
+    @Test
+    void reintentaLosConflictosYCuentaLosAgotados() {
+        AtomicInteger intentos = new AtomicInteger();
+        String resultado = reintentos.enTransaccion("prueba-reintento", () -> {
+            if (intentos.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException(Producto.class, 1);
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", resultado);
+        assertEquals(2L, reintentos.obtenerEstadisticas().get("prueba-reintento").get("reintentos"));
+
+        ConflictoConcurrenciaException error = assertThrows(ConflictoConcurrenciaException.class,
+                () -> reintentos.enTransaccion("prueba-agotado", () -> {
+                    throw new ObjectOptimisticLockingFailureException(Producto.class, 1);
+                }));
+        assertEquals(INTENTOS, error.getIntentos());
+        assertEquals(1L, reintentos.obtenerEstadisticas().get("prueba-agotado").get("agotados"));
+        assertEquals((long) INTENTOS, reintentos.obtenerEstadisticas().get("prueba-agotado").get("conflictos"));
+    }
+}
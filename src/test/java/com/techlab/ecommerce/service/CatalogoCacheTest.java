@@ -0,0 +1,128 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.config.CacheConfig;
+import com.techlab.ecommerce.model.Producto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:catalogo-cache;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "ecommerce.catalogo.stock.intervalo-ms=3600000"})
+class CatalogoCacheTest {
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private RevisionCatalogo revisionCatalogo;
+
+    @Test
+    void lecturasRepetidasSeSirvenDesdeLaCache() {
+        Producto producto = productoService.agregarProducto(nuevoProducto("Taza", "cocina", 5));
+
+        Producto primera = productoService.obtenerPorId(producto.getId());
+        Producto segunda = productoService.obtenerPorId(producto.getId());
+
+        assertEquals(primera, segunda);
+        assertTrue(aciertos("productos") >= 1);
+
+        // cada lectura recibe su copia: modificarla no cambia la cache
+        segunda.setNombre("Taza rota");
+        segunda.setStock(0);
+        assertEquals("Taza", productoService.obtenerPorId(producto.getId()).getNombre());
+        assertEquals(5, productoService.obtenerPorId(producto.getId()).getStock());
+        productoService.filtrarPorCategoria("cocina").get(0).setPrecio(1.0);
+        assertEquals(100.0, productoService.filtrarPorCategoria("cocina").get(0).getPrecio());
+    }
+
+    @Test
+    void unaCargaQueEmpezoAntesDeUnCambioNoVuelveALlenarLaCache() {
+        Producto producto = productoService.agregarProducto(nuevoProducto("Jarra", "vajilla", 5));
+
+        // la carga lee el producto, el cambio se confirma e invalida, recién después la carga guarda
+        Producto leido = catalogoCache.producto(producto.getId(), () -> {
+            Producto viejo = productoService.obtenerPorIds(List.of(producto.getId())).get(producto.getId());
+            productoService.actualizarPrecio(producto.getId(), 300.0);
+            return viejo;
+        });
+        assertEquals(100.0, leido.getPrecio());
+        assertEquals(300.0, productoService.obtenerPorId(producto.getId()).getPrecio());
+
+        List<Producto> vajilla = catalogoCache.consulta(CacheConfig.PRODUCTOS_POR_CATEGORIA, "vajilla", () -> {
+            List<Producto> viejos = List.copyOf(productoService.obtenerPorIds(List.of(producto.getId())).values());
+            productoService.reducirStock(producto.getId(), 2);
+            return viejos;
+        });
+        assertEquals(5, vajilla.get(0).getStock());
+        assertEquals(3, productoService.filtrarPorCategoria("vajilla").get(0).getStock());
+    }
+
+    @Test
+    void lasEscriturasInvalidanEntidadYListasDeSuCategoria() {
+        Producto producto = productoService.agregarProducto(nuevoProducto("Sartén", "cocina-pro", 5));
+        Producto otro = productoService.agregarProducto(nuevoProducto("Mate", "regionales", 5));
+
+        productoService.obtenerPorId(producto.getId());
+        List<Producto> cocina = productoService.filtrarPorCategoria("cocina-pro");
+        List<Producto> regionales = productoService.filtrarPorCategoria("regionales");
+        assertEquals(5, cocina.get(0).getStock());
+
+        productoService.reducirStock(producto.getId(), 2);
+
+        assertEquals(3, productoService.obtenerPorId(producto.getId()).getStock());
+        assertEquals(3, productoService.filtrarPorCategoria("cocina-pro").get(0).getStock());
+        long aciertosRegionales = aciertos("productosPorCategoria");
+        assertEquals(regionales, productoService.filtrarPorCategoria("regionales"));
+        assertEquals(aciertosRegionales + 1, aciertos("productosPorCategoria"));
+
+        productoService.actualizarPrecio(otro.getId(), 250.0);
+        assertEquals(250.0, productoService.filtrarPorCategoria("regionales").get(0).getPrecio());
+
+        productoService.eliminarProducto(producto.getId());
+        assertNull(productoService.obtenerPorId(producto.getId()));
+        assertTrue(productoService.filtrarPorCategoria("cocina-pro").isEmpty());
+    }
+
+    @Test
+    void lasVentasCambianElProductoEnseguidaYLosListadosUnaVezPorIntervalo() {
+        Producto producto = productoService.agregarProducto(nuevoProducto("Pava", "ventas", 10));
+        catalogoCache.publicarStock();
+        long revision = revisionCatalogo.actual();
+        String etag = revisionCatalogo.delProducto(producto.getId()).etag();
+
+        for (int i = 0; i < 3; i++) {
+            productoService.reducirStock(producto.getId(), 1);
+        }
+        assertEquals(revision, revisionCatalogo.actual());
+        assertNotEquals(etag, revisionCatalogo.delProducto(producto.getId()).etag());
+        assertEquals(7, productoService.obtenerPorId(producto.getId()).getStock());
+
+        catalogoCache.publicarStock();
+        catalogoCache.publicarStock();
+        assertEquals(revision + 1, revisionCatalogo.actual());
+    }
+
+    @SuppressWarnings("unchecked")
+    private long aciertos(String cache) {
+        Map<String, Object> detalle = (Map<String, Object>) catalogoCache.obtenerEstadisticas().get(cache);
+        return (long) detalle.get("aciertos");
+    }
+
+    private Producto nuevoProducto(String nombre, String categoria, int stock) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setPrecio(100.0);
+        producto.setCategoria(categoria);
+        producto.setStock(stock);
+        return producto;
+    }
+}
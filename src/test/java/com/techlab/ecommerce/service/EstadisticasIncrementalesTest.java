@@ -0,0 +1,153 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.event.PedidoModificadoEvent;
+import com.techlab.ecommerce.event.StockDescontadoEvent;
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.model.LineaPedido;
+import com.techlab.ecommerce.model.Pedido;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.repository.PedidoRepository;
+import com.techlab.ecommerce.repository.ProductoRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class EstadisticasIncrementalesTest {
+
+    @Autowired
+    private EstadisticasIncrementales estadisticas;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Test
+    void lasActualizacionesIncrementalesCoincidenConUnaReconstruccion() {
+        estadisticas.reconstruir();
+
+        Producto lapiz = productoService.agregarProducto(nuevoProducto("Lápiz", "librería", 40, 3.5));
+        Producto cuaderno = productoService.agregarProducto(nuevoProducto("Cuaderno", "librería", 12, 9.0));
+        Producto regla = productoService.agregarProducto(nuevoProducto("Regla", "geometría", 5, 2.0));
+        Producto compas = productoService.agregarProducto(nuevoProducto("Compás", "geometría", 7, 15.0));
+
+        productoService.actualizarPrecio(cuaderno.getId(), 11.0);
+        productoService.actualizarStock(regla.getId(), 8);
+
+        Pedido confirmado = crearPedido(lapiz, 30, cuaderno, 3);
+        pedidoService.confirmarPedido(confirmado.getId());
+        Pedido cancelado = crearPedido(regla, 1, lapiz, 1);
+        pedidoService.cancelarPedido(cancelado.getId());
+        Pedido vacio = pedidoService.crearPedidoVacio("Sin lineas");
+        pedidoService.agregarProductoAlPedido(vacio.getId(), regla.getId(), 2);
+        productoService.eliminarProducto(compas.getId());
+
+        EstadisticasIncrementales.Estadisticas incrementales = estadisticas.obtener();
+        estadisticas.reconstruir();
+        EstadisticasIncrementales.Estadisticas recalculadas = estadisticas.obtener();
+
+        assertEquals(recalculadas.totalProductos(), incrementales.totalProductos());
+        assertEquals(recalculadas.productosDisponibles(), incrementales.productosDisponibles());
+        assertEquals(recalculadas.valorInventarioCentavos(), incrementales.valorInventarioCentavos());
+        assertEquals(recalculadas.productosPorCategoria(), incrementales.productosPorCategoria());
+        assertEquals(recalculadas.stockBajo(), incrementales.stockBajo());
+        assertEquals(recalculadas.pedidosPorEstado(), incrementales.pedidosPorEstado());
+        // en centavos los eventos suman exacto: no hace falta tolerancia
+        for (String estado : recalculadas.ventasPorEstadoCentavos().keySet()) {
+            assertEquals(recalculadas.ventasPorEstadoCentavos().get(estado),
+                    incrementales.ventasPorEstadoCentavos().getOrDefault(estado, 0L));
+        }
+        assertEquals(recalculadas.ventasPorDiaCentavos(), incrementales.ventasPorDiaCentavos());
+    }
+
+    @Test
+    void losEventosQueLleganDuranteLaReconstruccionNoSePierden() {
+        ProductoRepository productoRepository = mock(ProductoRepository.class);
+        PedidoRepository pedidoRepository = mock(PedidoRepository.class);
+        EstadisticasIncrementales enMemoria = new EstadisticasIncrementales();
+        ReflectionTestUtils.setField(enMemoria, "productoRepository", productoRepository);
+        ReflectionTestUtils.setField(enMemoria, "pedidoRepository", pedidoRepository);
+        ReflectionTestUtils.setField(enMemoria, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(enMemoria, "stockLedger", mock(StockLedger.class));
+        ReflectionTestUtils.setField(enMemoria, "habilitado", true);
+
+        ProductoRepository.ResumenProducto mate = mock(ProductoRepository.ResumenProducto.class);
+        when(mate.getId()).thenReturn(1);
+        when(mate.getPrecioCentavos()).thenReturn(1000L);
+        when(mate.getStock()).thenReturn(20);
+        when(mate.getCategoria()).thenReturn("bazar");
+        when(productoRepository.streamResumenes()).thenAnswer(invocacion -> Stream.of(mate));
+        when(pedidoRepository.resumirPorEstado()).thenReturn(List.of());
+        when(pedidoRepository.sumarVentasPorDia(any())).thenReturn(List.of());
+        enMemoria.reconstruir();
+
+        // una venta confirmada después de la instantánea que lee la reconstrucción
+        LocalDateTime hoy = LocalDateTime.now();
+        when(pedidoRepository.resumirPorEstado()).thenAnswer(invocacion -> {
+            enMemoria.stockDescontado(new StockDescontadoEvent(1, 3));
+            enMemoria.pedidoModificado(new PedidoModificadoEvent(PedidoModificadoEvent.Cambio.CREADO,
+                    9, hoy, null, 0, EstadoPedido.CONFIRMADO, 3000, null, null));
+            return List.of();
+        });
+        enMemoria.reconstruir();
+
+        EstadisticasIncrementales.Estadisticas resultado = enMemoria.obtener();
+        assertEquals(17 * 1000L, resultado.valorInventarioCentavos());
+        assertEquals(Map.of("confirmado", 1L), resultado.pedidosPorEstado());
+        assertEquals(Map.of(hoy.toLocalDate(), 3000L), resultado.ventasPorDiaCentavos());
+    }
+
+    @Test
+    void elLedgerSeVuelcaAntesDeLeerLaBase() {
+        ProductoRepository productoRepository = mock(ProductoRepository.class);
+        PedidoRepository pedidoRepository = mock(PedidoRepository.class);
+        StockLedger stockLedger = mock(StockLedger.class);
+        EstadisticasIncrementales enMemoria = new EstadisticasIncrementales();
+        ReflectionTestUtils.setField(enMemoria, "productoRepository", productoRepository);
+        ReflectionTestUtils.setField(enMemoria, "pedidoRepository", pedidoRepository);
+        ReflectionTestUtils.setField(enMemoria, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(enMemoria, "stockLedger", stockLedger);
+        when(productoRepository.streamResumenes()).thenAnswer(invocacion -> Stream.empty());
+        when(pedidoRepository.resumirPorEstado()).thenReturn(List.of());
+        when(pedidoRepository.sumarVentasPorDia(any())).thenReturn(List.of());
+
+        enMemoria.reconstruir();
+
+        InOrder orden = inOrder(stockLedger, productoRepository);
+        orden.verify(stockLedger).volcar();
+        orden.verify(productoRepository).streamResumenes();
+    }
+
+    private Pedido crearPedido(Producto primero, int cantidadPrimero, Producto segundo, int cantidadSegundo) {
+        ArrayList<LineaPedido> lineas = new ArrayList<>();
+        lineas.add(new LineaPedido(primero, cantidadPrimero));
+        lineas.add(new LineaPedido(segundo, cantidadSegundo));
+        return pedidoService.crearPedido("Cliente", lineas);
+    }
+
+    private Producto nuevoProducto(String nombre, String categoria, int stock, double precio) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setPrecio(precio);
+        producto.setCategoria(categoria);
+        producto.setStock(stock);
+        return producto;
+    }
+}
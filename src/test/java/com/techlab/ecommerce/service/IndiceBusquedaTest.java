@@ -0,0 +1,86 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.model.Producto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class IndiceBusquedaTest {
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Test
+    void encuentraSinAcentosPorPrefijoYConErroresDeTipeo() {
+        Producto licuadora = productoService.agregarProducto(
+                nuevoProducto("Licuadora Turbomix", "electrodomésticos", "Vaso de vidrio térmico", 30000.0, 4));
+        Producto vaso = productoService.agregarProducto(
+                nuevoProducto("Vaso Turbomix", "bazar", "Repuesto", 5000.0, 0));
+
+        assertEquals(List.of(licuadora.getId()), ids(productoService.buscar("licuadóra", null, null, null, false, 10)));
+        assertEquals(List.of(licuadora.getId()), ids(productoService.buscar("licua", null, null, null, false, 10)));
+        assertEquals(List.of(licuadora.getId()), ids(productoService.buscar("licuadroa", null, null, null, false, 10)));
+        assertEquals(List.of(licuadora.getId()), ids(productoService.buscar("termico turbomix", null, null, null, false, 10)));
+
+        // el nombre pesa más que la descripción
+        assertEquals(List.of(vaso.getId(), licuadora.getId()),
+                ids(productoService.buscar("vaso turbomix", null, null, null, false, 10)));
+    }
+
+    @Test
+    void aplicaFiltrosDeCategoriaPrecioYDisponibilidad() {
+        Producto barata = productoService.agregarProducto(
+                nuevoProducto("Lámpara Quasarluz", "iluminacion", null, 1000.0, 3));
+        Producto cara = productoService.agregarProducto(
+                nuevoProducto("Lámpara Quasarluz Deluxe", "iluminacion", null, 9000.0, 0));
+        productoService.agregarProducto(
+                nuevoProducto("Lámpara Quasarluz Jardín", "exterior", null, 2000.0, 5));
+
+        assertEquals(3, productoService.buscar("quasarluz", null, null, null, false, 10).size());
+        assertEquals(List.of(barata.getId()),
+                ids(productoService.buscar("quasarluz", "Iluminación", null, 5000.0, false, 10)));
+        assertEquals(List.of(cara.getId()),
+                ids(productoService.buscar("quasarluz", "iluminacion", 5000.0, null, false, 10)));
+        assertTrue(productoService.buscar("quasarluz deluxe", null, null, null, true, 10).isEmpty());
+        assertEquals(1, productoService.buscar("quasarluz", null, null, null, false, 1).size());
+    }
+
+    @Test
+    void seMantieneAlDiaConLasEscrituras() {
+        Producto producto = productoService.agregarProducto(
+                nuevoProducto("Termo Zafirón", "camping", null, 800.0, 2));
+
+        productoService.reducirStock(producto.getId(), 2);
+        assertTrue(productoService.buscar("zafiron", null, null, null, true, 10).isEmpty());
+
+        Producto cambios = new Producto();
+        cambios.setNombre("Termo Onixar");
+        cambios.setPrecio(0.0);
+        cambios.setStock(-1);
+        productoService.actualizarProducto(producto.getId(), cambios);
+        assertTrue(productoService.buscar("zafiron", null, null, null, false, 10).isEmpty());
+        assertEquals(List.of(producto.getId()), ids(productoService.buscarPorNombre("onixar")));
+
+        productoService.eliminarProducto(producto.getId());
+        assertTrue(productoService.buscar("onixar", null, null, null, false, 10).isEmpty());
+    }
+
+    private List<Integer> ids(List<Producto> productos) {
+        return productos.stream().map(Producto::getId).toList();
+    }
+
+    private Producto nuevoProducto(String nombre, String categoria, String descripcion, double precio, int stock) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setCategoria(categoria);
+        producto.setDescripcion(descripcion);
+        producto.setPrecio(precio);
+        producto.setStock(stock);
+        return producto;
+    }
+}
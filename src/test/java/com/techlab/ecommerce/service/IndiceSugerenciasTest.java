@@ -0,0 +1,67 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.dto.Sugerencia;
+import com.techlab.ecommerce.model.Producto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class IndiceSugerenciasTest {
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private IndiceSugerencias indiceSugerencias;
+
+    @Test
+    void sugiereLosDeMasStockPorPrefijoDeCualquierPalabra() {
+        Producto poco = productoService.agregarProducto(nuevoProducto("Auriculares Vórtexa", 2));
+        Producto mucho = productoService.agregarProducto(nuevoProducto("Parlante Vortexa Max", 80));
+        Producto medio = productoService.agregarProducto(nuevoProducto("Vortexa Mini", 10));
+
+        assertEquals(List.of(mucho.getId(), medio.getId(), poco.getId()), ids(productoService.sugerir("vórt", 10)));
+        assertEquals(List.of(mucho.getId(), medio.getId()), ids(productoService.sugerir("VORTEXA", 2)));
+        assertEquals(List.of(mucho.getId()), ids(productoService.sugerir("vortexa ma", 10)));
+        assertTrue(productoService.sugerir("ortexa", 10).isEmpty());
+
+        indiceSugerencias.compactar();
+        assertEquals(List.of(mucho.getId(), medio.getId(), poco.getId()), ids(productoService.sugerir("vort", 10)));
+        assertEquals("Auriculares Vórtexa", productoService.sugerir("auric", 10).get(0).nombre());
+    }
+
+    @Test
+    void seActualizaConLosCambiosDelCatalogoAntesYDespuesDeCompactar() {
+        Producto uno = productoService.agregarProducto(nuevoProducto("Mochila Quetzal", 50));
+        Producto dos = productoService.agregarProducto(nuevoProducto("Bolso Quetzal", 40));
+        indiceSugerencias.compactar();
+
+        productoService.reducirStock(uno.getId(), 45);
+        assertEquals(List.of(dos.getId(), uno.getId()), ids(productoService.sugerir("quetz", 10)));
+
+        productoService.eliminarProducto(dos.getId());
+        assertEquals(List.of(uno.getId()), ids(productoService.sugerir("quetz", 10)));
+
+        indiceSugerencias.compactar();
+        assertEquals(List.of(uno.getId()), ids(productoService.sugerir("quetz", 10)));
+        assertTrue(productoService.sugerir("bolso quetzal", 10).isEmpty());
+    }
+
+    private List<Integer> ids(List<Sugerencia> sugerencias) {
+        return sugerencias.stream().map(Sugerencia::id).toList();
+    }
+
+    private Producto nuevoProducto(String nombre, int stock) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setCategoria("audio");
+        producto.setPrecio(100.0);
+        producto.setStock(stock);
+        return producto;
+    }
+}
@@ -0,0 +1,76 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.model.Producto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class InstantaneasCatalogoTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private InstantaneasCatalogo instantaneasCatalogo;
+
+    @Test
+    void sirveElListadoPreSerializadoEnGzipYConElMismoContenido() throws Exception {
+        productoService.agregarProducto(new Producto(null, "Farol instantánea", null, 70.0, "instantaneas", null, 2, true));
+        String url = "/api/productos/categoria/instantaneas";
+
+        // la primera request registra la categoria; la regeneración arma su instantánea
+        String armado = mockMvc.perform(get(url)).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        instantaneasCatalogo.regenerar();
+        assertNotNull(instantaneasCatalogo.obtener(InstantaneasCatalogo.deCategoria("instantaneas")));
+
+        MockHttpServletResponse plano = mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn().getResponse();
+        assertEquals(armado, plano.getContentAsString());
+        assertNull(plano.getHeader(HttpHeaders.CONTENT_ENCODING));
+
+        MockHttpServletResponse comprimido = mockMvc.perform(get(url).header(HttpHeaders.ACCEPT_ENCODING, "br, gzip"))
+                .andExpect(status().isOk()).andReturn().getResponse();
+        assertEquals("gzip", comprimido.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(comprimido.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING));
+        assertNotEquals(plano.getHeader(HttpHeaders.ETAG), comprimido.getHeader(HttpHeaders.ETAG));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(comprimido.getContentAsByteArray()))) {
+            assertEquals(armado, new String(gzip.readAllBytes(), comprimido.getCharacterEncoding()));
+        }
+
+        mockMvc.perform(get(url).header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, comprimido.getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void unaInstantaneaViejaNoSeSirve() throws Exception {
+        Producto producto = productoService.agregarProducto(
+                new Producto(null, "Candil instantánea", null, 20.0, "instantaneas-viejas", null, 2, true));
+        instantaneasCatalogo.regenerar();
+        assertNotNull(instantaneasCatalogo.obtener(InstantaneasCatalogo.TODOS));
+
+        productoService.actualizarPrecio(producto.getId(), 25.5);
+        assertNull(instantaneasCatalogo.obtener(InstantaneasCatalogo.TODOS));
+        String cuerpo = mockMvc.perform(get("/api/productos")).andReturn().getResponse().getContentAsString();
+        assertTrue(cuerpo.contains("25.5"));
+
+        instantaneasCatalogo.regenerar();
+        assertNotNull(instantaneasCatalogo.obtener(InstantaneasCatalogo.TODOS));
+    }
+}
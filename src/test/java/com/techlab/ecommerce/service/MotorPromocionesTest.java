@@ -0,0 +1,210 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.dto.Cotizacion;
+import com.techlab.ecommerce.dto.Promocion;
+import com.techlab.ecommerce.dto.ResultadoLote;
+import com.techlab.ecommerce.dto.SolicitudPedido;
+import com.techlab.ecommerce.exception.DatosInvalidosException;
+import com.techlab.ecommerce.model.LineaPedido;
+import com.techlab.ecommerce.model.Pedido;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.repository.ReglaPromocionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:promociones;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE")
+@AutoConfigureMockMvc
+class MotorPromocionesTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ReglaPromocionRepository reglaPromocionRepository;
+
+    @Autowired
+    private MotorPromociones motorPromociones;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @AfterEach
+    void limpiar() {
+        motorPromociones.reemplazar(List.of());
+    }
+
+    @Test
+    void cadaLineaTomaSuMejorPromocionYElCarritoSeAplicaSobreElResto() {
+        Producto mate = new Producto(1, "Mate", null, 10.0, "bazar", null, 100, true);
+        Producto yerba = new Producto(2, "Yerba", null, 5.0, "almacen", null, 100, true);
+        Producto azucar = new Producto(3, "Azucar", null, 2.0, "almacen", null, 100, true);
+
+        motorPromociones.reemplazar(List.of(
+                new Promocion("mate-10", Promocion.Tipo.PRODUCTO, 1, null, null, null, 10, null),
+                new Promocion("bazar-5", Promocion.Tipo.CATEGORIA, null, "bazar", null, null, 5, null),
+                new Promocion("yerba-x3", Promocion.Tipo.CANTIDAD, 2, null, 3, null, 20, null),
+                new Promocion("almacen-x10", Promocion.Tipo.CANTIDAD, null, "almacen", 10, null, 30, null),
+                new Promocion("inactiva", Promocion.Tipo.PRODUCTO, 3, null, null, null, 90, false),
+                new Promocion("carrito-50", Promocion.Tipo.CARRITO, null, null, null, 50.0, 2, null),
+                new Promocion("carrito-100", Promocion.Tipo.CARRITO, null, null, null, 100.0, 5, null)));
+
+        // 20 - 2 (mate-10) + 10 + 2 = 30: no alcanza ningún carrito
+        Cotizacion chica = motorPromociones.calcular(pedido(mate, 2, yerba, 2, azucar, 1));
+        assertEquals(32.0, chica.subtotal());
+        assertEquals(2.0, chica.descuento());
+        assertEquals(30.0, chica.total());
+        assertEquals(List.of("mate-10"), chica.promociones());
+
+        // mate 20 - 2, yerba 15 - 3 (yerba-x3), azucar 20 - 6 (almacen-x10) = 44, sin carrito
+        Cotizacion mediana = motorPromociones.calcular(pedido(mate, 2, yerba, 3, azucar, 10));
+        assertEquals(55.0, mediana.subtotal());
+        assertEquals(44.0, mediana.total());
+        assertEquals(List.of("mate-10", "yerba-x3", "almacen-x10"), mediana.promociones());
+
+        // mate 30 - 3 = 27, más 12 y 14 = 53; carrito-50 descuenta 1.06
+        Cotizacion grande = motorPromociones.calcular(pedido(mate, 3, yerba, 3, azucar, 10));
+        assertEquals(65.0, grande.subtotal());
+        assertEquals(51.94, grande.total());
+        assertEquals(List.of("mate-10", "yerba-x3", "almacen-x10", "carrito-50"), grande.promociones());
+    }
+
+    @Test
+    void laCotizacionSeCacheaPorVersionDelPedidoYDeLasReglas() {
+        Producto termo = productoService.agregarProducto(new Producto(null, "Termo promo", null, 40.0, "bazar", null, 50, true));
+        Pedido pedido = pedidoService.crearPedidoVacio("Promociones");
+        pedidoService.agregarProductoAlPedido(pedido.getId(), termo.getId(), 1);
+
+        Cotizacion sinPromociones = pedidoService.cotizar(pedido.getId());
+        assertEquals(40.0, sinPromociones.total());
+        assertSame(sinPromociones, pedidoService.cotizar(pedido.getId()));
+
+        motorPromociones.reemplazar(List.of(
+                new Promocion("termo-25", Promocion.Tipo.PRODUCTO, termo.getId(), null, null, null, 25, null)));
+        Cotizacion conPromocion = pedidoService.cotizar(pedido.getId());
+        assertEquals(30.0, conPromocion.total());
+        assertEquals(conPromocion.versionPedido(), sinPromociones.versionPedido());
+
+        pedidoService.agregarProductoAlPedido(pedido.getId(), termo.getId(), 1);
+        Cotizacion otraVersion = pedidoService.cotizar(pedido.getId());
+        assertTrue(otraVersion.versionPedido() > conPromocion.versionPedido());
+        assertEquals(60.0, otraVersion.total());
+        assertEquals(60.0, pedidoService.calcularTotal(pedido.getId()));
+    }
+
+    @Test
+    void unPedidoConfirmadoConservaLaCotizacionConLaQueSalioDePendiente() {
+        Producto termo = productoService.agregarProducto(new Producto(null, "Termo congelado", null, 40.0, "bazar", null, 50, true));
+        Pedido pedido = pedidoService.crearPedidoVacio("Congelada");
+        pedidoService.agregarProductoAlPedido(pedido.getId(), termo.getId(), 1);
+        motorPromociones.reemplazar(List.of(
+                new Promocion("termo-25", Promocion.Tipo.PRODUCTO, termo.getId(), null, null, null, 25, null)));
+
+        pedidoService.confirmarPedido(pedido.getId());
+        motorPromociones.reemplazar(List.of(
+                new Promocion("termo-50", Promocion.Tipo.PRODUCTO, termo.getId(), null, null, null, 50, null)));
+
+        Cotizacion confirmada = pedidoService.cotizar(pedido.getId());
+        assertEquals(30.0, confirmada.total());
+        assertEquals(List.of("termo-25"), confirmada.promociones());
+
+        pedidoService.pagarPedido(pedido.getId());
+        motorPromociones.reemplazar(List.of());
+        assertEquals(30.0, pedidoService.calcularTotal(pedido.getId()));
+    }
+
+    @Test
+    void todosLosTotalesDeLaApiSonLosDeLaCotizacion() {
+        Producto termo = productoService.agregarProducto(new Producto(null, "Termo totales", null, 40.0, "bazar", null, 50, true));
+        motorPromociones.reemplazar(List.of(
+                new Promocion("termo-25", Promocion.Tipo.PRODUCTO, termo.getId(), null, null, null, 25, null)));
+
+        ResultadoLote creados = pedidoService.crearPedidos(List.of(
+                new SolicitudPedido("Totales", List.of(new SolicitudPedido.Linea(termo.getId(), 1)))));
+        int id = creados.resultados().get(0).pedidoId();
+        assertEquals(30.0, creados.resultados().get(0).total());
+        assertEquals(30.0, pedidoService.obtenerRespuesta(id).total());
+        assertEquals(30.0, pedidoService.respuesta(pedidoService.obtenerPorId(id)).total());
+
+        ResultadoLote confirmados = pedidoService.confirmarPedidos(List.of(id));
+        assertEquals(30.0, confirmados.resultados().get(0).total());
+        assertTrue(pedidoService.obtenerResumenPedido(id).endsWith("TOTAL: $30.00"));
+
+        // ya confirmado: los listados muestran la cotización congelada, no las reglas nuevas
+        motorPromociones.reemplazar(List.of());
+        assertEquals(30.0, pedidoService.obtenerRespuesta(id).total());
+        assertEquals(30.0, pedidoService.respuesta(pedidoService.pagarPedido(id)).total());
+    }
+
+    @Test
+    void lasPromocionesSeRecuperanAlArrancar() {
+        List<Promocion> vigentes = List.of(
+                new Promocion("bazar-5", Promocion.Tipo.CATEGORIA, null, "bazar", null, null, 5, null),
+                new Promocion("carrito-100", Promocion.Tipo.CARRITO, null, null, null, 100.0, 7.5, false));
+        long version = motorPromociones.reemplazar(vigentes);
+
+        MotorPromociones trasReinicio = new MotorPromociones();
+        ReflectionTestUtils.setField(trasReinicio, "reglaPromocionRepository", reglaPromocionRepository);
+        trasReinicio.afterSingletonsInstantiated();
+
+        assertEquals(vigentes, trasReinicio.listar());
+        assertEquals(version, trasReinicio.version());
+    }
+
+    @Test
+    void cambiarLasPromocionesRequiereUsuario() throws Exception {
+        String promociones = "[{\"nombre\":\"bazar-5\",\"tipo\":\"CATEGORIA\",\"categoria\":\"bazar\",\"porcentaje\":5}]";
+
+        mockMvc.perform(put("/api/promociones").contentType(MediaType.APPLICATION_JSON).content(promociones))
+                .andExpect(status().isUnauthorized());
+        assertTrue(motorPromociones.listar().isEmpty());
+
+        mockMvc.perform(get("/api/promociones")).andExpect(status().isOk());
+        mockMvc.perform(put("/api/promociones").with(user("admin"))
+                        .contentType(MediaType.APPLICATION_JSON).content(promociones))
+                .andExpect(status().isOk());
+        assertEquals(1, motorPromociones.listar().size());
+    }
+
+    @Test
+    void unaPromocionInvalidaNoReemplazaLasVigentes() {
+        List<Promocion> vigentes = List.of(
+                new Promocion("bazar-5", Promocion.Tipo.CATEGORIA, null, "bazar", null, null, 5, null));
+        long version = motorPromociones.reemplazar(vigentes);
+
+        DatosInvalidosException error = assertThrows(DatosInvalidosException.class,
+                () -> motorPromociones.reemplazar(List.of(
+                        new Promocion("ok", Promocion.Tipo.CATEGORIA, null, "bazar", null, null, 5, null),
+                        new Promocion("sin-minimo", Promocion.Tipo.CANTIDAD, 1, null, null, null, 10, null))));
+        assertTrue(error.getMessage().contains("promociones[1].cantidadMinima"));
+        assertThrows(DatosInvalidosException.class, () -> motorPromociones.reemplazar(List.of(
+                new Promocion("gratis", Promocion.Tipo.PRODUCTO, 1, null, null, null, 150, null))));
+
+        assertEquals(version, motorPromociones.version());
+        assertEquals(vigentes, motorPromociones.listar());
+    }
+
+    private static Pedido pedido(Object... productosYCantidades) {
+        Pedido pedido = new Pedido();
+        for (int i = 0; i < productosYCantidades.length; i += 2) {
+            pedido.agregarLinea(new LineaPedido((Producto) productosYCantidades[i], (Integer) productosYCantidades[i + 1]));
+        }
+        return pedido;
+    }
+}
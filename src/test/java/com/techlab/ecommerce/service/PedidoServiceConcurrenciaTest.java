@@ -0,0 +1,104 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.exception.LineasSinStockException;
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.model.LineaPedido;
+import com.techlab.ecommerce.model.Pedido;
+import com.techlab.ecommerce.model.Producto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class PedidoServiceConcurrenciaTest {
+
+    private static final int STOCK_INICIAL = 250;
+    private static final int CONFIRMACIONES = 2000;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Test
+    void confirmacionesConcurrentesNoSobrevendenUnProductoCaliente() throws Exception {
+        Producto producto = productoService.agregarProducto(nuevoProducto("Zapatilla flash", CONFIRMACIONES));
+
+        List<Integer> pedidoIds = new ArrayList<>();
+        for (int i = 0; i < CONFIRMACIONES; i++) {
+            ArrayList<LineaPedido> lineas = new ArrayList<>();
+            lineas.add(new LineaPedido(producto, 1));
+            pedidoIds.add(pedidoService.crearPedido("Cliente " + i, lineas).getId());
+        }
+        // cada pedido reservó su unidad; el stock baja después, así se venden de más
+        productoService.actualizarStock(producto.getId(), STOCK_INICIAL);
+
+        AtomicInteger confirmados = new AtomicInteger();
+        AtomicInteger sinStock = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int pedidoId : pedidoIds) {
+                tareas.add(executor.submit(() -> {
+                    try {
+                        pedidoService.confirmarPedido(pedidoId);
+                        confirmados.incrementAndGet();
+                    } catch (LineasSinStockException e) {
+                        sinStock.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Producto actualizado = productoService.obtenerPorId(producto.getId());
+        assertEquals(STOCK_INICIAL, confirmados.get());
+        assertEquals(CONFIRMACIONES - STOCK_INICIAL, sinStock.get());
+        assertEquals(0, actualizado.getStock());
+        assertFalse(actualizado.getDisponible());
+    }
+
+    @Test
+    void confirmacionInformaLasLineasSinStockYNoDescuentaLasDemas() {
+        Producto conStock = productoService.agregarProducto(nuevoProducto("Remera", 10));
+        Producto escaso = productoService.agregarProducto(nuevoProducto("Gorra", 3));
+
+        ArrayList<LineaPedido> lineas = new ArrayList<>();
+        lineas.add(new LineaPedido(conStock, 2));
+        lineas.add(new LineaPedido(escaso, 2));
+        Pedido pedido = pedidoService.crearPedido("Ana", lineas);
+
+        productoService.actualizarStock(escaso.getId(), 1);
+
+        LineasSinStockException ex = assertThrows(LineasSinStockException.class,
+                () -> pedidoService.confirmarPedido(pedido.getId()));
+
+        assertEquals(List.of(escaso.getId()), ex.getProductoIds());
+        assertEquals(10, productoService.obtenerPorId(conStock.getId()).getStock());
+        assertEquals(EstadoPedido.PENDIENTE, pedidoService.obtenerPorId(pedido.getId()).getEstado());
+    }
+
+    private Producto nuevoProducto(String nombre, int stock) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setPrecio(100.0);
+        producto.setCategoria("calzado");
+        producto.setStock(stock);
+        return producto;
+    }
+}
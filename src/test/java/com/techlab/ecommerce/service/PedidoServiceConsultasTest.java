@@ -0,0 +1,128 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.dto.Pagina;
+import com.techlab.ecommerce.dto.PedidoRespuesta;
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.model.LineaPedido;
+import com.techlab.ecommerce.model.Pedido;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.repository.PedidoRepository;
+import com.techlab.ecommerce.repository.ProductoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Controla la cantidad de sentencias SQL de los listados de pedidos para detectar regresiones N+1.
+ */
+@SpringBootTest
+class PedidoServiceConsultasTest {
+
+    private static final int PEDIDOS = 1000;
+    private static final int LINEAS_POR_PEDIDO = 3;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void cargarPedidos() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (pedidoRepository.count() >= PEDIDOS) {
+            return;
+        }
+
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            productos.add(new Producto(null, "Producto " + i, null, 10.0 + i, "general", null, 1000, true));
+        }
+        productos = productoRepository.saveAll(productos);
+
+        List<Pedido> pedidos = new ArrayList<>();
+        for (int i = 0; i < PEDIDOS; i++) {
+            Pedido pedido = new Pedido();
+            pedido.setFecha(LocalDateTime.now());
+            pedido.setEstado(i % 2 == 0 ? EstadoPedido.CONFIRMADO : EstadoPedido.PENDIENTE);
+            pedido.setClienteNombre("Cliente " + i);
+            for (int j = 0; j < LINEAS_POR_PEDIDO; j++) {
+                pedido.agregarLinea(new LineaPedido(productos.get((i + j) % productos.size()), 1));
+            }
+            pedidos.add(pedido);
+        }
+        pedidoRepository.saveAll(pedidos);
+    }
+
+    @Test
+    void recorrerLosPedidosCuestaTresConsultasPorPagina() {
+        int pedidos = 0;
+        int lineas = 0;
+        String cursor = null;
+        do {
+            statistics.clear();
+            Pagina<PedidoRespuesta> pagina = pedidoService.listarPaginaPorId(cursor, 100);
+            for (PedidoRespuesta pedido : pagina.items()) {
+                lineas += pedido.lineas().size();
+            }
+            pedidos += pagina.items().size();
+            cursor = pagina.siguienteCursor();
+            // ids de la página, cabeceras y lineas con el nombre de cada producto
+            assertEquals(pagina.items().isEmpty() ? 1 : 3, statistics.getPrepareStatementCount());
+        } while (cursor != null);
+
+        assertTrue(pedidos >= PEDIDOS);
+        assertTrue(lineas >= PEDIDOS * LINEAS_POR_PEDIDO);
+    }
+
+    @Test
+    void listarPorEstadoYTotalDeVentasNoCrecenConLosPedidos() {
+        statistics.clear();
+
+        Pagina<PedidoRespuesta> pendientes = pedidoService.listarPaginaPorEstado(EstadoPedido.PENDIENTE, null, 500);
+        pedidoService.calcularTotalVentas();
+
+        assertEquals(500, pendientes.items().size());
+        assertEquals(4, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void unaPaginaSeCargaSinEntidades() {
+        statistics.clear();
+
+        ArrayList<PedidoRespuesta> pagina = pedidoService.listarRespuestasPagina(3, 100);
+
+        assertEquals(100, pagina.size());
+        // ids de la página, conteo total de la Page, cabeceras y lineas
+        assertEquals(4, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void elResumenDeUnPedidoUsaUnaSolaConsulta() {
+        Integer pedidoId = pedidoService.listarPaginaPorId(null, 1).items().get(0).id();
+        statistics.clear();
+
+        pedidoService.obtenerResumenPedido(pedidoId);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
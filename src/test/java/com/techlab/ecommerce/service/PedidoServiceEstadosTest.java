@@ -0,0 +1,87 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.dto.ResultadoLote;
+import com.techlab.ecommerce.exception.EstadoPedidoInvalidoException;
+import com.techlab.ecommerce.exception.PedidoVacioException;
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.model.Pedido;
+import com.techlab.ecommerce.model.Producto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class PedidoServiceEstadosTest {
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void recorreElCicloDeVidaYRechazaLasTransicionesFueraDeLaTabla() {
+        Producto cafe = productoService.agregarProducto(new Producto(null, "Café estados", null, 8.0, "almacen", null, 100, true));
+        Pedido pedido = pedidoService.crearPedidoVacio("Estados");
+        assertThrows(PedidoVacioException.class, () -> pedidoService.confirmarPedido(pedido.getId()));
+        pedidoService.agregarProductoAlPedido(pedido.getId(), cafe.getId(), 2);
+
+        assertThrows(EstadoPedidoInvalidoException.class, () -> pedidoService.enviarPedido(pedido.getId()));
+        pedidoService.confirmarPedido(pedido.getId());
+        assertThrows(EstadoPedidoInvalidoException.class, () -> pedidoService.cancelarPedido(pedido.getId()));
+        pedidoService.pagarPedido(pedido.getId());
+        pedidoService.enviarPedido(pedido.getId());
+        Pedido entregado = pedidoService.entregarPedido(pedido.getId());
+
+        assertEquals(EstadoPedido.ENTREGADO, entregado.getEstado());
+        assertEquals(EstadoPedido.ENTREGADO.getCodigo(), jdbcTemplate.queryForObject(
+                "select estado from pedidos where id = ?", Short.class, pedido.getId()));
+        assertEquals(1, pedidoService.listarPaginaPorEstado(EstadoPedido.ENTREGADO, null, 1000).items().stream()
+                .filter(respuesta -> respuesta.id().equals(pedido.getId())).count());
+        // un pedido entregado sigue contando como venta
+        assertTrue(pedidoService.calcularTotalVentas() >= 16.0);
+    }
+
+    @Test
+    void enviaUnLoteDePedidosPagadosYDejaFallidosLosQueNoLoEstan() {
+        Producto yerba = productoService.agregarProducto(new Producto(null, "Yerba estados", null, 5.0, "almacen", null, 1_000, true));
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Pedido pedido = pedidoService.crearPedidoVacio("Lote estados " + i);
+            pedidoService.agregarProductoAlPedido(pedido.getId(), yerba.getId(), 1);
+            ids.add(pedido.getId());
+        }
+        assertEquals(40, pedidoService.confirmarPedidos(ids).exitosos());
+        assertEquals(39, pedidoService.transicionarPedidos(ids.subList(1, 40), EstadoPedido.PAGADO).exitosos());
+
+        ResultadoLote envio = pedidoService.transicionarPedidos(ids, EstadoPedido.ENVIADO);
+
+        assertEquals(39, envio.exitosos());
+        assertFalse(envio.resultados().get(0).exito());
+        assertEquals(EstadoPedido.CONFIRMADO, pedidoService.obtenerPorId(ids.get(0)).getEstado());
+        assertEquals(EstadoPedido.ENVIADO, pedidoService.obtenerPorId(ids.get(39)).getEstado());
+    }
+
+    @Test
+    void laTablaDeTransicionesSoloAvanzaOCancelaLosPendientes() {
+        assertTrue(EstadoPedido.PENDIENTE.puedePasarA(EstadoPedido.CONFIRMADO));
+        assertTrue(EstadoPedido.PENDIENTE.puedePasarA(EstadoPedido.CANCELADO));
+        assertFalse(EstadoPedido.PENDIENTE.puedePasarA(EstadoPedido.PAGADO));
+        assertFalse(EstadoPedido.ENTREGADO.puedePasarA(EstadoPedido.CANCELADO));
+        assertFalse(EstadoPedido.CANCELADO.puedePasarA(EstadoPedido.CANCELADO));
+        for (EstadoPedido estado : EstadoPedido.values()) {
+            assertEquals(estado, EstadoPedido.desdeCodigo(estado.getCodigo()));
+            assertEquals(estado, EstadoPedido.desdeNombre(estado.getNombre()));
+        }
+        assertEquals(EstadoPedido.ENVIADO, EstadoPedido.desdeOperacion("enviar"));
+    }
+}
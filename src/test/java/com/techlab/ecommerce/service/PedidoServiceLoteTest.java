@@ -0,0 +1,138 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.dto.ResultadoLote;
+import com.techlab.ecommerce.dto.ResultadoPedido;
+import com.techlab.ecommerce.dto.SolicitudPedido;
+import com.techlab.ecommerce.model.EstadoPedido;
+import com.techlab.ecommerce.model.Pedido;
+import com.techlab.ecommerce.model.Producto;
+import com.techlab.ecommerce.repository.PedidoRepository;
+import com.techlab.ecommerce.repository.ProductoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class PedidoServiceLoteTest {
+
+    private static final int PEDIDOS = 500;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void creaElLoteConInsertsEnBatchYRechazaSoloLosPedidosInvalidos() {
+        Producto lapiz = productoRepository.save(new Producto(null, "Lápiz lote", null, 10.0, "libreria", null, 10_000, true));
+        Producto goma = productoRepository.save(new Producto(null, "Goma lote", null, 5.0, "libreria", null, 1, true));
+
+        List<SolicitudPedido> solicitudes = new ArrayList<>();
+        for (int i = 0; i < PEDIDOS; i++) {
+            solicitudes.add(new SolicitudPedido("Cliente lote " + i, List.of(
+                    new SolicitudPedido.Linea(lapiz.getId(), 2),
+                    new SolicitudPedido.Linea(lapiz.getId(), 1))));
+        }
+        solicitudes.set(10, new SolicitudPedido("Sin stock", List.of(new SolicitudPedido.Linea(goma.getId(), 2))));
+        solicitudes.set(20, new SolicitudPedido("Inexistente", List.of(new SolicitudPedido.Linea(-1, 1))));
+        solicitudes.set(30, new SolicitudPedido(" ", List.of(new SolicitudPedido.Linea(lapiz.getId(), 1))));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ResultadoLote lote = pedidoService.crearPedidos(solicitudes);
+
+        assertEquals(PEDIDOS - 3, lote.exitosos());
+        assertEquals(3, lote.fallidos());
+        assertFalse(lote.resultados().get(10).exito());
+        assertFalse(lote.resultados().get(20).exito());
+        assertFalse(lote.resultados().get(30).exito());
+        ResultadoPedido primero = lote.resultados().get(0);
+        assertEquals(0, primero.indice());
+        assertEquals("pendiente", primero.estado());
+        assertEquals(30.0, primero.total());
+        assertEquals(2, pedidoService.obtenerPorId(primero.pedidoId()).getLineas().size());
+
+        // ~1000 pedidos + lineas en batches de 50, más las secuencias y la carga de productos
+        assertTrue(statistics.getPrepareStatementCount() < 100,
+                "sentencias: " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void confirmaElLoteDescontandoTodoONadaPorPedido() {
+        Producto taza = productoRepository.save(new Producto(null, "Taza lote", null, 10.0, "bazar", null, 5, true));
+        Producto plato = productoRepository.save(new Producto(null, "Plato lote", null, 20.0, "bazar", null, 2, true));
+
+        ResultadoLote creados = pedidoService.crearPedidos(List.of(
+                new SolicitudPedido("Ana", List.of(new SolicitudPedido.Linea(taza.getId(), 2), new SolicitudPedido.Linea(plato.getId(), 1))),
+                new SolicitudPedido("Beto", List.of(new SolicitudPedido.Linea(taza.getId(), 2), new SolicitudPedido.Linea(plato.getId(), 1))),
+                new SolicitudPedido("Caro", List.of(new SolicitudPedido.Linea(taza.getId(), 1)))));
+        List<Integer> ids = creados.resultados().stream().map(ResultadoPedido::pedidoId).toList();
+        // los dos platos quedaron reservados; la baja llega por fuera de los pedidos
+        Producto roto = productoRepository.findById(plato.getId()).orElseThrow();
+        roto.setStock(1);
+        productoRepository.save(roto);
+
+        List<Integer> aConfirmar = new ArrayList<>(ids);
+        aConfirmar.add(ids.get(0));
+        aConfirmar.add(-5);
+        ResultadoLote lote = pedidoService.confirmarPedidos(aConfirmar);
+
+        assertEquals(2, lote.exitosos());
+        assertTrue(lote.resultados().get(0).exito());
+        assertFalse(lote.resultados().get(1).exito());
+        assertTrue(lote.resultados().get(2).exito());
+        assertFalse(lote.resultados().get(3).exito());
+        assertFalse(lote.resultados().get(4).exito());
+
+        // el segundo pedido no descontó las tazas aunque había stock para ellas
+        assertEquals(2, productoRepository.findById(taza.getId()).orElseThrow().getStock());
+        assertEquals(0, productoRepository.findById(plato.getId()).orElseThrow().getStock());
+        assertEquals(EstadoPedido.PENDIENTE, pedidoService.obtenerPorId(ids.get(1)).getEstado());
+        assertEquals(EstadoPedido.CONFIRMADO, pedidoService.obtenerPorId(ids.get(2)).getEstado());
+    }
+
+    @Test
+    void unPedidoDelLoteSinDisponibleParaReservarQuedaComoFallido() {
+        Producto yerba = productoRepository.save(new Producto(null, "Yerba lote", null, 8.0, "almacen", null, 3, true));
+        Producto bombilla = productoRepository.save(new Producto(null, "Bombilla lote", null, 4.0, "almacen", null, 10, true));
+        Pedido previo = pedidoService.crearPedido(new SolicitudPedido("Previo",
+                List.of(new SolicitudPedido.Linea(yerba.getId(), 2))));
+
+        ResultadoLote lote = pedidoService.crearPedidos(List.of(
+                new SolicitudPedido("Alcanza", List.of(new SolicitudPedido.Linea(yerba.getId(), 1))),
+                new SolicitudPedido("Reservada", List.of(new SolicitudPedido.Linea(bombilla.getId(), 4),
+                        new SolicitudPedido.Linea(yerba.getId(), 1))),
+                new SolicitudPedido("Bombillas", List.of(new SolicitudPedido.Linea(bombilla.getId(), 10)))));
+
+        assertEquals(2, lote.exitosos());
+        assertTrue(lote.resultados().get(0).exito());
+        // el stock alcanza, pero la unidad que queda ya está reservada por el pedido anterior
+        ResultadoPedido fallido = lote.resultados().get(1);
+        assertFalse(fallido.exito());
+        assertNull(fallido.pedidoId());
+        assertTrue(fallido.error().contains("Yerba lote"), fallido.error());
+        // las bombillas que el pedido descartado llegó a reservar vuelven al resto del lote
+        assertTrue(lote.resultados().get(2).exito());
+        assertTrue(pedidoRepository.findByClienteNombreContainingIgnoreCase("Reservada").isEmpty());
+
+        Integer alcanza = lote.resultados().get(0).pedidoId();
+        assertTrue(pedidoService.confirmarPedidos(List.of(alcanza, previo.getId())).resultados().stream()
+                .allMatch(ResultadoPedido::exito));
+    }
+}
@@ -0,0 +1,143 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.model.Producto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:perfil-sql;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000",
+        "ecommerce.perfil-sql.umbral-sentencias=1"
+})
+@AutoConfigureMockMvc
+class PerfilSqlTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private PerfilSql perfilSql;
+
+    @Test
+    void cuentaSentenciasPorEndpointYMarcaLosQueSuperanElUmbral() throws Exception {
+        Producto mate = productoService.agregarProducto(new Producto(null, "Mate perfil", null, 10.0, "bazar", null, 50, true));
+        Producto termo = productoService.agregarProducto(new Producto(null, "Termo perfil", null, 20.0, "bazar", null, 50, true));
+        mockMvc.perform(delete("/api/diagnostico/sql")).andExpect(status().isNoContent());
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/productos/" + mate.getId())).andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/api/productos/" + termo.getId())).andExpect(status().isOk());
+        String cuerpo = "{\"clienteNombre\":\"Perfil\",\"productos\":[{\"productoId\":" + mate.getId()
+                + ",\"cantidad\":1},{\"productoId\":" + termo.getId() + ",\"cantidad\":1}]}";
+        mockMvc.perform(post("/api/pedidos/crear-completo").contentType(MediaType.APPLICATION_JSON).content(cuerpo))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/diagnostico/sql"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sentencias").value(greaterThan(0)))
+                .andExpect(jsonPath("$.endpoints[*].endpoint").value(hasItem("GET /api/productos/{id}")))
+                .andExpect(jsonPath("$.posiblesNMas1[*].endpoint").value(hasItem("POST /api/pedidos/crear-completo")))
+                .andExpect(jsonPath("$.masFrecuentes[*].sql").value(hasItem(startsWith("insert into pedidos"))))
+                .andExpect(jsonPath("$.productosMasLeidos[0].productoId").value(mate.getId()))
+                .andExpect(jsonPath("$.productosMasLeidos[0].lecturas").value(4));
+    }
+
+    @Test
+    void lasSentenciasDeUnListadoNdjsonSeCuentanEnSuEndpoint() throws Exception {
+        productoService.agregarProducto(new Producto(null, "Bombilla perfil", null, 5.0, "bazar", null, 10, true));
+        mockMvc.perform(delete("/api/diagnostico/sql")).andExpect(status().isNoContent());
+
+        MvcResult resultado = mockMvc.perform(get("/api/productos/stream")).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(resultado)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/diagnostico/sql"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.endpoints[?(@.endpoint == 'GET /api/productos/stream')].sentenciasPromedio")
+                        .value(hasItem(greaterThan(0.0))));
+    }
+
+    @Test
+    void elTopKNoPierdeRegistrosConcurrentes() throws Exception {
+        TopK<Integer> topK = new TopK<>(8);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int hilo = 0; hilo < 8; hilo++) {
+                tareas.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        topK.registrar(i % 4, 1);
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(80_000, topK.total());
+        for (TopK.Entrada<Integer> entrada : topK.obtener(4)) {
+            assertEquals(20_000, entrada.peso());
+            assertEquals(20_000, entrada.veces());
+        }
+    }
+
+    @Test
+    void normalizaValoresYListasDeParametros() {
+        assertEquals("select * from productos p where p.id in (?, ...) and p.nombre = ? and p.stock > ?",
+                perfilSql.normalizar("select *  from productos p\n where p.id in (?,?, ?) and p.nombre = 'O''Neil' and p.stock > 10"));
+        assertEquals("select p1_0.id from productos p1_0 where p1_0.id=?",
+                perfilSql.normalizar("select p1_0.id from productos p1_0 where p1_0.id=?"));
+    }
+
+    @Test
+    void elTopKConservaLasClavesFrecuentesConMemoriaFija() {
+        TopK<String> topK = new TopK<>(4);
+        for (int i = 0; i < 1000; i++) {
+            for (int j = 0; j < 3; j++) {
+                topK.registrar("caliente", 1);
+            }
+            topK.registrar("tibia", 1);
+            topK.registrar("tibia", 1);
+            topK.registrar("fria-" + i, 1);
+        }
+
+        List<TopK.Entrada<String>> entradas = topK.obtener(4);
+        assertEquals(4, entradas.size());
+        assertEquals("caliente", entradas.get(0).clave());
+        assertEquals("tibia", entradas.get(1).clave());
+        // el peso informado nunca es menor al real y el error acota la sobreestimación
+        assertTrue(entradas.get(0).peso() >= 3000);
+        assertTrue(entradas.get(0).peso() - entradas.get(0).error() <= 3000);
+        assertEquals(6000, topK.total());
+        assertTrue(entradas.get(3).clave().startsWith("fria-"));
+    }
+}
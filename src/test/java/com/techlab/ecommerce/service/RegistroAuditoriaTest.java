@@ -0,0 +1,108 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.dto.EventoAuditoria;
+import com.techlab.ecommerce.model.Pedido;
+import com.techlab.ecommerce.model.Producto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class RegistroAuditoriaTest {
+
+    @Autowired
+    private RegistroAuditoria registroAuditoria;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Test
+    void registraLasTransicionesDelPedidoYLasReproduceEnOrden() {
+        Producto yerba = productoService.agregarProducto(new Producto(null, "Yerba auditada", null, 10.0, "almacen", null, 20, true));
+        Pedido confirmado = pedidoService.crearPedidoVacio("Auditoría");
+        pedidoService.agregarProductoAlPedido(confirmado.getId(), yerba.getId(), 3);
+        pedidoService.confirmarPedido(confirmado.getId());
+        Pedido cancelado = pedidoService.crearPedidoVacio("Auditoría");
+        pedidoService.cancelarPedido(cancelado.getId());
+
+        List<EventoAuditoria> historial = reproducir(0, confirmado.getId());
+        assertEquals(List.of(EventoAuditoria.Tipo.PEDIDO_CREADO, EventoAuditoria.Tipo.LINEA_AGREGADA,
+                EventoAuditoria.Tipo.PEDIDO_CONFIRMADO), historial.stream().map(EventoAuditoria::tipo).toList());
+        assertEquals(yerba.getId(), historial.get(1).productoId());
+        assertEquals(3, historial.get(1).cantidad());
+        assertEquals("pendiente", historial.get(2).estadoAnterior());
+        assertEquals(30.0, historial.get(2).total());
+        assertTrue(historial.get(0).secuencia() < historial.get(1).secuencia());
+        assertTrue(historial.get(1).secuencia() < historial.get(2).secuencia());
+
+        assertEquals(EventoAuditoria.Tipo.PEDIDO_CANCELADO, reproducir(0, cancelado.getId()).get(1).tipo());
+        assertTrue(reproducir(0, null).stream().anyMatch(evento -> evento.tipo() == EventoAuditoria.Tipo.STOCK_DESCONTADO
+                && yerba.getId().equals(evento.productoId()) && evento.cantidad() == 3));
+
+        // retomar desde la última secuencia vista no repite eventos
+        List<EventoAuditoria> desdeElPrimero = reproducir(historial.get(0).secuencia(), confirmado.getId());
+        assertEquals(historial.subList(1, 3), desdeElPrimero);
+    }
+
+    @Test
+    void laColaAcotadaRechazaAlLlenarseYNoPierdeNiDuplicaConVariosProductores() throws Exception {
+        ColaAcotada<Integer> llena = new ColaAcotada<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(llena.offer(i));
+        }
+        assertFalse(llena.offer(4));
+        assertEquals(0, llena.poll());
+        assertTrue(llena.offer(4));
+
+        int productores = 4;
+        int porProductor = 20_000;
+        ColaAcotada<Integer> cola = new ColaAcotada<>(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(productores);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int p = 0; p < productores; p++) {
+                int base = p * porProductor;
+                tareas.add(executor.submit(() -> {
+                    for (int i = 0; i < porProductor; i++) {
+                        while (!cola.offer(base + i)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                }));
+            }
+            Set<Integer> recibidos = new HashSet<>();
+            while (recibidos.size() < productores * porProductor) {
+                Integer elemento = cola.poll();
+                if (elemento != null) {
+                    assertTrue(recibidos.add(elemento), "duplicado: " + elemento);
+                }
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get(1, TimeUnit.MINUTES);
+            }
+            assertNull(cola.poll());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<EventoAuditoria> reproducir(long despuesDe, Integer pedidoId) {
+        List<EventoAuditoria> eventos = new ArrayList<>();
+        registroAuditoria.reproducir(despuesDe, pedidoId, Integer.MAX_VALUE, eventos::add);
+        return eventos;
+    }
+}
@@ -0,0 +1,95 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.exception.LineasSinStockException;
+import com.techlab.ecommerce.exception.StockInsuficienteException;
+import com.techlab.ecommerce.model.Pedido;
+import com.techlab.ecommerce.model.Producto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reservas;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000",
+        "ecommerce.reservas.ttl-ms=1000",
+        "ecommerce.reservas.tick-ms=50"
+})
+class ReservasStockTest {
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private ReservasStock reservasStock;
+
+    @Test
+    void laLineaReservaStockYCancelarOConfirmarLaLibera() {
+        Producto mate = productoService.agregarProducto(new Producto(null, "Mate reservado", null, 10.0, "bazar", null, 5, true));
+        Pedido primero = pedidoService.crearPedidoVacio("Reserva");
+        pedidoService.agregarProductoAlPedido(primero.getId(), mate.getId(), 4);
+        assertEquals(1, reservasStock.disponible(mate.getId(), 5));
+
+        Pedido segundo = pedidoService.crearPedidoVacio("Reserva");
+        StockInsuficienteException rechazo = assertThrows(StockInsuficienteException.class,
+                () -> pedidoService.agregarProductoAlPedido(segundo.getId(), mate.getId(), 2));
+        assertTrue(rechazo.getMessage().contains("1"));
+
+        pedidoService.cancelarPedido(primero.getId());
+        pedidoService.agregarProductoAlPedido(segundo.getId(), mate.getId(), 2);
+        pedidoService.confirmarPedido(segundo.getId());
+
+        assertEquals(3, productoService.obtenerPorId(mate.getId()).getStock());
+        assertEquals(3, reservasStock.disponible(mate.getId(), 3));
+    }
+
+    @Test
+    void laReservaVencidaSeLiberaYElPedidoVuelveAReservarAlConfirmar() throws Exception {
+        Producto termo = productoService.agregarProducto(new Producto(null, "Termo reservado", null, 20.0, "bazar", null, 3, true));
+        Pedido dormido = pedidoService.crearPedidoVacio("Reserva");
+        pedidoService.agregarProductoAlPedido(dormido.getId(), termo.getId(), 3);
+        Pedido otro = pedidoService.crearPedidoVacio("Reserva");
+        assertThrows(StockInsuficienteException.class,
+                () -> pedidoService.agregarProductoAlPedido(otro.getId(), termo.getId(), 1));
+
+        long limite = System.currentTimeMillis() + 10_000;
+        while (reservasStock.disponible(termo.getId(), 3) < 3 && System.currentTimeMillis() < limite) {
+            Thread.sleep(50);
+        }
+        assertEquals(3, reservasStock.disponible(termo.getId(), 3));
+
+        pedidoService.agregarProductoAlPedido(otro.getId(), termo.getId(), 1);
+        // al pedido vencido ya no le alcanza lo que queda sin reservar
+        assertThrows(LineasSinStockException.class, () -> pedidoService.confirmarPedido(dormido.getId()));
+        assertEquals(2, reservasStock.disponible(termo.getId(), 3));
+        assertEquals(3, productoService.obtenerPorId(termo.getId()).getStock());
+    }
+
+    @Test
+    void laRuedaEntregaSoloLoVencidoAunqueDeVariasVueltas() {
+        RuedaTemporizadora<String> rueda = new RuedaTemporizadora<>(8, 10, 0);
+        rueda.programar("a", 25);
+        rueda.programar("b", 25 + 8 * 10);
+        rueda.programar("c", 60);
+
+        List<String> vencidos = new ArrayList<>();
+        assertEquals(1, rueda.avanzar(30, vencidos::add));
+        assertEquals(List.of("a"), vencidos);
+        assertEquals(1, rueda.avanzar(70, vencidos::add));
+        assertEquals(List.of("a", "c"), vencidos);
+        // "b" comparte ranura con "a" pero vence una vuelta después
+        assertEquals(1, rueda.avanzar(110, vencidos::add));
+        assertEquals(List.of("a", "c", "b"), vencidos);
+
+        // un vencimiento ya pasado se entrega en el próximo avance
+        rueda.programar("d", 5);
+        assertEquals(1, rueda.avanzar(111, vencidos::add));
+        assertEquals("d", vencidos.get(3));
+    }
+}
@@ -0,0 +1,210 @@
+package com.techlab.ecommerce.service;
+
+import com.techlab.ecommerce.repository.StockRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+class StockLedgerTest {
+
+    private static final int PRODUCTO = 7;
+    private static final int OTRO = 8;
+
+    @TempDir
+    Path directorio;
+
+    @AfterEach
+    void limpiarTransaccion() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void descuentosConcurrentesNoSobrevendenYSeVuelcanComoUnDelta() throws Exception {
+        StockRepository repository = repositorio(100, 0);
+        StockLedger ledger = crearLedger(repository);
+
+        AtomicInteger exitos = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                tareas.add(executor.submit(() -> {
+                    if (vender(ledger, PRODUCTO, 1)) {
+                        exitos.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(100, exitos.get());
+        assertEquals(0, ledger.disponible(PRODUCTO));
+
+        ledger.volcar();
+        verify(repository).volcar(Map.of(PRODUCTO, -100), 1L);
+
+        ledger.volcar();
+        verify(repository, times(1)).volcar(anyMap(), anyLong());
+    }
+
+    @Test
+    void losDeltasSinVolcarSeReproducenAlReiniciar() {
+        StockLedger ledger = crearLedger(repositorio(10, 0));
+        vender(ledger, PRODUCTO, 3);
+        vender(ledger, PRODUCTO, 2);
+        // sin volcar ni cerrar: simula una caída del proceso
+
+        StockRepository trasReinicio = repositorio(5, 0);
+        crearLedger(trasReinicio);
+
+        verify(trasReinicio).volcar(Map.of(PRODUCTO, -5), 1L);
+    }
+
+    @Test
+    void unSegmentoYaVolcadoNoSeReproduceAunqueSigaEnDisco() {
+        StockRepository repository = repositorio(10, 0);
+        // el commit llega a la base pero la respuesta se pierde
+        doThrow(new IllegalStateException("conexión cortada")).doNothing().when(repository).volcar(anyMap(), anyLong());
+        StockLedger ledger = crearLedger(repository);
+
+        vender(ledger, PRODUCTO, 3);
+        ledger.volcar();
+        vender(ledger, PRODUCTO, 2);
+        // caída: el segmento 1 sigue en disco, pero la base ya lo marcó
+
+        StockRepository trasReinicio = repositorio(7, 1);
+        crearLedger(trasReinicio);
+        verify(trasReinicio).volcar(Map.of(PRODUCTO, -2), 2L);
+
+        // sin caída, el volcado siguiente consulta la marca y no repite el segmento 1
+        StockRepository enMarcha = repositorio(10, 0);
+        doThrow(new IllegalStateException("conexión cortada")).doNothing().when(enMarcha).volcar(anyMap(), anyLong());
+        StockLedger otro = crearLedger(enMarcha, directorio.resolve("otro"));
+        vender(otro, PRODUCTO, 3);
+        otro.volcar();
+        vender(otro, PRODUCTO, 2);
+        when(enMarcha.ultimoSegmentoVolcado()).thenReturn(1L);
+        otro.volcar();
+        verify(enMarcha).volcar(Map.of(PRODUCTO, -2), 2L);
+    }
+
+    @Test
+    void unDescuentoDeUnaTransaccionRevertidaNoLlegaAlJournal() {
+        StockRepository repository = repositorio(10, 0);
+        StockLedger ledger = crearLedger(repository);
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(vender(ledger, PRODUCTO, 4));
+        assertEquals(6, ledger.disponible(PRODUCTO));
+        terminarTransaccion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(10, ledger.disponible(PRODUCTO));
+        ledger.volcar();
+        verify(repository, never()).volcar(anyMap(), anyLong());
+
+        StockRepository trasReinicio = repositorio(10, 0);
+        crearLedger(trasReinicio);
+        verify(trasReinicio, never()).volcar(anyMap(), anyLong());
+    }
+
+    @Test
+    void unStockAbsolutoVuelcaLosDemasAlConfirmarYSumaLoVendidoMientrasTanto() throws Exception {
+        StockRepository repository = repositorio(10, 0);
+        when(repository.consultarStock(OTRO)).thenReturn(20);
+        StockLedger ledger = crearLedger(repository);
+        vender(ledger, PRODUCTO, 4);
+        vender(ledger, OTRO, 5);
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertEquals("guardado", ledger.establecer(PRODUCTO, 50, () -> "guardado"));
+        verify(repository).volcar(Map.of(OTRO, -5), 1L);
+        // una venta de otra transacción antes del commit del stock absoluto
+        assertTrue(CompletableFuture.supplyAsync(() -> vender(ledger, PRODUCTO, 2)).get(5, TimeUnit.SECONDS));
+        assertEquals(4, ledger.disponible(PRODUCTO));
+        terminarTransaccion(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(48, ledger.disponible(PRODUCTO));
+        ledger.volcar();
+        verify(repository).volcar(Map.of(PRODUCTO, -2), 2L);
+    }
+
+    @Test
+    void unStockAbsolutoRevertidoNoCambiaNadaYLosDeltasSeVuelcanDespues() {
+        StockRepository repository = repositorio(10, 0);
+        when(repository.consultarStock(OTRO)).thenReturn(20);
+        StockLedger ledger = crearLedger(repository);
+        vender(ledger, PRODUCTO, 4);
+        vender(ledger, OTRO, 5);
+
+        TransactionSynchronizationManager.initSynchronization();
+        ledger.establecer(PRODUCTO, 50, () -> null);
+        terminarTransaccion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(6, ledger.disponible(PRODUCTO));
+        ledger.volcar();
+        verify(repository).volcar(Map.of(PRODUCTO, -4, OTRO, -5), 2L);
+    }
+
+    private static boolean vender(StockLedger ledger, int productoId, int cantidad) {
+        Map<Integer, Integer> cantidades = Map.of(productoId, cantidad);
+        if (!ledger.descontar(cantidades).isEmpty()) {
+            return false;
+        }
+        ledger.confirmarAlTerminar(cantidades);
+        return true;
+    }
+
+    private static void terminarTransaccion(int estado) {
+        List<TransactionSynchronization> sincronizaciones = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(sincronizaciones, estado);
+    }
+
+    private static StockRepository repositorio(int stock, long ultimoVolcado) {
+        StockRepository repository = mock(StockRepository.class);
+        when(repository.consultarStock(PRODUCTO)).thenReturn(stock);
+        when(repository.ultimoSegmentoVolcado()).thenReturn(ultimoVolcado);
+        return repository;
+    }
+
+    private StockLedger crearLedger(StockRepository repository) {
+        return crearLedger(repository, directorio);
+    }
+
+    private StockLedger crearLedger(StockRepository repository, Path carpeta) {
+        StockLedger ledger = new StockLedger();
+        ReflectionTestUtils.setField(ledger, "stockRepository", repository);
+        ReflectionTestUtils.setField(ledger, "habilitado", true);
+        ReflectionTestUtils.setField(ledger, "productosGestionados", Set.of(PRODUCTO, OTRO));
+        ReflectionTestUtils.setField(ledger, "rutaJournal", carpeta.resolve("stock.journal"));
+        ledger.afterSingletonsInstantiated();
+        return ledger;
+    }
+}